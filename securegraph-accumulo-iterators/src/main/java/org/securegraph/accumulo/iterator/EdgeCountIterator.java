@@ -0,0 +1,136 @@
+package org.securegraph.accumulo.iterator;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.user.RowEncodingIterator;
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * Replaces each vertex row with a single column holding the number of edge refs of the row so edges can be counted
+ * without moving the edge refs off of the tablet server. Edge refs with a hidden marker are not counted, rows
+ * without a visible vertex signal or with a hidden marker are dropped. Only the edge ref column families fetched by
+ * the scanner are counted.
+ */
+public class EdgeCountIterator extends RowEncodingIterator {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // must match org.securegraph.accumulo.AccumuloVertex.CF_SIGNAL
+    private static final Text VERTEX_CF_SIGNAL = new Text("V");
+
+    // must match org.securegraph.accumulo.AccumuloElement.CF_HIDDEN
+    private static final Text CF_HIDDEN = new Text("H");
+
+    // must match org.securegraph.accumulo.AccumuloVertex.CF_OUT_EDGE
+    private static final Text VERTEX_CF_OUT_EDGE = new Text("EOUT");
+
+    // must match org.securegraph.accumulo.AccumuloVertex.CF_IN_EDGE
+    private static final Text VERTEX_CF_IN_EDGE = new Text("EIN");
+
+    // must match org.securegraph.accumulo.AccumuloVertex.CF_OUT_EDGE_BY_LABEL
+    private static final Text VERTEX_CF_OUT_EDGE_BY_LABEL = new Text("EOUTL");
+
+    // must match org.securegraph.accumulo.AccumuloVertex.CF_IN_EDGE_BY_LABEL
+    private static final Text VERTEX_CF_IN_EDGE_BY_LABEL = new Text("EINL");
+
+    // must match org.securegraph.accumulo.AccumuloVertex.CF_OUT_EDGE_HIDDEN
+    private static final Text VERTEX_CF_OUT_EDGE_HIDDEN = new Text("EOUTH");
+
+    // must match org.securegraph.accumulo.AccumuloVertex.CF_IN_EDGE_HIDDEN
+    private static final Text VERTEX_CF_IN_EDGE_HIDDEN = new Text("EINH");
+
+    // must match org.securegraph.accumulo.ElementMutationBuilder.VALUE_SEPARATOR
+    private static final byte LABEL_SEPARATOR_BYTE = 0x1f;
+
+    @Override
+    public SortedKeyValueIterator<Key, Value> deepCopy(IteratorEnvironment env) {
+        EdgeCountIterator copy = new EdgeCountIterator();
+        copy.sourceIter = sourceIter.deepCopy(env);
+        return copy;
+    }
+
+    @Override
+    protected boolean filter(Text currentRow, List<Key> keys, List<Value> values) {
+        boolean vertexVisible = false;
+        for (Key key : keys) {
+            ByteSequence columnFamily = key.getColumnFamilyData();
+            if (equals(CF_HIDDEN, columnFamily)) {
+                return false;
+            }
+            if (equals(VERTEX_CF_SIGNAL, columnFamily)) {
+                vertexVisible = true;
+            }
+        }
+        return vertexVisible;
+    }
+
+    @Override
+    public Value rowEncoder(List<Key> keys, List<Value> values) throws IOException {
+        // a row that has not been fully migrated to label ordered edge refs can have both forms of an edge ref
+        Set<ByteSequence> outEdgeIds = new HashSet<>();
+        Set<ByteSequence> inEdgeIds = new HashSet<>();
+        Set<ByteSequence> hiddenEdgeIds = new HashSet<>();
+        for (Key key : keys) {
+            ByteSequence columnFamily = key.getColumnFamilyData();
+            ByteSequence columnQualifier = key.getColumnQualifierData();
+            if (equals(VERTEX_CF_OUT_EDGE, columnFamily)) {
+                outEdgeIds.add(columnQualifier);
+            } else if (equals(VERTEX_CF_IN_EDGE, columnFamily)) {
+                inEdgeIds.add(columnQualifier);
+            } else if (equals(VERTEX_CF_OUT_EDGE_BY_LABEL, columnFamily)) {
+                outEdgeIds.add(getEdgeIdFromLabelOrderedColumnQualifier(columnQualifier));
+            } else if (equals(VERTEX_CF_IN_EDGE_BY_LABEL, columnFamily)) {
+                inEdgeIds.add(getEdgeIdFromLabelOrderedColumnQualifier(columnQualifier));
+            } else if (equals(VERTEX_CF_OUT_EDGE_HIDDEN, columnFamily) || equals(VERTEX_CF_IN_EDGE_HIDDEN, columnFamily)) {
+                hiddenEdgeIds.add(columnQualifier);
+            }
+        }
+        outEdgeIds.removeAll(hiddenEdgeIds);
+        inEdgeIds.removeAll(hiddenEdgeIds);
+        return encodeCount(outEdgeIds.size() + inEdgeIds.size());
+    }
+
+    @Override
+    public SortedMap<Key, Value> rowDecoder(Key rowKey, Value rowValue) throws IOException {
+        SortedMap<Key, Value> row = new TreeMap<>();
+        row.put(rowKey, rowValue);
+        return row;
+    }
+
+    public static Value encodeCount(int count) {
+        return new Value(Integer.toString(count).getBytes(UTF_8));
+    }
+
+    public static int decodeCount(Value value) {
+        return Integer.parseInt(new String(value.get(), UTF_8));
+    }
+
+    // column qualifier is [label][separator][edge id]
+    private static ByteSequence getEdgeIdFromLabelOrderedColumnQualifier(ByteSequence columnQualifier) {
+        for (int i = 0; i < columnQualifier.length(); i++) {
+            if (columnQualifier.byteAt(i) == LABEL_SEPARATOR_BYTE) {
+                return columnQualifier.subSequence(i + 1, columnQualifier.length());
+            }
+        }
+        return columnQualifier;
+    }
+
+    private static boolean equals(Text text, ByteSequence byteSequence) {
+        if (text.getLength() != byteSequence.length()) {
+            return false;
+        }
+        byte[] bytes = text.getBytes();
+        for (int i = 0; i < text.getLength(); i++) {
+            if (bytes[i] != byteSequence.byteAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,282 @@
+package org.securegraph.accumulo.iterator;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.Filter;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Removes vertex edge ref columns whose edge label or other vertex id do not match the configured values so that
+ * label restricted traversals do not move the whole adjacency list off of the tablet server. All other columns
+ * are passed through untouched.
+ */
+public class EdgeRefFilter extends Filter {
+    public static final String OPT_LABELS = "labels";
+    public static final String OPT_OTHER_VERTEX_ID = "otherVertexId";
+    public static final String OPT_LABEL_IDS = "labelIds";
+
+    // must match org.securegraph.accumulo.ElementMutationBuilder.VALUE_SEPARATOR
+    public static final String LABEL_SEPARATOR = "\u001f";
+
+    // must match org.securegraph.accumulo.EdgeInfo.CHARSET_NAME
+    private static final String CHARSET_NAME = "UTF-8";
+
+    // must match org.securegraph.accumulo.AccumuloVertex.CF_OUT_EDGE
+    private static final Text VERTEX_CF_OUT_EDGE = new Text("EOUT");
+
+    // must match org.securegraph.accumulo.AccumuloVertex.CF_IN_EDGE
+    private static final Text VERTEX_CF_IN_EDGE = new Text("EIN");
+
+    // must match org.securegraph.accumulo.AccumuloVertex.CF_OUT_EDGE_BY_LABEL
+    private static final Text VERTEX_CF_OUT_EDGE_BY_LABEL = new Text("EOUTL");
+
+    // must match org.securegraph.accumulo.AccumuloVertex.CF_IN_EDGE_BY_LABEL
+    private static final Text VERTEX_CF_IN_EDGE_BY_LABEL = new Text("EINL");
+
+    // must match org.securegraph.accumulo.EdgeInfo.LABEL_ID_FORMAT
+    private static final byte LABEL_ID_FORMAT = (byte) 0x80;
+
+    private static final byte LABEL_SEPARATOR_BYTE = 0x1f;
+
+    private byte[][] labels;
+    private int[] labelIds = new int[0];
+    private byte[] otherVertexId;
+
+    @Override
+    public void init(SortedKeyValueIterator<Key, Value> source, Map<String, String> options, IteratorEnvironment env) throws IOException {
+        super.init(source, options, env);
+
+        String labelsOption = options.get(OPT_LABELS);
+        if (labelsOption != null) {
+            // an empty option is no labels, which keeps no edge refs, not the empty label
+            String[] labelStrings = labelsOption.length() == 0 ? new String[0] : labelsOption.split(LABEL_SEPARATOR);
+            this.labels = new byte[labelStrings.length][];
+            for (int i = 0; i < labelStrings.length; i++) {
+                this.labels[i] = labelStrings[i].getBytes(CHARSET_NAME);
+            }
+        }
+
+        String labelIdsOption = options.get(OPT_LABEL_IDS);
+        if (labelIdsOption != null && labelIdsOption.length() > 0) {
+            String[] labelIdStrings = labelIdsOption.split(",");
+            this.labelIds = new int[labelIdStrings.length];
+            for (int i = 0; i < labelIdStrings.length; i++) {
+                this.labelIds[i] = Integer.parseInt(labelIdStrings[i]);
+            }
+        }
+
+        String otherVertexIdOption = options.get(OPT_OTHER_VERTEX_ID);
+        if (otherVertexIdOption != null) {
+            this.otherVertexId = otherVertexIdOption.getBytes(CHARSET_NAME);
+        }
+
+        if (this.labels == null && this.otherVertexId == null) {
+            throw new IllegalArgumentException(OPT_LABELS + " and/or " + OPT_OTHER_VERTEX_ID + " must be set to a non-null value.");
+        }
+    }
+
+    @Override
+    public SortedKeyValueIterator<Key, Value> deepCopy(IteratorEnvironment env) {
+        EdgeRefFilter copy = (EdgeRefFilter) super.deepCopy(env);
+        copy.labels = this.labels;
+        copy.labelIds = this.labelIds;
+        copy.otherVertexId = this.otherVertexId;
+        return copy;
+    }
+
+    @Override
+    public boolean accept(Key key, Value value) {
+        ByteSequence columnFamily = key.getColumnFamilyData();
+        boolean labelOrdered = isLabelOrderedEdgeRefColumnFamily(columnFamily);
+        if (!labelOrdered && !isEdgeRefColumnFamily(columnFamily)) {
+            return true;
+        }
+
+        // label ordered edge refs have a column qualifier of label + LABEL_SEPARATOR + edge id
+        if (labelOrdered && this.labels != null && !matchesAnyLabelPrefix(key.getColumnQualifierData())) {
+            return false;
+        }
+        if (labelOrdered && this.otherVertexId == null) {
+            return true;
+        }
+
+        // EdgeInfo is encoded as [label length][label bytes][vertex id length][vertex id bytes] or
+        // [LABEL_ID_FORMAT][label id varint][vertex id length][vertex id bytes], see org.securegraph.accumulo.EdgeInfo
+        byte[] bytes = value.get();
+        int vertexIdLengthOffset;
+        boolean labelMatches;
+        if (bytes.length > 0 && bytes[0] == LABEL_ID_FORMAT) {
+            int labelId = 0;
+            int offset = 1;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[offset++];
+                labelId |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+            }
+            vertexIdLengthOffset = offset;
+            labelMatches = labelOrdered || this.labels == null || matchesAnyLabelId(labelId);
+        } else {
+            int labelLength = readInt(bytes, 0);
+            int labelOffset = 4;
+            vertexIdLengthOffset = labelOffset + Math.max(labelLength, 0);
+            labelMatches = labelOrdered || this.labels == null || matchesAnyLabel(bytes, labelOffset, labelLength);
+        }
+        int vertexIdLength = readInt(bytes, vertexIdLengthOffset);
+        int vertexIdOffset = vertexIdLengthOffset + 4;
+
+        if (!labelMatches) {
+            return false;
+        }
+
+        if (this.otherVertexId != null && !equals(this.otherVertexId, bytes, vertexIdOffset, vertexIdLength)) {
+            return false;
+        }
+
+        return true;
+    }
+
+    private boolean matchesAnyLabel(byte[] bytes, int offset, int length) {
+        for (byte[] label : this.labels) {
+            if (equals(label, bytes, offset, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesAnyLabelId(int labelId) {
+        for (int id : this.labelIds) {
+            if (id == labelId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesAnyLabelPrefix(ByteSequence columnQualifier) {
+        int labelLength = 0;
+        while (labelLength < columnQualifier.length() && columnQualifier.byteAt(labelLength) != LABEL_SEPARATOR_BYTE) {
+            labelLength++;
+        }
+        for (byte[] label : this.labels) {
+            if (startsWith(columnQualifier, label, labelLength)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWith(ByteSequence byteSequence, byte[] expected, int length) {
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (expected[i] != byteSequence.byteAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLabelOrderedEdgeRefColumnFamily(ByteSequence columnFamily) {
+        return equals(VERTEX_CF_OUT_EDGE_BY_LABEL, columnFamily) || equals(VERTEX_CF_IN_EDGE_BY_LABEL, columnFamily);
+    }
+
+    private static boolean isEdgeRefColumnFamily(ByteSequence columnFamily) {
+        return equals(VERTEX_CF_OUT_EDGE, columnFamily) || equals(VERTEX_CF_IN_EDGE, columnFamily);
+    }
+
+    private static boolean equals(Text text, ByteSequence byteSequence) {
+        if (text.getLength() != byteSequence.length()) {
+            return false;
+        }
+        byte[] textBytes = text.getBytes();
+        for (int i = 0; i < text.getLength(); i++) {
+            if (textBytes[i] != byteSequence.byteAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals(byte[] expected, byte[] bytes, int offset, int length) {
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (expected[i] != bytes[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 24)
+                | ((bytes[offset + 1] & 0xff) << 16)
+                | ((bytes[offset + 2] & 0xff) << 8)
+                | (bytes[offset + 3] & 0xff);
+    }
+
+    public static void setLabels(IteratorSetting iteratorSetting, String[] labels) {
+        StringBuilder labelsOption = new StringBuilder();
+        for (String label : labels) {
+            if (label.contains(LABEL_SEPARATOR)) {
+                throw new IllegalArgumentException("Labels cannot contain the label separator: " + Arrays.toString(labels));
+            }
+            if (labelsOption.length() > 0) {
+                labelsOption.append(LABEL_SEPARATOR);
+            }
+            labelsOption.append(label);
+        }
+        iteratorSetting.addOption(OPT_LABELS, labelsOption.toString());
+    }
+
+    /**
+     * The edge label dictionary ids of the labels, used to filter edge refs that store their label as an id. Only
+     * needed together with {@link #setLabels(IteratorSetting, String[])}.
+     */
+    public static void setLabelIds(IteratorSetting iteratorSetting, int[] labelIds) {
+        StringBuilder labelIdsOption = new StringBuilder();
+        for (int labelId : labelIds) {
+            if (labelIdsOption.length() > 0) {
+                labelIdsOption.append(',');
+            }
+            labelIdsOption.append(labelId);
+        }
+        iteratorSetting.addOption(OPT_LABEL_IDS, labelIdsOption.toString());
+    }
+
+    public static void setOtherVertexId(IteratorSetting iteratorSetting, String otherVertexId) {
+        iteratorSetting.addOption(OPT_OTHER_VERTEX_ID, otherVertexId);
+    }
+
+    @Override
+    public IteratorOptions describeOptions() {
+        IteratorOptions io = super.describeOptions();
+        io.setName("edgeRefFilter");
+        io.setDescription("Filters vertex edge refs by edge label and/or other vertex id");
+        io.addNamedOption(OPT_LABELS, "labels to keep separated by \\u001f");
+        io.addNamedOption(OPT_LABEL_IDS, "edge label dictionary ids of the labels to keep separated by commas");
+        io.addNamedOption(OPT_OTHER_VERTEX_ID, "other vertex id to keep");
+        return io;
+    }
+
+    @Override
+    public boolean validateOptions(Map<String, String> options) {
+        if (!super.validateOptions(options)) {
+            return false;
+        }
+        return options.get(OPT_LABELS) != null || options.get(OPT_OTHER_VERTEX_ID) != null;
+    }
+}
@@ -0,0 +1,78 @@
+package org.securegraph.accumulo.migrations;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.securegraph.accumulo.AccumuloVertex;
+import org.securegraph.accumulo.EdgeInfo;
+import org.securegraph.accumulo.ElementMutationBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Moves the vertex edge refs from the edge id keyed columns (EOUT/EIN) to the label ordered columns (EOUTL/EINL).
+ * Run against the vertices table after enabling AccumuloGraphConfiguration.LABEL_ORDERED_EDGE_REFS.
+ */
+public class M003LabelOrderedEdgeRefs extends MRMigrationBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(M003LabelOrderedEdgeRefs.class);
+
+    public static void main(String[] args) throws Exception {
+        run(new M003LabelOrderedEdgeRefs(), args);
+    }
+
+    @Override
+    protected Class<? extends Mapper> getMigrationMapperClass() {
+        return MigrationMapper.class;
+    }
+
+    public static class MigrationMapper extends MRMigrationMapperBase<Key, Value> {
+        @Override
+        protected void safeMap(Key key, Value value, Context context) throws IOException, InterruptedException {
+            context.setStatus(key.getRow().toString());
+
+            Mutation m = createMutation(key, value);
+            if (m != null) {
+                context.write(getOutputTableNameText(), m);
+            }
+        }
+    }
+
+    /**
+     * Creates the mutation that moves an edge ref to its label ordered column. The put and the delete are in one
+     * mutation, which is applied to the row atomically.
+     *
+     * @return null if the column is not an edge ref.
+     */
+    static Mutation createMutation(Key key, Value value) {
+        Text newColumnFamily;
+        if (key.getColumnFamily().equals(AccumuloVertex.CF_OUT_EDGE)) {
+            newColumnFamily = AccumuloVertex.CF_OUT_EDGE_BY_LABEL;
+        } else if (key.getColumnFamily().equals(AccumuloVertex.CF_IN_EDGE)) {
+            newColumnFamily = AccumuloVertex.CF_IN_EDGE_BY_LABEL;
+        } else {
+            return null;
+        }
+
+        Mutation m = new Mutation(key.getRow());
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("mutation: " + key.getRow());
+        }
+
+        String edgeLabel = EdgeInfo.parse(value).getLabel();
+        Text newColumnQualifier = ElementMutationBuilder.getLabelOrderedEdgeRefColumnQualifier(edgeLabel, key.getColumnQualifier().toString());
+        m.put(newColumnFamily, newColumnQualifier, key.getColumnVisibilityParsed(), key.getTimestamp(), value);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("  put: " + newColumnFamily + ", " + newColumnQualifier + ", " + key.getColumnVisibilityParsed() + ", " + key.getTimestamp());
+        }
+
+        m.putDelete(key.getColumnFamily(), key.getColumnQualifier(), key.getColumnVisibilityParsed(), key.getTimestamp());
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("  put delete: " + key.getColumnFamily() + ", " + key.getColumnQualifier() + ", " + key.getColumnVisibilityParsed() + ", " + key.getTimestamp());
+        }
+        return m;
+    }
+}
@@ -0,0 +1,73 @@
+package org.securegraph.accumulo.migrations;
+
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.accumulo.AccumuloElement;
+import org.securegraph.accumulo.AccumuloVertex;
+import org.securegraph.accumulo.EdgeInfo;
+import org.securegraph.accumulo.ElementMutationBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class M003LabelOrderedEdgeRefsTest {
+    private static final long TIMESTAMP = 1234L;
+
+    @Test
+    public void testMovesOutEdgeRef() {
+        assertMoved(AccumuloVertex.CF_OUT_EDGE, AccumuloVertex.CF_OUT_EDGE_BY_LABEL);
+    }
+
+    @Test
+    public void testMovesInEdgeRef() {
+        assertMoved(AccumuloVertex.CF_IN_EDGE, AccumuloVertex.CF_IN_EDGE_BY_LABEL);
+    }
+
+    @Test
+    public void testIgnoresOtherColumns() {
+        Value value = new EdgeInfo("label1", "v2").toValue();
+        assertNull(M003LabelOrderedEdgeRefs.createMutation(createKey(AccumuloVertex.CF_SIGNAL, "", "a"), new Value(new byte[0])));
+        assertNull(M003LabelOrderedEdgeRefs.createMutation(createKey(AccumuloVertex.CF_OUT_EDGE_HIDDEN, "e1", "a"), new Value(new byte[0])));
+        assertNull(M003LabelOrderedEdgeRefs.createMutation(createKey(AccumuloElement.CF_PROPERTY, "k1\u001fprop1", "a"), new Value(new byte[0])));
+        Text migratedColumnQualifier = ElementMutationBuilder.getLabelOrderedEdgeRefColumnQualifier("label1", "e1");
+        assertNull(M003LabelOrderedEdgeRefs.createMutation(createKey(AccumuloVertex.CF_OUT_EDGE_BY_LABEL, migratedColumnQualifier.toString(), "a"), value));
+    }
+
+    private void assertMoved(Text columnFamily, Text labelOrderedColumnFamily) {
+        Value value = new EdgeInfo("label1", "v2").toValue();
+        Mutation m = M003LabelOrderedEdgeRefs.createMutation(createKey(columnFamily, "e1", "a"), value);
+        assertNotNull(m);
+        assertEquals("Vv1", new String(m.getRow()));
+
+        List<ColumnUpdate> updates = m.getUpdates();
+        assertEquals(2, updates.size());
+
+        ColumnUpdate put = updates.get(0);
+        assertFalse(put.isDeleted());
+        assertEquals(labelOrderedColumnFamily, new Text(put.getColumnFamily()));
+        assertEquals(ElementMutationBuilder.getLabelOrderedEdgeRefColumnQualifier("label1", "e1"), new Text(put.getColumnQualifier()));
+        assertEquals("a", new String(put.getColumnVisibility()));
+        assertEquals(TIMESTAMP, put.getTimestamp());
+        assertTrue(Arrays.equals(value.get(), put.getValue()));
+
+        ColumnUpdate delete = updates.get(1);
+        assertTrue(delete.isDeleted());
+        assertEquals(columnFamily, new Text(delete.getColumnFamily()));
+        assertEquals(new Text("e1"), new Text(delete.getColumnQualifier()));
+        assertEquals("a", new String(delete.getColumnVisibility()));
+        assertEquals(TIMESTAMP, delete.getTimestamp());
+    }
+
+    private static Key createKey(Text columnFamily, String columnQualifier, String columnVisibility) {
+        return new Key(new Text("Vv1"), columnFamily, new Text(columnQualifier), new Text(columnVisibility), TIMESTAMP);
+    }
+}
@@ -1,12 +1,9 @@
 package org.securegraph.accumulo;
 
-import org.apache.accumulo.core.security.ColumnVisibility;
-import org.apache.accumulo.core.security.VisibilityEvaluator;
-import org.apache.accumulo.core.security.VisibilityParseException;
 import org.securegraph.Authorizations;
-import org.securegraph.SecureGraphException;
 import org.securegraph.Visibility;
 import org.securegraph.util.ArrayUtils;
+import org.securegraph.util.VisibilityEvaluator;
 
 import java.io.Serializable;
 import java.util.Arrays;
@@ -16,6 +13,7 @@ import static org.securegraph.util.Preconditions.checkNotNull;
 public class AccumuloAuthorizations implements Authorizations, Serializable {
     private static final long serialVersionUID = 1L;
     private final String[] authorizations;
+    private transient VisibilityEvaluator visibilityEvaluator;
 
     public AccumuloAuthorizations(String... authorizations) {
         this.authorizations = authorizations;
@@ -39,18 +37,13 @@ public class AccumuloAuthorizations implements Authorizations, Serializable {
     @Override
     public boolean canRead(Visibility visibility) {
         checkNotNull(visibility, "visibility is required");
+        return getVisibilityEvaluator().canRead(visibility);
+    }
 
-        // this is just a shortcut so that we don't need to construct evaluators and visibility objects to check for an empty string.
-        if (visibility.getVisibilityString().length() == 0) {
-            return true;
-        }
-
-        VisibilityEvaluator visibilityEvaluator = new VisibilityEvaluator(new org.apache.accumulo.core.security.Authorizations(this.getAuthorizations()));
-        ColumnVisibility columnVisibility = new ColumnVisibility(visibility.getVisibilityString());
-        try {
-            return visibilityEvaluator.evaluate(columnVisibility);
-        } catch (VisibilityParseException e) {
-            throw new SecureGraphException("could not evaluate visibility " + visibility.getVisibilityString(), e);
+    private VisibilityEvaluator getVisibilityEvaluator() {
+        if (visibilityEvaluator == null) {
+            visibilityEvaluator = new VisibilityEvaluator(this.authorizations);
         }
+        return visibilityEvaluator;
     }
 }
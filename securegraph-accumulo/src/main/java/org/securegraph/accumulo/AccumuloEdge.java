@@ -37,6 +37,24 @@ public class AccumuloEdge extends AccumuloElement implements Edge {
         this.newEdgeLabel = newEdgeLabel;
     }
 
+    @Override
+    AccumuloEdge copy() {
+        return new AccumuloEdge(
+                getGraph(),
+                getId(),
+                outVertexId,
+                inVertexId,
+                label,
+                newEdgeLabel,
+                getVisibility(),
+                copyProperties(),
+                null,
+                getHiddenVisibilities(),
+                getAuthorizations(),
+                getTimestamp()
+        );
+    }
+
     String getNewEdgeLabel() {
         return newEdgeLabel;
     }
@@ -6,8 +6,13 @@ import org.securegraph.*;
 import org.securegraph.mutation.EdgeMutation;
 import org.securegraph.mutation.ExistingElementMutationImpl;
 import org.securegraph.mutation.PropertyRemoveMutation;
+import org.securegraph.property.MutablePropertyImpl;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 public abstract class AccumuloElement extends ElementBase implements Serializable, HasTimestamp {
     private static final long serialVersionUID = 1L;
@@ -96,4 +101,33 @@ public abstract class AccumuloElement extends ElementBase implements Serializabl
     public long getTimestamp() {
         return timestamp;
     }
+
+    /**
+     * Creates a copy that shares no mutable state with this element, used by {@link ElementCache} so that callers
+     * never share an element.
+     */
+    abstract AccumuloElement copy();
+
+    protected List<Property> copyProperties() {
+        List<Property> properties = new ArrayList<>();
+        for (Property property : getProperties()) {
+            if (property instanceof LazyMutableProperty) {
+                properties.add(((LazyMutableProperty) property).copy());
+            } else {
+                Metadata metadata = new Metadata();
+                for (Metadata.Entry entry : property.getMetadata().entrySet()) {
+                    metadata.add(entry.getKey(), entry.getValue(), entry.getVisibility());
+                }
+                Set<Visibility> hiddenVisibilities = null;
+                if (property.getHiddenVisibilities() != null) {
+                    hiddenVisibilities = new HashSet<>();
+                    for (Visibility hiddenVisibility : property.getHiddenVisibilities()) {
+                        hiddenVisibilities.add(hiddenVisibility);
+                    }
+                }
+                properties.add(new MutablePropertyImpl(property.getKey(), property.getName(), property.getValue(), metadata, hiddenVisibilities, property.getVisibility()));
+            }
+        }
+        return properties;
+    }
 }
@@ -2,6 +2,8 @@ package org.securegraph.accumulo;
 
 import org.apache.accumulo.core.client.*;
 import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.data.Condition;
+import org.apache.accumulo.core.data.ConditionalMutation;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Range;
@@ -12,7 +14,11 @@ import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.io.Text;
 import org.securegraph.*;
+import org.securegraph.accumulo.iterator.EdgeRefFilter;
+import org.securegraph.accumulo.iterator.EdgeCountIterator;
 import org.securegraph.accumulo.iterator.ElementVisibilityRowFilter;
+import org.securegraph.accumulo.serializer.CompressingValueSerializer;
+import org.securegraph.accumulo.serializer.TaggedValueSerializer;
 import org.securegraph.accumulo.serializer.ValueSerializer;
 import org.securegraph.event.*;
 import org.securegraph.id.IdGenerator;
@@ -24,8 +30,10 @@ import org.securegraph.property.StreamingPropertyValue;
 import org.securegraph.search.IndexHint;
 import org.securegraph.search.SearchIndex;
 import org.securegraph.util.CloseableIterable;
+import org.securegraph.util.CloseableUtils;
 import org.securegraph.util.EmptyClosableIterable;
 import org.securegraph.util.JavaSerializableUtils;
+import org.securegraph.util.JoinIterable;
 import org.securegraph.util.LookAheadIterable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,8 +58,10 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
     public static final String EDGE_AFTER_ROW_KEY_PREFIX = "F";
     private static final Object addIteratorLock = new Object();
     private static final Integer METADATA_ACCUMULO_GRAPH_VERSION = 2;
+    private static final int GET_ELEMENTS_BY_ROW_SCANNER_LIMIT = 10;
     private static final String METADATA_ACCUMULO_GRAPH_VERSION_KEY = "accumulo.graph.version";
     private static final String METADATA_VALUE_SERIALIZER = "accumulo.graph.valueSerializer";
+    private static final String METADATA_EDGE_LABEL_PREFIX = "accumulo.graph.edgeLabel.";
     private static final Authorizations METADATA_AUTHORIZATIONS = new AccumuloAuthorizations();
     private final Connector connector;
     private final ValueSerializer valueSerializer;
@@ -65,6 +75,8 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
     private final Queue<GraphEvent> graphEventQueue = new LinkedList<>();
     private Integer accumuloGraphVersion;
     private boolean foundValueSerializerMetadata;
+    private final ElementCache elementCache;
+    private final EdgeLabelDictionary edgeLabelDictionary;
 
     protected AccumuloGraph(AccumuloGraphConfiguration config, IdGenerator idGenerator, SearchIndex searchIndex, Connector connector, FileSystem fileSystem, ValueSerializer valueSerializer) {
         super(config, idGenerator, searchIndex);
@@ -72,8 +84,21 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         this.valueSerializer = valueSerializer;
         this.fileSystem = fileSystem;
         this.dataDir = config.getDataDir();
+        this.elementCache = config.getElementCacheSize() > 0 ? new ElementCache(config.getElementCacheSize()) : null;
+        this.edgeLabelDictionary = new EdgeLabelDictionary() {
+            @Override
+            protected Map<Integer, String> loadLabels() {
+                return loadEdgeLabels();
+            }
+
+            @Override
+            protected String addLabel(int id, String label) {
+                return addEdgeLabel(id, label);
+            }
+        };
+        final boolean useEdgeLabelDictionary = config.isUseEdgeLabelDictionary();
         long maxStreamingPropertyValueTableDataSize = config.getMaxStreamingPropertyValueTableDataSize();
-        this.elementMutationBuilder = new ElementMutationBuilder(fileSystem, valueSerializer, maxStreamingPropertyValueTableDataSize, dataDir) {
+        this.elementMutationBuilder = new ElementMutationBuilder(fileSystem, valueSerializer, maxStreamingPropertyValueTableDataSize, dataDir, config.isLabelOrderedEdgeRefs()) {
             @Override
             protected void saveVertexMutation(Mutation m) {
                 addMutations(getVerticesWriter(), m);
@@ -95,6 +120,14 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
                 ((MutableProperty) property).setValue(streamingPropertyValueRef.toStreamingPropertyValue(AccumuloGraph.this));
                 return streamingPropertyValueRef;
             }
+
+            @Override
+            protected EdgeInfo createEdgeInfo(String label, String vertexId) {
+                if (useEdgeLabelDictionary && label != null) {
+                    return new EdgeInfo(label, vertexId, edgeLabelDictionary);
+                }
+                return super.createEdgeInfo(label, vertexId);
+            }
         };
     }
 
@@ -134,7 +167,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         foundValueSerializerMetadata = false;
         super.setupGraphMetadata();
         if (!foundValueSerializerMetadata) {
-            setMetadata(METADATA_VALUE_SERIALIZER, valueSerializer.getClass().getName());
+            setMetadata(METADATA_VALUE_SERIALIZER, getValueSerializerClassName());
         }
     }
 
@@ -148,19 +181,86 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
             } else {
                 throw new SecureGraphException("Invalid accumulo version in metadata. " + graphMetadataEntry);
             }
+        } else if (graphMetadataEntry.getKey().startsWith(METADATA_EDGE_LABEL_PREFIX)) {
+            int id = Integer.parseInt(graphMetadataEntry.getKey().substring(METADATA_EDGE_LABEL_PREFIX.length()));
+            edgeLabelDictionary.put(id, (String) graphMetadataEntry.getValue());
         } else if (graphMetadataEntry.getKey().equals(METADATA_VALUE_SERIALIZER)) {
             if (graphMetadataEntry.getValue() instanceof String) {
                 String valueSerializerClassName = (String) graphMetadataEntry.getValue();
-                if (!valueSerializerClassName.equals(valueSerializer.getClass().getName())) {
-                    throw new SecureGraphException("Invalid " + METADATA_VALUE_SERIALIZER + " expected " + valueSerializerClassName + " found " + valueSerializer.getClass().getName());
+                if (valueSerializerClassName.equals(getValueSerializerClassName())) {
+                    foundValueSerializerMetadata = true;
+                } else if (getValueSerializerClassName().equals(TaggedValueSerializer.class.getName()) && TaggedValueSerializer.canRead(valueSerializerClassName)) {
+                    // the existing values stay readable, the new serializer is recorded once setup completes
+                    LOGGER.info("migrating " + METADATA_VALUE_SERIALIZER + " from " + valueSerializerClassName + " to " + getValueSerializerClassName());
+                } else {
+                    throw new SecureGraphException("Invalid " + METADATA_VALUE_SERIALIZER + " expected " + valueSerializerClassName + " found " + getValueSerializerClassName());
                 }
-                foundValueSerializerMetadata = true;
             } else {
                 throw new SecureGraphException("Invalid " + METADATA_VALUE_SERIALIZER + " expected string found " + graphMetadataEntry.getValue().getClass().getName());
             }
         }
     }
 
+    private Map<Integer, String> loadEdgeLabels() {
+        Map<Integer, String> labels = new HashMap<>();
+        Range range = new Range(METADATA_EDGE_LABEL_PREFIX, METADATA_EDGE_LABEL_PREFIX + "\uffff");
+        for (GraphMetadataEntry entry : getMetadataInRange(range)) {
+            int id = Integer.parseInt(entry.getKey().substring(METADATA_EDGE_LABEL_PREFIX.length()));
+            labels.put(id, (String) entry.getValue());
+        }
+        return labels;
+    }
+
+    /**
+     * Stores the label under the id using a conditional mutation so that two clients can never store different
+     * labels under the same id.
+     */
+    private String addEdgeLabel(int id, String label) {
+        String key = METADATA_EDGE_LABEL_PREFIX + id;
+        try {
+            ConditionalWriter writer = connector.createConditionalWriter(getMetadataTableName(), new ConditionalWriterConfig());
+            try {
+                ConditionalMutation m = new ConditionalMutation(key);
+                m.addCondition(new Condition(METADATA_COLUMN_FAMILY, METADATA_COLUMN_QUALIFIER));
+                m.put(METADATA_COLUMN_FAMILY, METADATA_COLUMN_QUALIFIER, new Value(JavaSerializableUtils.objectToBytes(label)));
+                ConditionalWriter.Status status = writer.write(m).getStatus();
+                if (status == ConditionalWriter.Status.ACCEPTED) {
+                    return null;
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (Exception ex) {
+            throw new SecureGraphException("Could not add edge label " + label, ex);
+        }
+        // rejected or unknown, either way the id now has a label
+        String existingLabel = (String) getMetadata(key);
+        if (existingLabel == null) {
+            throw new SecureGraphException("Could not add edge label " + label);
+        }
+        return existingLabel;
+    }
+
+    public EdgeLabelDictionary getEdgeLabelDictionary() {
+        return edgeLabelDictionary;
+    }
+
+    /**
+     * Gets the edge label dictionary ids used to filter edge refs by label. Labels without an id reload the
+     * dictionary, they may have been added by another writer even if this graph does not use the dictionary.
+     */
+    public int[] getEdgeLabelIds(String[] labels) {
+        return edgeLabelDictionary.getIds(labels, true);
+    }
+
+    private String getValueSerializerClassName() {
+        ValueSerializer serializer = valueSerializer;
+        if (serializer instanceof CompressingValueSerializer) {
+            serializer = ((CompressingValueSerializer) serializer).getValueSerializer();
+        }
+        return serializer.getClass().getName();
+    }
+
     private static void ensureTableExists(Connector connector, String tableName) {
         try {
             if (!connector.tableOperations().exists(tableName)) {
@@ -224,6 +324,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
                 );
 
                 elementMutationBuilder.saveVertex(vertex);
+                invalidateCachedElements(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + vertex.getId());
 
                 if (getIndexHint() != IndexHint.DO_NOT_INDEX) {
                     getSearchIndex().addElement(AccumuloGraph.this, vertex, authorizations);
@@ -266,6 +367,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         }
         if (hasProperty) {
             addMutations(getWriterFromElementType(element), m);
+            invalidateCachedElements(elementRowKey);
         }
 
         if (indexHint != IndexHint.DO_NOT_INDEX) {
@@ -298,6 +400,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         Mutation m = new Mutation(rowPrefix + element.getId());
         elementMutationBuilder.addPropertyRemoveToMutation(m, property);
         addMutations(getWriterFromElementType(element), m);
+        invalidateCachedElements(rowPrefix + element.getId());
 
         getSearchIndex().removeProperty(this, element, property, authorizations);
 
@@ -316,6 +419,86 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         throw new SecureGraphException("Unexpected element type: " + element.getClass().getName());
     }
 
+    private void invalidateCachedElements(String... rowKeys) {
+        if (this.elementCache == null) {
+            return;
+        }
+        for (String rowKey : rowKeys) {
+            this.elementCache.invalidate(rowKey);
+        }
+    }
+
+    private void invalidateCachedEdgeAndVertices(Edge edge) {
+        invalidateCachedElements(
+                AccumuloConstants.EDGE_ROW_KEY_PREFIX + edge.getId(),
+                AccumuloConstants.VERTEX_ROW_KEY_PREFIX + edge.getVertexId(Direction.OUT),
+                AccumuloConstants.VERTEX_ROW_KEY_PREFIX + edge.getVertexId(Direction.IN)
+        );
+    }
+
+    /**
+     * Returns the element cache or null if the cache is disabled. See {@link AccumuloGraphConfiguration#ELEMENT_CACHE_SIZE}.
+     */
+    public ElementCache getElementCache() {
+        return elementCache;
+    }
+
+    /**
+     * Returns the cached elements followed by the fetched elements, adding the fetched elements to the cache as they
+     * are read.
+     */
+    private class CachingElementIterable<T extends Element> implements CloseableIterable<T> {
+        private final List<T> cachedElements;
+        private final CloseableIterable<T> fetchedElements;
+        private final String rowKeyPrefix;
+        private final EnumSet<FetchHint> fetchHints;
+        private final Authorizations authorizations;
+        private final long cacheGeneration;
+
+        public CachingElementIterable(List<T> cachedElements, CloseableIterable<T> fetchedElements, String rowKeyPrefix, EnumSet<FetchHint> fetchHints, Authorizations authorizations, long cacheGeneration) {
+            this.cachedElements = cachedElements;
+            this.fetchedElements = fetchedElements;
+            this.rowKeyPrefix = rowKeyPrefix;
+            this.fetchHints = fetchHints;
+            this.authorizations = authorizations;
+            this.cacheGeneration = cacheGeneration;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            final Iterator<T> fetchedIterator = fetchedElements.iterator();
+            Iterable<T> fetched = new Iterable<T>() {
+                @Override
+                public Iterator<T> iterator() {
+                    return new Iterator<T>() {
+                        @Override
+                        public boolean hasNext() {
+                            return fetchedIterator.hasNext();
+                        }
+
+                        @Override
+                        public T next() {
+                            T element = fetchedIterator.next();
+                            elementCache.put(rowKeyPrefix + element.getId(), fetchHints, authorizations, element, cacheGeneration);
+                            return element;
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+            return new JoinIterable<>(cachedElements, fetched).iterator();
+        }
+
+        @Override
+        public void close() {
+            CloseableUtils.closeQuietly(fetchedElements);
+        }
+    }
+
     private void addMutations(BatchWriter writer, Mutation... mutations) {
         try {
             for (Mutation mutation : mutations) {
@@ -417,7 +600,55 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
 
     @Override
     public Iterable<Vertex> getVertices(EnumSet<FetchHint> fetchHints, Authorizations authorizations) throws SecureGraphException {
-        return getVerticesInRange(null, null, fetchHints, authorizations);
+        return getVertices(fetchHints, true, authorizations);
+    }
+
+    /**
+     * Gets all vertices. When AccumuloGraphConfiguration.PARALLEL_SCAN_THREADS is greater than 1 the tablets of the
+     * vertices table are scanned concurrently. Close the result if it is not read to the end so the scanning threads
+     * are stopped.
+     *
+     * @param ordered If false the vertices may be returned in any order which avoids waiting on slow tablets.
+     */
+    public CloseableIterable<Vertex> getVertices(final EnumSet<FetchHint> fetchHints, boolean ordered, final Authorizations authorizations) throws SecureGraphException {
+        Range range = new Range(new Key(AccumuloConstants.VERTEX_ROW_KEY_PREFIX), new Key(VERTEX_AFTER_ROW_KEY_PREFIX));
+        int numThreads = getConfiguration().getParallelScanThreads();
+        if (numThreads <= 1) {
+            return getVerticesInRange(range, fetchHints, null, authorizations);
+        }
+
+        List<Range> ranges = splitRangeByTablets(getVerticesTableName(), range);
+        return new ParallelScanIterable<Vertex>(ranges, numThreads, getConfiguration().getParallelScanQueueSize(), ordered) {
+            @Override
+            protected CloseableIterable<Vertex> scanRange(Range range) {
+                return getVerticesInRange(range, fetchHints, null, authorizations);
+            }
+        };
+    }
+
+    private List<Range> splitRangeByTablets(String tableName, Range range) {
+        Collection<Text> splits;
+        try {
+            splits = connector.tableOperations().listSplits(tableName);
+        } catch (Exception ex) {
+            throw new SecureGraphException("Could not list splits of table: " + tableName, ex);
+        }
+
+        List<Range> ranges = new ArrayList<>();
+        Text previousSplit = null;
+        for (Text split : splits) {
+            addClippedRange(ranges, range, new Range(previousSplit, false, split, true));
+            previousSplit = split;
+        }
+        addClippedRange(ranges, range, new Range(previousSplit, false, null, true));
+        return ranges;
+    }
+
+    private static void addClippedRange(List<Range> ranges, Range range, Range tabletRange) {
+        Range clippedRange = range.clip(tabletRange, true);
+        if (clippedRange != null) {
+            ranges.add(clippedRange);
+        }
     }
 
     @Override
@@ -434,6 +665,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         }
 
         addMutations(getVerticesWriter(), getDeleteRowMutation(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + vertex.getId()));
+        invalidateCachedElements(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + vertex.getId());
 
         if (hasEventListeners()) {
             queueEvent(new RemoveVertexEvent(this, vertex));
@@ -452,6 +684,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         }
 
         addMutations(getVerticesWriter(), getMarkHiddenRowMutation(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + vertex.getId(), columnVisibility));
+        invalidateCachedElements(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + vertex.getId());
 
         if (hasEventListeners()) {
             queueEvent(new MarkHiddenVertexEvent(this, vertex));
@@ -470,6 +703,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         }
 
         addMutations(getVerticesWriter(), getMarkVisibleRowMutation(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + vertex.getId(), columnVisibility));
+        invalidateCachedElements(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + vertex.getId());
 
         if (hasEventListeners()) {
             queueEvent(new MarkVisibleVertexEvent(this, vertex));
@@ -537,6 +771,11 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
                 System.currentTimeMillis()
         );
         elementMutationBuilder.saveEdge(edge);
+        invalidateCachedElements(
+                AccumuloConstants.EDGE_ROW_KEY_PREFIX + edge.getId(),
+                AccumuloConstants.VERTEX_ROW_KEY_PREFIX + outVertexId,
+                AccumuloConstants.VERTEX_ROW_KEY_PREFIX + inVertexId
+        );
 
         if (addEdgeToVertex != null) {
             addEdgeToVertex.run(edge);
@@ -565,7 +804,30 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
 
     @Override
     public CloseableIterable<Edge> getEdges(EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
-        return getEdgesInRange(null, null, fetchHints, authorizations);
+        return getEdges(fetchHints, true, authorizations);
+    }
+
+    /**
+     * Gets all edges. When AccumuloGraphConfiguration.PARALLEL_SCAN_THREADS is greater than 1 the tablets of the
+     * edges table are scanned concurrently. Close the result if it is not read to the end so the scanning threads
+     * are stopped.
+     *
+     * @param ordered If false the edges may be returned in any order which avoids waiting on slow tablets.
+     */
+    public CloseableIterable<Edge> getEdges(final EnumSet<FetchHint> fetchHints, boolean ordered, final Authorizations authorizations) {
+        Range range = new Range(new Key(AccumuloConstants.EDGE_ROW_KEY_PREFIX), new Key(EDGE_AFTER_ROW_KEY_PREFIX));
+        int numThreads = getConfiguration().getParallelScanThreads();
+        if (numThreads <= 1) {
+            return getEdgesInRange(range, fetchHints, authorizations);
+        }
+
+        List<Range> ranges = splitRangeByTablets(getEdgesTableName(), range);
+        return new ParallelScanIterable<Edge>(ranges, numThreads, getConfiguration().getParallelScanQueueSize(), ordered) {
+            @Override
+            protected CloseableIterable<Edge> scanRange(Range range) {
+                return getEdgesInRange(range, fetchHints, authorizations);
+            }
+        };
     }
 
     @Override
@@ -577,15 +839,16 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         ColumnVisibility visibility = visibilityToAccumuloVisibility(edge.getVisibility());
 
         Mutation outMutation = new Mutation(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + edge.getVertexId(Direction.OUT));
-        outMutation.putDelete(AccumuloVertex.CF_OUT_EDGE, new Text(edge.getId()), visibility);
+        elementMutationBuilder.addEdgeRefRemoveToMutation(outMutation, Direction.OUT, edge.getLabel(), edge.getId(), visibility);
 
         Mutation inMutation = new Mutation(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + edge.getVertexId(Direction.IN));
-        inMutation.putDelete(AccumuloVertex.CF_IN_EDGE, new Text(edge.getId()), visibility);
+        elementMutationBuilder.addEdgeRefRemoveToMutation(inMutation, Direction.IN, edge.getLabel(), edge.getId(), visibility);
 
         addMutations(getVerticesWriter(), outMutation, inMutation);
 
         // Remove everything else related to edge.
         addMutations(getEdgesWriter(), getDeleteRowMutation(AccumuloConstants.EDGE_ROW_KEY_PREFIX + edge.getId()));
+        invalidateCachedEdgeAndVertices(edge);
 
         if (hasEventListeners()) {
             queueEvent(new RemoveEdgeEvent(this, edge));
@@ -617,6 +880,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
 
         // Remove everything else related to edge.
         addMutations(getEdgesWriter(), getMarkHiddenRowMutation(AccumuloConstants.EDGE_ROW_KEY_PREFIX + edge.getId(), columnVisibility));
+        invalidateCachedEdgeAndVertices(edge);
 
         if (out instanceof AccumuloVertex) {
             ((AccumuloVertex) out).removeOutEdge(edge);
@@ -655,6 +919,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
 
         // Remove everything else related to edge.
         addMutations(getEdgesWriter(), getMarkVisibleRowMutation(AccumuloConstants.EDGE_ROW_KEY_PREFIX + edge.getId(), columnVisibility));
+        invalidateCachedEdgeAndVertices(edge);
 
         if (out instanceof AccumuloVertex) {
             ((AccumuloVertex) out).addOutEdge(edge);
@@ -684,6 +949,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         } else if (element instanceof Edge) {
             addMutations(getVerticesWriter(), getMarkHiddenPropertyMutation(AccumuloConstants.EDGE_ROW_KEY_PREFIX + element.getId(), property, columnVisibility));
         }
+        invalidateCachedElements(getRowPrefixForElement(element) + element.getId());
 
         if (hasEventListeners()) {
             fireGraphEvent(new MarkHiddenPropertyEvent(this, element, property, visibility));
@@ -708,6 +974,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         } else if (element instanceof Edge) {
             addMutations(getVerticesWriter(), getMarkVisiblePropertyMutation(AccumuloConstants.EDGE_ROW_KEY_PREFIX + element.getId(), property, columnVisibility));
         }
+        invalidateCachedElements(getRowPrefixForElement(element) + element.getId());
 
         if (hasEventListeners()) {
             fireGraphEvent(new MarkVisiblePropertyEvent(this, element, property, visibility));
@@ -737,6 +1004,9 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         flushWriter(this.dataWriter);
         flushWriter(this.verticesWriter);
         flushWriter(this.edgesWriter);
+        if (this.elementCache != null) {
+            this.elementCache.flushed();
+        }
         super.flush();
     }
 
@@ -806,17 +1076,133 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         return (AccumuloGraphConfiguration) super.getConfiguration();
     }
 
+    @Override
+    public boolean doesVertexExist(String vertexId, Authorizations authorizations) {
+        return doVerticesExist(Collections.singletonList(vertexId), authorizations).get(vertexId);
+    }
+
+    @Override
+    public Map<String, Boolean> doVerticesExist(List<String> ids, Authorizations authorizations) {
+        return doElementsExist(ids, AccumuloConstants.VERTEX_ROW_KEY_PREFIX, AccumuloVertex.CF_SIGNAL, authorizations, ElementType.VERTEX);
+    }
+
+    @Override
+    public boolean doesEdgeExist(String edgeId, Authorizations authorizations) {
+        return doEdgesExist(Collections.singletonList(edgeId), authorizations).get(edgeId);
+    }
+
+    @Override
+    public Map<String, Boolean> doEdgesExist(List<String> ids, Authorizations authorizations) {
+        return doElementsExist(ids, AccumuloConstants.EDGE_ROW_KEY_PREFIX, AccumuloEdge.CF_SIGNAL, authorizations, ElementType.EDGE);
+    }
+
+    /**
+     * Only the signal and hidden columns are scanned, which is typically one entry per row, and no elements are
+     * created. An element exists if its signal column is visible and it is not hidden.
+     */
+    private Map<String, Boolean> doElementsExist(List<String> ids, String rowKeyPrefix, Text signalColumnFamily, Authorizations authorizations, ElementType elementType) {
+        Map<String, Boolean> results = new HashMap<>();
+        List<Range> ranges = new ArrayList<>();
+        for (String id : ids) {
+            results.put(id, false);
+            ranges.add(new Range(rowKeyPrefix + id));
+        }
+        if (ranges.size() == 0) {
+            return results;
+        }
+
+        BatchScanner batchScanner;
+        try {
+            batchScanner = connector.createBatchScanner(getTableNameFromElementType(elementType), toAccumuloAuthorizations(authorizations), Math.min(Math.max(1, ranges.size() / 10), 10));
+        } catch (TableNotFoundException e) {
+            throw new SecureGraphException(e);
+        }
+        try {
+            batchScanner.setRanges(ranges);
+            batchScanner.fetchColumnFamily(signalColumnFamily);
+            batchScanner.fetchColumnFamily(AccumuloElement.CF_HIDDEN);
+
+            Set<String> hiddenIds = new HashSet<>();
+            for (Map.Entry<Key, Value> column : batchScanner) {
+                String id = column.getKey().getRow().toString().substring(rowKeyPrefix.length());
+                if (column.getKey().getColumnFamily().equals(AccumuloElement.CF_HIDDEN)) {
+                    hiddenIds.add(id);
+                } else {
+                    results.put(id, true);
+                }
+            }
+            for (String hiddenId : hiddenIds) {
+                results.put(hiddenId, false);
+            }
+            return results;
+        } finally {
+            batchScanner.close();
+        }
+    }
+
     @Override
     public Vertex getVertex(String vertexId, EnumSet<FetchHint> fetchHints, Authorizations authorizations) throws SecureGraphException {
-        Iterator<Vertex> vertices = getVerticesInRange(new Range(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + vertexId), fetchHints, authorizations).iterator();
+        return getVertex(vertexId, fetchHints, null, authorizations);
+    }
+
+    /**
+     * Gets a vertex keeping only the edge refs with one of the given labels. The edge refs are filtered on the
+     * tablet server so the returned vertex will only know about edges with those labels.
+     *
+     * @param edgeLabels The edge labels to keep or null to keep all edge refs.
+     */
+    public Vertex getVertex(String vertexId, EnumSet<FetchHint> fetchHints, String[] edgeLabels, Authorizations authorizations) throws SecureGraphException {
+        String rowKey = AccumuloConstants.VERTEX_ROW_KEY_PREFIX + vertexId;
+        boolean useCache = this.elementCache != null && edgeLabels == null;
+        long cacheGeneration = 0;
+        if (useCache) {
+            cacheGeneration = this.elementCache.getGeneration();
+            Vertex vertex = (Vertex) this.elementCache.get(rowKey, fetchHints, authorizations);
+            if (vertex != null) {
+                return vertex;
+            }
+        }
+        Iterator<Vertex> vertices = getVerticesInRange(new Range(rowKey), fetchHints, edgeLabels, authorizations).iterator();
         if (vertices.hasNext()) {
-            return vertices.next();
+            Vertex vertex = vertices.next();
+            if (useCache) {
+                this.elementCache.put(rowKey, fetchHints, authorizations, vertex, cacheGeneration);
+            }
+            return vertex;
         }
         return null;
     }
 
     @Override
-    public CloseableIterable<Vertex> getVertices(Iterable<String> ids, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+    public CloseableIterable<Vertex> getVertices(Iterable<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getVertices(ids, fetchHints, null, authorizations);
+    }
+
+    /**
+     * Gets vertices keeping only the edge refs with one of the given labels. See
+     * {@link #getVertex(String, java.util.EnumSet, String[], org.securegraph.Authorizations)}.
+     *
+     * @param edgeLabels The edge labels to keep or null to keep all edge refs.
+     */
+    public CloseableIterable<Vertex> getVertices(Iterable<String> ids, final EnumSet<FetchHint> fetchHints, final String[] edgeLabels, final Authorizations authorizations) {
+        if (this.elementCache == null || edgeLabels != null) {
+            return fetchVertices(ids, fetchHints, edgeLabels, authorizations);
+        }
+        long cacheGeneration = this.elementCache.getGeneration();
+        List<Vertex> cachedVertices = new ArrayList<>();
+        List<String> missingIds = new ArrayList<>();
+        for (String id : ids) {
+            Vertex vertex = (Vertex) this.elementCache.get(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + id, fetchHints, authorizations);
+            if (vertex == null) {
+                missingIds.add(id);
+            } else {
+                cachedVertices.add(vertex);
+            }
+        }
+        return new CachingElementIterable<>(cachedVertices, fetchVertices(missingIds, fetchHints, null, authorizations), AccumuloConstants.VERTEX_ROW_KEY_PREFIX, fetchHints, authorizations, cacheGeneration);
+    }
+
+    private CloseableIterable<Vertex> fetchVertices(Iterable<String> ids, final EnumSet<FetchHint> fetchHints, final String[] edgeLabels, final Authorizations authorizations) {
         final AccumuloGraph graph = this;
         final boolean includeHidden = fetchHints.contains(FetchHint.INCLUDE_HIDDEN);
 
@@ -828,6 +1214,9 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         if (ranges.size() == 0) {
             return new EmptyClosableIterable<>();
         }
+        if (!getConfiguration().isUseWholeRowIteratorForBatchFetch()) {
+            return getElementsByRow(ranges, fetchHints, edgeLabels, authorizations, ElementType.VERTEX);
+        }
 
         return new LookAheadIterable<Map.Entry<Key, Value>, Vertex>() {
             public BatchScanner batchScanner;
@@ -841,7 +1230,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
             protected Vertex convert(Map.Entry<Key, Value> wholeRow) {
                 try {
                     SortedMap<Key, Value> row = WholeRowIterator.decodeRow(wholeRow.getKey(), wholeRow.getValue());
-                    VertexMaker maker = new VertexMaker(graph, row.entrySet().iterator(), authorizations);
+                    VertexMaker maker = new VertexMaker(graph, row.entrySet().iterator(), authorizations, fetchHints, edgeLabels);
                     return maker.make(includeHidden);
                 } catch (IOException ex) {
                     throw new SecureGraphException("Could not recreate row", ex);
@@ -850,7 +1239,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
 
             @Override
             protected Iterator<Map.Entry<Key, Value>> createIterator() {
-                batchScanner = createVertexBatchScanner(fetchHints, authorizations, Math.min(Math.max(1, ranges.size() / 10), 10));
+                batchScanner = createVertexBatchScanner(fetchHints, edgeLabels, authorizations, Math.min(Math.max(1, ranges.size() / 10), 10));
                 batchScanner.setRanges(ranges);
                 return batchScanner.iterator();
             }
@@ -863,26 +1252,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         };
     }
 
-    private CloseableIterable<Vertex> getVerticesInRange(String startId, String endId, EnumSet<FetchHint> fetchHints, final Authorizations authorizations) throws SecureGraphException {
-        final Key startKey;
-        if (startId == null) {
-            startKey = new Key(AccumuloConstants.VERTEX_ROW_KEY_PREFIX);
-        } else {
-            startKey = new Key(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + startId);
-        }
-
-        final Key endKey;
-        if (endId == null) {
-            endKey = new Key(VERTEX_AFTER_ROW_KEY_PREFIX);
-        } else {
-            endKey = new Key(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + endId + "~");
-        }
-
-        Range range = new Range(startKey, endKey);
-        return getVerticesInRange(range, fetchHints, authorizations);
-    }
-
-    private CloseableIterable<Vertex> getVerticesInRange(final Range range, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+    private CloseableIterable<Vertex> getVerticesInRange(final Range range, final EnumSet<FetchHint> fetchHints, final String[] edgeLabels, final Authorizations authorizations) {
         final boolean includeHidden = fetchHints.contains(FetchHint.INCLUDE_HIDDEN);
 
         return new LookAheadIterable<Iterator<Map.Entry<Key, Value>>, Vertex>() {
@@ -895,13 +1265,13 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
 
             @Override
             protected Vertex convert(Iterator<Map.Entry<Key, Value>> next) {
-                VertexMaker maker = new VertexMaker(AccumuloGraph.this, next, authorizations);
+                VertexMaker maker = new VertexMaker(AccumuloGraph.this, next, authorizations, fetchHints, edgeLabels);
                 return maker.make(includeHidden);
             }
 
             @Override
             protected Iterator<Iterator<Map.Entry<Key, Value>>> createIterator() {
-                scanner = createVertexScanner(fetchHints, authorizations);
+                scanner = createVertexScanner(fetchHints, edgeLabels, authorizations);
                 scanner.setRange(range);
                 return new RowIterator(scanner.iterator());
             }
@@ -914,15 +1284,161 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         };
     }
 
+    /**
+     * Fetches rows without the WholeRowIterator, returning the elements in the order of the ranges. Up to
+     * GET_ELEMENTS_BY_ROW_SCANNER_LIMIT rows are fetched one at a time with a scanner and the columns are handed to the
+     * element maker as they arrive, so no row is held in memory as a whole. Larger fetches use a single batch scanner
+     * to avoid a round trip per row. A batch scanner interleaves rows from different tablets, so its columns are
+     * grouped by row and the rows are returned in range order once the scan is done.
+     */
+    private <T extends Element> CloseableIterable<T> getElementsByRow(final List<Range> ranges, final EnumSet<FetchHint> fetchHints, final String[] edgeLabels, final Authorizations authorizations, final ElementType elementType) {
+        final boolean includeHidden = fetchHints.contains(FetchHint.INCLUDE_HIDDEN);
+        final boolean useBatchScanner = ranges.size() > GET_ELEMENTS_BY_ROW_SCANNER_LIMIT;
+
+        return new LookAheadIterable<Range, T>() {
+            public ScannerBase scanner;
+            public Map<Text, SortedMap<Key, Value>> rows;
+
+            @Override
+            protected boolean isIncluded(Range src, T dest) {
+                return dest != null;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            protected T convert(Range range) {
+                Iterator<Map.Entry<Key, Value>> row;
+                if (useBatchScanner) {
+                    SortedMap<Key, Value> columns = rows.get(range.getStartKey().getRow());
+                    if (columns == null) {
+                        return null;
+                    }
+                    row = columns.entrySet().iterator();
+                } else {
+                    ((Scanner) scanner).setRange(range);
+                    row = scanner.iterator();
+                    if (!row.hasNext()) {
+                        return null;
+                    }
+                }
+                ElementMaker<? extends Element> maker;
+                if (elementType == ElementType.VERTEX) {
+                    maker = new VertexMaker(AccumuloGraph.this, row, authorizations, fetchHints, edgeLabels);
+                } else {
+                    maker = new EdgeMaker(AccumuloGraph.this, row, authorizations);
+                }
+                return (T) maker.make(includeHidden);
+            }
+
+            @Override
+            protected Iterator<Range> createIterator() {
+                if (!useBatchScanner) {
+                    scanner = createElementVisibilityScanner(fetchHints, edgeLabels, authorizations, elementType);
+                    return ranges.iterator();
+                }
+
+                BatchScanner batchScanner = createElementVisibilityBatchScanner(fetchHints, edgeLabels, authorizations, elementType, Math.min(Math.max(1, ranges.size() / 10), 10));
+                scanner = batchScanner;
+                batchScanner.setRanges(ranges);
+                rows = new HashMap<>();
+                for (Map.Entry<Key, Value> column : batchScanner) {
+                    Text rowKey = column.getKey().getRow();
+                    SortedMap<Key, Value> columns = rows.get(rowKey);
+                    if (columns == null) {
+                        columns = new TreeMap<>();
+                        rows.put(rowKey, columns);
+                    }
+                    columns.put(column.getKey(), column.getValue());
+                }
+                return ranges.iterator();
+            }
+
+            @Override
+            public void close() {
+                super.close();
+                scanner.close();
+            }
+        };
+    }
+
+    /**
+     * Reads the edge refs of one direction directly from a vertex row. Used by vertices with lazy edge refs.
+     *
+     * @param direction      IN or OUT.
+     * @param labels         The edge labels to include or null for all edge labels.
+     * @param otherVertexId  The other vertex id to include or null for all vertices.
+     * @param hiddenEdgeIds  The edge ids to exclude.
+     */
+    Iterable<Map.Entry<String, EdgeInfo>> getEdgeInfos(final String vertexId, final Direction direction, final String[] labels, final String otherVertexId, final Set<String> hiddenEdgeIds, final Authorizations authorizations) {
+        final Text edgeColumnFamily = direction == Direction.OUT ? AccumuloVertex.CF_OUT_EDGE : AccumuloVertex.CF_IN_EDGE;
+        final Text labelOrderedEdgeColumnFamily = direction == Direction.OUT ? AccumuloVertex.CF_OUT_EDGE_BY_LABEL : AccumuloVertex.CF_IN_EDGE_BY_LABEL;
+
+        return new LookAheadIterable<Map.Entry<Key, Value>, Map.Entry<String, EdgeInfo>>() {
+            public Scanner scanner;
+
+            @Override
+            protected boolean isIncluded(Map.Entry<Key, Value> src, Map.Entry<String, EdgeInfo> dest) {
+                return !hiddenEdgeIds.contains(dest.getKey());
+            }
+
+            @Override
+            protected Map.Entry<String, EdgeInfo> convert(Map.Entry<Key, Value> column) {
+                String edgeId = column.getKey().getColumnQualifier().toString();
+                if (labelOrderedEdgeColumnFamily.equals(column.getKey().getColumnFamily())) {
+                    edgeId = ElementMutationBuilder.getEdgeIdFromLabelOrderedEdgeRefColumnQualifier(edgeId);
+                }
+                return new AbstractMap.SimpleImmutableEntry<>(edgeId, EdgeInfo.parse(column.getValue(), edgeLabelDictionary));
+            }
+
+            @Override
+            protected Iterator<Map.Entry<Key, Value>> createIterator() {
+                try {
+                    scanner = connector.createScanner(getVerticesTableName(), toAccumuloAuthorizations(authorizations));
+                } catch (TableNotFoundException e) {
+                    throw new SecureGraphException(e);
+                }
+                scanner.setRange(Range.exact(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + vertexId));
+                scanner.fetchColumnFamily(edgeColumnFamily);
+                scanner.fetchColumnFamily(labelOrderedEdgeColumnFamily);
+                if (labels != null || otherVertexId != null) {
+                    IteratorSetting iteratorSetting = new IteratorSetting(
+                            99,
+                            EdgeRefFilter.class.getSimpleName(),
+                            EdgeRefFilter.class
+                    );
+                    if (labels != null) {
+                        EdgeRefFilter.setLabels(iteratorSetting, labels);
+                        EdgeRefFilter.setLabelIds(iteratorSetting, getEdgeLabelIds(labels));
+                    }
+                    if (otherVertexId != null) {
+                        EdgeRefFilter.setOtherVertexId(iteratorSetting, otherVertexId);
+                    }
+                    scanner.addScanIterator(iteratorSetting);
+                }
+                return scanner.iterator();
+            }
+
+            @Override
+            public void close() {
+                super.close();
+                scanner.close();
+            }
+        };
+    }
+
     Scanner createVertexScanner(EnumSet<FetchHint> fetchHints, Authorizations authorizations) throws SecureGraphException {
-        return createElementVisibilityScanner(fetchHints, authorizations, ElementType.VERTEX);
+        return createVertexScanner(fetchHints, null, authorizations);
+    }
+
+    Scanner createVertexScanner(EnumSet<FetchHint> fetchHints, String[] edgeLabels, Authorizations authorizations) throws SecureGraphException {
+        return createElementVisibilityScanner(fetchHints, edgeLabels, authorizations, ElementType.VERTEX);
     }
 
     Scanner createEdgeScanner(EnumSet<FetchHint> fetchHints, Authorizations authorizations) throws SecureGraphException {
-        return createElementVisibilityScanner(fetchHints, authorizations, ElementType.EDGE);
+        return createElementVisibilityScanner(fetchHints, null, authorizations, ElementType.EDGE);
     }
 
-    private Scanner createElementVisibilityScanner(EnumSet<FetchHint> fetchHints, Authorizations authorizations, ElementType elementType) throws SecureGraphException {
+    private Scanner createElementVisibilityScanner(EnumSet<FetchHint> fetchHints, String[] edgeLabels, Authorizations authorizations, ElementType elementType) throws SecureGraphException {
         try {
             String tableName = getTableNameFromElementType(elementType);
             Scanner scanner = connector.createScanner(tableName, toAccumuloAuthorizations(authorizations));
@@ -936,23 +1452,24 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
                 iteratorSetting.addOption(elementMode, Boolean.TRUE.toString());
                 scanner.addScanIterator(iteratorSetting);
             }
-            applyFetchHints(scanner, fetchHints, elementType);
+            applyFetchHints(scanner, fetchHints, elementType, isLazyEdgeRefs(elementType));
+            applyEdgeLabelFilter(scanner, edgeLabels);
             return scanner;
         } catch (TableNotFoundException e) {
             throw new SecureGraphException(e);
         }
     }
 
-    private BatchScanner createVertexBatchScanner(EnumSet<FetchHint> fetchHints, Authorizations authorizations, int numQueryThreads) throws SecureGraphException {
-        return createElementVisibilityWholeRowBatchScanner(fetchHints, authorizations, ElementType.VERTEX, numQueryThreads);
+    private BatchScanner createVertexBatchScanner(EnumSet<FetchHint> fetchHints, String[] edgeLabels, Authorizations authorizations, int numQueryThreads) throws SecureGraphException {
+        return createElementVisibilityWholeRowBatchScanner(fetchHints, edgeLabels, authorizations, ElementType.VERTEX, numQueryThreads);
     }
 
     private BatchScanner createEdgeBatchScanner(EnumSet<FetchHint> fetchHints, Authorizations authorizations, int numQueryThreads) throws SecureGraphException {
-        return createElementVisibilityWholeRowBatchScanner(fetchHints, authorizations, ElementType.EDGE, numQueryThreads);
+        return createElementVisibilityWholeRowBatchScanner(fetchHints, null, authorizations, ElementType.EDGE, numQueryThreads);
     }
 
-    private BatchScanner createElementVisibilityWholeRowBatchScanner(EnumSet<FetchHint> fetchHints, Authorizations authorizations, ElementType elementType, int numQueryThreads) throws SecureGraphException {
-        BatchScanner scanner = createElementVisibilityBatchScanner(fetchHints, authorizations, elementType, numQueryThreads);
+    private BatchScanner createElementVisibilityWholeRowBatchScanner(EnumSet<FetchHint> fetchHints, String[] edgeLabels, Authorizations authorizations, ElementType elementType, int numQueryThreads) throws SecureGraphException {
+        BatchScanner scanner = createElementVisibilityBatchScanner(fetchHints, edgeLabels, authorizations, elementType, numQueryThreads);
         IteratorSetting iteratorSetting;
 
         iteratorSetting = new IteratorSetting(
@@ -965,8 +1482,9 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         return scanner;
     }
 
-    private BatchScanner createElementVisibilityBatchScanner(EnumSet<FetchHint> fetchHints, Authorizations authorizations, ElementType elementType, int numQueryThreads) {
-        BatchScanner scanner = createElementBatchScanner(fetchHints, authorizations, elementType, numQueryThreads);
+    private BatchScanner createElementVisibilityBatchScanner(EnumSet<FetchHint> fetchHints, String[] edgeLabels, Authorizations authorizations, ElementType elementType, int numQueryThreads) {
+        BatchScanner scanner = createElementBatchScanner(fetchHints, isLazyEdgeRefs(elementType), authorizations, elementType, numQueryThreads);
+        applyEdgeLabelFilter(scanner, edgeLabels);
         IteratorSetting iteratorSetting;
         if (getConfiguration().isUseServerSideElementVisibilityRowFilter()) {
             iteratorSetting = new IteratorSetting(
@@ -981,20 +1499,27 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         return scanner;
     }
 
-    private BatchScanner createElementBatchScanner(EnumSet<FetchHint> fetchHints, Authorizations authorizations, ElementType elementType, int numQueryThreads) {
+    private BatchScanner createElementBatchScanner(EnumSet<FetchHint> fetchHints, boolean lazyEdgeRefs, Authorizations authorizations, ElementType elementType, int numQueryThreads) {
         try {
             String tableName = getTableNameFromElementType(elementType);
             BatchScanner scanner = connector.createBatchScanner(tableName, toAccumuloAuthorizations(authorizations), numQueryThreads);
-            applyFetchHints(scanner, fetchHints, elementType);
+            applyFetchHints(scanner, fetchHints, elementType, lazyEdgeRefs);
             return scanner;
         } catch (TableNotFoundException e) {
             throw new SecureGraphException(e);
         }
     }
 
-    private void applyFetchHints(ScannerBase scanner, EnumSet<FetchHint> fetchHints, ElementType elementType) {
+    private boolean isLazyEdgeRefs(ElementType elementType) {
+        return elementType == ElementType.VERTEX && getConfiguration().isLazyEdgeRefs();
+    }
+
+    /**
+     * @param lazyEdgeRefs If true only the hidden edge ref markers are fetched, the edge refs are read later by the vertex.
+     */
+    private void applyFetchHints(ScannerBase scanner, EnumSet<FetchHint> fetchHints, ElementType elementType, boolean lazyEdgeRefs) {
         scanner.clearColumns();
-        if (fetchHints.equals(FetchHint.ALL)) {
+        if (fetchHints.equals(FetchHint.ALL) && !lazyEdgeRefs) {
             return;
         }
 
@@ -1011,11 +1536,17 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         }
 
         if (fetchHints.contains(FetchHint.IN_EDGE_REFS)) {
-            scanner.fetchColumnFamily(AccumuloVertex.CF_IN_EDGE);
+            if (!lazyEdgeRefs) {
+                scanner.fetchColumnFamily(AccumuloVertex.CF_IN_EDGE);
+                scanner.fetchColumnFamily(AccumuloVertex.CF_IN_EDGE_BY_LABEL);
+            }
             scanner.fetchColumnFamily(AccumuloVertex.CF_IN_EDGE_HIDDEN);
         }
         if (fetchHints.contains(FetchHint.OUT_EDGE_REFS)) {
-            scanner.fetchColumnFamily(AccumuloVertex.CF_OUT_EDGE);
+            if (!lazyEdgeRefs) {
+                scanner.fetchColumnFamily(AccumuloVertex.CF_OUT_EDGE);
+                scanner.fetchColumnFamily(AccumuloVertex.CF_OUT_EDGE_BY_LABEL);
+            }
             scanner.fetchColumnFamily(AccumuloVertex.CF_OUT_EDGE_HIDDEN);
         }
         if (fetchHints.contains(FetchHint.PROPERTIES)) {
@@ -1028,6 +1559,22 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         }
     }
 
+    private void applyEdgeLabelFilter(ScannerBase scanner, String[] edgeLabels) {
+        if (edgeLabels == null) {
+            return;
+        }
+
+        // must run below the WholeRowIterator so that edge refs are removed before the row is encoded
+        IteratorSetting iteratorSetting = new IteratorSetting(
+                99,
+                EdgeRefFilter.class.getSimpleName(),
+                EdgeRefFilter.class
+        );
+        EdgeRefFilter.setLabels(iteratorSetting, edgeLabels);
+        EdgeRefFilter.setLabelIds(iteratorSetting, getEdgeLabelIds(edgeLabels));
+        scanner.addScanIterator(iteratorSetting);
+    }
+
     private String getTableNameFromElementType(ElementType elementType) {
         String tableName;
         switch (elementType) {
@@ -1067,15 +1614,46 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
 
     @Override
     public Edge getEdge(String edgeId, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        String rowKey = AccumuloConstants.EDGE_ROW_KEY_PREFIX + edgeId;
+        long cacheGeneration = 0;
+        if (this.elementCache != null) {
+            cacheGeneration = this.elementCache.getGeneration();
+            Edge edge = (Edge) this.elementCache.get(rowKey, fetchHints, authorizations);
+            if (edge != null) {
+                return edge;
+            }
+        }
         Iterator<Edge> edges = getEdgesInRange(edgeId, edgeId, fetchHints, authorizations).iterator();
         if (edges.hasNext()) {
-            return edges.next();
+            Edge edge = edges.next();
+            if (this.elementCache != null) {
+                this.elementCache.put(rowKey, fetchHints, authorizations, edge, cacheGeneration);
+            }
+            return edge;
         }
         return null;
     }
 
     @Override
     public CloseableIterable<Edge> getEdges(Iterable<String> ids, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+        if (this.elementCache == null) {
+            return fetchEdges(ids, fetchHints, authorizations);
+        }
+        long cacheGeneration = this.elementCache.getGeneration();
+        List<Edge> cachedEdges = new ArrayList<>();
+        List<String> missingIds = new ArrayList<>();
+        for (String id : ids) {
+            Edge edge = (Edge) this.elementCache.get(AccumuloConstants.EDGE_ROW_KEY_PREFIX + id, fetchHints, authorizations);
+            if (edge == null) {
+                missingIds.add(id);
+            } else {
+                cachedEdges.add(edge);
+            }
+        }
+        return new CachingElementIterable<>(cachedEdges, fetchEdges(missingIds, fetchHints, authorizations), AccumuloConstants.EDGE_ROW_KEY_PREFIX, fetchHints, authorizations, cacheGeneration);
+    }
+
+    private CloseableIterable<Edge> fetchEdges(Iterable<String> ids, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
         final AccumuloGraph graph = this;
         final boolean includeHidden = fetchHints.contains(FetchHint.INCLUDE_HIDDEN);
 
@@ -1087,6 +1665,9 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         if (ranges.size() == 0) {
             return new EmptyClosableIterable<>();
         }
+        if (!getConfiguration().isUseWholeRowIteratorForBatchFetch()) {
+            return getElementsByRow(ranges, fetchHints, null, authorizations, ElementType.EDGE);
+        }
 
         return new LookAheadIterable<Map.Entry<Key, Value>, Edge>() {
             public BatchScanner batchScanner;
@@ -1123,9 +1704,6 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
     }
 
     private CloseableIterable<Edge> getEdgesInRange(String startId, String endId, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) throws SecureGraphException {
-        final AccumuloGraph graph = this;
-        final boolean includeHidden = fetchHints.contains(FetchHint.INCLUDE_HIDDEN);
-
         final Key startKey;
         if (startId == null) {
             startKey = new Key(AccumuloConstants.EDGE_ROW_KEY_PREFIX);
@@ -1140,6 +1718,13 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
             endKey = new Key(AccumuloConstants.EDGE_ROW_KEY_PREFIX + endId + "~");
         }
 
+        return getEdgesInRange(new Range(startKey, endKey), fetchHints, authorizations);
+    }
+
+    private CloseableIterable<Edge> getEdgesInRange(final Range range, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) throws SecureGraphException {
+        final AccumuloGraph graph = this;
+        final boolean includeHidden = fetchHints.contains(FetchHint.INCLUDE_HIDDEN);
+
         return new LookAheadIterable<Iterator<Map.Entry<Key, Value>>, Edge>() {
             public Scanner scanner;
 
@@ -1157,7 +1742,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
             @Override
             protected Iterator<Iterator<Map.Entry<Key, Value>>> createIterator() {
                 scanner = createEdgeScanner(fetchHints, authorizations);
-                scanner.setRange(new Range(startKey, endKey));
+                scanner.setRange(range);
                 return new RowIterator(scanner.iterator());
             }
 
@@ -1211,6 +1796,9 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
             Iterator<Map.Entry<Key, Value>> it = scanner.iterator();
             if (it.hasNext()) {
                 Map.Entry<Key, Value> col = it.next();
+                if (col.getKey().getColumnQualifier().equals(ElementMutationBuilder.CQ_DEFLATED_DATA)) {
+                    return CompressingValueSerializer.inflate(col.getValue().get(), 0);
+                }
                 return col.getValue().get();
             }
         } catch (Exception ex) {
@@ -1309,10 +1897,17 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         if (elementMutationBuilder.alterElementVisibility(m, element, newVisibility)) {
             addMutations(elementWriter, m);
         }
+
+        if (element instanceof Edge) {
+            invalidateCachedEdgeAndVertices((Edge) element);
+        } else {
+            invalidateCachedElements(elementRowKey);
+        }
     }
 
     public void alterEdgeLabel(AccumuloEdge edge, String newEdgeLabel) {
         elementMutationBuilder.alterEdgeLabel(edge, newEdgeLabel);
+        invalidateCachedEdgeAndVertices(edge);
     }
 
     void alterElementPropertyVisibilities(AccumuloElement element, List<AlterPropertyVisibility> alterPropertyVisibilities) {
@@ -1341,6 +1936,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         }
         if (propertyChanged) {
             addMutations(writer, m);
+            invalidateCachedElements(elementRowKey);
         }
     }
 
@@ -1368,11 +1964,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
             elementMutationBuilder.addPropertyMetadataToMutation(m, property);
         }
         addMutations(writer, m);
-    }
-
-    @Override
-    public boolean isVisibilityValid(Visibility visibility, Authorizations authorizations) {
-        return authorizations.canRead(visibility);
+        invalidateCachedElements(elementRowKey);
     }
 
     @Override
@@ -1386,6 +1978,9 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         } catch (Exception ex) {
             throw new SecureGraphException("Could not delete rows", ex);
         }
+        if (this.elementCache != null) {
+            this.elementCache.clear();
+        }
     }
 
     @Override
@@ -1405,7 +2000,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
 
         int numQueryThreads = Math.min(Math.max(1, ranges.size() / 10), 10);
         // only fetch one size of the edge since we are scanning all vertices the edge will appear on the out on one of the vertices
-        BatchScanner batchScanner = createElementBatchScanner(EnumSet.of(FetchHint.OUT_EDGE_REFS), authorizations, ElementType.VERTEX, numQueryThreads);
+        BatchScanner batchScanner = createElementBatchScanner(EnumSet.of(FetchHint.OUT_EDGE_REFS), false, authorizations, ElementType.VERTEX, numQueryThreads);
         try {
             batchScanner.setRanges(ranges);
 
@@ -1413,12 +2008,17 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
             Set<String> edgeIds = new HashSet<>();
             while (it.hasNext()) {
                 Map.Entry<Key, Value> c = it.next();
-                if (!c.getKey().getColumnFamily().equals(AccumuloVertex.CF_OUT_EDGE)) {
+                Text columnFamily = c.getKey().getColumnFamily();
+                boolean labelOrdered = columnFamily.equals(AccumuloVertex.CF_OUT_EDGE_BY_LABEL);
+                if (!labelOrdered && !columnFamily.equals(AccumuloVertex.CF_OUT_EDGE)) {
                     continue;
                 }
-                EdgeInfo edgeInfo = EdgeInfo.parse(c.getValue());
+                EdgeInfo edgeInfo = EdgeInfo.parse(c.getValue(), edgeLabelDictionary);
                 if (vertexIdsSet.contains(edgeInfo.getVertexId())) {
                     String edgeId = c.getKey().getColumnQualifier().toString();
+                    if (labelOrdered) {
+                        edgeId = ElementMutationBuilder.getEdgeIdFromLabelOrderedEdgeRefColumnQualifier(edgeId);
+                    }
                     edgeIds.add(edgeId);
                 }
             }
@@ -1428,6 +2028,132 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         }
     }
 
+    /**
+     * Counts the edges of the vertices on the tablet servers so the edge refs are never sent to the client.
+     */
+    @Override
+    public Map<String, Integer> getEdgeCounts(Iterable<String> vertexIds, Direction direction, Authorizations authorizations) {
+        Map<String, Integer> results = new HashMap<>();
+        List<Range> ranges = new ArrayList<>();
+        for (String vertexId : vertexIds) {
+            ranges.add(new Range(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + vertexId));
+        }
+        if (ranges.size() == 0) {
+            return results;
+        }
+
+        EnumSet<FetchHint> fetchHints;
+        switch (direction) {
+            case IN:
+                fetchHints = EnumSet.of(FetchHint.IN_EDGE_REFS);
+                break;
+            case OUT:
+                fetchHints = EnumSet.of(FetchHint.OUT_EDGE_REFS);
+                break;
+            default:
+                fetchHints = FetchHint.EDGE_REFS;
+                break;
+        }
+        int numQueryThreads = Math.min(Math.max(1, ranges.size() / 10), 10);
+        BatchScanner batchScanner = createElementBatchScanner(fetchHints, false, authorizations, ElementType.VERTEX, numQueryThreads);
+        try {
+            batchScanner.setRanges(ranges);
+            batchScanner.addScanIterator(new IteratorSetting(
+                    100,
+                    EdgeCountIterator.class.getSimpleName(),
+                    EdgeCountIterator.class
+            ));
+            for (Map.Entry<Key, Value> row : batchScanner) {
+                String vertexId = row.getKey().getRow().toString().substring(AccumuloConstants.VERTEX_ROW_KEY_PREFIX.length());
+                results.put(vertexId, EdgeCountIterator.decodeCount(row.getValue()));
+            }
+            return results;
+        } finally {
+            batchScanner.close();
+        }
+    }
+
+    /**
+     * Counts the edges of a vertex with the given label. When label ordered edge refs are enabled this seeks directly
+     * to the label ordered edge refs of the label and counts them without decoding any values. Edge refs written
+     * before label ordering was enabled are still read and filtered by label on the tablet servers, an edge found in
+     * both layouts is counted once. Without label ordered edge refs all edge refs are filtered by label on the tablet
+     * servers.
+     */
+    public int getEdgeCount(String vertexId, Direction direction, String label, Authorizations authorizations) {
+        checkNotNull(vertexId, "vertexId cannot be null");
+        checkNotNull(label, "label cannot be null");
+        if (!getConfiguration().isLabelOrderedEdgeRefs()) {
+            Vertex vertex = getVertex(vertexId, FetchHint.EDGE_REFS, new String[]{label}, authorizations);
+            return vertex == null ? 0 : vertex.getEdgeCount(direction, authorizations);
+        }
+
+        Text rowKey = new Text(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + vertexId);
+        Text columnQualifierPrefix = new Text(label + ElementMutationBuilder.VALUE_SEPARATOR);
+        List<Range> ranges = new ArrayList<>();
+        ranges.add(Range.exact(rowKey, AccumuloVertex.CF_SIGNAL));
+        ranges.add(Range.exact(rowKey, AccumuloElement.CF_HIDDEN));
+        if (direction == Direction.OUT || direction == Direction.BOTH) {
+            ranges.add(Range.prefix(rowKey, AccumuloVertex.CF_OUT_EDGE_BY_LABEL, columnQualifierPrefix));
+            ranges.add(Range.exact(rowKey, AccumuloVertex.CF_OUT_EDGE));
+            ranges.add(Range.exact(rowKey, AccumuloVertex.CF_OUT_EDGE_HIDDEN));
+        }
+        if (direction == Direction.IN || direction == Direction.BOTH) {
+            ranges.add(Range.prefix(rowKey, AccumuloVertex.CF_IN_EDGE_BY_LABEL, columnQualifierPrefix));
+            ranges.add(Range.exact(rowKey, AccumuloVertex.CF_IN_EDGE));
+            ranges.add(Range.exact(rowKey, AccumuloVertex.CF_IN_EDGE_HIDDEN));
+        }
+
+        BatchScanner batchScanner;
+        try {
+            batchScanner = connector.createBatchScanner(getVerticesTableName(), toAccumuloAuthorizations(authorizations), 1);
+        } catch (TableNotFoundException e) {
+            throw new SecureGraphException(e);
+        }
+        try {
+            batchScanner.setRanges(ranges);
+            IteratorSetting iteratorSetting = new IteratorSetting(
+                    99,
+                    EdgeRefFilter.class.getSimpleName(),
+                    EdgeRefFilter.class
+            );
+            EdgeRefFilter.setLabels(iteratorSetting, new String[]{label});
+            EdgeRefFilter.setLabelIds(iteratorSetting, getEdgeLabelIds(new String[]{label}));
+            batchScanner.addScanIterator(iteratorSetting);
+
+            boolean vertexVisible = false;
+            Set<String> outEdgeIds = new HashSet<>();
+            Set<String> inEdgeIds = new HashSet<>();
+            Set<String> hiddenEdgeIds = new HashSet<>();
+            for (Map.Entry<Key, Value> column : batchScanner) {
+                Text columnFamily = column.getKey().getColumnFamily();
+                if (columnFamily.equals(AccumuloVertex.CF_SIGNAL)) {
+                    vertexVisible = true;
+                } else if (columnFamily.equals(AccumuloElement.CF_HIDDEN)) {
+                    return 0;
+                } else if (columnFamily.equals(AccumuloVertex.CF_OUT_EDGE_BY_LABEL)) {
+                    outEdgeIds.add(ElementMutationBuilder.getEdgeIdFromLabelOrderedEdgeRefColumnQualifier(column.getKey().getColumnQualifier().toString()));
+                } else if (columnFamily.equals(AccumuloVertex.CF_IN_EDGE_BY_LABEL)) {
+                    inEdgeIds.add(ElementMutationBuilder.getEdgeIdFromLabelOrderedEdgeRefColumnQualifier(column.getKey().getColumnQualifier().toString()));
+                } else if (columnFamily.equals(AccumuloVertex.CF_OUT_EDGE)) {
+                    outEdgeIds.add(column.getKey().getColumnQualifier().toString());
+                } else if (columnFamily.equals(AccumuloVertex.CF_IN_EDGE)) {
+                    inEdgeIds.add(column.getKey().getColumnQualifier().toString());
+                } else {
+                    hiddenEdgeIds.add(column.getKey().getColumnQualifier().toString());
+                }
+            }
+            if (!vertexVisible) {
+                return 0;
+            }
+            outEdgeIds.removeAll(hiddenEdgeIds);
+            inEdgeIds.removeAll(hiddenEdgeIds);
+            return outEdgeIds.size() + inEdgeIds.size();
+        } finally {
+            batchScanner.close();
+        }
+    }
+
     public Iterable<GraphMetadataEntry> getMetadataInRange(final Range range) {
         return new LookAheadIterable<Map.Entry<Key, Value>, GraphMetadataEntry>() {
             public BatchScanner batchScanner;
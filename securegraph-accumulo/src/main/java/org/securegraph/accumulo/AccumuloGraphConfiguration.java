@@ -10,6 +10,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.securegraph.GraphConfiguration;
 import org.securegraph.SecureGraphException;
+import org.securegraph.accumulo.serializer.CompressingValueSerializer;
 import org.securegraph.accumulo.serializer.JavaValueSerializer;
 import org.securegraph.accumulo.serializer.ValueSerializer;
 import org.securegraph.util.ConfigurationUtils;
@@ -39,6 +40,15 @@ public class AccumuloGraphConfiguration extends GraphConfiguration {
     public static final String HDFS_ROOT_DIR = HDFS_CONFIG_PREFIX + ".rootDir";
     public static final String DATA_DIR = HDFS_CONFIG_PREFIX + ".dataDir";
     public static final String USE_SERVER_SIDE_ELEMENT_VISIBILITY_ROW_FILTER = "useServerSideElementVisibilityRowFilter";
+    public static final String LABEL_ORDERED_EDGE_REFS = "labelOrderedEdgeRefs";
+    public static final String USE_WHOLE_ROW_ITERATOR_FOR_BATCH_FETCH = "useWholeRowIteratorForBatchFetch";
+    public static final String LAZY_EDGE_REFS = "lazyEdgeRefs";
+    public static final String PARALLEL_SCAN_THREADS = "parallelScanThreads";
+    public static final String PARALLEL_SCAN_QUEUE_SIZE = "parallelScanQueueSize";
+    public static final String ELEMENT_CACHE_SIZE = "elementCacheSize";
+    public static final String VALUE_COMPRESSION = "valueCompression";
+    public static final String VALUE_COMPRESSION_THRESHOLD = "valueCompressionThreshold";
+    public static final String USE_EDGE_LABEL_DICTIONARY = "useEdgeLabelDictionary";
 
     public static final String DEFAULT_ACCUMULO_PASSWORD = "password";
     public static final String DEFAULT_VALUE_SERIALIZER = JavaValueSerializer.class.getName();
@@ -51,6 +61,15 @@ public class AccumuloGraphConfiguration extends GraphConfiguration {
     public static final String DEFAULT_HDFS_ROOT_DIR = "";
     public static final String DEFAULT_DATA_DIR = "/accumuloGraph";
     public static final boolean DEFAULT_USE_SERVER_SIDE_ELEMENT_VISIBILITY_ROW_FILTER = true;
+    public static final boolean DEFAULT_LABEL_ORDERED_EDGE_REFS = false;
+    public static final boolean DEFAULT_USE_WHOLE_ROW_ITERATOR_FOR_BATCH_FETCH = true;
+    public static final boolean DEFAULT_LAZY_EDGE_REFS = false;
+    public static final int DEFAULT_PARALLEL_SCAN_THREADS = 1;
+    public static final int DEFAULT_PARALLEL_SCAN_QUEUE_SIZE = 1000;
+    public static final int DEFAULT_ELEMENT_CACHE_SIZE = 0;
+    public static final String DEFAULT_VALUE_COMPRESSION = CompressingValueSerializer.COMPRESSION_NONE;
+    public static final int DEFAULT_VALUE_COMPRESSION_THRESHOLD = 4 * 1024;
+    public static final boolean DEFAULT_USE_EDGE_LABEL_DICTIONARY = false;
 
     public AccumuloGraphConfiguration(Map config) {
         super(config);
@@ -117,7 +136,8 @@ public class AccumuloGraphConfiguration extends GraphConfiguration {
     }
 
     public ValueSerializer createValueSerializer() throws SecureGraphException {
-        return ConfigurationUtils.createProvider(this, VALUE_SERIALIZER_PROP_PREFIX, DEFAULT_VALUE_SERIALIZER);
+        ValueSerializer valueSerializer = ConfigurationUtils.createProvider(this, VALUE_SERIALIZER_PROP_PREFIX, DEFAULT_VALUE_SERIALIZER);
+        return new CompressingValueSerializer(valueSerializer, getValueCompression(), getValueCompressionThreshold());
     }
 
     public boolean isAutoFlush() {
@@ -139,4 +159,76 @@ public class AccumuloGraphConfiguration extends GraphConfiguration {
     public boolean isUseServerSideElementVisibilityRowFilter() {
         return getBoolean(USE_SERVER_SIDE_ELEMENT_VISIBILITY_ROW_FILTER, DEFAULT_USE_SERVER_SIDE_ELEMENT_VISIBILITY_ROW_FILTER);
     }
+
+    /**
+     * When true new edge refs are written with the edge label as a prefix of the column qualifier so that all the
+     * edge refs of one label are contiguous. Both layouts are always readable, existing tables can be converted using
+     * the M003LabelOrderedEdgeRefs migration. Once enabled and migrated this should not be turned off.
+     */
+    public boolean isLabelOrderedEdgeRefs() {
+        return getBoolean(LABEL_ORDERED_EDGE_REFS, DEFAULT_LABEL_ORDERED_EDGE_REFS);
+    }
+
+    /**
+     * When false getVertices(ids) and getEdges(ids) stream each row from a scanner instead of having the tablet
+     * server encode the whole row into a single value. This keeps memory bounded for rows with a very large number
+     * of columns (supernodes) at the cost of fetching the rows one at a time.
+     */
+    public boolean isUseWholeRowIteratorForBatchFetch() {
+        return getBoolean(USE_WHOLE_ROW_ITERATOR_FOR_BATCH_FETCH, DEFAULT_USE_WHOLE_ROW_ITERATOR_FOR_BATCH_FETCH);
+    }
+
+    /**
+     * When true the edge refs of a vertex are not loaded with the vertex, they are read from the vertex row each
+     * time they are iterated.
+     */
+    public boolean isLazyEdgeRefs() {
+        return getBoolean(LAZY_EDGE_REFS, DEFAULT_LAZY_EDGE_REFS);
+    }
+
+    /**
+     * The number of threads used to scan the tablets of a table concurrently for full table scans. 1 scans the
+     * table sequentially.
+     */
+    public int getParallelScanThreads() {
+        return getInt(PARALLEL_SCAN_THREADS, DEFAULT_PARALLEL_SCAN_THREADS);
+    }
+
+    /**
+     * The number of elements buffered per queue between the scanning threads and the caller.
+     */
+    public int getParallelScanQueueSize() {
+        return getInt(PARALLEL_SCAN_QUEUE_SIZE, DEFAULT_PARALLEL_SCAN_QUEUE_SIZE);
+    }
+
+    /**
+     * The maximum number of elements kept in the element cache. 0 disables the cache.
+     */
+    public int getElementCacheSize() {
+        return getInt(ELEMENT_CACHE_SIZE, DEFAULT_ELEMENT_CACHE_SIZE);
+    }
+
+    /**
+     * The compression applied to property values, metadata values and streaming property values stored in the data
+     * table, either "none" or "deflate". Values stored compressed are always readable, whatever this is set to.
+     */
+    public String getValueCompression() {
+        return getString(VALUE_COMPRESSION, DEFAULT_VALUE_COMPRESSION);
+    }
+
+    /**
+     * Values smaller than this number of bytes are never compressed.
+     */
+    public int getValueCompressionThreshold() {
+        return getInt(VALUE_COMPRESSION_THRESHOLD, DEFAULT_VALUE_COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * When true new edge refs store the id of their label in the edge label dictionary kept in the graph metadata
+     * instead of the label itself. Edge refs in either form are always readable, but clients and tablet server
+     * iterators older than the edge label dictionary cannot read edge refs written this way.
+     */
+    public boolean isUseEdgeLabelDictionary() {
+        return getBoolean(USE_EDGE_LABEL_DICTIONARY, DEFAULT_USE_EDGE_LABEL_DICTIONARY);
+    }
 }
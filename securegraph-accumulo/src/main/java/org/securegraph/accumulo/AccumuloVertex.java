@@ -10,10 +10,7 @@ import org.securegraph.util.ConvertingIterable;
 import org.securegraph.util.JoinIterable;
 import org.securegraph.util.LookAheadIterable;
 
-import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.*;
 
 import static org.securegraph.util.IterableUtils.count;
 import static org.securegraph.util.IterableUtils.toSet;
@@ -24,8 +21,14 @@ public class AccumuloVertex extends AccumuloElement implements Vertex {
     public static final Text CF_OUT_EDGE_HIDDEN = new Text("EOUTH");
     public static final Text CF_IN_EDGE = new Text("EIN");
     public static final Text CF_IN_EDGE_HIDDEN = new Text("EINH");
-    private final Map<String, EdgeInfo> inEdges;
-    private final Map<String, EdgeInfo> outEdges;
+    // edge refs stored with a column qualifier of label + VALUE_SEPARATOR + edge id, see AccumuloGraphConfiguration.LABEL_ORDERED_EDGE_REFS
+    public static final Text CF_OUT_EDGE_BY_LABEL = new Text("EOUTL");
+    public static final Text CF_IN_EDGE_BY_LABEL = new Text("EINL");
+    // null if the edge refs of that direction are read lazily from the vertex row
+    private Map<String, EdgeInfo> inEdges;
+    private Map<String, EdgeInfo> outEdges;
+    private final Set<String> lazyHiddenEdgeIds;
+    private final String[] lazyEdgeLabels;
 
     public AccumuloVertex(
             AccumuloGraph graph,
@@ -62,10 +65,78 @@ public class AccumuloVertex extends AccumuloElement implements Vertex {
             Map<String, EdgeInfo> outEdges,
             Authorizations authorizations,
             long timestamp
+    ) {
+        this(
+                graph,
+                vertexId,
+                vertexVisibility,
+                properties,
+                propertyRemoveMutations,
+                hiddenVisibilities,
+                inEdges,
+                outEdges,
+                Collections.<String>emptySet(),
+                null,
+                authorizations,
+                timestamp
+        );
+    }
+
+    /**
+     * @param inEdges           The in edge refs or null to read them from the vertex row when needed.
+     * @param outEdges          The out edge refs or null to read them from the vertex row when needed.
+     * @param lazyHiddenEdgeIds The edge ids to exclude when reading edge refs from the vertex row.
+     * @param lazyEdgeLabels    The edge labels to include when reading edge refs from the vertex row, null for all.
+     */
+    AccumuloVertex(
+            AccumuloGraph graph,
+            String vertexId,
+            Visibility vertexVisibility,
+            Iterable<Property> properties,
+            Iterable<PropertyRemoveMutation> propertyRemoveMutations,
+            Iterable<Visibility> hiddenVisibilities,
+            Map<String, EdgeInfo> inEdges,
+            Map<String, EdgeInfo> outEdges,
+            Set<String> lazyHiddenEdgeIds,
+            String[] lazyEdgeLabels,
+            Authorizations authorizations,
+            long timestamp
     ) {
         super(graph, vertexId, vertexVisibility, properties, propertyRemoveMutations, hiddenVisibilities, authorizations, timestamp);
         this.inEdges = inEdges;
         this.outEdges = outEdges;
+        this.lazyHiddenEdgeIds = lazyHiddenEdgeIds;
+        this.lazyEdgeLabels = lazyEdgeLabels;
+    }
+
+    @Override
+    AccumuloVertex copy() {
+        return new AccumuloVertex(
+                getGraph(),
+                getId(),
+                getVisibility(),
+                copyProperties(),
+                null,
+                getHiddenVisibilities(),
+                copyEdgeInfos(inEdges),
+                copyEdgeInfos(outEdges),
+                lazyHiddenEdgeIds == null ? null : new HashSet<>(lazyHiddenEdgeIds),
+                lazyEdgeLabels,
+                getAuthorizations(),
+                getTimestamp()
+        );
+    }
+
+    // the edge infos are shared between the copies so they are decoded up front, after that they are only read
+    private static Map<String, EdgeInfo> copyEdgeInfos(Map<String, EdgeInfo> edgeInfos) {
+        if (edgeInfos == null) {
+            return null;
+        }
+        for (EdgeInfo edgeInfo : edgeInfos.values()) {
+            edgeInfo.getLabel();
+            edgeInfo.getVertexId();
+        }
+        return new HashMap<>(edgeInfos);
     }
 
     @Override
@@ -160,6 +231,24 @@ public class AccumuloVertex extends AccumuloElement implements Vertex {
 
     @Override
     public int getEdgeCount(Direction direction, Authorizations authorizations) {
+        // when the edge refs are loaded they can be counted without going through the edge ids
+        switch (direction) {
+            case IN:
+                if (this.inEdges != null) {
+                    return this.inEdges.size();
+                }
+                break;
+            case OUT:
+                if (this.outEdges != null) {
+                    return this.outEdges.size();
+                }
+                break;
+            case BOTH:
+                if (this.inEdges != null && this.outEdges != null) {
+                    return this.inEdges.size() + this.outEdges.size();
+                }
+                break;
+        }
         return count(getEdgeIds(direction, authorizations));
     }
 
@@ -180,6 +269,7 @@ public class AccumuloVertex extends AccumuloElement implements Vertex {
 
     @SuppressWarnings("unused")
     public Iterable<String> getEdgeIdsWithOtherVertexId(final String otherVertexId, final Direction direction, final String[] labels, final Authorizations authorizations) {
+        final int[] labelIds = labels == null ? null : getGraph().getEdgeLabelIds(labels);
         return new LookAheadIterable<Map.Entry<String, EdgeInfo>, String>() {
             @Override
             protected boolean isIncluded(Map.Entry<String, EdgeInfo> edgeInfo, String edgeId) {
@@ -191,13 +281,7 @@ public class AccumuloVertex extends AccumuloElement implements Vertex {
                 if (labels == null || labels.length == 0) {
                     return true;
                 }
-
-                for (String label : labels) {
-                    if (label.equals(edgeInfo.getValue().getLabel())) {
-                        return true;
-                    }
-                }
-                return false;
+                return edgeInfo.getValue().hasAnyLabel(labels, labelIds);
             }
 
             @Override
@@ -207,24 +291,72 @@ public class AccumuloVertex extends AccumuloElement implements Vertex {
 
             @Override
             protected Iterator<Map.Entry<String, EdgeInfo>> createIterator() {
-                return getEdgeInfos(direction).iterator();
+                return getEdgeInfos(direction, labels, otherVertexId).iterator();
             }
         };
     }
 
     private Iterable<Map.Entry<String, EdgeInfo>> getEdgeInfos(Direction direction) {
+        return getEdgeInfos(direction, null, null);
+    }
+
+    /**
+     * The labels and other vertex id are only hints used to limit what is read for lazy edge refs, callers must
+     * still filter the results.
+     */
+    private Iterable<Map.Entry<String, EdgeInfo>> getEdgeInfos(Direction direction, String[] labels, String otherVertexId) {
         switch (direction) {
             case IN:
-                return this.inEdges.entrySet();
+                return getEdgeInfos(this.inEdges, Direction.IN, labels, otherVertexId);
             case OUT:
-                return this.outEdges.entrySet();
+                return getEdgeInfos(this.outEdges, Direction.OUT, labels, otherVertexId);
             case BOTH:
-                return new JoinIterable<>(this.inEdges.entrySet(), this.outEdges.entrySet());
+                return new JoinIterable<>(
+                        getEdgeInfos(this.inEdges, Direction.IN, labels, otherVertexId),
+                        getEdgeInfos(this.outEdges, Direction.OUT, labels, otherVertexId)
+                );
             default:
                 throw new SecureGraphException("Unexpected direction: " + direction);
         }
     }
 
+    private Iterable<Map.Entry<String, EdgeInfo>> getEdgeInfos(Map<String, EdgeInfo> edges, Direction direction, String[] labels, String otherVertexId) {
+        // edge refs loaded with the vertex are already in memory and filtered by the caller, only lazily read
+        // edge refs are filtered on the tablet servers
+        if (edges != null) {
+            return edges.entrySet();
+        }
+        if (labels != null && labels.length == 0) {
+            labels = null;
+        }
+        if (this.lazyEdgeLabels != null) {
+            labels = labels == null ? this.lazyEdgeLabels : intersect(this.lazyEdgeLabels, labels);
+            if (labels.length == 0) {
+                return Collections.emptyList();
+            }
+        }
+        return getGraph().getEdgeInfos(getId(), direction, labels, otherVertexId, this.lazyHiddenEdgeIds, getAuthorizations());
+    }
+
+    private static String[] intersect(String[] a, String[] b) {
+        List<String> results = new ArrayList<>();
+        List<String> bList = Arrays.asList(b);
+        for (String s : a) {
+            if (bList.contains(s)) {
+                results.add(s);
+            }
+        }
+        return results.toArray(new String[results.size()]);
+    }
+
+    private Map<String, EdgeInfo> loadEdgeInfos(Direction direction) {
+        Map<String, EdgeInfo> edges = new HashMap<>();
+        for (Map.Entry<String, EdgeInfo> edgeInfo : getEdgeInfos(null, direction, null, null)) {
+            edges.put(edgeInfo.getKey(), edgeInfo.getValue());
+        }
+        return edges;
+    }
+
     @Override
     public Iterable<Vertex> getVertices(Direction direction, EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
         return getGraph().getVertices(getVertexIds(direction, authorizations), fetchHints, authorizations);
@@ -268,9 +400,15 @@ public class AccumuloVertex extends AccumuloElement implements Vertex {
                 Iterable<String> outVertexIds = getVertexIds(Direction.OUT, labels, authorizations);
                 return new JoinIterable<>(inVertexIds, outVertexIds);
             case IN:
-                return new GetVertexIdsIterable(this.inEdges.values(), labels);
             case OUT:
-                return new GetVertexIdsIterable(this.outEdges.values(), labels);
+                Iterable<EdgeInfo> edgeInfos = new ConvertingIterable<Map.Entry<String, EdgeInfo>, EdgeInfo>(getEdgeInfos(direction, labels, null)) {
+                    @Override
+                    protected EdgeInfo convert(Map.Entry<String, EdgeInfo> o) {
+                        return o.getValue();
+                    }
+                };
+                int[] labelIds = labels == null ? null : getGraph().getEdgeLabelIds(labels);
+                return new GetVertexIdsIterable(edgeInfos, labels, labelIds);
             default:
                 throw new SecureGraphException("Unexpected direction: " + direction);
         }
@@ -286,19 +424,32 @@ public class AccumuloVertex extends AccumuloElement implements Vertex {
         return getGraph().getSearchIndex().queryVertex(getGraph(), this, queryString, authorizations);
     }
 
+    // lazy edge refs are loaded before being modified so that the vertex reflects the change without a flush
     void addOutEdge(Edge edge) {
+        if (this.outEdges == null) {
+            this.outEdges = loadEdgeInfos(Direction.OUT);
+        }
         this.outEdges.put(edge.getId(), new EdgeInfo(edge.getLabel(), edge.getVertexId(Direction.IN)));
     }
 
     void removeOutEdge(Edge edge) {
+        if (this.outEdges == null) {
+            this.outEdges = loadEdgeInfos(Direction.OUT);
+        }
         this.outEdges.remove(edge.getId());
     }
 
     void addInEdge(Edge edge) {
+        if (this.inEdges == null) {
+            this.inEdges = loadEdgeInfos(Direction.IN);
+        }
         this.inEdges.put(edge.getId(), new EdgeInfo(edge.getLabel(), edge.getVertexId(Direction.OUT)));
     }
 
     void removeInEdge(Edge edge) {
+        if (this.inEdges == null) {
+            this.inEdges = loadEdgeInfos(Direction.IN);
+        }
         this.inEdges.remove(edge.getId());
     }
 
@@ -0,0 +1,43 @@
+package org.securegraph.accumulo;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Maps byte sequences that repeat across many rows, like column visibilities and property names, to one shared
+ * object so decoding a row does not create a new one for every column. At most maxSize sequences are kept, anything
+ * seen after that is created every time.
+ */
+public abstract class ByteSequenceInterner<T> {
+    private final ConcurrentMap<ByteSequence, T> values = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    protected ByteSequenceInterner(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    protected abstract T create(ByteSequence bytes);
+
+    public T get(ByteSequence bytes) {
+        T value = values.get(bytes);
+        if (value != null) {
+            return value;
+        }
+        value = create(bytes);
+        if (values.size() < maxSize) {
+            // the key is copied since the given sequence usually shares the backing array of a Key
+            byte[] copy = new byte[bytes.length()];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = bytes.byteAt(i);
+            }
+            T existingValue = values.putIfAbsent(new ArrayByteSequence(copy), value);
+            if (existingValue != null) {
+                return existingValue;
+            }
+        }
+        return value;
+    }
+}
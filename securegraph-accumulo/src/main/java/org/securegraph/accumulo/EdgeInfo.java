@@ -7,10 +7,16 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 
 // We are doing custom serialization to make this as fast as possible since this can get called many times
+// Encoded as [label length][label bytes][vertex id length][vertex id bytes] or, when the label is taken from an
+// EdgeLabelDictionary, as [LABEL_ID_FORMAT][label id varint][vertex id length][vertex id bytes]. A label length
+// never starts with the LABEL_ID_FORMAT byte so both forms can be read.
 public class EdgeInfo {
     public static final String CHARSET_NAME = "UTF-8";
+    public static final byte LABEL_ID_FORMAT = (byte) 0x80;
     private final byte[] bytes;
+    private final transient EdgeLabelDictionary edgeLabelDictionary;
     private transient boolean decoded;
+    private transient int labelId = -1;
     private transient String label;
     private transient String vertexId;
 
@@ -26,42 +32,95 @@ public class EdgeInfo {
                 labelBytesLength = labelBytes.length;
             }
 
-            byte[] vertexIdBytes;
-            int vertexIdBytesLength;
-            if (vertexId == null) {
-                vertexIdBytes = null;
-                vertexIdBytesLength = -1;
-            } else {
-                vertexIdBytes = vertexId.getBytes(CHARSET_NAME);
-                vertexIdBytesLength = vertexIdBytes.length;
-            }
-            int len = 4 + labelBytesLength + 4 + vertexIdBytesLength;
+            byte[] vertexIdBytes = toBytes(vertexId);
+            int len = 4 + Math.max(labelBytesLength, 0) + 4 + (vertexIdBytes == null ? 0 : vertexIdBytes.length);
 
             ByteBuffer buffer = ByteBuffer.allocate(len);
             buffer.putInt(labelBytesLength);
             if (labelBytes != null) {
                 buffer.put(labelBytes);
             }
-            buffer.putInt(vertexIdBytesLength);
-            if (vertexIdBytes != null) {
-                buffer.put(vertexIdBytes);
-            }
+            putBytes(buffer, vertexIdBytes);
 
             this.bytes = buffer.array();
+            this.edgeLabelDictionary = null;
+        } catch (IOException ex) {
+            throw new SecureGraphException("Could not serialize edge info", ex);
+        }
+    }
+
+    public EdgeInfo(String label, String vertexId, EdgeLabelDictionary edgeLabelDictionary) {
+        try {
+            int labelId = edgeLabelDictionary.getOrCreateId(label);
+            byte[] vertexIdBytes = toBytes(vertexId);
+            int len = 1 + varIntLength(labelId) + 4 + (vertexIdBytes == null ? 0 : vertexIdBytes.length);
+
+            ByteBuffer buffer = ByteBuffer.allocate(len);
+            buffer.put(LABEL_ID_FORMAT);
+            putVarInt(buffer, labelId);
+            putBytes(buffer, vertexIdBytes);
+
+            this.bytes = buffer.array();
+            this.edgeLabelDictionary = edgeLabelDictionary;
         } catch (IOException ex) {
             throw new SecureGraphException("Could not serialize edge info", ex);
         }
     }
 
     public EdgeInfo(byte[] bytes) {
+        this(bytes, null);
+    }
+
+    public EdgeInfo(byte[] bytes, EdgeLabelDictionary edgeLabelDictionary) {
         this.bytes = bytes;
+        this.edgeLabelDictionary = edgeLabelDictionary;
     }
 
     public String getLabel() {
         decodeBytes();
+        if (label == null && labelId >= 0) {
+            if (edgeLabelDictionary == null) {
+                throw new SecureGraphException("An edge label dictionary is needed to decode edge label id " + labelId);
+            }
+            label = edgeLabelDictionary.getLabel(labelId);
+        }
         return label;
     }
 
+    /**
+     * @return the id of the label in the edge label dictionary or -1 if the label is stored as a string.
+     */
+    public int getLabelId() {
+        decodeBytes();
+        return labelId;
+    }
+
+    /**
+     * Checks the label against the given labels. Labels stored as an id are first compared using the ids of the
+     * labels, see {@link EdgeLabelDictionary#getIds(String[])}. An id that is not among them is resolved to its label
+     * so that labels added by another writer after the ids were looked up are still matched.
+     */
+    public boolean hasAnyLabel(String[] labels, int[] labelIds) {
+        decodeBytes();
+        if (labelId >= 0) {
+            for (int id : labelIds) {
+                if (id == labelId) {
+                    return true;
+                }
+            }
+            if (edgeLabelDictionary == null) {
+                return false;
+            }
+        }
+        String label = getLabel();
+        for (String l : labels) {
+            if (l.equals(label)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public String getVertexId() {
         decodeBytes();
         return vertexId;
@@ -71,7 +130,12 @@ public class EdgeInfo {
         if (!decoded) {
             try {
                 ByteBuffer in = ByteBuffer.wrap(this.bytes);
-                this.label = readString(in);
+                if (this.bytes.length > 0 && this.bytes[0] == LABEL_ID_FORMAT) {
+                    in.get();
+                    this.labelId = readVarInt(in);
+                } else {
+                    this.label = readString(in);
+                }
                 this.vertexId = readString(in);
                 this.decoded = true;
             } catch (IOException ex) {
@@ -91,10 +155,56 @@ public class EdgeInfo {
         }
     }
 
+    private static byte[] toBytes(String s) throws IOException {
+        return s == null ? null : s.getBytes(CHARSET_NAME);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static int varIntLength(int v) {
+        int len = 1;
+        while ((v & ~0x7f) != 0) {
+            v >>>= 7;
+            len++;
+        }
+        return len;
+    }
+
+    private static void putVarInt(ByteBuffer buffer, int v) {
+        while ((v & ~0x7f) != 0) {
+            buffer.put((byte) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            result |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new SecureGraphException("Invalid edge label id");
+    }
+
     public static EdgeInfo parse(Value value) {
         return new EdgeInfo(value.get());
     }
 
+    public static EdgeInfo parse(Value value, EdgeLabelDictionary edgeLabelDictionary) {
+        return new EdgeInfo(value.get(), edgeLabelDictionary);
+    }
+
     public Value toValue() {
         return new Value(this.bytes);
     }
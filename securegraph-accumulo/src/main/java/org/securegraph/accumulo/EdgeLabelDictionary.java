@@ -0,0 +1,139 @@
+package org.securegraph.accumulo;
+
+import org.securegraph.SecureGraphException;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps edge labels to small ids so edge refs can store the id of their label instead of the label itself.
+ * <p/>
+ * Ids are handed out densely starting at 0 and are never reused. Labels are interned so label lookups by id do not
+ * allocate. Adding a label to the backing store must fail if another label already has the id, which keeps
+ * concurrent writers from assigning the same id to different labels.
+ * <p/>
+ * Labels and ids added by another writer are found by reloading: looking up the ids of labels that have no id and
+ * looking up the label of an unknown id both reload the labels.
+ */
+public abstract class EdgeLabelDictionary {
+    private final Map<String, Integer> labelIds = new ConcurrentHashMap<>();
+    private volatile String[] labels = new String[0];
+
+    /**
+     * Loads all labels from the backing store.
+     */
+    protected abstract Map<Integer, String> loadLabels();
+
+    /**
+     * Stores the label under the given id unless the id is already used.
+     *
+     * @return null if the label was stored, otherwise the label already stored under the id.
+     */
+    protected abstract String addLabel(int id, String label);
+
+    /**
+     * @return the id of the label or -1 if the label does not have an id yet.
+     */
+    public int getId(String label) {
+        Integer id = labelIds.get(label);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return the ids of the labels that have one, without reloading.
+     */
+    public int[] getIds(String[] labels) {
+        return getIds(labels, false);
+    }
+
+    /**
+     * @param reloadUnknown true to reload the labels if a label has no id since it may have been added by another
+     *                      writer.
+     * @return the ids of the labels that have one.
+     */
+    public int[] getIds(String[] labels, boolean reloadUnknown) {
+        if (reloadUnknown) {
+            for (String label : labels) {
+                if (getId(label) < 0) {
+                    synchronized (this) {
+                        reload();
+                    }
+                    break;
+                }
+            }
+        }
+        int[] ids = new int[labels.length];
+        int count = 0;
+        for (String label : labels) {
+            int id = getId(label);
+            if (id >= 0) {
+                ids[count++] = id;
+            }
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    public int getOrCreateId(String label) {
+        int id = getId(label);
+        if (id >= 0) {
+            return id;
+        }
+        synchronized (this) {
+            id = getId(label);
+            if (id >= 0) {
+                return id;
+            }
+            reload();
+            id = getId(label);
+            if (id >= 0) {
+                return id;
+            }
+            for (id = this.labels.length; ; id++) {
+                String existingLabel = addLabel(id, label);
+                if (existingLabel == null) {
+                    put(id, label);
+                    return id;
+                }
+                put(id, existingLabel);
+                if (existingLabel.equals(label)) {
+                    return id;
+                }
+            }
+        }
+    }
+
+    public String getLabel(int id) {
+        String[] labels = this.labels;
+        if (id < labels.length && labels[id] != null) {
+            return labels[id];
+        }
+        synchronized (this) {
+            reload();
+            labels = this.labels;
+            if (id < labels.length && labels[id] != null) {
+                return labels[id];
+            }
+        }
+        throw new SecureGraphException("Unknown edge label id: " + id);
+    }
+
+    public void reload() {
+        for (Map.Entry<Integer, String> entry : loadLabels().entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    synchronized void put(int id, String label) {
+        String[] labels = this.labels;
+        // there are only a handful of labels so the array is grown one id at a time
+        if (id >= labels.length) {
+            labels = Arrays.copyOf(labels, id + 1);
+        } else {
+            labels = labels.clone();
+        }
+        labels[id] = label.intern();
+        labelIds.put(labels[id], id);
+        this.labels = labels;
+    }
+}
@@ -1,8 +1,8 @@
 package org.securegraph.accumulo;
 
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
-import org.apache.hadoop.io.Text;
 import org.securegraph.Authorizations;
 import org.securegraph.Edge;
 import org.securegraph.SecureGraphException;
@@ -25,22 +25,22 @@ public class EdgeMaker extends ElementMaker<Edge> {
 
     @Override
     protected void processColumn(Key key, Value value) {
-        Text columnFamily = key.getColumnFamily();
-        Text columnQualifier = key.getColumnQualifier();
+        ByteSequence columnFamily = key.getColumnFamilyData();
+        ByteSequence columnQualifier = key.getColumnQualifierData();
 
-        if (AccumuloEdge.CF_SIGNAL.compareTo(columnFamily) == 0) {
-            this.label = columnQualifier.toString();
+        if (equals(AccumuloEdge.CF_SIGNAL, columnFamily)) {
+            this.label = internName(columnQualifier);
             this.timestamp = key.getTimestamp();
             return;
         }
 
-        if (AccumuloEdge.CF_IN_VERTEX.compareTo(columnFamily) == 0) {
-            this.inVertexId = columnQualifier.toString();
+        if (equals(AccumuloEdge.CF_IN_VERTEX, columnFamily)) {
+            this.inVertexId = bytesToString(columnQualifier);
             return;
         }
 
-        if (AccumuloEdge.CF_OUT_VERTEX.compareTo(columnFamily) == 0) {
-            this.outVertexId = columnQualifier.toString();
+        if (equals(AccumuloEdge.CF_OUT_VERTEX, columnFamily)) {
+            this.outVertexId = bytesToString(columnQualifier);
         }
     }
 
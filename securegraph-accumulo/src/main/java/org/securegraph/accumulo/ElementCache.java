@@ -0,0 +1,218 @@
+package org.securegraph.accumulo;
+
+import org.securegraph.Authorizations;
+import org.securegraph.Element;
+import org.securegraph.FetchHint;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least recently used cache of elements keyed by row key, authorizations and fetch hints.
+ * <p/>
+ * Rows are invalidated when they are written. Since writes are buffered until the writers are flushed, an invalidated
+ * row is not cached again until {@link #flushed()} is called, otherwise a read could cache the pre-write row. A read
+ * that started before a row was invalidated or flushed could also return the pre-write row, so callers take the
+ * {@link #getGeneration()} before reading and {@link #put} rejects the element if the row changed since then.
+ * <p/>
+ * The cache keeps its own copy of each element and returns a new copy from every {@link #get} so callers never share
+ * an element.
+ */
+public class ElementCache {
+    private final int maxSize;
+    private final Map<CacheKey, AccumuloElement> elements;
+    private final Map<String, Set<CacheKey>> keysByRowKey = new HashMap<>();
+    private final Set<String> pendingRowKeys = new HashSet<>();
+    private final Map<String, Long> rowGenerations;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private boolean allRowsPending;
+    private long generation;
+    private long minCacheableGeneration;
+
+    public ElementCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.elements = new LinkedHashMap<CacheKey, AccumuloElement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, AccumuloElement> eldest) {
+                if (size() <= ElementCache.this.maxSize) {
+                    return false;
+                }
+                removeKeyFromRowKeyIndex(eldest.getKey());
+                evictionCount.incrementAndGet();
+                return true;
+            }
+        };
+        // only the most recently changed rows are remembered, reads older than a forgotten change are not cached
+        this.rowGenerations = new LinkedHashMap<String, Long>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                if (size() <= ElementCache.this.maxSize) {
+                    return false;
+                }
+                minCacheableGeneration = Math.max(minCacheableGeneration, eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Gets the generation to pass to {@link #put} for an element read after this call.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    public synchronized Element get(String rowKey, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        AccumuloElement element = elements.get(new CacheKey(rowKey, fetchHints, authorizations));
+        if (element == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return element.copy();
+    }
+
+    /**
+     * @param readGeneration The {@link #getGeneration()} taken before the element was read.
+     */
+    public synchronized void put(String rowKey, EnumSet<FetchHint> fetchHints, Authorizations authorizations, Element element, long readGeneration) {
+        if (!(element instanceof AccumuloElement) || !isCacheable(rowKey, readGeneration)) {
+            return;
+        }
+        CacheKey key = new CacheKey(rowKey, fetchHints, authorizations);
+        Set<CacheKey> keys = keysByRowKey.get(rowKey);
+        if (keys == null) {
+            keys = new HashSet<>();
+            keysByRowKey.put(rowKey, keys);
+        }
+        keys.add(key);
+        elements.put(key, ((AccumuloElement) element).copy());
+    }
+
+    private boolean isCacheable(String rowKey, long readGeneration) {
+        if (allRowsPending || pendingRowKeys.contains(rowKey) || readGeneration < minCacheableGeneration) {
+            return false;
+        }
+        Long rowGeneration = rowGenerations.get(rowKey);
+        return rowGeneration == null || rowGeneration <= readGeneration;
+    }
+
+    public synchronized void invalidate(String rowKey) {
+        generation++;
+        setRowGeneration(rowKey);
+        if (!allRowsPending) {
+            if (pendingRowKeys.size() >= maxSize) {
+                // too many unflushed writes to track, nothing is cached until the next flush
+                allRowsPending = true;
+                pendingRowKeys.clear();
+            } else {
+                pendingRowKeys.add(rowKey);
+            }
+        }
+        Set<CacheKey> keys = keysByRowKey.remove(rowKey);
+        if (keys == null) {
+            return;
+        }
+        for (CacheKey key : keys) {
+            elements.remove(key);
+        }
+    }
+
+    /**
+     * Called once pending writes have been flushed so that invalidated rows can be cached again.
+     */
+    public synchronized void flushed() {
+        generation++;
+        if (allRowsPending) {
+            minCacheableGeneration = generation;
+        } else {
+            for (String rowKey : pendingRowKeys) {
+                setRowGeneration(rowKey);
+            }
+        }
+        pendingRowKeys.clear();
+        allRowsPending = false;
+    }
+
+    public synchronized void clear() {
+        elements.clear();
+        keysByRowKey.clear();
+        rowGenerations.clear();
+        generation++;
+        minCacheableGeneration = generation;
+        // writes that are still buffered must not be cached before they are flushed
+        if (!pendingRowKeys.isEmpty()) {
+            allRowsPending = true;
+            pendingRowKeys.clear();
+        }
+    }
+
+    private void setRowGeneration(String rowKey) {
+        // removed first so the row moves to the end of the insertion order
+        rowGenerations.remove(rowKey);
+        rowGenerations.put(rowKey, generation);
+    }
+
+    public synchronized int size() {
+        return elements.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private void removeKeyFromRowKeyIndex(CacheKey key) {
+        Set<CacheKey> keys = keysByRowKey.get(key.rowKey);
+        if (keys == null) {
+            return;
+        }
+        keys.remove(key);
+        if (keys.size() == 0) {
+            keysByRowKey.remove(key.rowKey);
+        }
+    }
+
+    private static class CacheKey {
+        private final String rowKey;
+        private final EnumSet<FetchHint> fetchHints;
+        private final Set<String> authorizations;
+        private final int hashCode;
+
+        public CacheKey(String rowKey, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+            this.rowKey = rowKey;
+            this.fetchHints = fetchHints;
+            this.authorizations = new HashSet<>(Arrays.asList(authorizations.getAuthorizations()));
+            this.hashCode = 31 * (31 * rowKey.hashCode() + fetchHints.hashCode()) + this.authorizations.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            CacheKey that = (CacheKey) o;
+            return rowKey.equals(that.rowKey)
+                    && fetchHints.equals(that.fetchHints)
+                    && authorizations.equals(that.authorizations);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
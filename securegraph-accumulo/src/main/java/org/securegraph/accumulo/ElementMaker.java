@@ -1,26 +1,39 @@
 package org.securegraph.accumulo;
 
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.user.RowDeletingIterator;
-import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.hadoop.io.Text;
 import org.securegraph.Authorizations;
 import org.securegraph.Property;
 import org.securegraph.SecureGraphException;
 import org.securegraph.Visibility;
 
+import java.nio.charset.Charset;
 import java.util.*;
 
+// Rows are decoded from the raw key bytes and visibilities and names are shared between rows since this is called
+// for every column of every element read
 public abstract class ElementMaker<T> {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    protected static final byte VALUE_SEPARATOR = ElementMutationBuilder.VALUE_SEPARATOR.getBytes(UTF_8)[0];
+    private static final int MAX_INTERNED_VALUES = 10000;
+    private static final ByteSequenceInterner<Visibility> VISIBILITIES = new ByteSequenceInterner<Visibility>(MAX_INTERNED_VALUES) {
+        @Override
+        protected Visibility create(ByteSequence bytes) {
+            return new Visibility(bytesToString(bytes));
+        }
+    };
+    private static final ByteSequenceInterner<String> NAMES = new ByteSequenceInterner<String>(MAX_INTERNED_VALUES) {
+        @Override
+        protected String create(ByteSequence bytes) {
+            return bytesToString(bytes);
+        }
+    };
     private final Iterator<Map.Entry<Key, Value>> row;
-    private final Map<String, String> propertyNames = new HashMap<>();
-    private final Map<String, String> propertyColumnQualifier = new HashMap<>();
-    private final Map<String, byte[]> propertyValues = new HashMap<>();
-    private final Map<String, Visibility> propertyVisibilities = new HashMap<>();
-    private final Map<String, LazyPropertyMetadata> propertyMetadata = new HashMap<>();
-    private final Map<String, Long> propertyTimestamps = new HashMap<>();
-    private final Set<HiddenProperty> hiddenProperties = new HashSet<>();
+    private final Map<PropertyColumn, PropertyColumn> propertyColumns = new HashMap<>();
+    private final PropertyColumn propertyColumnLookup = new PropertyColumn(null, null, null);
     private final Set<Visibility> hiddenVisibilities = new HashSet<>();
     private final AccumuloGraph graph;
     private final Authorizations authorizations;
@@ -34,51 +47,54 @@ public abstract class ElementMaker<T> {
     }
 
     public T make(boolean includeHidden) {
+        byte[] visibilitySignal = getVisibilitySignal().getBytes(UTF_8);
         while (row.hasNext()) {
             Map.Entry<Key, Value> col = row.next();
+            Key key = col.getKey();
 
             if (this.id == null) {
-                this.id = getIdFromRowKey(col.getKey().getRow().toString());
+                this.id = getIdFromRowKey(bytesToString(key.getRowData()));
             }
 
-            Text columnFamily = col.getKey().getColumnFamily();
-            Text columnQualifier = col.getKey().getColumnQualifier();
-            ColumnVisibility columnVisibility = AccumuloGraph.visibilityToAccumuloVisibility(col.getKey().getColumnVisibility().toString());
+            ByteSequence columnFamily = key.getColumnFamilyData();
+            ByteSequence columnQualifier = key.getColumnQualifierData();
             Value value = col.getValue();
 
-            if (columnFamily.equals(AccumuloGraph.DELETE_ROW_COLUMN_FAMILY)
-                    && columnQualifier.equals(AccumuloGraph.DELETE_ROW_COLUMN_QUALIFIER)
+            if (columnFamily.length() == 0
+                    && columnQualifier.length() == 0
                     && value.equals(RowDeletingIterator.DELETE_ROW_VALUE)) {
                 return null;
             }
 
-            if (columnFamily.equals(AccumuloElement.CF_HIDDEN)) {
+            if (equals(AccumuloElement.CF_HIDDEN, columnFamily)) {
                 if (includeHidden) {
-                    this.hiddenVisibilities.add(AccumuloGraph.accumuloVisibilityToVisibility(columnVisibility));
+                    this.hiddenVisibilities.add(VISIBILITIES.get(key.getColumnVisibilityData()));
+                    continue;
                 } else {
                     return null;
                 }
             }
 
-            if (columnFamily.equals(AccumuloElement.CF_PROPERTY_HIDDEN)) {
-                extractPropertyHidden(columnQualifier, columnVisibility);
+            if (equals(AccumuloElement.CF_PROPERTY_HIDDEN, columnFamily)) {
+                extractPropertyHidden(key);
+                continue;
             }
 
-            if (AccumuloElement.CF_PROPERTY.compareTo(columnFamily) == 0) {
-                extractPropertyData(col, columnVisibility);
+            if (equals(AccumuloElement.CF_PROPERTY, columnFamily)) {
+                extractPropertyData(key, value);
                 continue;
             }
 
-            if (AccumuloElement.CF_PROPERTY_METADATA.compareTo(columnFamily) == 0) {
-                extractPropertyMetadata(columnQualifier, columnVisibility, value);
+            if (equals(AccumuloElement.CF_PROPERTY_METADATA, columnFamily)) {
+                extractPropertyMetadata(key, value);
                 continue;
             }
 
-            if (getVisibilitySignal().equals(columnFamily.toString())) {
-                this.visibility = AccumuloGraph.accumuloVisibilityToVisibility(columnVisibility);
+            if (equals(visibilitySignal, columnFamily)) {
+                this.visibility = VISIBILITIES.get(key.getColumnVisibilityData());
             }
 
-            processColumn(col.getKey(), col.getValue());
+            processColumn(key, value);
         }
 
         // If the org.securegraph.accumulo.iterator.ElementVisibilityRowFilter isn't installed this will catch stray rows
@@ -114,157 +130,178 @@ public abstract class ElementMaker<T> {
     }
 
     protected List<Property> getProperties(boolean includeHidden) {
-        List<Property> results = new ArrayList<>(propertyValues.size());
-        for (Map.Entry<String, byte[]> propertyValueEntry : propertyValues.entrySet()) {
-            String key = propertyValueEntry.getKey();
-            String propertyKey = getPropertyKeyFromColumnQualifier(propertyColumnQualifier.get(key));
-            String propertyName = propertyNames.get(key);
-            byte[] propertyValue = propertyValueEntry.getValue();
-            Visibility propertyVisibility = propertyVisibilities.get(key);
-            long propertyTimestamp = propertyTimestamps.get(key);
-            Set<Visibility> propertyHiddenVisibilities = getPropertyHiddenVisibilities(propertyKey, propertyName, propertyVisibility);
-            if (!includeHidden && isHidden(propertyKey, propertyName, propertyVisibility)) {
+        List<Property> results = new ArrayList<>(propertyColumns.size());
+        for (PropertyColumn propertyColumn : propertyColumns.values()) {
+            // metadata and hidden markers can be visible without the property value
+            if (propertyColumn.value == null) {
+                continue;
+            }
+            if (!includeHidden && propertyColumn.hiddenVisibilities != null) {
                 continue;
             }
-            LazyPropertyMetadata metadata = propertyMetadata.get(key);
             LazyMutableProperty property = new LazyMutableProperty(
                     getGraph(),
                     getGraph().getValueSerializer(),
-                    propertyKey,
-                    propertyName,
-                    propertyValue,
-                    metadata,
-                    propertyHiddenVisibilities,
-                    propertyVisibility,
-                    propertyTimestamp
+                    propertyColumn.key,
+                    propertyColumn.name,
+                    propertyColumn.value,
+                    propertyColumn.metadata,
+                    propertyColumn.hiddenVisibilities,
+                    propertyColumn.visibility,
+                    propertyColumn.timestamp
             );
             results.add(property);
         }
         return results;
     }
 
-    private Set<Visibility> getPropertyHiddenVisibilities(String propertyKey, String propertyName, Visibility propertyVisibility) {
-        Set<Visibility> hiddenVisibilities = null;
-        for (HiddenProperty hiddenProperty : hiddenProperties) {
-            if (hiddenProperty.matches(propertyKey, propertyName, propertyVisibility)) {
-                if (hiddenVisibilities == null) {
-                    hiddenVisibilities = new HashSet<>();
-                }
-                hiddenVisibilities.add(hiddenProperty.getHiddenVisibility());
-            }
+    // column qualifier is [name][separator][key][separator][visibility]
+    private void extractPropertyHidden(Key key) {
+        ByteSequence columnQualifier = key.getColumnQualifierData();
+        int nameKeySep = indexOf(columnQualifier, VALUE_SEPARATOR, 0);
+        int keyVisSep = lastIndexOf(columnQualifier, VALUE_SEPARATOR, columnQualifier.length() - 1);
+        if (nameKeySep < 0 || keyVisSep <= nameKeySep) {
+            throw new SecureGraphException("Invalid property hidden column qualifier");
         }
-        return hiddenVisibilities;
-    }
 
-    private boolean isHidden(String propertyKey, String propertyName, Visibility visibility) {
-        for (HiddenProperty hiddenProperty : hiddenProperties) {
-            if (hiddenProperty.matches(propertyKey, propertyName, visibility)) {
-                return true;
-            }
+        PropertyColumn propertyColumn = getOrCreatePropertyColumn(
+                NAMES.get(columnQualifier.subSequence(0, nameKeySep)),
+                bytesToString(columnQualifier, nameKeySep + 1, keyVisSep),
+                VISIBILITIES.get(columnQualifier.subSequence(keyVisSep + 1, columnQualifier.length()))
+        );
+        if (propertyColumn.hiddenVisibilities == null) {
+            propertyColumn.hiddenVisibilities = new HashSet<>();
         }
-        return false;
+        propertyColumn.hiddenVisibilities.add(VISIBILITIES.get(key.getColumnVisibilityData()));
     }
 
-    private void extractPropertyHidden(Text columnQualifier, ColumnVisibility columnVisibility) {
-        String columnQualifierStr = columnQualifier.toString();
-        int nameKeySep = columnQualifierStr.indexOf(ElementMutationBuilder.VALUE_SEPARATOR);
-        if (nameKeySep < 0) {
-            throw new SecureGraphException("Invalid property hidden column qualifier");
+    // column qualifier is [name][separator][key][separator][visibility][separator][metadata key]
+    private void extractPropertyMetadata(Key key, Value value) {
+        ByteSequence columnQualifier = key.getColumnQualifierData();
+        int nameKeySep = indexOf(columnQualifier, VALUE_SEPARATOR, 0);
+        int metadataKeySep = lastIndexOf(columnQualifier, VALUE_SEPARATOR, columnQualifier.length() - 1);
+        int keyVisSep = lastIndexOf(columnQualifier, VALUE_SEPARATOR, metadataKeySep - 1);
+        if (nameKeySep < 0 || keyVisSep <= nameKeySep) {
+            throw new SecureGraphException("Invalid property metadata column qualifier: " + bytesToString(columnQualifier));
         }
-        int keyVisSep = columnQualifierStr.indexOf(ElementMutationBuilder.VALUE_SEPARATOR, nameKeySep + 1);
-        if (nameKeySep < 0) {
-            throw new SecureGraphException("Invalid property hidden column qualifier");
+
+        PropertyColumn propertyColumn = getOrCreatePropertyColumn(
+                NAMES.get(columnQualifier.subSequence(0, nameKeySep)),
+                bytesToString(columnQualifier, nameKeySep + 1, keyVisSep),
+                VISIBILITIES.get(columnQualifier.subSequence(keyVisSep + 1, metadataKeySep))
+        );
+        if (propertyColumn.metadata == null) {
+            propertyColumn.metadata = new LazyPropertyMetadata();
         }
+        String metadataKey = NAMES.get(columnQualifier.subSequence(metadataKeySep + 1, columnQualifier.length()));
+        propertyColumn.metadata.add(metadataKey, VISIBILITIES.get(key.getColumnVisibilityData()), value.get());
+    }
 
-        String name = columnQualifierStr.substring(0, nameKeySep);
-        String key = columnQualifierStr.substring(nameKeySep + 1, keyVisSep);
-        String vis = columnQualifierStr.substring(keyVisSep + 1);
+    // column qualifier is [name][separator][key]
+    private void extractPropertyData(Key key, Value value) {
+        ByteSequence columnQualifier = key.getColumnQualifierData();
+        int nameKeySep = indexOf(columnQualifier, VALUE_SEPARATOR, 0);
+        if (nameKeySep < 0) {
+            throw new SecureGraphException("Invalid property column qualifier");
+        }
 
-        this.hiddenProperties.add(new HiddenProperty(key, name, vis, AccumuloGraph.accumuloVisibilityToVisibility(columnVisibility)));
+        PropertyColumn propertyColumn = getOrCreatePropertyColumn(
+                NAMES.get(columnQualifier.subSequence(0, nameKeySep)),
+                bytesToString(columnQualifier, nameKeySep + 1, columnQualifier.length()),
+                VISIBILITIES.get(key.getColumnVisibilityData())
+        );
+        propertyColumn.value = value.get();
+        propertyColumn.timestamp = key.getTimestamp();
     }
 
-    private void extractPropertyMetadata(Text columnQualifier, ColumnVisibility columnVisibility, Value value) {
-        Visibility metadataVisibility = AccumuloGraph.accumuloVisibilityToVisibility(columnVisibility);
-        String columnQualifierString = columnQualifier.toString();
-        int i = columnQualifierString.lastIndexOf(ElementMutationBuilder.VALUE_SEPARATOR);
-        if (i < 0) {
-            throw new SecureGraphException("Invalid property metadata column qualifier: " + columnQualifierString);
+    private PropertyColumn getOrCreatePropertyColumn(String name, String key, Visibility visibility) {
+        propertyColumnLookup.name = name;
+        propertyColumnLookup.key = key;
+        propertyColumnLookup.visibility = visibility;
+        PropertyColumn propertyColumn = propertyColumns.get(propertyColumnLookup);
+        if (propertyColumn == null) {
+            propertyColumn = new PropertyColumn(name, key, visibility);
+            propertyColumns.put(propertyColumn, propertyColumn);
         }
-        String propertyKey = columnQualifierString.substring(0, i);
-        String metadataKey = columnQualifierString.substring(i + 1);
+        return propertyColumn;
+    }
 
-        LazyPropertyMetadata lazyPropertyMetadata = getOrCreatePropertyMetadata(propertyKey);
-        lazyPropertyMetadata.add(metadataKey, metadataVisibility, value.get());
+    public Authorizations getAuthorizations() {
+        return authorizations;
     }
 
-    private LazyPropertyMetadata getOrCreatePropertyMetadata(String propertyKey) {
-        LazyPropertyMetadata lazyPropertyMetadata = propertyMetadata.get(propertyKey);
-        if (lazyPropertyMetadata == null) {
-            lazyPropertyMetadata = new LazyPropertyMetadata();
-            propertyMetadata.put(propertyKey, lazyPropertyMetadata);
-        }
-        return lazyPropertyMetadata;
+    /**
+     * @return the string shared by all rows for names that repeat across rows, like edge labels.
+     */
+    protected static String internName(ByteSequence bytes) {
+        return NAMES.get(bytes);
     }
 
-    private void extractPropertyData(Map.Entry<Key, Value> column, ColumnVisibility columnVisibility) {
-        Text columnQualifier = column.getKey().getColumnQualifier();
-        Value value = column.getValue();
-        Visibility visibility = AccumuloGraph.accumuloVisibilityToVisibility(columnVisibility);
-        String propertyName = getPropertyNameFromColumnQualifier(columnQualifier.toString());
-        String key = propertyColumnQualifierToKey(columnQualifier, visibility);
-        long timestamp = column.getKey().getTimestamp();
-        propertyColumnQualifier.put(key, columnQualifier.toString());
-        propertyNames.put(key, propertyName);
-        propertyValues.put(key, value.get());
-        propertyVisibilities.put(key, visibility);
-        propertyTimestamps.put(key, timestamp);
+    protected static boolean equals(Text text, ByteSequence bytes) {
+        return equals(text.getBytes(), text.getLength(), bytes);
     }
 
-    private String propertyColumnQualifierToKey(Text columnQualifier, Visibility visibility) {
-        return columnQualifier.toString() + ElementMutationBuilder.VALUE_SEPARATOR + visibility.toString();
+    private static boolean equals(byte[] expected, ByteSequence bytes) {
+        return equals(expected, expected.length, bytes);
     }
 
-    private String getPropertyNameFromColumnQualifier(String columnQualifier) {
-        int i = columnQualifier.indexOf(ElementMutationBuilder.VALUE_SEPARATOR);
-        if (i < 0) {
-            throw new SecureGraphException("Invalid property column qualifier");
+    private static boolean equals(byte[] expected, int expectedLength, ByteSequence bytes) {
+        if (expectedLength != bytes.length()) {
+            return false;
         }
-        return columnQualifier.substring(0, i);
+        for (int i = 0; i < expectedLength; i++) {
+            if (expected[i] != bytes.byteAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private String getPropertyKeyFromColumnQualifier(String columnQualifier) {
-        int i = columnQualifier.indexOf(ElementMutationBuilder.VALUE_SEPARATOR);
-        if (i < 0) {
-            throw new SecureGraphException("Invalid property column qualifier");
+    protected static int indexOf(ByteSequence bytes, byte b, int fromIndex) {
+        for (int i = fromIndex; i < bytes.length(); i++) {
+            if (bytes.byteAt(i) == b) {
+                return i;
+            }
         }
-        return columnQualifier.substring(i + 1);
+        return -1;
     }
 
-    public Authorizations getAuthorizations() {
-        return authorizations;
+    private static int lastIndexOf(ByteSequence bytes, byte b, int fromIndex) {
+        for (int i = fromIndex; i >= 0; i--) {
+            if (bytes.byteAt(i) == b) {
+                return i;
+            }
+        }
+        return -1;
     }
 
-    private static class HiddenProperty {
-        private final String key;
-        private final String name;
-        private final String visibility;
-        private final Visibility hiddenVisibility;
-
-        public HiddenProperty(String key, String name, String visibility, Visibility hiddenVisibility) {
-            this.key = key;
-            this.name = name;
-            this.visibility = visibility;
-            this.hiddenVisibility = hiddenVisibility;
-        }
+    protected static String bytesToString(ByteSequence bytes) {
+        return bytesToString(bytes, 0, bytes.length());
+    }
 
-        public boolean matches(String propertyKey, String propertyName, Visibility visibility) {
-            return propertyKey.equals(this.key)
-                    && propertyName.equals(this.name)
-                    && visibility.getVisibilityString().equals(this.visibility);
+    protected static String bytesToString(ByteSequence bytes, int start, int end) {
+        if (bytes.isBackedByArray()) {
+            return new String(bytes.getBackingArray(), bytes.offset() + start, end - start, UTF_8);
         }
+        return new String(bytes.subSequence(start, end).toArray(), UTF_8);
+    }
 
-        public Visibility getHiddenVisibility() {
-            return hiddenVisibility;
+    /**
+     * Everything read for one property, keyed by the name, key and visibility of the property.
+     */
+    private static class PropertyColumn {
+        private String name;
+        private String key;
+        private Visibility visibility;
+        private byte[] value;
+        private long timestamp;
+        private LazyPropertyMetadata metadata;
+        private Set<Visibility> hiddenVisibilities;
+
+        public PropertyColumn(String name, String key, Visibility visibility) {
+            this.name = name;
+            this.key = key;
+            this.visibility = visibility;
         }
 
         @Override
@@ -276,34 +313,25 @@ public abstract class ElementMaker<T> {
                 return false;
             }
 
-            HiddenProperty that = (HiddenProperty) o;
-
-            if (key != null ? !key.equals(that.key) : that.key != null) {
-                return false;
-            }
-            if (name != null ? !name.equals(that.name) : that.name != null) {
-                return false;
-            }
-            if (visibility != null ? !visibility.equals(that.visibility) : that.visibility != null) {
-                return false;
-            }
-
-            return true;
+            PropertyColumn that = (PropertyColumn) o;
+            return name.equals(that.name)
+                    && key.equals(that.key)
+                    && visibility.equals(that.visibility);
         }
 
         @Override
         public int hashCode() {
-            int result = key != null ? key.hashCode() : 0;
-            result = 31 * result + (name != null ? name.hashCode() : 0);
-            result = 31 * result + (visibility != null ? visibility.hashCode() : 0);
+            int result = name.hashCode();
+            result = 31 * result + key.hashCode();
+            result = 31 * result + visibility.hashCode();
             return result;
         }
 
         @Override
         public String toString() {
-            return "HiddenProperty{" +
-                    "key='" + key + '\'' +
-                    ", name='" + name + '\'' +
+            return "PropertyColumn{" +
+                    "name='" + name + '\'' +
+                    ", key='" + key + '\'' +
                     ", visibility='" + visibility + '\'' +
                     '}';
         }
@@ -6,6 +6,7 @@ import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.io.Text;
 import org.securegraph.*;
+import org.securegraph.accumulo.serializer.CompressingValueSerializer;
 import org.securegraph.accumulo.serializer.ValueSerializer;
 import org.securegraph.mutation.PropertyPropertyRemoveMutation;
 import org.securegraph.mutation.PropertyRemoveMutation;
@@ -22,6 +23,7 @@ import static org.securegraph.util.Preconditions.checkNotNull;
 public abstract class ElementMutationBuilder {
     private static final Logger LOGGER = LoggerFactory.getLogger(ElementMutationBuilder.class);
     private static final Text EMPTY_TEXT = new Text("");
+    public static final Text CQ_DEFLATED_DATA = new Text("deflate");
     public static final Value EMPTY_VALUE = new Value(new byte[0]);
     public static final String VALUE_SEPARATOR = "\u001f";
 
@@ -29,12 +31,14 @@ public abstract class ElementMutationBuilder {
     private final ValueSerializer valueSerializer;
     private final long maxStreamingPropertyValueTableDataSize;
     private final String dataDir;
+    private final boolean labelOrderedEdgeRefs;
 
-    protected ElementMutationBuilder(FileSystem fileSystem, ValueSerializer valueSerializer, long maxStreamingPropertyValueTableDataSize, String dataDir) {
+    protected ElementMutationBuilder(FileSystem fileSystem, ValueSerializer valueSerializer, long maxStreamingPropertyValueTableDataSize, String dataDir, boolean labelOrderedEdgeRefs) {
         this.fileSystem = fileSystem;
         this.valueSerializer = valueSerializer;
         this.maxStreamingPropertyValueTableDataSize = maxStreamingPropertyValueTableDataSize;
         this.dataDir = dataDir;
+        this.labelOrderedEdgeRefs = labelOrderedEdgeRefs;
     }
 
     public void saveVertex(AccumuloVertex vertex) {
@@ -63,29 +67,95 @@ public abstract class ElementMutationBuilder {
         saveEdgeMutation(m);
 
         String edgeLabel = edge.getNewEdgeLabel() != null ? edge.getNewEdgeLabel() : edge.getLabel();
-        saveEdgeInfoOnVertex(edge, edgeLabel, edgeColumnVisibility);
+        String previousEdgeLabel = edge.getNewEdgeLabel() != null ? edge.getLabel() : null;
+        saveEdgeInfoOnVertex(edge, edgeLabel, previousEdgeLabel, edgeColumnVisibility);
     }
 
-    private void saveEdgeInfoOnVertex(AccumuloEdge edge, String edgeLabel, ColumnVisibility edgeColumnVisibility) {
+    private void saveEdgeInfoOnVertex(AccumuloEdge edge, String edgeLabel, String previousEdgeLabel, ColumnVisibility edgeColumnVisibility) {
         // Update out vertex.
         Mutation addEdgeToOutMutation = new Mutation(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + edge.getVertexId(Direction.OUT));
-        EdgeInfo edgeInfo = new EdgeInfo(edgeLabel, edge.getVertexId(Direction.IN));
-        addEdgeToOutMutation.put(AccumuloVertex.CF_OUT_EDGE, new Text(edge.getId()), edgeColumnVisibility, edgeInfo.toValue());
+        addPreviousEdgeRefRemoveToMutation(addEdgeToOutMutation, Direction.OUT, previousEdgeLabel, edgeLabel, edge.getId(), edgeColumnVisibility);
+        EdgeInfo edgeInfo = createEdgeInfo(edgeLabel, edge.getVertexId(Direction.IN));
+        addEdgeRefToMutation(addEdgeToOutMutation, Direction.OUT, edgeLabel, edge.getId(), edgeColumnVisibility, edgeInfo);
         saveVertexMutation(addEdgeToOutMutation);
 
         // Update in vertex.
         Mutation addEdgeToInMutation = new Mutation(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + edge.getVertexId(Direction.IN));
-        edgeInfo = new EdgeInfo(edgeLabel, edge.getVertexId(Direction.OUT));
-        addEdgeToInMutation.put(AccumuloVertex.CF_IN_EDGE, new Text(edge.getId()), edgeColumnVisibility, edgeInfo.toValue());
+        addPreviousEdgeRefRemoveToMutation(addEdgeToInMutation, Direction.IN, previousEdgeLabel, edgeLabel, edge.getId(), edgeColumnVisibility);
+        edgeInfo = createEdgeInfo(edgeLabel, edge.getVertexId(Direction.OUT));
+        addEdgeRefToMutation(addEdgeToInMutation, Direction.IN, edgeLabel, edge.getId(), edgeColumnVisibility, edgeInfo);
         saveVertexMutation(addEdgeToInMutation);
     }
 
+    /**
+     * Creates the edge info stored in the edge refs of a vertex. The label is stored as a string, subclasses can
+     * store the id of the label in an edge label dictionary instead.
+     */
+    protected EdgeInfo createEdgeInfo(String label, String vertexId) {
+        return new EdgeInfo(label, vertexId);
+    }
+
     public void alterEdgeLabel(AccumuloEdge edge, String newEdgeLabel) {
         ColumnVisibility edgeColumnVisibility = visibilityToAccumuloVisibility(edge.getVisibility());
         Mutation m = createAlterEdgeLabelMutation(edge, newEdgeLabel, edgeColumnVisibility);
         saveEdgeMutation(m);
 
-        saveEdgeInfoOnVertex(edge, newEdgeLabel, edgeColumnVisibility);
+        saveEdgeInfoOnVertex(edge, newEdgeLabel, edge.getLabel(), edgeColumnVisibility);
+    }
+
+    /**
+     * @param direction OUT if the mutation is for the out vertex of the edge, IN if it is for the in vertex.
+     */
+    private void addEdgeRefToMutation(Mutation m, Direction direction, String edgeLabel, String edgeId, ColumnVisibility edgeColumnVisibility, EdgeInfo edgeInfo) {
+        if (labelOrderedEdgeRefs) {
+            Text columnFamily = direction == Direction.OUT ? AccumuloVertex.CF_OUT_EDGE_BY_LABEL : AccumuloVertex.CF_IN_EDGE_BY_LABEL;
+            m.put(columnFamily, getLabelOrderedEdgeRefColumnQualifier(edgeLabel, edgeId), edgeColumnVisibility, edgeInfo.toValue());
+        } else {
+            Text columnFamily = direction == Direction.OUT ? AccumuloVertex.CF_OUT_EDGE : AccumuloVertex.CF_IN_EDGE;
+            m.put(columnFamily, new Text(edgeId), edgeColumnVisibility, edgeInfo.toValue());
+        }
+    }
+
+    private void addPreviousEdgeRefRemoveToMutation(Mutation m, Direction direction, String previousEdgeLabel, String edgeLabel, String edgeId, ColumnVisibility edgeColumnVisibility) {
+        // deletes of the same key as the put would mask the put so only the stale columns are removed
+        if (previousEdgeLabel != null && !previousEdgeLabel.equals(edgeLabel)) {
+            Text columnFamily = direction == Direction.OUT ? AccumuloVertex.CF_OUT_EDGE_BY_LABEL : AccumuloVertex.CF_IN_EDGE_BY_LABEL;
+            m.putDelete(columnFamily, getLabelOrderedEdgeRefColumnQualifier(previousEdgeLabel, edgeId), edgeColumnVisibility);
+        }
+        if (previousEdgeLabel != null && labelOrderedEdgeRefs) {
+            Text columnFamily = direction == Direction.OUT ? AccumuloVertex.CF_OUT_EDGE : AccumuloVertex.CF_IN_EDGE;
+            m.putDelete(columnFamily, new Text(edgeId), edgeColumnVisibility);
+        }
+    }
+
+    /**
+     * Removes the edge ref in both layouts since a table may contain either while it is being migrated.
+     *
+     * @param direction OUT if the mutation is for the out vertex of the edge, IN if it is for the in vertex.
+     */
+    public void addEdgeRefRemoveToMutation(Mutation m, Direction direction, String edgeLabel, String edgeId, ColumnVisibility edgeColumnVisibility) {
+        if (direction == Direction.OUT) {
+            m.putDelete(AccumuloVertex.CF_OUT_EDGE, new Text(edgeId), edgeColumnVisibility);
+            m.putDelete(AccumuloVertex.CF_OUT_EDGE_BY_LABEL, getLabelOrderedEdgeRefColumnQualifier(edgeLabel, edgeId), edgeColumnVisibility);
+        } else {
+            m.putDelete(AccumuloVertex.CF_IN_EDGE, new Text(edgeId), edgeColumnVisibility);
+            m.putDelete(AccumuloVertex.CF_IN_EDGE_BY_LABEL, getLabelOrderedEdgeRefColumnQualifier(edgeLabel, edgeId), edgeColumnVisibility);
+        }
+    }
+
+    public static Text getLabelOrderedEdgeRefColumnQualifier(String edgeLabel, String edgeId) {
+        if (edgeLabel.contains(VALUE_SEPARATOR)) {
+            throw new SecureGraphException("Edge labels cannot contain the value separator when using label ordered edge refs: " + edgeLabel);
+        }
+        return new Text(edgeLabel + VALUE_SEPARATOR + edgeId);
+    }
+
+    public static String getEdgeIdFromLabelOrderedEdgeRefColumnQualifier(String columnQualifier) {
+        int i = columnQualifier.indexOf(VALUE_SEPARATOR);
+        if (i < 0) {
+            throw new SecureGraphException("Invalid label ordered edge ref column qualifier: " + columnQualifier);
+        }
+        return columnQualifier.substring(i + 1);
     }
 
     private ColumnVisibility visibilityToAccumuloVisibility(Visibility visibility) {
@@ -154,9 +224,9 @@ public abstract class ElementMutationBuilder {
         if (currentColumnVisibility.equals(newColumnVisibility)) {
             return false;
         }
-        EdgeInfo edgeInfo = new EdgeInfo(edge.getLabel(), edge.getVertexId(Direction.IN));
-        mvout.putDelete(AccumuloVertex.CF_OUT_EDGE, new Text(edge.getId()), currentColumnVisibility);
-        mvout.put(AccumuloVertex.CF_OUT_EDGE, new Text(edge.getId()), newColumnVisibility, edgeInfo.toValue());
+        EdgeInfo edgeInfo = createEdgeInfo(edge.getLabel(), edge.getVertexId(Direction.IN));
+        addEdgeRefRemoveToMutation(mvout, Direction.OUT, edge.getLabel(), edge.getId(), currentColumnVisibility);
+        addEdgeRefToMutation(mvout, Direction.OUT, edge.getLabel(), edge.getId(), newColumnVisibility, edgeInfo);
         return true;
     }
 
@@ -166,9 +236,9 @@ public abstract class ElementMutationBuilder {
         if (currentColumnVisibility.equals(newColumnVisibility)) {
             return false;
         }
-        EdgeInfo edgeInfo = new EdgeInfo(edge.getLabel(), edge.getVertexId(Direction.OUT));
-        mvin.putDelete(AccumuloVertex.CF_IN_EDGE, new Text(edge.getId()), currentColumnVisibility);
-        mvin.put(AccumuloVertex.CF_IN_EDGE, new Text(edge.getId()), newColumnVisibility, edgeInfo.toValue());
+        EdgeInfo edgeInfo = createEdgeInfo(edge.getLabel(), edge.getVertexId(Direction.OUT));
+        addEdgeRefRemoveToMutation(mvin, Direction.IN, edge.getLabel(), edge.getId(), currentColumnVisibility);
+        addEdgeRefToMutation(mvin, Direction.IN, edge.getLabel(), edge.getId(), newColumnVisibility, edgeInfo);
         return true;
     }
 
@@ -273,7 +343,18 @@ public abstract class ElementMutationBuilder {
     private StreamingPropertyValueRef saveStreamingPropertyValueSmall(String rowKey, Property property, byte[] data, StreamingPropertyValue propertyValue) {
         String dataRowKey = createTableDataRowKey(rowKey, property);
         Mutation dataMutation = new Mutation(dataRowKey);
-        dataMutation.put(EMPTY_TEXT, EMPTY_TEXT, new Value(data));
+        byte[] compressedData = null;
+        if (valueSerializer instanceof CompressingValueSerializer) {
+            compressedData = ((CompressingValueSerializer) valueSerializer).compress(data);
+        }
+        // only one of the two columns may exist, the data is read from the first column of the row
+        if (compressedData == null) {
+            dataMutation.putDelete(EMPTY_TEXT, CQ_DEFLATED_DATA);
+            dataMutation.put(EMPTY_TEXT, EMPTY_TEXT, new Value(data));
+        } else {
+            dataMutation.putDelete(EMPTY_TEXT, EMPTY_TEXT);
+            dataMutation.put(EMPTY_TEXT, CQ_DEFLATED_DATA, new Value(compressedData));
+        }
         saveDataMutation(dataMutation);
         return new StreamingPropertyValueTableRef(dataRowKey, propertyValue, data);
     }
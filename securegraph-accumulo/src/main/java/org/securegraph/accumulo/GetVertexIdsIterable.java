@@ -2,16 +2,20 @@ package org.securegraph.accumulo;
 
 import org.securegraph.util.LookAheadIterable;
 
-import java.util.Collection;
 import java.util.Iterator;
 
 class GetVertexIdsIterable extends LookAheadIterable<EdgeInfo, String> {
-    private final Collection<EdgeInfo> edgeInfos;
+    private final Iterable<EdgeInfo> edgeInfos;
     private final String[] labels;
+    private final int[] labelIds;
 
-    public GetVertexIdsIterable(Collection<EdgeInfo> edgeInfos, String[] labels) {
+    /**
+     * @param labelIds The edge label dictionary ids of the labels that have one.
+     */
+    public GetVertexIdsIterable(Iterable<EdgeInfo> edgeInfos, String[] labels, int[] labelIds) {
         this.edgeInfos = edgeInfos;
         this.labels = labels;
+        this.labelIds = labelIds;
     }
 
     @Override
@@ -19,12 +23,7 @@ class GetVertexIdsIterable extends LookAheadIterable<EdgeInfo, String> {
         if (labels == null || labels.length == 0) {
             return true;
         }
-        for (String label : labels) {
-            if (edgeInfo.getLabel().equals(label)) {
-                return true;
-            }
-        }
-        return false;
+        return edgeInfo.hasAnyLabel(labels, labelIds);
     }
 
     @Override
@@ -45,6 +45,27 @@ public class LazyMutableProperty extends MutableProperty implements HasTimestamp
         this.timestamp = timestamp;
     }
 
+    /**
+     * @return a copy that does not share the hidden visibilities or the decoded metadata with this property.
+     */
+    LazyMutableProperty copy() {
+        LazyMutableProperty copy = new LazyMutableProperty(
+                graph,
+                valueSerializer,
+                propertyKey,
+                propertyName,
+                propertyValue,
+                metadata,
+                hiddenVisibilities == null ? null : new HashSet<>(hiddenVisibilities),
+                visibility,
+                timestamp
+        );
+        if (propertyValue == null) {
+            copy.cachedPropertyValue = cachedPropertyValue;
+        }
+        return copy;
+    }
+
     @Override
     public void setValue(Object value) {
         this.cachedPropertyValue = value;
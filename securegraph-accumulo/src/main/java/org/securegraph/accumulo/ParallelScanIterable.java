@@ -0,0 +1,227 @@
+package org.securegraph.accumulo;
+
+import org.apache.accumulo.core.data.Range;
+import org.securegraph.SecureGraphException;
+import org.securegraph.util.CloseableIterable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scans a list of ranges concurrently using a bounded number of threads. Results are handed to the caller through
+ * bounded queues so a slow consumer blocks the scanning threads instead of buffering the table in memory.
+ * <p/>
+ * When ordered, each range has its own queue and the queues are drained in range order, otherwise all ranges share
+ * one queue and results are returned as soon as they are available.
+ * <p/>
+ * Callers that stop iterating before the end must call close to stop the scanning threads. Iterators that are
+ * abandoned without being closed are stopped once the caller has not asked for a result for the abandon timeout.
+ */
+abstract class ParallelScanIterable<T> implements CloseableIterable<T> {
+    private static final Object END_OF_RANGE = new Object();
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final long DEFAULT_ABANDON_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final List<Range> ranges;
+    private final int numThreads;
+    private final int queueSize;
+    private final boolean ordered;
+    private final long abandonTimeoutMillis;
+    private final List<ScanIterator> iterators = new ArrayList<>();
+
+    protected ParallelScanIterable(List<Range> ranges, int numThreads, int queueSize, boolean ordered) {
+        this(ranges, numThreads, queueSize, ordered, DEFAULT_ABANDON_TIMEOUT_MILLIS);
+    }
+
+    ParallelScanIterable(List<Range> ranges, int numThreads, int queueSize, boolean ordered, long abandonTimeoutMillis) {
+        this.ranges = ranges;
+        this.numThreads = numThreads;
+        this.queueSize = queueSize;
+        this.ordered = ordered;
+        this.abandonTimeoutMillis = abandonTimeoutMillis;
+    }
+
+    protected abstract CloseableIterable<T> scanRange(Range range);
+
+    @Override
+    public Iterator<T> iterator() {
+        ScanIterator it = new ScanIterator();
+        synchronized (iterators) {
+            iterators.add(it);
+        }
+        it.start();
+        return it;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (iterators) {
+            for (ScanIterator it : iterators) {
+                it.close();
+            }
+            iterators.clear();
+        }
+    }
+
+    private static class ScanError {
+        private final Exception cause;
+
+        private ScanError(Throwable cause) {
+            this.cause = cause instanceof Exception ? (Exception) cause : new ExecutionException(cause);
+        }
+    }
+
+    private class ScanIterator implements Iterator<T> {
+        private final List<BlockingQueue<Object>> queues = new ArrayList<>();
+        private ExecutorService executorService;
+        private volatile boolean closed;
+        private volatile boolean abandoned;
+        private volatile boolean waiting;
+        private volatile long lastReadMillis = System.currentTimeMillis();
+        private int currentQueue;
+        private int rangesRemaining;
+        private T next;
+
+        public void start() {
+            this.rangesRemaining = ranges.size();
+            this.executorService = Executors.newFixedThreadPool(Math.max(1, Math.min(numThreads, ranges.size())), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "securegraph-parallel-scan-" + THREAD_COUNTER.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            BlockingQueue<Object> sharedQueue = ordered ? null : new ArrayBlockingQueue<Object>(queueSize);
+            for (final Range range : ranges) {
+                final BlockingQueue<Object> queue = ordered ? new ArrayBlockingQueue<Object>(queueSize) : sharedQueue;
+                if (ordered || queues.size() == 0) {
+                    queues.add(queue);
+                }
+                // tasks are started in submission order so the range being drained in ordered mode is always running
+                executorService.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        scan(range, queue);
+                    }
+                });
+            }
+            executorService.shutdown();
+        }
+
+        private void scan(Range range, BlockingQueue<Object> queue) {
+            try {
+                CloseableIterable<T> results = scanRange(range);
+                try {
+                    for (T result : results) {
+                        if (!offer(queue, result)) {
+                            return;
+                        }
+                    }
+                } finally {
+                    results.close();
+                }
+                offer(queue, END_OF_RANGE);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable ex) {
+                try {
+                    offer(queue, new ScanError(ex));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         * Waits for room in the queue until the iterator is closed. Returns false if the iterator was closed, or if
+         * the caller has not asked for a result for the abandon timeout in which case the iterator is closed.
+         */
+        private boolean offer(BlockingQueue<Object> queue, Object o) throws InterruptedException {
+            while (!closed) {
+                if (queue.offer(o, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+                // a caller waiting on a slow range in ordered mode is not abandoning the iterator
+                if (!waiting && System.currentTimeMillis() - lastReadMillis > abandonTimeoutMillis) {
+                    abandoned = true;
+                    close();
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (abandoned) {
+                throw new SecureGraphException("Scan was stopped because no results were read for " + abandonTimeoutMillis + "ms");
+            }
+            while (rangesRemaining > 0 && !closed) {
+                Object o;
+                waiting = true;
+                try {
+                    o = queues.get(currentQueue).take();
+                } catch (InterruptedException ex) {
+                    close();
+                    Thread.currentThread().interrupt();
+                    throw new SecureGraphException("Interrupted while waiting for scan results", ex);
+                } finally {
+                    lastReadMillis = System.currentTimeMillis();
+                    waiting = false;
+                }
+                if (o == END_OF_RANGE) {
+                    rangesRemaining--;
+                    if (ordered) {
+                        currentQueue++;
+                    }
+                    continue;
+                }
+                if (o instanceof ScanError) {
+                    close();
+                    throw new SecureGraphException("Could not scan range", ((ScanError) o).cause);
+                }
+                //noinspection unchecked
+                next = (T) o;
+                return true;
+            }
+            close();
+            return false;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            executorService.shutdownNow();
+            for (BlockingQueue<Object> queue : queues) {
+                queue.clear();
+            }
+        }
+    }
+}
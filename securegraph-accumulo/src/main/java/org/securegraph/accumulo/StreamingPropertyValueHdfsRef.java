@@ -16,6 +16,11 @@ public class StreamingPropertyValueHdfsRef extends StreamingPropertyValueRef {
         this.path = path;
     }
 
+    public StreamingPropertyValueHdfsRef(String path, String valueType, boolean searchIndex, boolean store) {
+        super(valueType, searchIndex, store);
+        this.path = path;
+    }
+
     public String getPath() {
         return path;
     }
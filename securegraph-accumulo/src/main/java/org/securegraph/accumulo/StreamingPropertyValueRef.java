@@ -23,6 +23,16 @@ public abstract class StreamingPropertyValueRef implements Serializable {
         this.store = propertyValue.isStore();
     }
 
+    protected StreamingPropertyValueRef(String valueType, boolean searchIndex, boolean store) {
+        this.valueType = valueType;
+        this.searchIndex = searchIndex;
+        this.store = store;
+    }
+
+    public String getValueTypeName() {
+        return valueType;
+    }
+
     public Class getValueType() {
         try {
             return Class.forName(valueType);
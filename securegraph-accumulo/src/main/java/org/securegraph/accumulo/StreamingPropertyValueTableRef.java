@@ -18,6 +18,12 @@ public class StreamingPropertyValueTableRef extends StreamingPropertyValueRef {
         this.data = data;
     }
 
+    public StreamingPropertyValueTableRef(String dataRowKey, String valueType, boolean searchIndex, boolean store) {
+        super(valueType, searchIndex, store);
+        this.dataRowKey = dataRowKey;
+        this.data = null;
+    }
+
     public String getDataRowKey() {
         return dataRowKey;
     }
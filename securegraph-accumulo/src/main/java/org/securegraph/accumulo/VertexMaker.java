@@ -1,9 +1,10 @@
 package org.securegraph.accumulo;
 
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
-import org.apache.hadoop.io.Text;
 import org.securegraph.Authorizations;
+import org.securegraph.FetchHint;
 import org.securegraph.SecureGraphException;
 import org.securegraph.Vertex;
 
@@ -16,43 +17,83 @@ public class VertexMaker extends ElementMaker<Vertex> {
     private final Map<String, EdgeInfo> outEdges = new HashMap<>();
     private final Map<String, EdgeInfo> inEdges = new HashMap<>();
     private final Set<String> hiddenEdges = new HashSet<>();
+    private final boolean lazyInEdges;
+    private final boolean lazyOutEdges;
+    private final String[] edgeLabels;
     private long timestamp;
 
     public VertexMaker(AccumuloGraph graph, Iterator<Map.Entry<Key, Value>> row, Authorizations authorizations) {
+        this(graph, row, authorizations, null, null);
+    }
+
+    /**
+     * @param fetchHints The fetch hints the row was scanned with, used to decide which edge refs are read lazily.
+     *                   null if the edge refs should never be read lazily.
+     * @param edgeLabels The edge labels the row was scanned with or null for all edge labels.
+     */
+    public VertexMaker(AccumuloGraph graph, Iterator<Map.Entry<Key, Value>> row, Authorizations authorizations, EnumSet<FetchHint> fetchHints, String[] edgeLabels) {
         super(graph, row, authorizations);
         this.graph = graph;
+        boolean lazyEdgeRefs = fetchHints != null && graph.getConfiguration().isLazyEdgeRefs();
+        this.lazyInEdges = lazyEdgeRefs && fetchHints.contains(FetchHint.IN_EDGE_REFS);
+        this.lazyOutEdges = lazyEdgeRefs && fetchHints.contains(FetchHint.OUT_EDGE_REFS);
+        this.edgeLabels = edgeLabels;
     }
 
     @Override
     protected void processColumn(Key key, Value value) {
-        Text columnFamily = key.getColumnFamily();
-        Text columnQualifier = key.getColumnQualifier();
+        ByteSequence columnFamily = key.getColumnFamilyData();
+        ByteSequence columnQualifier = key.getColumnQualifierData();
 
-        if (AccumuloVertex.CF_SIGNAL.compareTo(columnFamily) == 0) {
+        if (equals(AccumuloVertex.CF_SIGNAL, columnFamily)) {
             this.timestamp = key.getTimestamp();
             return;
         }
 
-        if (AccumuloVertex.CF_OUT_EDGE_HIDDEN.compareTo(columnFamily) == 0
-                || AccumuloVertex.CF_IN_EDGE_HIDDEN.compareTo(columnFamily) == 0) {
-            String edgeId = columnQualifier.toString();
+        if (equals(AccumuloVertex.CF_OUT_EDGE_HIDDEN, columnFamily)
+                || equals(AccumuloVertex.CF_IN_EDGE_HIDDEN, columnFamily)) {
+            String edgeId = bytesToString(columnQualifier);
             hiddenEdges.add(edgeId);
             return;
         }
 
-        if (AccumuloVertex.CF_OUT_EDGE.compareTo(columnFamily) == 0) {
-            String edgeId = columnQualifier.toString();
-            EdgeInfo edgeInfo = EdgeInfo.parse(value);
+        if (equals(AccumuloVertex.CF_OUT_EDGE, columnFamily)) {
+            String edgeId = bytesToString(columnQualifier);
+            EdgeInfo edgeInfo = EdgeInfo.parse(value, graph.getEdgeLabelDictionary());
             outEdges.put(edgeId, edgeInfo);
             return;
         }
 
-        if (AccumuloVertex.CF_IN_EDGE.compareTo(columnFamily) == 0) {
-            String edgeId = columnQualifier.toString();
-            EdgeInfo edgeInfo = EdgeInfo.parse(value);
+        if (equals(AccumuloVertex.CF_IN_EDGE, columnFamily)) {
+            String edgeId = bytesToString(columnQualifier);
+            EdgeInfo edgeInfo = EdgeInfo.parse(value, graph.getEdgeLabelDictionary());
             inEdges.put(edgeId, edgeInfo);
             return;
         }
+
+        // label ordered edge refs sort after the edge id keyed edge refs so they win if a row has not been fully migrated
+        if (equals(AccumuloVertex.CF_OUT_EDGE_BY_LABEL, columnFamily)) {
+            String edgeId = getEdgeIdFromLabelOrderedEdgeRefColumnQualifier(columnQualifier);
+            EdgeInfo edgeInfo = EdgeInfo.parse(value, graph.getEdgeLabelDictionary());
+            outEdges.put(edgeId, edgeInfo);
+            return;
+        }
+
+        if (equals(AccumuloVertex.CF_IN_EDGE_BY_LABEL, columnFamily)) {
+            String edgeId = getEdgeIdFromLabelOrderedEdgeRefColumnQualifier(columnQualifier);
+            EdgeInfo edgeInfo = EdgeInfo.parse(value, graph.getEdgeLabelDictionary());
+            inEdges.put(edgeId, edgeInfo);
+            return;
+        }
+    }
+
+    // column qualifier is [label][separator][edge id], see ElementMutationBuilder.getEdgeIdFromLabelOrderedEdgeRefColumnQualifier
+    private static String getEdgeIdFromLabelOrderedEdgeRefColumnQualifier(ByteSequence columnQualifier) {
+        int i = indexOf(columnQualifier, VALUE_SEPARATOR, 0);
+        if (i < 0) {
+            throw new SecureGraphException("Invalid label ordered edge ref column qualifier: " + bytesToString(columnQualifier));
+        }
+        return bytesToString(columnQualifier, i + 1, columnQualifier.length());
     }
 
     @Override
@@ -70,7 +111,9 @@ public class VertexMaker extends ElementMaker<Vertex> {
 
     @Override
     protected Vertex makeElement(boolean includeHidden) {
-        if (!includeHidden) {
+        if (includeHidden) {
+            this.hiddenEdges.clear();
+        } else {
             for (String edgeId : this.hiddenEdges) {
                 this.inEdges.remove(edgeId);
                 this.outEdges.remove(edgeId);
@@ -84,8 +127,10 @@ public class VertexMaker extends ElementMaker<Vertex> {
                 this.getProperties(includeHidden),
                 null,
                 this.getHiddenVisibilities(),
-                this.inEdges,
-                this.outEdges,
+                this.lazyInEdges ? null : this.inEdges,
+                this.lazyOutEdges ? null : this.outEdges,
+                this.hiddenEdges,
+                this.edgeLabels,
                 this.getAuthorizations(),
                 timestamp
         );
@@ -29,6 +29,7 @@ public abstract class ElementMapper<KEYIN, VALUEIN, KEYOUT, VALUEOUT> extends Ma
         ValueSerializer valueSerializer = accumuloGraphConfiguration.createValueSerializer();
         long maxStreamingPropertyValueTableDataSize = accumuloGraphConfiguration.getMaxStreamingPropertyValueTableDataSize();
         String dataDir = accumuloGraphConfiguration.getDataDir();
+        boolean labelOrderedEdgeRefs = accumuloGraphConfiguration.isLabelOrderedEdgeRefs();
         FileSystem fileSystem;
         try {
             fileSystem = accumuloGraphConfiguration.createFileSystem();
@@ -36,7 +37,7 @@ public abstract class ElementMapper<KEYIN, VALUEIN, KEYOUT, VALUEOUT> extends Ma
             throw new IOException("Could not initialize", e);
         }
 
-        this.elementMutationBuilder = new ElementMutationBuilder(fileSystem, valueSerializer, maxStreamingPropertyValueTableDataSize, dataDir) {
+        this.elementMutationBuilder = new ElementMutationBuilder(fileSystem, valueSerializer, maxStreamingPropertyValueTableDataSize, dataDir, labelOrderedEdgeRefs) {
             @Override
             protected void saveVertexMutation(Mutation m) {
                 try {
@@ -0,0 +1,123 @@
+package org.securegraph.accumulo.serializer;
+
+import org.apache.accumulo.core.data.Value;
+import org.securegraph.SecureGraphException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses serialized values of at least compressionThreshold bytes and decompresses them again when they are
+ * read.
+ * <p/>
+ * Compressed values start with a zero byte followed by {@link #COMPRESSED_VALUE_MARKER}. The serializers only ever
+ * write a leading zero byte for a null value which is a single byte long, so uncompressed values written before
+ * compression was enabled are still read as they are. Values are only stored compressed when that makes them
+ * smaller.
+ */
+public class CompressingValueSerializer implements ValueSerializer {
+    public static final String COMPRESSION_NONE = "none";
+    public static final String COMPRESSION_DEFLATE = "deflate";
+    private static final byte COMPRESSED_VALUE_MARKER = 'Z';
+    private static final byte DEFLATE = 1;
+    private static final int HEADER_LENGTH = 3;
+    private final ValueSerializer valueSerializer;
+    private final boolean compress;
+    private final int compressionThreshold;
+
+    public CompressingValueSerializer(ValueSerializer valueSerializer, String compression, int compressionThreshold) {
+        this.valueSerializer = valueSerializer;
+        if (COMPRESSION_NONE.equalsIgnoreCase(compression)) {
+            this.compress = false;
+        } else if (COMPRESSION_DEFLATE.equalsIgnoreCase(compression)) {
+            this.compress = true;
+        } else {
+            throw new SecureGraphException("Invalid value compression: " + compression + " (expected " + COMPRESSION_NONE + " or " + COMPRESSION_DEFLATE + ")");
+        }
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public ValueSerializer getValueSerializer() {
+        return valueSerializer;
+    }
+
+    @Override
+    public Value objectToValue(Object value) {
+        Value serializedValue = valueSerializer.objectToValue(value);
+        byte[] compressed = compress(serializedValue.get());
+        if (compressed == null) {
+            return serializedValue;
+        }
+        byte[] data = new byte[HEADER_LENGTH + compressed.length];
+        data[1] = COMPRESSED_VALUE_MARKER;
+        data[2] = DEFLATE;
+        System.arraycopy(compressed, 0, data, HEADER_LENGTH, compressed.length);
+        return new Value(data);
+    }
+
+    @Override
+    public <T> T valueToObject(Value value) {
+        return valueToObject(value.get());
+    }
+
+    @Override
+    public <T> T valueToObject(byte[] data) {
+        if (data.length > HEADER_LENGTH && data[0] == 0 && data[1] == COMPRESSED_VALUE_MARKER) {
+            if (data[2] != DEFLATE) {
+                throw new SecureGraphException("Invalid value compression: " + data[2]);
+            }
+            data = inflate(data, HEADER_LENGTH);
+        }
+        return valueSerializer.valueToObject(data);
+    }
+
+    /**
+     * Returns the deflated data, or null if compression is disabled, the data is below the compression threshold or
+     * it does not get smaller.
+     */
+    public byte[] compress(byte[] data) {
+        if (!compress || data.length < compressionThreshold) {
+            return null;
+        }
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int len = deflater.deflate(buffer);
+                out.write(buffer, 0, len);
+                if (out.size() + HEADER_LENGTH >= data.length) {
+                    return null;
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static byte[] inflate(byte[] data, int offset) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, data.length - offset);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int len = inflater.inflate(buffer);
+                if (len == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new SecureGraphException("Truncated compressed value");
+                }
+                out.write(buffer, 0, len);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException ex) {
+            throw new SecureGraphException("Could not decompress value", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package org.securegraph.accumulo.serializer;
+
+import org.apache.accumulo.core.data.Value;
+import org.securegraph.DateOnly;
+import org.securegraph.SecureGraphException;
+import org.securegraph.accumulo.StreamingPropertyValueHdfsRef;
+import org.securegraph.accumulo.StreamingPropertyValueTableRef;
+import org.securegraph.type.GeoPoint;
+import org.securegraph.util.JavaSerializableUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Writes values as a one byte type tag followed by a compact encoding of the value. Integers, longs and dates are
+ * written as zig-zag varints, strings as a varint length followed by their UTF-8 bytes. Types without their own
+ * encoding fall back to Java serialization after the {@link #TAG_JAVA} tag.
+ * <p/>
+ * Values written by {@link JavaValueSerializer} start with the Java serialization stream magic, which no tag uses,
+ * so an existing graph can switch to this serializer and still read the values it already has.
+ */
+public class TaggedValueSerializer implements ValueSerializer {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte JAVA_STREAM_MAGIC_0 = (byte) 0xac;
+    private static final byte JAVA_STREAM_MAGIC_1 = (byte) 0xed;
+    public static final byte TAG_NULL = 0;
+    public static final byte TAG_STRING = 1;
+    public static final byte TAG_TRUE = 2;
+    public static final byte TAG_FALSE = 3;
+    public static final byte TAG_INTEGER = 4;
+    public static final byte TAG_LONG = 5;
+    public static final byte TAG_DOUBLE = 6;
+    public static final byte TAG_FLOAT = 7;
+    public static final byte TAG_SHORT = 8;
+    public static final byte TAG_BYTE = 9;
+    public static final byte TAG_DATE = 10;
+    public static final byte TAG_DATE_ONLY = 11;
+    public static final byte TAG_GEO_POINT = 12;
+    public static final byte TAG_BYTE_ARRAY = 13;
+    public static final byte TAG_STREAMING_PROPERTY_VALUE_TABLE_REF = 14;
+    public static final byte TAG_STREAMING_PROPERTY_VALUE_HDFS_REF = 15;
+    public static final byte TAG_JAVA = 16;
+    private static final int GEO_POINT_HAS_ALTITUDE = 1;
+    private static final int GEO_POINT_HAS_DESCRIPTION = 2;
+
+    /**
+     * Returns true if values written by the given serializer can be read by this serializer.
+     */
+    public static boolean canRead(String valueSerializerClassName) {
+        return TaggedValueSerializer.class.getName().equals(valueSerializerClassName)
+                || JavaValueSerializer.class.getName().equals(valueSerializerClassName);
+    }
+
+    @Override
+    public Value objectToValue(Object value) {
+        return new Value(objectToBytes(value));
+    }
+
+    @Override
+    public <T> T valueToObject(Value value) {
+        return valueToObject(value.get());
+    }
+
+    @Override
+    public <T> T valueToObject(byte[] data) {
+        return (T) bytesToObject(data);
+    }
+
+    public byte[] objectToBytes(Object value) {
+        Output out = new Output();
+        if (value == null) {
+            out.write(TAG_NULL);
+        } else if (value instanceof String) {
+            out.write(TAG_STRING);
+            out.writeString((String) value);
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Integer) {
+            out.write(TAG_INTEGER);
+            out.writeVarLong((Integer) value);
+        } else if (value instanceof Long) {
+            out.write(TAG_LONG);
+            out.writeVarLong((Long) value);
+        } else if (value instanceof Double) {
+            out.write(TAG_DOUBLE);
+            out.writeLong(Double.doubleToLongBits((Double) value));
+        } else if (value instanceof Float) {
+            out.write(TAG_FLOAT);
+            out.writeInt(Float.floatToIntBits((Float) value));
+        } else if (value instanceof Short) {
+            out.write(TAG_SHORT);
+            out.writeVarLong((Short) value);
+        } else if (value instanceof Byte) {
+            out.write(TAG_BYTE);
+            out.write((Byte) value);
+        } else if (value.getClass() == Date.class) {
+            out.write(TAG_DATE);
+            out.writeVarLong(((Date) value).getTime());
+        } else if (value instanceof DateOnly) {
+            Calendar cal = Calendar.getInstance();
+            cal.setTime(((DateOnly) value).getDate());
+            out.write(TAG_DATE_ONLY);
+            out.writeVarLong(cal.get(Calendar.YEAR));
+            out.write((byte) cal.get(Calendar.MONTH));
+            out.write((byte) cal.get(Calendar.DATE));
+        } else if (value.getClass() == GeoPoint.class) {
+            writeGeoPoint(out, (GeoPoint) value);
+        } else if (value instanceof byte[]) {
+            out.write(TAG_BYTE_ARRAY);
+            out.writeBytes((byte[]) value);
+        } else if (value.getClass() == StreamingPropertyValueTableRef.class) {
+            StreamingPropertyValueTableRef ref = (StreamingPropertyValueTableRef) value;
+            out.write(TAG_STREAMING_PROPERTY_VALUE_TABLE_REF);
+            out.writeString(ref.getDataRowKey());
+            writeStreamingPropertyValueRef(out, ref.getValueTypeName(), ref.isSearchIndex(), ref.isStore());
+        } else if (value.getClass() == StreamingPropertyValueHdfsRef.class) {
+            StreamingPropertyValueHdfsRef ref = (StreamingPropertyValueHdfsRef) value;
+            out.write(TAG_STREAMING_PROPERTY_VALUE_HDFS_REF);
+            out.writeString(ref.getPath());
+            writeStreamingPropertyValueRef(out, ref.getValueTypeName(), ref.isSearchIndex(), ref.isStore());
+        } else {
+            out.write(TAG_JAVA);
+            out.writeRaw(JavaSerializableUtils.objectToBytes(value));
+        }
+        return out.toByteArray();
+    }
+
+    public Object bytesToObject(byte[] data) {
+        if (data.length >= 2 && data[0] == JAVA_STREAM_MAGIC_0 && data[1] == JAVA_STREAM_MAGIC_1) {
+            return JavaSerializableUtils.bytesToObject(data);
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(data);
+        byte tag = in.get();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return readString(in);
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_INTEGER:
+                return (int) readVarLong(in);
+            case TAG_LONG:
+                return readVarLong(in);
+            case TAG_DOUBLE:
+                return Double.longBitsToDouble(in.getLong());
+            case TAG_FLOAT:
+                return Float.intBitsToFloat(in.getInt());
+            case TAG_SHORT:
+                return (short) readVarLong(in);
+            case TAG_BYTE:
+                return in.get();
+            case TAG_DATE:
+                return new Date(readVarLong(in));
+            case TAG_DATE_ONLY:
+                int year = (int) readVarLong(in);
+                int month = in.get();
+                int day = in.get();
+                return new DateOnly(year, month, day);
+            case TAG_GEO_POINT:
+                return readGeoPoint(in);
+            case TAG_BYTE_ARRAY:
+                return readBytes(in);
+            case TAG_STREAMING_PROPERTY_VALUE_TABLE_REF:
+                String dataRowKey = readString(in);
+                String tableValueType = readString(in);
+                byte tableFlags = in.get();
+                return new StreamingPropertyValueTableRef(dataRowKey, tableValueType, (tableFlags & 1) != 0, (tableFlags & 2) != 0);
+            case TAG_STREAMING_PROPERTY_VALUE_HDFS_REF:
+                String path = readString(in);
+                String hdfsValueType = readString(in);
+                byte hdfsFlags = in.get();
+                return new StreamingPropertyValueHdfsRef(path, hdfsValueType, (hdfsFlags & 1) != 0, (hdfsFlags & 2) != 0);
+            case TAG_JAVA:
+                byte[] javaData = new byte[in.remaining()];
+                in.get(javaData);
+                return JavaSerializableUtils.bytesToObject(javaData);
+            default:
+                throw new SecureGraphException("Invalid value type tag: " + tag);
+        }
+    }
+
+    private static void writeGeoPoint(Output out, GeoPoint geoPoint) {
+        int flags = 0;
+        if (geoPoint.getAltitude() != null) {
+            flags |= GEO_POINT_HAS_ALTITUDE;
+        }
+        if (geoPoint.getDescription() != null) {
+            flags |= GEO_POINT_HAS_DESCRIPTION;
+        }
+        out.write(TAG_GEO_POINT);
+        out.write((byte) flags);
+        out.writeLong(Double.doubleToLongBits(geoPoint.getLatitude()));
+        out.writeLong(Double.doubleToLongBits(geoPoint.getLongitude()));
+        if (geoPoint.getAltitude() != null) {
+            out.writeLong(Double.doubleToLongBits(geoPoint.getAltitude()));
+        }
+        if (geoPoint.getDescription() != null) {
+            out.writeString(geoPoint.getDescription());
+        }
+    }
+
+    private static GeoPoint readGeoPoint(ByteBuffer in) {
+        byte flags = in.get();
+        double latitude = Double.longBitsToDouble(in.getLong());
+        double longitude = Double.longBitsToDouble(in.getLong());
+        Double altitude = null;
+        if ((flags & GEO_POINT_HAS_ALTITUDE) != 0) {
+            altitude = Double.longBitsToDouble(in.getLong());
+        }
+        String description = null;
+        if ((flags & GEO_POINT_HAS_DESCRIPTION) != 0) {
+            description = readString(in);
+        }
+        return new GeoPoint(latitude, longitude, altitude, description);
+    }
+
+    private static void writeStreamingPropertyValueRef(Output out, String valueType, boolean searchIndex, boolean store) {
+        out.writeString(valueType);
+        out.write((byte) ((searchIndex ? 1 : 0) | (store ? 2 : 0)));
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readUnsignedVarLong(in);
+        String result = new String(in.array(), in.arrayOffset() + in.position(), length, UTF_8);
+        in.position(in.position() + length);
+        return result;
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        byte[] result = new byte[(int) readUnsignedVarLong(in)];
+        in.get(result);
+        return result;
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long v = readUnsignedVarLong(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static long readUnsignedVarLong(ByteBuffer in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            result |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new SecureGraphException("Invalid varint");
+    }
+
+    private static class Output extends ByteArrayOutputStream {
+        public Output() {
+            super(32);
+        }
+
+        public void write(byte b) {
+            super.write(b);
+        }
+
+        public void writeRaw(byte[] bytes) {
+            super.write(bytes, 0, bytes.length);
+        }
+
+        public void writeInt(int v) {
+            write((byte) (v >>> 24));
+            write((byte) (v >>> 16));
+            write((byte) (v >>> 8));
+            write((byte) v);
+        }
+
+        public void writeLong(long v) {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+
+        public void writeVarLong(long v) {
+            writeUnsignedVarLong((v << 1) ^ (v >> 63));
+        }
+
+        public void writeUnsignedVarLong(long v) {
+            while ((v & ~0x7fL) != 0) {
+                write((byte) ((v & 0x7f) | 0x80));
+                v >>>= 7;
+            }
+            write((byte) v);
+        }
+
+        public void writeBytes(byte[] bytes) {
+            writeUnsignedVarLong(bytes.length);
+            writeRaw(bytes);
+        }
+
+        public void writeString(String s) {
+            writeBytes(s.getBytes(UTF_8));
+        }
+    }
+}
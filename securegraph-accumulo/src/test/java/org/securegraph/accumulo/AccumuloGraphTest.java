@@ -4,8 +4,10 @@ import org.apache.accumulo.core.client.*;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.RowDeletingIterator;
 import org.apache.accumulo.minicluster.MiniAccumuloCluster;
 import org.apache.accumulo.minicluster.MiniAccumuloConfig;
+import org.apache.hadoop.io.Text;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -19,14 +21,23 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import static junit.framework.Assert.*;
 import static org.junit.Assert.assertNotEquals;
 import static org.securegraph.util.IterableUtils.count;
+import static org.securegraph.util.IterableUtils.toList;
 
 @RunWith(JUnit4.class)
 public class AccumuloGraphTest extends GraphTestBase {
@@ -181,6 +192,322 @@ public class AccumuloGraphTest extends GraphTestBase {
         }
     }
 
+    @Test
+    public void testEdgeLabelsAddedByAnotherGraph() throws Exception {
+        List<AccumuloGraph> readers = new ArrayList<>();
+        AccumuloGraph writer = null;
+        try {
+            // the readers load the (empty) edge label dictionary before the writer adds any labels
+            for (boolean useEdgeLabelDictionary : new boolean[]{true, false}) {
+                for (boolean lazyEdgeRefs : new boolean[]{true, false}) {
+                    Map configMap = createConfig();
+                    configMap.put(AccumuloGraphConfiguration.USE_EDGE_LABEL_DICTIONARY, useEdgeLabelDictionary);
+                    configMap.put(AccumuloGraphConfiguration.LAZY_EDGE_REFS, lazyEdgeRefs);
+                    AccumuloGraph reader = AccumuloGraph.create(new AccumuloGraphConfiguration(configMap));
+                    assertEquals(0, reader.getEdgeLabelDictionary().getIds(new String[]{"labelFromWriter"}, true).length);
+                    readers.add(reader);
+                }
+            }
+
+            Map configMap = createConfig();
+            configMap.put(AccumuloGraphConfiguration.USE_EDGE_LABEL_DICTIONARY, true);
+            writer = AccumuloGraph.create(new AccumuloGraphConfiguration(configMap));
+            Vertex v1 = writer.addVertex("v1", VISIBILITY_A, AUTHORIZATIONS_A);
+            Vertex v2 = writer.addVertex("v2", VISIBILITY_A, AUTHORIZATIONS_A);
+            writer.addEdge("e1", v1, v2, "labelFromWriter", VISIBILITY_A, AUTHORIZATIONS_A);
+            writer.addEdge("e2", v1, v2, "otherLabelFromWriter", VISIBILITY_A, AUTHORIZATIONS_A);
+            writer.flush();
+
+            for (AccumuloGraph reader : readers) {
+                v1 = reader.getVertex("v1", AUTHORIZATIONS_A);
+                assertEquals(Arrays.asList("e1"), toList(v1.getEdgeIds(Direction.OUT, "labelFromWriter", AUTHORIZATIONS_A)));
+                v2 = reader.getVertex("v2", AUTHORIZATIONS_A);
+                assertEquals(Arrays.asList("v1"), toList(v2.getVertexIds(Direction.IN, "otherLabelFromWriter", AUTHORIZATIONS_A)));
+
+                v1 = reader.getVertex("v1", FetchHint.ALL, new String[]{"labelFromWriter"}, AUTHORIZATIONS_A);
+                assertEquals(Arrays.asList("e1"), toList(v1.getEdgeIds(Direction.OUT, AUTHORIZATIONS_A)));
+            }
+        } finally {
+            for (AccumuloGraph reader : readers) {
+                reader.shutdown();
+            }
+            if (writer != null) {
+                writer.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testEdgeCountWithMixedEdgeRefLayouts() throws Exception {
+        // edge refs written before label ordered edge refs were enabled
+        Vertex v1 = graph.addVertex("v1", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v2 = graph.addVertex("v2", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v3 = graph.addVertex("v3", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e1", v1, v2, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e2", v1, v3, "label2", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.flush();
+
+        Map configMap = createConfig();
+        configMap.put(AccumuloGraphConfiguration.LABEL_ORDERED_EDGE_REFS, true);
+        AccumuloGraph labelOrderedGraph = AccumuloGraph.create(new AccumuloGraphConfiguration(configMap));
+        try {
+            labelOrderedGraph.prepareEdge("e3", "v1", "v3", "label1", VISIBILITY_A).save(AUTHORIZATIONS_A);
+            // e1 now has edge refs in both layouts, like a vertex the migration has not reached yet
+            labelOrderedGraph.prepareEdge("e1", "v1", "v2", "label1", VISIBILITY_A).save(AUTHORIZATIONS_A);
+            labelOrderedGraph.flush();
+
+            assertEquals(2, labelOrderedGraph.getEdgeCount("v1", Direction.OUT, "label1", AUTHORIZATIONS_A));
+            assertEquals(0, labelOrderedGraph.getEdgeCount("v1", Direction.IN, "label1", AUTHORIZATIONS_A));
+            assertEquals(1, labelOrderedGraph.getEdgeCount("v1", Direction.BOTH, "label2", AUTHORIZATIONS_A));
+            assertEquals(1, labelOrderedGraph.getEdgeCount("v2", Direction.IN, "label1", AUTHORIZATIONS_A));
+            assertEquals(2, labelOrderedGraph.getEdgeCount("v3", Direction.IN, "label1", AUTHORIZATIONS_A) + labelOrderedGraph.getEdgeCount("v3", Direction.IN, "label2", AUTHORIZATIONS_A));
+            assertEquals(0, labelOrderedGraph.getEdgeCount("v1", Direction.OUT, "label3", AUTHORIZATIONS_A));
+
+            labelOrderedGraph.markEdgeHidden(labelOrderedGraph.getEdge("e1", AUTHORIZATIONS_A), VISIBILITY_A, AUTHORIZATIONS_A);
+            labelOrderedGraph.flush();
+            assertEquals(1, labelOrderedGraph.getEdgeCount("v1", Direction.OUT, "label1", AUTHORIZATIONS_A));
+        } finally {
+            labelOrderedGraph.shutdown();
+        }
+    }
+
+    @Test
+    public void testGetElementsWithoutWholeRowIteratorKeepsIdOrder() throws Exception {
+        Map configMap = createConfig();
+        configMap.put(AccumuloGraphConfiguration.USE_WHOLE_ROW_ITERATOR_FOR_BATCH_FETCH, false);
+        AccumuloGraph byRowGraph = AccumuloGraph.create(new AccumuloGraphConfiguration(configMap));
+        try {
+            List<String> vertexIds = new ArrayList<>();
+            List<String> edgeIds = new ArrayList<>();
+            Vertex previous = null;
+            for (int i = 0; i < 30; i++) {
+                String id = String.format("v%02d", i);
+                Vertex v = byRowGraph.prepareVertex(id, VISIBILITY_A)
+                        .setProperty("prop1", "value" + i, VISIBILITY_A)
+                        .save(AUTHORIZATIONS_A);
+                vertexIds.add(id);
+                if (previous != null) {
+                    String edgeId = String.format("e%02d", i);
+                    byRowGraph.addEdge(edgeId, previous, v, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+                    edgeIds.add(edgeId);
+                }
+                previous = v;
+            }
+            byRowGraph.addVertex("vB", VISIBILITY_B, AUTHORIZATIONS_B);
+            byRowGraph.flush();
+            Collections.shuffle(vertexIds, new Random(1));
+            Collections.shuffle(edgeIds, new Random(2));
+
+            // few ids are read row by row with a scanner, many ids with a batch scanner
+            for (int count : new int[]{5, 30}) {
+                List<String> ids = new ArrayList<>(vertexIds.subList(0, count));
+                List<String> requestedIds = new ArrayList<>(ids);
+                requestedIds.add(2, "missing");
+                requestedIds.add(3, "vB");
+                List<Vertex> vertices = toList(byRowGraph.getVertices(requestedIds, AUTHORIZATIONS_A));
+                assertEquals(ids, toElementIds(vertices));
+                for (Vertex v : vertices) {
+                    assertEquals("value" + Integer.parseInt(v.getId().substring(1)), v.getPropertyValue("prop1"));
+                }
+
+                List<String> requestedEdgeIds = new ArrayList<>(edgeIds.subList(0, Math.min(count, edgeIds.size())));
+                List<Edge> edges = toList(byRowGraph.getEdges(requestedEdgeIds, AUTHORIZATIONS_A));
+                assertEquals(requestedEdgeIds, toElementIds(edges));
+            }
+        } finally {
+            byRowGraph.shutdown();
+        }
+    }
+
+    private static List<String> toElementIds(List<? extends Element> elements) {
+        List<String> ids = new ArrayList<>();
+        for (Element element : elements) {
+            ids.add(element.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testDoVerticesExistMatchesGetVertex() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Vertex v = graph.prepareVertex("v" + i, i % 3 == 0 ? VISIBILITY_B : VISIBILITY_A)
+                    .setProperty("name", "name" + i, VISIBILITY_A)
+                    .save(AUTHORIZATIONS_A_AND_B);
+            if (i % 5 == 1) {
+                graph.markVertexHidden(v, VISIBILITY_A, AUTHORIZATIONS_A_AND_B);
+            } else if (i % 5 == 2) {
+                graph.markVertexHidden(v, VISIBILITY_B, AUTHORIZATIONS_A_AND_B);
+            } else if (i % 5 == 3) {
+                graph.removeVertex(v, AUTHORIZATIONS_A_AND_B);
+            }
+            ids.add("v" + i);
+        }
+        // a vertex with an id that is a prefix of other ids, only its properties are readable with A
+        graph.prepareVertex("v", VISIBILITY_B)
+                .setProperty("name", "name", VISIBILITY_A)
+                .save(AUTHORIZATIONS_A_AND_B);
+        graph.flush();
+        ids.add("v");
+        ids.add("missing");
+        ids.add("v1");
+
+        for (Authorizations authorizations : Arrays.asList(AUTHORIZATIONS_A, AUTHORIZATIONS_B, AUTHORIZATIONS_A_AND_B)) {
+            Map<String, Boolean> exist = graph.doVerticesExist(ids, authorizations);
+            assertEquals(new HashSet<>(ids), exist.keySet());
+            for (String id : ids) {
+                boolean expected = graph.getVertex(id, authorizations) != null;
+                assertEquals(id + " with " + authorizations, expected, (boolean) exist.get(id));
+                assertEquals(id + " with " + authorizations, expected, graph.doesVertexExist(id, authorizations));
+            }
+        }
+        assertTrue(graph.doesVertexExist("v4", AUTHORIZATIONS_A));
+        assertFalse(graph.doesVertexExist("v3", AUTHORIZATIONS_A_AND_B));
+        assertFalse(graph.doesVertexExist("v", AUTHORIZATIONS_A));
+        assertEquals(0, graph.doVerticesExist(new ArrayList<String>(), AUTHORIZATIONS_A).size());
+    }
+
+    @Test
+    public void testDoEdgesExistMatchesGetEdge() {
+        Vertex v1 = graph.addVertex("v1", VISIBILITY_A, AUTHORIZATIONS_A_AND_B);
+        Vertex v2 = graph.addVertex("v2", VISIBILITY_A, AUTHORIZATIONS_A_AND_B);
+        Edge e1 = graph.addEdge("e1", v1, v2, "label1", VISIBILITY_A, AUTHORIZATIONS_A_AND_B);
+        graph.addEdge("e2", v1, v2, "label1", VISIBILITY_B, AUTHORIZATIONS_A_AND_B);
+        Edge e3 = graph.addEdge("e3", v1, v2, "label2", VISIBILITY_A, AUTHORIZATIONS_A_AND_B);
+        Edge e4 = graph.addEdge("e4", v1, v2, "label2", VISIBILITY_A, AUTHORIZATIONS_A_AND_B);
+        graph.flush();
+        graph.markEdgeHidden(e3, VISIBILITY_B, AUTHORIZATIONS_A_AND_B);
+        graph.removeEdge(e4, AUTHORIZATIONS_A_AND_B);
+        graph.flush();
+
+        // v1 is a vertex id, it must not be found as an edge
+        List<String> ids = Arrays.asList("e1", "e2", "e3", "e4", "v1", "missing");
+        for (Authorizations authorizations : Arrays.asList(AUTHORIZATIONS_A, AUTHORIZATIONS_B, AUTHORIZATIONS_A_AND_B)) {
+            Map<String, Boolean> exist = graph.doEdgesExist(ids, authorizations);
+            assertEquals(new HashSet<>(ids), exist.keySet());
+            for (String id : ids) {
+                boolean expected = graph.getEdge(id, authorizations) != null;
+                assertEquals(id + " with " + authorizations, expected, (boolean) exist.get(id));
+                assertEquals(id + " with " + authorizations, expected, graph.doesEdgeExist(id, authorizations));
+            }
+        }
+        assertTrue(graph.doesEdgeExist(e1.getId(), AUTHORIZATIONS_A));
+        assertTrue(graph.doesEdgeExist("e3", AUTHORIZATIONS_A));
+        assertFalse(graph.doesEdgeExist("e3", AUTHORIZATIONS_A_AND_B));
+        assertFalse(graph.doesEdgeExist("e4", AUTHORIZATIONS_A));
+        assertFalse(graph.doesEdgeExist("v1", AUTHORIZATIONS_A));
+    }
+
+    @Test
+    public void testVertexMakerDecodesEachColumnFamily() {
+        AccumuloGraph accumuloGraph = (AccumuloGraph) graph;
+        EdgeLabelDictionary edgeLabelDictionary = accumuloGraph.getEdgeLabelDictionary();
+        SortedMap<Key, Value> row = new TreeMap<>();
+        addColumn(row, "Vv1", AccumuloVertex.CF_SIGNAL, "", VISIBILITY_A_STRING, 10L, ElementMutationBuilder.EMPTY_VALUE);
+        addColumn(row, "Vv1", AccumuloElement.CF_PROPERTY, "name" + ElementMutationBuilder.VALUE_SEPARATOR + "k1", VISIBILITY_A_STRING, 20L, serialize("alice"));
+        addColumn(row, "Vv1", AccumuloElement.CF_PROPERTY_METADATA, "name" + ElementMutationBuilder.VALUE_SEPARATOR + "k1" + ElementMutationBuilder.VALUE_SEPARATOR + VISIBILITY_A_STRING + ElementMutationBuilder.VALUE_SEPARATOR + "meta1", VISIBILITY_A_STRING, 20L, serialize("m1"));
+        addColumn(row, "Vv1", AccumuloElement.CF_PROPERTY, "age" + ElementMutationBuilder.VALUE_SEPARATOR, VISIBILITY_B_STRING, 20L, serialize(30));
+        addColumn(row, "Vv1", AccumuloElement.CF_PROPERTY, "secret" + ElementMutationBuilder.VALUE_SEPARATOR + "k1", VISIBILITY_A_STRING, 20L, serialize("s1"));
+        addColumn(row, "Vv1", AccumuloElement.CF_PROPERTY_HIDDEN, "secret" + ElementMutationBuilder.VALUE_SEPARATOR + "k1" + ElementMutationBuilder.VALUE_SEPARATOR + VISIBILITY_A_STRING, VISIBILITY_B_STRING, 30L, ElementMutationBuilder.EMPTY_VALUE);
+        // metadata readable without its property value
+        addColumn(row, "Vv1", AccumuloElement.CF_PROPERTY_METADATA, "other" + ElementMutationBuilder.VALUE_SEPARATOR + "k1" + ElementMutationBuilder.VALUE_SEPARATOR + VISIBILITY_C_STRING + ElementMutationBuilder.VALUE_SEPARATOR + "meta1", VISIBILITY_A_STRING, 20L, serialize("m2"));
+        // string form, id form and label ordered edge refs
+        addColumn(row, "Vv1", AccumuloVertex.CF_OUT_EDGE, "e1", VISIBILITY_A_STRING, 40L, new EdgeInfo("label1", "v2").toValue());
+        addColumn(row, "Vv1", AccumuloVertex.CF_OUT_EDGE, "e2", VISIBILITY_A_STRING, 40L, new EdgeInfo("label2", "v3", edgeLabelDictionary).toValue());
+        addColumn(row, "Vv1", AccumuloVertex.CF_IN_EDGE, "e3", VISIBILITY_A_STRING, 40L, new EdgeInfo("label1", "v4", edgeLabelDictionary).toValue());
+        addColumn(row, "Vv1", AccumuloVertex.CF_OUT_EDGE_BY_LABEL, ElementMutationBuilder.getLabelOrderedEdgeRefColumnQualifier("label3", "e4").toString(), VISIBILITY_A_STRING, 40L, new EdgeInfo("label3", "v5").toValue());
+        addColumn(row, "Vv1", AccumuloVertex.CF_IN_EDGE_BY_LABEL, ElementMutationBuilder.getLabelOrderedEdgeRefColumnQualifier("label1", "e5").toString(), VISIBILITY_A_STRING, 40L, new EdgeInfo("label1", "v6", edgeLabelDictionary).toValue());
+        // an edge ref in both layouts, like a row the migration has not finished
+        addColumn(row, "Vv1", AccumuloVertex.CF_OUT_EDGE, "e6", VISIBILITY_A_STRING, 40L, new EdgeInfo("label1", "v7").toValue());
+        addColumn(row, "Vv1", AccumuloVertex.CF_OUT_EDGE_BY_LABEL, ElementMutationBuilder.getLabelOrderedEdgeRefColumnQualifier("label1", "e6").toString(), VISIBILITY_A_STRING, 40L, new EdgeInfo("label1", "v7").toValue());
+        addColumn(row, "Vv1", AccumuloVertex.CF_OUT_EDGE_HIDDEN, "e2", VISIBILITY_A_STRING, 50L, ElementMutationBuilder.EMPTY_VALUE);
+        addColumn(row, "Vv1", AccumuloVertex.CF_IN_EDGE_HIDDEN, "e5", VISIBILITY_A_STRING, 50L, ElementMutationBuilder.EMPTY_VALUE);
+
+        AccumuloVertex v1 = (AccumuloVertex) new VertexMaker(accumuloGraph, row.entrySet().iterator(), AUTHORIZATIONS_A_AND_B).make(false);
+        assertEquals("v1", v1.getId());
+        assertEquals(VISIBILITY_A, v1.getVisibility());
+        assertEquals(10L, v1.getTimestamp());
+        assertEquals(2, count(v1.getProperties()));
+        Property name = v1.getProperty("k1", "name");
+        assertEquals("alice", name.getValue());
+        assertEquals(VISIBILITY_A, name.getVisibility());
+        assertEquals("m1", name.getMetadata().getValue("meta1"));
+        assertEquals(30, v1.getPropertyValue("", "age"));
+        assertEquals(new Visibility(VISIBILITY_B_STRING), v1.getProperty("", "age").getVisibility());
+        assertNull(v1.getProperty("secret"));
+        assertEquals(Arrays.asList("e1", "e4", "e6"), sorted(v1.getEdgeIds(Direction.OUT, AUTHORIZATIONS_A_AND_B)));
+        assertEquals(Arrays.asList("e3"), sorted(v1.getEdgeIds(Direction.IN, AUTHORIZATIONS_A_AND_B)));
+        assertEquals(Arrays.asList("e1", "e6"), sorted(v1.getEdgeIds(Direction.OUT, "label1", AUTHORIZATIONS_A_AND_B)));
+        assertEquals(Arrays.asList("v2", "v5", "v7"), sorted(v1.getVertexIds(Direction.OUT, AUTHORIZATIONS_A_AND_B)));
+        assertEquals(Arrays.asList("v4"), sorted(v1.getVertexIds(Direction.IN, "label1", AUTHORIZATIONS_A_AND_B)));
+
+        v1 = (AccumuloVertex) new VertexMaker(accumuloGraph, row.entrySet().iterator(), AUTHORIZATIONS_A_AND_B).make(true);
+        assertEquals(3, count(v1.getProperties()));
+        assertEquals("s1", v1.getPropertyValue("k1", "secret"));
+        assertEquals(Arrays.asList("e1", "e2", "e4", "e6"), sorted(v1.getEdgeIds(Direction.OUT, AUTHORIZATIONS_A_AND_B)));
+        assertEquals(Arrays.asList("e3", "e5"), sorted(v1.getEdgeIds(Direction.IN, AUTHORIZATIONS_A_AND_B)));
+        assertEquals(Arrays.asList("v3"), sorted(v1.getVertexIds(Direction.OUT, "label2", AUTHORIZATIONS_A_AND_B)));
+    }
+
+    @Test
+    public void testElementMakerHiddenAndDeletedRows() {
+        AccumuloGraph accumuloGraph = (AccumuloGraph) graph;
+        SortedMap<Key, Value> row = new TreeMap<>();
+        addColumn(row, "Vv1", AccumuloVertex.CF_SIGNAL, "", VISIBILITY_A_STRING, 10L, ElementMutationBuilder.EMPTY_VALUE);
+        addColumn(row, "Vv1", AccumuloElement.CF_HIDDEN, "", VISIBILITY_B_STRING, 20L, ElementMutationBuilder.EMPTY_VALUE);
+        assertNull(new VertexMaker(accumuloGraph, row.entrySet().iterator(), AUTHORIZATIONS_A_AND_B).make(false));
+        Vertex v1 = new VertexMaker(accumuloGraph, row.entrySet().iterator(), AUTHORIZATIONS_A_AND_B).make(true);
+        assertNotNull(v1);
+        assertTrue(v1.isHidden(AUTHORIZATIONS_A_AND_B));
+
+        row = new TreeMap<>();
+        addColumn(row, "Vv1", AccumuloGraph.DELETE_ROW_COLUMN_FAMILY, AccumuloGraph.DELETE_ROW_COLUMN_QUALIFIER.toString(), "", 20L, RowDeletingIterator.DELETE_ROW_VALUE);
+        addColumn(row, "Vv1", AccumuloVertex.CF_SIGNAL, "", VISIBILITY_A_STRING, 10L, ElementMutationBuilder.EMPTY_VALUE);
+        assertNull(new VertexMaker(accumuloGraph, row.entrySet().iterator(), AUTHORIZATIONS_A_AND_B).make(true));
+
+        // a row without a readable signal column
+        row = new TreeMap<>();
+        addColumn(row, "Vv1", AccumuloElement.CF_PROPERTY, "name" + ElementMutationBuilder.VALUE_SEPARATOR + "k1", VISIBILITY_A_STRING, 20L, serialize("alice"));
+        assertNull(new VertexMaker(accumuloGraph, row.entrySet().iterator(), AUTHORIZATIONS_A_AND_B).make(true));
+    }
+
+    @Test
+    public void testEdgeMakerDecodesEachColumnFamily() {
+        AccumuloGraph accumuloGraph = (AccumuloGraph) graph;
+        SortedMap<Key, Value> row = new TreeMap<>();
+        addColumn(row, "Ee1", AccumuloEdge.CF_SIGNAL, "label1", VISIBILITY_A_STRING, 10L, ElementMutationBuilder.EMPTY_VALUE);
+        addColumn(row, "Ee1", AccumuloEdge.CF_OUT_VERTEX, "v1", VISIBILITY_A_STRING, 10L, ElementMutationBuilder.EMPTY_VALUE);
+        addColumn(row, "Ee1", AccumuloEdge.CF_IN_VERTEX, "v2", VISIBILITY_A_STRING, 10L, ElementMutationBuilder.EMPTY_VALUE);
+        addColumn(row, "Ee1", AccumuloElement.CF_PROPERTY, "since" + ElementMutationBuilder.VALUE_SEPARATOR, VISIBILITY_A_STRING, 20L, serialize(2010));
+
+        AccumuloEdge e1 = (AccumuloEdge) new EdgeMaker(accumuloGraph, row.entrySet().iterator(), AUTHORIZATIONS_A).make(false);
+        assertEquals("e1", e1.getId());
+        assertEquals("label1", e1.getLabel());
+        assertEquals("v1", e1.getVertexId(Direction.OUT));
+        assertEquals("v2", e1.getVertexId(Direction.IN));
+        assertEquals(VISIBILITY_A, e1.getVisibility());
+        assertEquals(10L, e1.getTimestamp());
+        assertEquals(2010, e1.getPropertyValue("since"));
+
+        addColumn(row, "Ee1", AccumuloElement.CF_HIDDEN, "", VISIBILITY_A_STRING, 20L, ElementMutationBuilder.EMPTY_VALUE);
+        assertNull(new EdgeMaker(accumuloGraph, row.entrySet().iterator(), AUTHORIZATIONS_A).make(false));
+        assertTrue(new EdgeMaker(accumuloGraph, row.entrySet().iterator(), AUTHORIZATIONS_A).make(true).isHidden(AUTHORIZATIONS_A));
+    }
+
+    private static void addColumn(SortedMap<Key, Value> row, String rowKey, Text columnFamily, String columnQualifier, String columnVisibility, long timestamp, Value value) {
+        row.put(new Key(new Text(rowKey), columnFamily, new Text(columnQualifier), new Text(columnVisibility), timestamp), value);
+    }
+
+    private Value serialize(Object value) {
+        return new Value(((AccumuloGraph) graph).getValueSerializer().objectToValue(value));
+    }
+
+    private static List<String> sorted(Iterable<String> values) {
+        List<String> results = toList(values);
+        Collections.sort(results);
+        return results;
+    }
+
     public void start() throws IOException, InterruptedException {
         if (accumulo != null) {
             return;
@@ -0,0 +1,139 @@
+package org.securegraph.accumulo;
+
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.accumulo.core.security.VisibilityEvaluator;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.SecureGraphException;
+import org.securegraph.util.CompiledVisibility;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that CompiledVisibility parses and evaluates expressions the same way as Accumulo.
+ */
+@RunWith(JUnit4.class)
+public class CompiledVisibilityCompatibilityTest {
+    private static final String[] TERMS = {"a", "b", "c", "x:y", "p.q/r", "s-t_u", "d\"e", "f\\g", "h i", "(j)"};
+    private static final String INVALID_CHARS = "ab&|()\"\\ ,";
+    private final Random random = new Random(42);
+
+    @Test
+    public void testGeneratedExpressions() {
+        List<Set<String>> authorizationSets = createAuthorizationSets();
+        for (int i = 0; i < 2000; i++) {
+            String expression = createExpression(random.nextInt(4));
+            for (Set<String> authorizations : authorizationSets) {
+                assertEquals(expression + " with " + authorizations,
+                        evaluateWithAccumulo(expression, authorizations),
+                        CompiledVisibility.compile(expression).evaluate(authorizations));
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyParenthesesInsideOperator() {
+        for (String expression : new String[]{"()", "a&()", "()|a", "a|(b&())", "(a&b)|()"}) {
+            assertInvalid(expression);
+        }
+    }
+
+    @Test
+    public void testGeneratedInvalidExpressions() {
+        Set<String> authorizations = new HashSet<>(Arrays.asList("a", "b"));
+        int invalidCount = 0;
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder expression = new StringBuilder();
+            int length = 1 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                expression.append(INVALID_CHARS.charAt(random.nextInt(INVALID_CHARS.length())));
+            }
+            Boolean expected = evaluateWithAccumulo(expression.toString(), authorizations);
+            if (expected == null) {
+                invalidCount++;
+                assertInvalid(expression.toString());
+            } else {
+                assertEquals(expression.toString(), expected, CompiledVisibility.compile(expression.toString()).evaluate(authorizations));
+            }
+        }
+        assertTrue(invalidCount > 0);
+    }
+
+    private void assertInvalid(String expression) {
+        assertNull("accumulo accepted " + expression, evaluateWithAccumulo(expression, new HashSet<String>()));
+        try {
+            CompiledVisibility.compile(expression);
+            fail("expected " + expression + " to be invalid");
+        } catch (SecureGraphException ex) {
+            // expected
+        }
+    }
+
+    private String createExpression(int depth) {
+        if (depth == 0 || random.nextInt(4) == 0) {
+            return quote(TERMS[random.nextInt(TERMS.length)]);
+        }
+        String operator = random.nextBoolean() ? "&" : "|";
+        int childCount = 2 + random.nextInt(3);
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < childCount; i++) {
+            if (i > 0) {
+                expression.append(operator);
+            }
+            if (depth > 1 && random.nextInt(3) > 0) {
+                // nested operations always need parentheses, they may use the other operator
+                expression.append('(').append(createExpression(depth - 1)).append(')');
+            } else if (random.nextInt(5) == 0) {
+                expression.append('(').append(quote(TERMS[random.nextInt(TERMS.length)])).append(')');
+            } else {
+                expression.append(quote(TERMS[random.nextInt(TERMS.length)]));
+            }
+        }
+        return expression.toString();
+    }
+
+    private String quote(String term) {
+        boolean needsQuotes = !term.matches("[a-zA-Z0-9_\\-.:/]+");
+        if (!needsQuotes && random.nextInt(4) != 0) {
+            return term;
+        }
+        return "\"" + term.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private List<Set<String>> createAuthorizationSets() {
+        List<Set<String>> authorizationSets = new ArrayList<>();
+        authorizationSets.add(new HashSet<String>());
+        authorizationSets.add(new HashSet<>(Arrays.asList(TERMS)));
+        for (int i = 0; i < 20; i++) {
+            Set<String> authorizations = new HashSet<>();
+            for (String term : TERMS) {
+                if (random.nextBoolean()) {
+                    authorizations.add(term);
+                }
+            }
+            authorizationSets.add(authorizations);
+        }
+        return authorizationSets;
+    }
+
+    /**
+     * @return the result of Accumulo's evaluation, or null if Accumulo can not parse the expression.
+     */
+    private static Boolean evaluateWithAccumulo(String expression, Set<String> authorizations) {
+        List<byte[]> authorizationBytes = new ArrayList<>();
+        for (String authorization : authorizations) {
+            authorizationBytes.add(authorization.getBytes(StandardCharsets.UTF_8));
+        }
+        try {
+            ColumnVisibility columnVisibility = new ColumnVisibility(expression);
+            return new VisibilityEvaluator(new Authorizations(authorizationBytes)).evaluate(columnVisibility);
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.securegraph.accumulo;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class EdgeInfoTest {
+    @Test
+    public void testLabelIdRoundTrip() {
+        EdgeLabelDictionary edgeLabelDictionary = new InMemoryEdgeLabelDictionary();
+        for (int i = 0; i < 200; i++) {
+            EdgeInfo edgeInfo = EdgeInfo.parse(new EdgeInfo("label" + i, "v" + i, edgeLabelDictionary).toValue(), edgeLabelDictionary);
+            assertEquals(i, edgeInfo.getLabelId());
+            assertEquals("label" + i, edgeInfo.getLabel());
+            assertEquals("v" + i, edgeInfo.getVertexId());
+        }
+        assertTrue(new EdgeInfo("label1", "v1", edgeLabelDictionary).toValue().get().length < new EdgeInfo("label1", "v1").toValue().get().length);
+        assertArrayEquals(new int[]{3, 199}, edgeLabelDictionary.getIds(new String[]{"label3", "unknown", "label199"}));
+    }
+
+    @Test
+    public void testHasAnyLabel() {
+        EdgeLabelDictionary edgeLabelDictionary = new InMemoryEdgeLabelDictionary();
+        String[] labels = new String[]{"a", "b"};
+        EdgeInfo labelIdEdgeInfo = EdgeInfo.parse(new EdgeInfo("b", "v1", edgeLabelDictionary).toValue(), edgeLabelDictionary);
+        assertTrue(labelIdEdgeInfo.hasAnyLabel(labels, edgeLabelDictionary.getIds(labels)));
+        assertFalse(labelIdEdgeInfo.hasAnyLabel(new String[]{"a"}, edgeLabelDictionary.getIds(new String[]{"a"})));
+
+        EdgeInfo labelEdgeInfo = EdgeInfo.parse(new EdgeInfo("b", "v1").toValue(), edgeLabelDictionary);
+        assertEquals(-1, labelEdgeInfo.getLabelId());
+        assertTrue(labelEdgeInfo.hasAnyLabel(labels, edgeLabelDictionary.getIds(labels)));
+        assertFalse(labelEdgeInfo.hasAnyLabel(new String[]{"a"}, edgeLabelDictionary.getIds(new String[]{"a"})));
+    }
+
+    @Test
+    public void testConcurrentWritersGetDistinctIds() {
+        Map<Integer, String> store = new HashMap<>();
+        EdgeLabelDictionary writer1 = new InMemoryEdgeLabelDictionary(store);
+        EdgeLabelDictionary writer2 = new InMemoryEdgeLabelDictionary(store);
+        int id1 = writer1.getOrCreateId("a");
+        int id2 = writer2.getOrCreateId("b");
+        assertNotEquals(id1, id2);
+        assertEquals("b", writer1.getLabel(id2));
+        assertEquals(id1, writer2.getOrCreateId("a"));
+    }
+
+    @Test
+    public void testUnknownLabelsReload() {
+        Map<Integer, String> store = new HashMap<>();
+        InMemoryEdgeLabelDictionary reader = new InMemoryEdgeLabelDictionary(store);
+        new InMemoryEdgeLabelDictionary(store).getOrCreateId("a");
+
+        assertArrayEquals(new int[0], reader.getIds(new String[]{"a"}));
+        assertEquals(0, reader.loadCount);
+
+        assertArrayEquals(new int[]{0}, reader.getIds(new String[]{"a"}, true));
+        assertEquals(1, reader.loadCount);
+        assertArrayEquals(new int[]{0}, reader.getIds(new String[]{"a"}, true));
+        assertEquals(1, reader.loadCount);
+
+        // a label added by another writer is found by the next lookup
+        new InMemoryEdgeLabelDictionary(store).getOrCreateId("b");
+        assertArrayEquals(new int[]{0, 1}, reader.getIds(new String[]{"a", "b"}, true));
+        assertEquals(2, reader.loadCount);
+    }
+
+    @Test
+    public void testHasAnyLabelResolvesIdsAddedByOtherWriters() {
+        Map<Integer, String> store = new HashMap<>();
+        InMemoryEdgeLabelDictionary reader = new InMemoryEdgeLabelDictionary(store);
+        EdgeLabelDictionary writer = new InMemoryEdgeLabelDictionary(store);
+        writer.getOrCreateId("a");
+        String[] labels = new String[]{"b"};
+        int[] labelIds = reader.getIds(labels);
+        assertArrayEquals(new int[0], labelIds);
+
+        EdgeInfo edgeInfo = EdgeInfo.parse(new EdgeInfo("b", "v1", writer).toValue(), reader);
+        assertTrue(edgeInfo.hasAnyLabel(labels, labelIds));
+        assertFalse(edgeInfo.hasAnyLabel(new String[]{"a"}, reader.getIds(new String[]{"a"})));
+        assertEquals("b", edgeInfo.getLabel());
+    }
+
+    private static class InMemoryEdgeLabelDictionary extends EdgeLabelDictionary {
+        private final Map<Integer, String> store;
+        private int loadCount;
+
+        public InMemoryEdgeLabelDictionary() {
+            this(new HashMap<Integer, String>());
+        }
+
+        public InMemoryEdgeLabelDictionary(Map<Integer, String> store) {
+            this.store = store;
+        }
+
+        @Override
+        protected Map<Integer, String> loadLabels() {
+            loadCount++;
+            return new HashMap<>(store);
+        }
+
+        @Override
+        protected String addLabel(int id, String label) {
+            if (store.containsKey(id)) {
+                return store.get(id);
+            }
+            store.put(id, label);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.securegraph.accumulo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.*;
+import org.securegraph.property.MutablePropertyImpl;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ElementCacheTest {
+    private static final String ROW_KEY = AccumuloConstants.VERTEX_ROW_KEY_PREFIX + "v1";
+    private final EnumSet<FetchHint> fetchHints = FetchHint.ALL;
+    private final Authorizations authorizations = new AccumuloAuthorizations("a");
+    private ElementCache cache;
+
+    @Before
+    public void before() {
+        cache = new ElementCache(10);
+    }
+
+    @Test
+    public void testInvalidate() {
+        cache.put(ROW_KEY, fetchHints, authorizations, createVertex("v1", "old"), cache.getGeneration());
+        assertEquals("old", getCachedValue());
+
+        cache.invalidate(ROW_KEY);
+        assertNull(cache.get(ROW_KEY, fetchHints, authorizations));
+
+        // the write is not flushed yet so a read could still return the old row
+        cache.put(ROW_KEY, fetchHints, authorizations, createVertex("v1", "old"), cache.getGeneration());
+        assertNull(cache.get(ROW_KEY, fetchHints, authorizations));
+
+        cache.flushed();
+        cache.put(ROW_KEY, fetchHints, authorizations, createVertex("v1", "new"), cache.getGeneration());
+        assertEquals("new", getCachedValue());
+    }
+
+    @Test
+    public void testStalePutAfterInvalidateAndFlushIsRejected() {
+        long readGeneration = cache.getGeneration();
+        Vertex staleVertex = createVertex("v1", "old");
+
+        // a writer changes the row while the reader is still reading the old row
+        cache.invalidate(ROW_KEY);
+        cache.flushed();
+
+        cache.put(ROW_KEY, fetchHints, authorizations, staleVertex, readGeneration);
+        assertNull(cache.get(ROW_KEY, fetchHints, authorizations));
+
+        cache.put(ROW_KEY, fetchHints, authorizations, createVertex("v1", "new"), cache.getGeneration());
+        assertEquals("new", getCachedValue());
+    }
+
+    @Test
+    public void testStalePutAfterChangedRowsAreForgottenIsRejected() {
+        long readGeneration = cache.getGeneration();
+        for (int i = 0; i < 20; i++) {
+            cache.invalidate(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + "other" + i);
+        }
+        cache.invalidate(ROW_KEY);
+        cache.flushed();
+        for (int i = 20; i < 40; i++) {
+            cache.invalidate(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + "other" + i);
+            cache.flushed();
+        }
+
+        cache.put(ROW_KEY, fetchHints, authorizations, createVertex("v1", "old"), readGeneration);
+        assertNull(cache.get(ROW_KEY, fetchHints, authorizations));
+    }
+
+    @Test
+    public void testPutOfOtherRowIsNotRejected() {
+        long readGeneration = cache.getGeneration();
+        cache.invalidate(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + "v2");
+        cache.flushed();
+
+        cache.put(ROW_KEY, fetchHints, authorizations, createVertex("v1", "value"), readGeneration);
+        assertEquals("value", getCachedValue());
+    }
+
+    @Test
+    public void testClear() {
+        long readGeneration = cache.getGeneration();
+        cache.put(ROW_KEY, fetchHints, authorizations, createVertex("v1", "value"), readGeneration);
+        cache.invalidate(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + "v2");
+
+        cache.clear();
+        assertEquals(0, cache.size());
+
+        // reads started before the clear and rows written but not flushed are not cached
+        cache.put(ROW_KEY, fetchHints, authorizations, createVertex("v1", "value"), readGeneration);
+        cache.put(ROW_KEY, fetchHints, authorizations, createVertex("v1", "value"), cache.getGeneration());
+        assertEquals(0, cache.size());
+
+        cache.flushed();
+        cache.put(ROW_KEY, fetchHints, authorizations, createVertex("v1", "value"), cache.getGeneration());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testReturnsCopies() {
+        Vertex vertex = createVertex("v1", "value");
+        cache.put(ROW_KEY, fetchHints, authorizations, vertex, cache.getGeneration());
+
+        Vertex first = (Vertex) cache.get(ROW_KEY, fetchHints, authorizations);
+        Vertex second = (Vertex) cache.get(ROW_KEY, fetchHints, authorizations);
+        assertNotSame(vertex, first);
+        assertNotSame(first, second);
+        assertNotSame(first.getProperty("name"), second.getProperty("name"));
+        assertEquals("v1", second.getId());
+        assertEquals("value", second.getPropertyValue("name"));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        for (int i = 0; i < 11; i++) {
+            cache.put(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + "v" + i, fetchHints, authorizations, createVertex("v" + i, "value"), cache.getGeneration());
+            cache.get(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + "v0", fetchHints, authorizations);
+        }
+        assertEquals(10, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + "v0", fetchHints, authorizations));
+        assertNull(cache.get(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + "v1", fetchHints, authorizations));
+    }
+
+    private Object getCachedValue() {
+        Vertex vertex = (Vertex) cache.get(ROW_KEY, fetchHints, authorizations);
+        assertNotNull(vertex);
+        return vertex.getPropertyValue("name");
+    }
+
+    private Vertex createVertex(String id, String value) {
+        Visibility visibility = new Visibility("a");
+        List<Property> properties = new ArrayList<>();
+        properties.add(new MutablePropertyImpl("k1", "name", value, new Metadata(), null, visibility));
+        return new AccumuloVertex(null, id, visibility, properties, null, null, authorizations, 1L);
+    }
+}
@@ -0,0 +1,179 @@
+package org.securegraph.accumulo;
+
+import org.apache.accumulo.core.data.Range;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.SecureGraphException;
+import org.securegraph.util.CloseableIterable;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ParallelScanIterableTest {
+    private final AtomicInteger scansStarted = new AtomicInteger();
+    private final AtomicInteger scansClosed = new AtomicInteger();
+
+    @Test
+    public void testOrdered() throws IOException {
+        TestScanIterable scan = new TestScanIterable(createRanges(5), 3, 2, true, 10, null);
+        List<String> expected = new ArrayList<>();
+        for (int range = 0; range < 5; range++) {
+            for (int i = 0; i < 10; i++) {
+                expected.add("r" + range + "-" + i);
+            }
+        }
+        List<String> results = new ArrayList<>();
+        for (String result : scan) {
+            results.add(result);
+        }
+        scan.close();
+        assertEquals(expected, results);
+        assertEquals(5, scansClosed.get());
+    }
+
+    @Test
+    public void testUnordered() throws IOException {
+        TestScanIterable scan = new TestScanIterable(createRanges(5), 3, 2, false, 10, null);
+        List<String> results = new ArrayList<>();
+        for (String result : scan) {
+            results.add(result);
+        }
+        scan.close();
+        assertEquals(50, results.size());
+        assertEquals(50, new HashSet<>(results).size());
+        assertTrue(results.contains("r4-9"));
+    }
+
+    @Test
+    public void testEarlyClose() throws Exception {
+        TestScanIterable scan = new TestScanIterable(createRanges(5), 3, 2, true, 1000, null);
+        Iterator<String> it = scan.iterator();
+        assertEquals("r0-0", it.next());
+        scan.close();
+        assertFalse(it.hasNext());
+        waitForScansClosed();
+        assertTrue(scansStarted.get() < 5);
+    }
+
+    @Test
+    public void testAbandoned() throws Exception {
+        TestScanIterable scan = new TestScanIterable(createRanges(3), 3, 1, false, 1000, 200L);
+        Iterator<String> it = scan.iterator();
+        assertNotNull(it.next());
+        waitForScansClosed();
+        assertEquals(3, scansStarted.get());
+        try {
+            it.hasNext();
+            fail("should have thrown");
+        } catch (SecureGraphException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSlowRangeIsNotAbandoned() throws IOException {
+        TestScanIterable scan = new TestScanIterable(createRanges(2), 2, 1, true, 3, 200L);
+        scan.slowRange = "r0";
+        List<String> results = new ArrayList<>();
+        for (String result : scan) {
+            results.add(result);
+        }
+        scan.close();
+        assertEquals(Arrays.asList("r0-0", "r0-1", "r0-2", "r1-0", "r1-1", "r1-2"), results);
+    }
+
+    @Test
+    public void testScanErrorIsRethrown() throws Exception {
+        TestScanIterable scan = new TestScanIterable(createRanges(3), 3, 2, true, 10, null);
+        scan.failingRange = "r1";
+        List<String> results = new ArrayList<>();
+        try {
+            for (String result : scan) {
+                results.add(result);
+            }
+            fail("should have thrown");
+        } catch (SecureGraphException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+            assertEquals("r1 failed", ex.getCause().getMessage());
+        }
+        assertEquals(13, results.size());
+        assertEquals("r1-2", results.get(12));
+        waitForScansClosed();
+    }
+
+    private static List<Range> createRanges(int count) {
+        List<Range> ranges = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ranges.add(new Range("r" + i));
+        }
+        return ranges;
+    }
+
+    private void waitForScansClosed() throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (scansClosed.get() < scansStarted.get() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(scansStarted.get(), scansClosed.get());
+    }
+
+    private class TestScanIterable extends ParallelScanIterable<String> {
+        private final int resultsPerRange;
+        private volatile String failingRange;
+        private volatile String slowRange;
+
+        public TestScanIterable(List<Range> ranges, int numThreads, int queueSize, boolean ordered, int resultsPerRange, Long abandonTimeoutMillis) {
+            super(ranges, numThreads, queueSize, ordered, abandonTimeoutMillis == null ? 60000 : abandonTimeoutMillis);
+            this.resultsPerRange = resultsPerRange;
+        }
+
+        @Override
+        protected CloseableIterable<String> scanRange(final Range range) {
+            scansStarted.incrementAndGet();
+            final String row = range.getStartKey().getRow().toString();
+            return new CloseableIterable<String>() {
+                @Override
+                public Iterator<String> iterator() {
+                    return new Iterator<String>() {
+                        private int i;
+
+                        @Override
+                        public boolean hasNext() {
+                            return i < resultsPerRange;
+                        }
+
+                        @Override
+                        public String next() {
+                            if (row.equals(failingRange) && i == 3) {
+                                throw new IllegalStateException(row + " failed");
+                            }
+                            if (row.equals(slowRange) && i == 0) {
+                                try {
+                                    Thread.sleep(500);
+                                } catch (InterruptedException ex) {
+                                    throw new RuntimeException(ex);
+                                }
+                            }
+                            return row + "-" + i++;
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public void close() throws IOException {
+                    scansClosed.incrementAndGet();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.securegraph.accumulo.iterator;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.system.ColumnFamilySkippingIterator;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.accumulo.AccumuloElement;
+import org.securegraph.accumulo.AccumuloVertex;
+import org.securegraph.accumulo.ElementMutationBuilder;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class EdgeCountIteratorTest {
+    private final SortedMap<Key, Value> rows = new TreeMap<>();
+
+    @Test
+    public void testCountsEdgeRefs() throws IOException {
+        addColumn("Vv1", AccumuloVertex.CF_SIGNAL.toString(), "");
+        addColumn("Vv1", AccumuloVertex.CF_OUT_EDGE.toString(), "e1");
+        addColumn("Vv1", AccumuloVertex.CF_OUT_EDGE.toString(), "e2");
+        addColumn("Vv1", AccumuloVertex.CF_IN_EDGE.toString(), "e3");
+        // not fully migrated, e2 is in both forms
+        addColumn("Vv1", AccumuloVertex.CF_OUT_EDGE_BY_LABEL.toString(), "label1" + ElementMutationBuilder.VALUE_SEPARATOR + "e2");
+        addColumn("Vv1", AccumuloVertex.CF_OUT_EDGE_BY_LABEL.toString(), "label1" + ElementMutationBuilder.VALUE_SEPARATOR + "e4");
+        addColumn("Vv1", AccumuloVertex.CF_OUT_EDGE_HIDDEN.toString(), "e1");
+        addColumn("Vv2", AccumuloVertex.CF_SIGNAL.toString(), "");
+
+        Map<String, Integer> counts = count();
+        assertEquals(2, counts.size());
+        assertEquals(3, (int) counts.get("Vv1"));
+        assertEquals(0, (int) counts.get("Vv2"));
+
+        counts = count(AccumuloVertex.CF_SIGNAL.toString(), AccumuloVertex.CF_OUT_EDGE.toString(), AccumuloVertex.CF_OUT_EDGE_BY_LABEL.toString(), AccumuloVertex.CF_OUT_EDGE_HIDDEN.toString());
+        assertEquals(2, (int) counts.get("Vv1"));
+    }
+
+    @Test
+    public void testSkipsInvisibleAndHiddenVertices() throws IOException {
+        addColumn("Vv1", AccumuloVertex.CF_OUT_EDGE.toString(), "e1");
+        addColumn("Vv2", AccumuloVertex.CF_SIGNAL.toString(), "");
+        addColumn("Vv2", AccumuloElement.CF_HIDDEN.toString(), "");
+        addColumn("Vv2", AccumuloVertex.CF_OUT_EDGE.toString(), "e1");
+
+        assertEquals(0, count().size());
+    }
+
+    private void addColumn(String row, String columnFamily, String columnQualifier) {
+        rows.put(new Key(row, columnFamily, columnQualifier), new Value(new byte[0]));
+    }
+
+    private Map<String, Integer> count(String... columnFamilies) throws IOException {
+        Set<ByteSequence> fetchedColumnFamilies = new HashSet<>();
+        for (String columnFamily : columnFamilies) {
+            fetchedColumnFamilies.add(new Key("", columnFamily).getColumnFamilyData());
+        }
+        EdgeCountIterator iterator = new EdgeCountIterator();
+        iterator.init(new ColumnFamilySkippingIterator(new SortedMapIterator(rows)), new HashMap<String, String>(), null);
+        iterator.seek(new Range(), fetchedColumnFamilies, fetchedColumnFamilies.size() > 0);
+
+        Map<String, Integer> counts = new HashMap<>();
+        while (iterator.hasTop()) {
+            counts.put(iterator.getTopKey().getRow().toString(), EdgeCountIterator.decodeCount(iterator.getTopValue()));
+            iterator.next();
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,180 @@
+package org.securegraph.accumulo.iterator;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.hadoop.io.Text;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.accumulo.*;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class EdgeRefFilterTest {
+    private final SortedMap<Key, Value> rows = new TreeMap<>();
+    private EdgeLabelDictionary edgeLabelDictionary;
+
+    @Before
+    public void before() {
+        final Map<Integer, String> store = new HashMap<>();
+        edgeLabelDictionary = new EdgeLabelDictionary() {
+            @Override
+            protected Map<Integer, String> loadLabels() {
+                return new HashMap<>(store);
+            }
+
+            @Override
+            protected String addLabel(int id, String label) {
+                if (store.containsKey(id)) {
+                    return store.get(id);
+                }
+                store.put(id, label);
+                return null;
+            }
+        };
+
+        addColumn(AccumuloVertex.CF_SIGNAL, "", new Value(new byte[0]));
+        addColumn(AccumuloElement.CF_PROPERTY, "k1" + ElementMutationBuilder.VALUE_SEPARATOR + "prop1", new Value("value1".getBytes()));
+        // string form edge refs
+        addColumn(AccumuloVertex.CF_OUT_EDGE, "e1", new EdgeInfo("label1", "v2").toValue());
+        addColumn(AccumuloVertex.CF_IN_EDGE, "e2", new EdgeInfo("label2", "v3").toValue());
+        // id form edge refs
+        addColumn(AccumuloVertex.CF_OUT_EDGE, "e3", new EdgeInfo("label1", "v3", edgeLabelDictionary).toValue());
+        addColumn(AccumuloVertex.CF_OUT_EDGE, "e4", new EdgeInfo("label3", "v2", edgeLabelDictionary).toValue());
+        // label ordered edge refs
+        addColumn(AccumuloVertex.CF_OUT_EDGE_BY_LABEL, ElementMutationBuilder.getLabelOrderedEdgeRefColumnQualifier("label2", "e5").toString(), new EdgeInfo("label2", "v2").toValue());
+        addColumn(AccumuloVertex.CF_IN_EDGE_BY_LABEL, ElementMutationBuilder.getLabelOrderedEdgeRefColumnQualifier("label3", "e6").toString(), new EdgeInfo("label3", "v3", edgeLabelDictionary).toValue());
+        addColumn(AccumuloVertex.CF_OUT_EDGE_HIDDEN, "e1", new Value(new byte[0]));
+    }
+
+    @Test
+    public void testSingleLabel() throws IOException {
+        IteratorSetting iteratorSetting = createIteratorSetting();
+        EdgeRefFilter.setLabels(iteratorSetting, new String[]{"label1"});
+        EdgeRefFilter.setLabelIds(iteratorSetting, edgeLabelDictionary.getIds(new String[]{"label1"}));
+        assertEquals(asSet("e1", "e3"), getEdgeIds(iteratorSetting));
+        assertEquals(3, getOtherColumnCount(iteratorSetting));
+    }
+
+    @Test
+    public void testMultipleLabels() throws IOException {
+        IteratorSetting iteratorSetting = createIteratorSetting();
+        String[] labels = {"label2", "label3"};
+        EdgeRefFilter.setLabels(iteratorSetting, labels);
+        EdgeRefFilter.setLabelIds(iteratorSetting, edgeLabelDictionary.getIds(labels));
+        assertEquals(asSet("e2", "e4", "e5", "e6"), getEdgeIds(iteratorSetting));
+    }
+
+    @Test
+    public void testIdFormRefsNeedLabelIds() throws IOException {
+        IteratorSetting iteratorSetting = createIteratorSetting();
+        EdgeRefFilter.setLabels(iteratorSetting, new String[]{"label1", "label3"});
+        assertEquals(asSet("e1", "e6"), getEdgeIds(iteratorSetting));
+    }
+
+    @Test
+    public void testUnknownLabel() throws IOException {
+        IteratorSetting iteratorSetting = createIteratorSetting();
+        EdgeRefFilter.setLabels(iteratorSetting, new String[]{"label4"});
+        EdgeRefFilter.setLabelIds(iteratorSetting, edgeLabelDictionary.getIds(new String[]{"label4"}));
+        assertEquals(asSet(), getEdgeIds(iteratorSetting));
+        assertEquals(3, getOtherColumnCount(iteratorSetting));
+    }
+
+    @Test
+    public void testNoLabels() throws IOException {
+        IteratorSetting iteratorSetting = createIteratorSetting();
+        EdgeRefFilter.setLabels(iteratorSetting, new String[0]);
+        EdgeRefFilter.setLabelIds(iteratorSetting, new int[0]);
+        assertEquals(asSet(), getEdgeIds(iteratorSetting));
+        assertEquals(3, getOtherColumnCount(iteratorSetting));
+
+        iteratorSetting = createIteratorSetting();
+        try {
+            getEdgeIds(iteratorSetting);
+            fail("should require labels or other vertex id");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testOtherVertexId() throws IOException {
+        IteratorSetting iteratorSetting = createIteratorSetting();
+        EdgeRefFilter.setOtherVertexId(iteratorSetting, "v2");
+        assertEquals(asSet("e1", "e4", "e5"), getEdgeIds(iteratorSetting));
+
+        iteratorSetting = createIteratorSetting();
+        EdgeRefFilter.setOtherVertexId(iteratorSetting, "v3");
+        String[] labels = {"label1", "label3"};
+        EdgeRefFilter.setLabels(iteratorSetting, labels);
+        EdgeRefFilter.setLabelIds(iteratorSetting, edgeLabelDictionary.getIds(labels));
+        assertEquals(asSet("e3", "e6"), getEdgeIds(iteratorSetting));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLabelsCannotContainSeparator() {
+        EdgeRefFilter.setLabels(createIteratorSetting(), new String[]{"label" + EdgeRefFilter.LABEL_SEPARATOR + "1"});
+    }
+
+    private void addColumn(Text columnFamily, String columnQualifier, Value value) {
+        rows.put(new Key("Vv1", columnFamily.toString(), columnQualifier), value);
+    }
+
+    private static IteratorSetting createIteratorSetting() {
+        return new IteratorSetting(99, EdgeRefFilter.class.getSimpleName(), EdgeRefFilter.class);
+    }
+
+    private Set<String> getEdgeIds(IteratorSetting iteratorSetting) throws IOException {
+        Set<String> edgeIds = new HashSet<>();
+        for (Key key : filter(iteratorSetting)) {
+            String columnFamily = key.getColumnFamily().toString();
+            String columnQualifier = key.getColumnQualifier().toString();
+            if (columnFamily.equals(AccumuloVertex.CF_OUT_EDGE.toString()) || columnFamily.equals(AccumuloVertex.CF_IN_EDGE.toString())) {
+                edgeIds.add(columnQualifier);
+            } else if (columnFamily.equals(AccumuloVertex.CF_OUT_EDGE_BY_LABEL.toString()) || columnFamily.equals(AccumuloVertex.CF_IN_EDGE_BY_LABEL.toString())) {
+                edgeIds.add(ElementMutationBuilder.getEdgeIdFromLabelOrderedEdgeRefColumnQualifier(columnQualifier));
+            }
+        }
+        return edgeIds;
+    }
+
+    private int getOtherColumnCount(IteratorSetting iteratorSetting) throws IOException {
+        int count = 0;
+        for (Key key : filter(iteratorSetting)) {
+            String columnFamily = key.getColumnFamily().toString();
+            if (columnFamily.equals(AccumuloVertex.CF_SIGNAL.toString())
+                    || columnFamily.equals(AccumuloElement.CF_PROPERTY.toString())
+                    || columnFamily.equals(AccumuloVertex.CF_OUT_EDGE_HIDDEN.toString())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private List<Key> filter(IteratorSetting iteratorSetting) throws IOException {
+        EdgeRefFilter filter = new EdgeRefFilter();
+        filter.init(new SortedMapIterator(rows), iteratorSetting.getOptions(), null);
+        filter.seek(new Range(), new HashSet<ByteSequence>(), false);
+
+        List<Key> keys = new ArrayList<>();
+        while (filter.hasTop()) {
+            keys.add(new Key(filter.getTopKey()));
+            filter.next();
+        }
+        return keys;
+    }
+
+    private static Set<String> asSet(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+}
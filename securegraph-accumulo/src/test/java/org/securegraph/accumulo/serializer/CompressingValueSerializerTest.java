@@ -0,0 +1,42 @@
+package org.securegraph.accumulo.serializer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class CompressingValueSerializerTest {
+    @Test
+    public void testCompressesLargeValues() {
+        CompressingValueSerializer serializer = new CompressingValueSerializer(new TaggedValueSerializer(), CompressingValueSerializer.COMPRESSION_DEFLATE, 100);
+        String largeValue = createText(10000);
+        byte[] data = serializer.objectToValue(largeValue).get();
+        assertTrue(data.length < 1000);
+        assertEquals(largeValue, serializer.valueToObject(data));
+
+        byte[] smallData = serializer.objectToValue("small").get();
+        assertArrayEquals(new TaggedValueSerializer().objectToBytes("small"), smallData);
+        assertEquals("small", serializer.valueToObject(smallData));
+        assertNull(serializer.valueToObject(serializer.objectToValue(null).get()));
+    }
+
+    @Test
+    public void testReadsCompressedValuesWhenCompressionIsDisabled() {
+        CompressingValueSerializer compressing = new CompressingValueSerializer(new JavaValueSerializer(), CompressingValueSerializer.COMPRESSION_DEFLATE, 100);
+        CompressingValueSerializer notCompressing = new CompressingValueSerializer(new JavaValueSerializer(), CompressingValueSerializer.COMPRESSION_NONE, 100);
+        String largeValue = createText(10000);
+        assertEquals(largeValue, notCompressing.valueToObject(compressing.objectToValue(largeValue)));
+        assertEquals(largeValue, compressing.valueToObject(notCompressing.objectToValue(largeValue)));
+        assertNull(notCompressing.compress(largeValue.getBytes()));
+    }
+
+    private static String createText(int length) {
+        StringBuilder result = new StringBuilder();
+        while (result.length() < length) {
+            result.append("the quick brown fox jumps over the lazy dog ");
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package org.securegraph.accumulo.serializer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.DateOnly;
+import org.securegraph.accumulo.StreamingPropertyValueHdfsRef;
+import org.securegraph.accumulo.StreamingPropertyValueTableRef;
+import org.securegraph.type.GeoPoint;
+import org.securegraph.util.JavaSerializableUtils;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class TaggedValueSerializerTest {
+    private final TaggedValueSerializer serializer = new TaggedValueSerializer();
+
+    @Test
+    public void testRoundTrip() {
+        Map<String, String> map = new HashMap<>();
+        map.put("a", "b");
+        Object[] values = new Object[]{
+                null, "", "h\u00e9llo", true, false,
+                0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE,
+                3.5, Double.NaN, 1.5f, (short) -7, (byte) -3,
+                new Date(123456789L), new GeoPoint(1.5, 2.5), new GeoPoint(1.5, 2.5, 3.0, "desc"),
+                map
+        };
+        for (Object value : values) {
+            assertEquals(value, serializer.bytesToObject(serializer.objectToBytes(value)));
+        }
+        assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) serializer.bytesToObject(serializer.objectToBytes(new byte[]{1, 2, 3})));
+    }
+
+    @Test
+    public void testDateOnly() {
+        DateOnly dateOnly = (DateOnly) serializer.bytesToObject(serializer.objectToBytes(new DateOnly(2014, 2, 9)));
+        assertEquals("2014-03-09", dateOnly.toString());
+    }
+
+    @Test
+    public void testStreamingPropertyValueRefs() {
+        StreamingPropertyValueTableRef tableRef = (StreamingPropertyValueTableRef) serializer.bytesToObject(
+                serializer.objectToBytes(new StreamingPropertyValueTableRef("row", String.class.getName(), true, false)));
+        assertEquals("row", tableRef.getDataRowKey());
+        assertEquals(String.class, tableRef.getValueType());
+        assertTrue(tableRef.isSearchIndex());
+        assertFalse(tableRef.isStore());
+
+        StreamingPropertyValueHdfsRef hdfsRef = (StreamingPropertyValueHdfsRef) serializer.bytesToObject(
+                serializer.objectToBytes(new StreamingPropertyValueHdfsRef("path", String.class.getName(), false, true)));
+        assertEquals("path", hdfsRef.getPath());
+        assertFalse(hdfsRef.isSearchIndex());
+        assertTrue(hdfsRef.isStore());
+    }
+
+    @Test
+    public void testReadsJavaSerializedValues() {
+        assertEquals("legacy", serializer.bytesToObject(JavaSerializableUtils.objectToBytes("legacy")));
+        assertEquals(42L, serializer.bytesToObject(JavaSerializableUtils.objectToBytes(42L)));
+        assertTrue(TaggedValueSerializer.canRead(JavaValueSerializer.class.getName()));
+    }
+
+    @Test
+    public void testSmallerThanJavaSerialization() {
+        Object[] values = new Object[]{"value", 42, 42L, 3.5, true, new Date(), new GeoPoint(1.5, 2.5)};
+        for (Object value : values) {
+            assertTrue(serializer.objectToBytes(value).length < JavaSerializableUtils.objectToBytes(value).length);
+        }
+    }
+}
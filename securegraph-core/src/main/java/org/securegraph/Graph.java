@@ -110,6 +110,17 @@ public interface Graph {
      */
     Map<String, Boolean> doVerticesExist(List<String> ids, Authorizations authorizations);
 
+    /**
+     * Counts the edges of vertices with the given authorizations, see
+     * {@link org.securegraph.Vertex#getEdgeCount(Direction, Authorizations)}.
+     *
+     * @param vertexIds      The ids of the vertices to count the edges of.
+     * @param direction      The side of the edges to count.
+     * @param authorizations The authorizations required to load the vertices and edge refs.
+     * @return Map of vertex ids to edge counts. Vertices that could not be found are not in the map.
+     */
+    Map<String, Integer> getEdgeCounts(Iterable<String> vertexIds, Direction direction, Authorizations authorizations);
+
     /**
      * Gets all vertices matching the given ids on the graph. The order of
      * the returned vertices is not guaranteed {@link org.securegraph.Graph#getVerticesInOrder(Iterable, Authorizations)}.
@@ -5,10 +5,13 @@ import org.securegraph.event.GraphEventListener;
 import org.securegraph.path.PathFindingAlgorithm;
 import org.securegraph.path.RecursivePathFindingAlgorithm;
 import org.securegraph.query.GraphQuery;
+import org.securegraph.util.CloseableUtils;
+import org.securegraph.util.ElementsInIdOrderIterable;
 import org.securegraph.util.LookAheadIterable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.util.*;
 
 import static org.securegraph.util.IterableUtils.toList;
@@ -100,24 +103,47 @@ public abstract class GraphBase implements Graph {
         return results;
     }
 
+    @Override
+    public Map<String, Integer> getEdgeCounts(Iterable<String> vertexIds, Direction direction, Authorizations authorizations) {
+        EnumSet<FetchHint> fetchHints;
+        switch (direction) {
+            case IN:
+                fetchHints = EnumSet.of(FetchHint.IN_EDGE_REFS);
+                break;
+            case OUT:
+                fetchHints = EnumSet.of(FetchHint.OUT_EDGE_REFS);
+                break;
+            default:
+                fetchHints = FetchHint.EDGE_REFS;
+                break;
+        }
+        Map<String, Integer> results = new HashMap<String, Integer>();
+        Iterable<Vertex> vertices = getVertices(vertexIds, fetchHints, authorizations);
+        try {
+            for (Vertex vertex : vertices) {
+                results.put(vertex.getId(), vertex.getEdgeCount(direction, authorizations));
+            }
+        } finally {
+            if (vertices instanceof Closeable) {
+                CloseableUtils.closeQuietly((Closeable) vertices);
+            }
+        }
+        return results;
+    }
+
     @Override
     public Iterable<Vertex> getVertices(final Iterable<String> ids, final Authorizations authorizations) {
         return getVertices(ids, FetchHint.ALL, authorizations);
     }
 
     @Override
-    public List<Vertex> getVerticesInOrder(Iterable<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
-        final List<String> vertexIds = toList(ids);
-        List<Vertex> vertices = toList(getVertices(vertexIds, authorizations));
-        Collections.sort(vertices, new Comparator<Vertex>() {
+    public List<Vertex> getVerticesInOrder(Iterable<String> ids, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+        return toList(new ElementsInIdOrderIterable<Vertex>(toList(ids)) {
             @Override
-            public int compare(Vertex v1, Vertex v2) {
-                Integer i1 = vertexIds.indexOf(v1.getId());
-                Integer i2 = vertexIds.indexOf(v2.getId());
-                return i1.compareTo(i2);
+            protected Iterable<Vertex> getElements(List<String> ids) {
+                return getVertices(ids, fetchHints, authorizations);
             }
         });
-        return vertices;
     }
 
     @Override
@@ -353,6 +379,11 @@ public abstract class GraphBase implements Graph {
     @Override
     public abstract SearchIndexSecurityGranularity getSearchIndexSecurityGranularity();
 
+    @Override
+    public boolean isVisibilityValid(Visibility visibility, Authorizations authorizations) {
+        return authorizations.canRead(visibility);
+    }
+
     @Override
     public void addGraphEventListener(GraphEventListener graphEventListener) {
         this.graphEventListeners.add(graphEventListener);
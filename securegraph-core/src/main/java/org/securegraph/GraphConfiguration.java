@@ -2,6 +2,7 @@ package org.securegraph;
 
 import org.securegraph.id.IdGenerator;
 import org.securegraph.id.UUIDIdGenerator;
+import org.securegraph.search.AsyncSearchIndex;
 import org.securegraph.search.DefaultSearchIndex;
 import org.securegraph.search.SearchIndex;
 import org.securegraph.util.ConfigurationUtils;
@@ -12,10 +13,18 @@ public class GraphConfiguration {
     public static final String IDGENERATOR_PROP_PREFIX = "idgenerator";
     public static final String SEARCH_INDEX_PROP_PREFIX = "search";
     public static final String AUTO_FLUSH = "autoFlush";
+    public static final String SEARCH_INDEX_ASYNC = SEARCH_INDEX_PROP_PREFIX + ".async";
+    public static final String SEARCH_INDEX_ASYNC_MAX_QUEUE_SIZE = SEARCH_INDEX_PROP_PREFIX + ".asyncMaxQueueSize";
+    public static final String SEARCH_INDEX_ASYNC_BATCH_SIZE = SEARCH_INDEX_PROP_PREFIX + ".asyncBatchSize";
+    public static final String SEARCH_INDEX_ASYNC_FLUSH_INTERVAL_MS = SEARCH_INDEX_PROP_PREFIX + ".asyncFlushIntervalMs";
 
     public static final String DEFAULT_IDGENERATOR = UUIDIdGenerator.class.getName();
     public static final String DEFAULT_SEARCH_INDEX = DefaultSearchIndex.class.getName();
     public static final boolean DEFAULT_AUTO_FLUSH = false;
+    public static final boolean DEFAULT_SEARCH_INDEX_ASYNC = false;
+    public static final int DEFAULT_SEARCH_INDEX_ASYNC_MAX_QUEUE_SIZE = 10000;
+    public static final int DEFAULT_SEARCH_INDEX_ASYNC_BATCH_SIZE = 1000;
+    public static final long DEFAULT_SEARCH_INDEX_ASYNC_FLUSH_INTERVAL_MS = 1000;
 
     private final Map config;
 
@@ -45,7 +54,16 @@ public class GraphConfiguration {
     }
 
     public SearchIndex createSearchIndex() throws SecureGraphException {
-        return ConfigurationUtils.createProvider(this, SEARCH_INDEX_PROP_PREFIX, DEFAULT_SEARCH_INDEX);
+        SearchIndex searchIndex = ConfigurationUtils.createProvider(this, SEARCH_INDEX_PROP_PREFIX, DEFAULT_SEARCH_INDEX);
+        if (getBoolean(SEARCH_INDEX_ASYNC, DEFAULT_SEARCH_INDEX_ASYNC)) {
+            searchIndex = new AsyncSearchIndex(
+                    searchIndex,
+                    getInt(SEARCH_INDEX_ASYNC_MAX_QUEUE_SIZE, DEFAULT_SEARCH_INDEX_ASYNC_MAX_QUEUE_SIZE),
+                    getInt(SEARCH_INDEX_ASYNC_BATCH_SIZE, DEFAULT_SEARCH_INDEX_ASYNC_BATCH_SIZE),
+                    getConfigLong(SEARCH_INDEX_ASYNC_FLUSH_INTERVAL_MS, DEFAULT_SEARCH_INDEX_ASYNC_FLUSH_INTERVAL_MS)
+            );
+        }
+        return searchIndex;
     }
 
     public boolean getBoolean(String configKey, boolean defaultValue) {
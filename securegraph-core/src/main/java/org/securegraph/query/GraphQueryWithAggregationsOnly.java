@@ -0,0 +1,22 @@
+package org.securegraph.query;
+
+/**
+ * A graph query that can compute total hits and aggregations without fetching the matching elements.
+ */
+public interface GraphQueryWithAggregationsOnly extends GraphQuery {
+    /**
+     * Only computes the total hits and the aggregations of the query. The iterables returned by vertices() and edges()
+     * will contain no elements but still implement {@link IterableWithTotalHits} and the aggregation result interfaces.
+     */
+    GraphQueryWithAggregationsOnly aggregationsOnly();
+
+    /**
+     * Returns the number of vertices matching the query without fetching them.
+     */
+    long verticesCount();
+
+    /**
+     * Returns the number of edges matching the query without fetching them.
+     */
+    long edgesCount();
+}
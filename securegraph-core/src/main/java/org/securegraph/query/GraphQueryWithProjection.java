@@ -0,0 +1,19 @@
+package org.securegraph.query;
+
+import org.securegraph.Element;
+
+/**
+ * A graph query that can return the matching elements as read-only views holding only some of their properties.
+ * Only the properties of the elements are loaded from the graph, not their edge refs or metadata.
+ */
+public interface GraphQueryWithProjection extends GraphQuery {
+    /**
+     * Returns read-only views of the matching vertices which only hold the properties with the given names.
+     */
+    Iterable<Element> vertexProjections(String... propertyNames);
+
+    /**
+     * Returns read-only views of the matching edges which only hold the properties with the given names.
+     */
+    Iterable<Element> edgeProjections(String... propertyNames);
+}
@@ -0,0 +1,25 @@
+package org.securegraph.query;
+
+import org.securegraph.Edge;
+import org.securegraph.FetchHint;
+import org.securegraph.Vertex;
+import org.securegraph.util.CloseableIterable;
+
+import java.util.EnumSet;
+
+/**
+ * A graph query that can walk every match page by page instead of returning a single page limited by
+ * {@link Query#limit(int)}. Close the returned iterable when done with it, iterators that are not read to the end
+ * otherwise hold on to server side resources until they time out.
+ */
+public interface GraphQueryWithStreaming extends GraphQuery {
+    /**
+     * Returns all vertices matching the query. The limit is ignored, skip is still applied.
+     */
+    CloseableIterable<Vertex> streamVertices(EnumSet<FetchHint> fetchHints);
+
+    /**
+     * Returns all edges matching the query. The limit is ignored, skip is still applied.
+     */
+    CloseableIterable<Edge> streamEdges(EnumSet<FetchHint> fetchHints);
+}
@@ -0,0 +1,348 @@
+package org.securegraph.search;
+
+import org.securegraph.*;
+import org.securegraph.query.GraphQuery;
+import org.securegraph.query.VertexQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Search index that queues index operations and sends them to another search index on a background thread.
+ * <p/>
+ * Repeated adds of the same element are coalesced into one and a remove drops any queued operations for that
+ * element. Queued operations are sent once batchSize elements are waiting or flushIntervalMs has passed. Callers
+ * block while maxQueueSize operations are waiting. {@link #flush()} waits until every queued operation has been sent
+ * and rethrows the first error the background thread ran into.
+ */
+public class AsyncSearchIndex implements SearchIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncSearchIndex.class);
+    private final SearchIndex searchIndex;
+    private final int maxQueueSize;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final Object lock = new Object();
+    private final Thread thread;
+    private Map<String, List<Operation>> pendingOperations = new LinkedHashMap<>();
+    private int pendingCount;
+    private boolean sending;
+    private int flushWaiters;
+    private boolean shutdown;
+    private RuntimeException error;
+
+    public AsyncSearchIndex(SearchIndex searchIndex, int maxQueueSize, int batchSize, long flushIntervalMs) {
+        this.searchIndex = searchIndex;
+        this.maxQueueSize = Math.max(1, maxQueueSize);
+        this.batchSize = Math.max(1, Math.min(batchSize, this.maxQueueSize));
+        this.flushIntervalMs = flushIntervalMs;
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runSender();
+            }
+        }, "securegraph-async-search-index");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    @Override
+    public void addElement(Graph graph, Element element, Authorizations authorizations) {
+        enqueue(new Operation(OperationType.ADD, graph, element, null, authorizations));
+    }
+
+    @Override
+    public void removeElement(Graph graph, Element element, Authorizations authorizations) {
+        enqueue(new Operation(OperationType.REMOVE, graph, element, null, authorizations));
+    }
+
+    @Override
+    public void removeProperty(Graph graph, Element element, Property property, Authorizations authorizations) {
+        enqueue(new Operation(OperationType.REMOVE_PROPERTY, graph, element, property, authorizations));
+    }
+
+    @Override
+    public void removeProperty(Graph graph, Element element, String propertyKey, String propertyName, Visibility propertyVisibility, Authorizations authorizations) {
+        Property property = element.getProperty(propertyKey, propertyName, propertyVisibility);
+        if (property == null) {
+            waitForPendingOperations();
+            searchIndex.removeProperty(graph, element, propertyKey, propertyName, propertyVisibility, authorizations);
+            return;
+        }
+        removeProperty(graph, element, property, authorizations);
+    }
+
+    @Override
+    public void addElements(Graph graph, Iterable<? extends Element> elements, Authorizations authorizations) {
+        waitForPendingOperations();
+        searchIndex.addElements(graph, elements, authorizations);
+    }
+
+    @Override
+    public GraphQuery queryGraph(Graph graph, String queryString, Authorizations authorizations) {
+        return searchIndex.queryGraph(graph, queryString, authorizations);
+    }
+
+    @Override
+    public VertexQuery queryVertex(Graph graph, Vertex vertex, String queryString, Authorizations authorizations) {
+        return searchIndex.queryVertex(graph, vertex, queryString, authorizations);
+    }
+
+    @Override
+    public void flush() {
+        waitForPendingOperations();
+        searchIndex.flush();
+    }
+
+    @Override
+    public void shutdown() {
+        try {
+            waitForPendingOperations();
+        } finally {
+            synchronized (lock) {
+                shutdown = true;
+                lock.notifyAll();
+            }
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            searchIndex.shutdown();
+        }
+    }
+
+    @Override
+    public void addPropertyDefinition(PropertyDefinition propertyDefinition) throws IOException {
+        searchIndex.addPropertyDefinition(propertyDefinition);
+    }
+
+    @Override
+    public boolean isFieldBoostSupported() {
+        return searchIndex.isFieldBoostSupported();
+    }
+
+    @Override
+    public void clearData() {
+        synchronized (lock) {
+            pendingOperations = new LinkedHashMap<>();
+            pendingCount = 0;
+            lock.notifyAll();
+        }
+        waitForPendingOperations();
+        searchIndex.clearData();
+    }
+
+    @Override
+    public SearchIndexSecurityGranularity getSearchIndexSecurityGranularity() {
+        return searchIndex.getSearchIndexSecurityGranularity();
+    }
+
+    private void enqueue(Operation operation) {
+        synchronized (lock) {
+            if (shutdown) {
+                throw new SecureGraphException("Search index has been shutdown");
+            }
+            while (pendingCount >= maxQueueSize) {
+                waitOnLock(0);
+            }
+
+            String key = getElementKey(operation.element);
+            List<Operation> operations = pendingOperations.get(key);
+            if (operations == null) {
+                operations = new ArrayList<>();
+                pendingOperations.put(key, operations);
+            }
+            if (operation.type == OperationType.REMOVE) {
+                pendingCount -= operations.size();
+                operations.clear();
+                operations.add(operation);
+                pendingCount++;
+            } else if (operation.type == OperationType.ADD && operations.size() > 0 && operations.get(operations.size() - 1).type == OperationType.ADD) {
+                operations.set(operations.size() - 1, operation);
+            } else {
+                operations.add(operation);
+                pendingCount++;
+            }
+
+            if (pendingCount == 1 || pendingCount >= batchSize) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void waitForPendingOperations() {
+        synchronized (lock) {
+            flushWaiters++;
+            try {
+                lock.notifyAll();
+                while (pendingCount > 0 || sending) {
+                    waitOnLock(0);
+                }
+            } finally {
+                flushWaiters--;
+            }
+            if (error != null) {
+                RuntimeException e = error;
+                error = null;
+                throw e;
+            }
+        }
+    }
+
+    private void runSender() {
+        while (true) {
+            Map<String, List<Operation>> operations;
+            synchronized (lock) {
+                long deadline = -1;
+                while (!shutdown && flushWaiters == 0 && pendingCount < batchSize) {
+                    if (pendingCount == 0 || flushIntervalMs <= 0) {
+                        deadline = -1;
+                        waitOnLock(0);
+                        continue;
+                    }
+                    if (deadline < 0) {
+                        deadline = System.currentTimeMillis() + flushIntervalMs;
+                    }
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    waitOnLock(remaining);
+                }
+                if (pendingCount == 0) {
+                    if (shutdown) {
+                        return;
+                    }
+                    waitOnLock(0);
+                    continue;
+                }
+                operations = pendingOperations;
+                pendingOperations = new LinkedHashMap<>();
+                pendingCount = 0;
+                sending = true;
+                lock.notifyAll();
+            }
+
+            try {
+                send(operations.values());
+            } catch (RuntimeException ex) {
+                LOGGER.error("Could not send queued search index operations", ex);
+                synchronized (lock) {
+                    if (error == null) {
+                        error = ex;
+                    }
+                }
+            } finally {
+                synchronized (lock) {
+                    sending = false;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void send(Collection<List<Operation>> operationsByElement) {
+        Map<AddElementsKey, List<Element>> addElements = new LinkedHashMap<>();
+        for (List<Operation> operations : operationsByElement) {
+            if (operations.size() == 1 && operations.get(0).type == OperationType.ADD) {
+                Operation operation = operations.get(0);
+                AddElementsKey key = new AddElementsKey(operation.graph, operation.authorizations);
+                List<Element> elements = addElements.get(key);
+                if (elements == null) {
+                    elements = new ArrayList<>();
+                    addElements.put(key, elements);
+                }
+                elements.add(operation.element);
+                continue;
+            }
+            for (Operation operation : operations) {
+                switch (operation.type) {
+                    case ADD:
+                        searchIndex.addElement(operation.graph, operation.element, operation.authorizations);
+                        break;
+                    case REMOVE:
+                        searchIndex.removeElement(operation.graph, operation.element, operation.authorizations);
+                        break;
+                    case REMOVE_PROPERTY:
+                        searchIndex.removeProperty(operation.graph, operation.element, operation.property, operation.authorizations);
+                        break;
+                    default:
+                        throw new SecureGraphException("Unhandled operation type: " + operation.type);
+                }
+            }
+        }
+        for (Map.Entry<AddElementsKey, List<Element>> entry : addElements.entrySet()) {
+            searchIndex.addElements(entry.getKey().graph, entry.getValue(), entry.getKey().authorizations);
+        }
+    }
+
+    private void waitOnLock(long timeout) {
+        try {
+            lock.wait(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SecureGraphException("Interrupted while waiting for search index", e);
+        }
+    }
+
+    private static String getElementKey(Element element) {
+        if (element instanceof Vertex) {
+            return "V" + element.getId();
+        } else if (element instanceof Edge) {
+            return "E" + element.getId();
+        }
+        throw new SecureGraphException("Unexpected element type " + element.getClass().getName());
+    }
+
+    private enum OperationType {
+        ADD,
+        REMOVE,
+        REMOVE_PROPERTY
+    }
+
+    private static class Operation {
+        private final OperationType type;
+        private final Graph graph;
+        private final Element element;
+        private final Property property;
+        private final Authorizations authorizations;
+
+        public Operation(OperationType type, Graph graph, Element element, Property property, Authorizations authorizations) {
+            this.type = type;
+            this.graph = graph;
+            this.element = element;
+            this.property = property;
+            this.authorizations = authorizations;
+        }
+    }
+
+    private static class AddElementsKey {
+        private final Graph graph;
+        private final Authorizations authorizations;
+
+        public AddElementsKey(Graph graph, Authorizations authorizations) {
+            this.graph = graph;
+            this.authorizations = authorizations;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof AddElementsKey)) {
+                return false;
+            }
+            AddElementsKey that = (AddElementsKey) o;
+            return graph == that.graph && authorizations == that.authorizations;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(graph) + System.identityHashCode(authorizations);
+        }
+    }
+}
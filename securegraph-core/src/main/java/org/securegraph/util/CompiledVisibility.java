@@ -0,0 +1,210 @@
+package org.securegraph.util;
+
+import org.securegraph.SecureGraphException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A visibility expression parsed into a tree that can be evaluated against a set of authorizations without reparsing.
+ * <p/>
+ * Expressions use the Accumulo column visibility syntax: terms made up of <code>[a-zA-Z0-9_-.:/]</code> or quoted
+ * strings, combined with <code>&amp;</code> and <code>|</code>. Mixing operators requires parentheses.
+ * Compiled expressions are shared through a bounded cache, see {@link #compile(String)}.
+ */
+public abstract class CompiledVisibility {
+    private static final int MAX_CACHED_EXPRESSIONS = 10000;
+    private static final CompiledVisibility EMPTY = new CompiledVisibility() {
+        @Override
+        public boolean evaluate(Set<String> authorizations) {
+            return true;
+        }
+    };
+    private static final Map<String, CompiledVisibility> compiledVisibilities = new LinkedHashMap<String, CompiledVisibility>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledVisibility> eldest) {
+            return size() > MAX_CACHED_EXPRESSIONS;
+        }
+    };
+
+    public abstract boolean evaluate(Set<String> authorizations);
+
+    public static CompiledVisibility compile(String expression) {
+        if (expression.length() == 0) {
+            return EMPTY;
+        }
+        synchronized (compiledVisibilities) {
+            CompiledVisibility compiledVisibility = compiledVisibilities.get(expression);
+            if (compiledVisibility != null) {
+                return compiledVisibility;
+            }
+        }
+        CompiledVisibility compiledVisibility = new Parser(expression).parse();
+        synchronized (compiledVisibilities) {
+            compiledVisibilities.put(expression, compiledVisibility);
+        }
+        return compiledVisibility;
+    }
+
+    private static class Term extends CompiledVisibility {
+        private final String term;
+
+        public Term(String term) {
+            this.term = term;
+        }
+
+        @Override
+        public boolean evaluate(Set<String> authorizations) {
+            return authorizations.contains(term);
+        }
+    }
+
+    private static class And extends CompiledVisibility {
+        private final CompiledVisibility[] children;
+
+        public And(List<CompiledVisibility> children) {
+            this.children = children.toArray(new CompiledVisibility[children.size()]);
+        }
+
+        @Override
+        public boolean evaluate(Set<String> authorizations) {
+            for (CompiledVisibility child : children) {
+                if (!child.evaluate(authorizations)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class Or extends CompiledVisibility {
+        private final CompiledVisibility[] children;
+
+        public Or(List<CompiledVisibility> children) {
+            this.children = children.toArray(new CompiledVisibility[children.size()]);
+        }
+
+        @Override
+        public boolean evaluate(Set<String> authorizations) {
+            for (CompiledVisibility child : children) {
+                if (child.evaluate(authorizations)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class Parser {
+        private final String expression;
+        private int index;
+
+        public Parser(String expression) {
+            this.expression = expression;
+        }
+
+        public CompiledVisibility parse() {
+            CompiledVisibility result = parseExpression();
+            if (index < expression.length()) {
+                throw error("parenthesis mis-match");
+            }
+            return result;
+        }
+
+        private CompiledVisibility parseExpression() {
+            List<CompiledVisibility> children = new ArrayList<>();
+            children.add(parseTerm());
+            char operator = 0;
+            while (index < expression.length()) {
+                char c = expression.charAt(index);
+                if (c == ')') {
+                    break;
+                }
+                if (c != '&' && c != '|') {
+                    throw error("expression needs & or |");
+                }
+                if (operator != 0 && operator != c) {
+                    throw error("cannot mix & and |");
+                }
+                operator = c;
+                index++;
+                children.add(parseTerm());
+            }
+            if (operator == '&') {
+                return new And(children);
+            } else if (operator == '|') {
+                return new Or(children);
+            }
+            return children.get(0);
+        }
+
+        private CompiledVisibility parseTerm() {
+            if (index >= expression.length()) {
+                throw error("missing term");
+            }
+            char c = expression.charAt(index);
+            if (c == '(') {
+                index++;
+                CompiledVisibility result = parseExpression();
+                if (index >= expression.length() || expression.charAt(index) != ')') {
+                    throw error("parenthesis mis-match");
+                }
+                index++;
+                return result;
+            }
+            if (c == '"') {
+                return parseQuotedTerm();
+            }
+            int start = index;
+            while (index < expression.length() && isValidTermChar(expression.charAt(index))) {
+                index++;
+            }
+            if (start == index) {
+                throw error("empty term");
+            }
+            return new Term(expression.substring(start, index));
+        }
+
+        private CompiledVisibility parseQuotedTerm() {
+            int start = index;
+            index++;
+            StringBuilder term = new StringBuilder();
+            while (index < expression.length() && expression.charAt(index) != '"') {
+                char c = expression.charAt(index);
+                if (c == '\\') {
+                    index++;
+                    if (index >= expression.length() || (expression.charAt(index) != '\\' && expression.charAt(index) != '"')) {
+                        throw error("invalid escaping within quotes");
+                    }
+                    c = expression.charAt(index);
+                }
+                term.append(c);
+                index++;
+            }
+            if (index >= expression.length()) {
+                index = start;
+                throw error("unclosed quote");
+            }
+            if (term.length() == 0) {
+                index = start;
+                throw error("empty term");
+            }
+            index++;
+            return new Term(term.toString());
+        }
+
+        private static boolean isValidTermChar(char c) {
+            return (c >= 'a' && c <= 'z')
+                    || (c >= 'A' && c <= 'Z')
+                    || (c >= '0' && c <= '9')
+                    || c == '_' || c == '-' || c == ':' || c == '.' || c == '/';
+        }
+
+        private SecureGraphException error(String message) {
+            return new SecureGraphException("could not parse visibility " + expression + ": " + message + " at index " + index);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.securegraph.util;
+
+import org.securegraph.Element;
+
+import java.io.Closeable;
+import java.util.*;
+
+/**
+ * Returns elements in the order of the given ids while fetching them with an unordered multi-get.
+ * <p/>
+ * The ids are fetched in windows of windowSize ids. Elements that arrive ahead of the next expected id are held in a
+ * buffer until their turn comes, so at most one window of elements is buffered and elements are returned as soon as
+ * every element before them has arrived. Ids with no matching element are skipped and an id given more than once
+ * returns its element each time.
+ */
+public abstract class ElementsInIdOrderIterable<T extends Element> implements Iterable<T> {
+    public static final int DEFAULT_WINDOW_SIZE = 500;
+    private final List<String> ids;
+    private final int windowSize;
+
+    public ElementsInIdOrderIterable(List<String> ids) {
+        this(ids, DEFAULT_WINDOW_SIZE);
+    }
+
+    public ElementsInIdOrderIterable(List<String> ids, int windowSize) {
+        this.ids = ids;
+        this.windowSize = Math.max(1, windowSize);
+    }
+
+    /**
+     * Fetches the elements with the given ids in any order.
+     */
+    protected abstract Iterable<T> getElements(List<String> ids);
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private final Map<String, T> buffer = new HashMap<>();
+            private Iterable<T> window;
+            private Iterator<T> windowIterator;
+            private int windowEnd;
+            private int expectedIndex;
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                loadNext();
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                loadNext();
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                T result = next;
+                next = null;
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            private void loadNext() {
+                while (next == null && expectedIndex < ids.size()) {
+                    if (windowIterator == null) {
+                        windowEnd = Math.min(expectedIndex + windowSize, ids.size());
+                        window = getElements(ids.subList(expectedIndex, windowEnd));
+                        windowIterator = window.iterator();
+                    }
+
+                    String expectedId = ids.get(expectedIndex);
+                    // elements stay in the buffer until the window is closed in case their id is repeated
+                    T element = buffer.get(expectedId);
+                    if (element == null) {
+                        while (windowIterator.hasNext()) {
+                            T e = windowIterator.next();
+                            buffer.put(e.getId(), e);
+                            if (e.getId().equals(expectedId)) {
+                                element = e;
+                                break;
+                            }
+                        }
+                    }
+
+                    expectedIndex++;
+                    if (expectedIndex >= windowEnd) {
+                        closeWindow();
+                    }
+                    next = element;
+                }
+            }
+
+            private void closeWindow() {
+                if (window instanceof Closeable) {
+                    CloseableUtils.closeQuietly((Closeable) window);
+                }
+                window = null;
+                windowIterator = null;
+                buffer.clear();
+            }
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package org.securegraph.util;
+
+import org.securegraph.Visibility;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Evaluates visibilities against a fixed set of authorizations, remembering the result for the most recently
+ * evaluated visibility strings.
+ */
+public class VisibilityEvaluator {
+    private static final int MAX_CACHED_RESULTS = 1000;
+    private final Set<String> authorizations;
+    private final Map<String, Boolean> results = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_CACHED_RESULTS;
+        }
+    };
+
+    public VisibilityEvaluator(String[] authorizations) {
+        this.authorizations = new HashSet<>(Arrays.asList(authorizations));
+    }
+
+    public boolean canRead(Visibility visibility) {
+        String visibilityString = visibility.getVisibilityString();
+        if (visibilityString.length() == 0) {
+            return true;
+        }
+        synchronized (results) {
+            Boolean result = results.get(visibilityString);
+            if (result != null) {
+                return result;
+            }
+        }
+        boolean result = CompiledVisibility.compile(visibilityString).evaluate(authorizations);
+        synchronized (results) {
+            results.put(visibilityString, result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,195 @@
+package org.securegraph.search;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class AsyncSearchIndexTest {
+    private static final long NEVER = 60 * 60 * 1000;
+    private final RecordingSearchIndex recordingSearchIndex = new RecordingSearchIndex();
+    private AsyncSearchIndex searchIndex;
+
+    @After
+    public void after() {
+        recordingSearchIndex.release.countDown();
+        if (searchIndex != null) {
+            searchIndex.shutdown();
+        }
+    }
+
+    @Test
+    public void testFlushWaitsForPendingWrites() {
+        searchIndex = new AsyncSearchIndex(recordingSearchIndex, 100, 100, NEVER);
+        searchIndex.addElement(null, createVertex("v1"), null);
+        searchIndex.addElement(null, createVertex("v2"), null);
+
+        searchIndex.flush();
+        assertEquals(Arrays.asList("v1", "v2"), getIds(recordingSearchIndex.addedElements));
+        assertEquals(1, recordingSearchIndex.flushCount);
+    }
+
+    @Test
+    public void testRepeatedUpdatesAreCoalesced() {
+        searchIndex = new AsyncSearchIndex(recordingSearchIndex, 100, 100, NEVER);
+        Vertex last = null;
+        for (int i = 0; i < 10; i++) {
+            last = createVertex("v1");
+            searchIndex.addElement(null, last, null);
+        }
+        searchIndex.addElement(null, createVertex("v2"), null);
+
+        searchIndex.flush();
+        assertEquals(Arrays.asList("v1", "v2"), getIds(recordingSearchIndex.addedElements));
+        assertSame(last, recordingSearchIndex.addedElements.get(0));
+    }
+
+    @Test
+    public void testRemoveDropsQueuedAdds() {
+        searchIndex = new AsyncSearchIndex(recordingSearchIndex, 100, 100, NEVER);
+        Vertex v1 = createVertex("v1");
+        searchIndex.addElement(null, v1, null);
+        searchIndex.removeElement(null, v1, null);
+
+        searchIndex.flush();
+        assertEquals(0, recordingSearchIndex.addedElements.size());
+        assertEquals(Arrays.asList("v1"), getIds(recordingSearchIndex.removedElements));
+    }
+
+    @Test
+    public void testFullQueueBlocksCallers() throws InterruptedException {
+        recordingSearchIndex.release = new CountDownLatch(1);
+        searchIndex = new AsyncSearchIndex(recordingSearchIndex, 2, 2, NEVER);
+
+        // the first batch is sent and blocks in the search index, the next two operations fill the queue
+        searchIndex.addElement(null, createVertex("v1"), null);
+        searchIndex.addElement(null, createVertex("v2"), null);
+        assertTrue(recordingSearchIndex.sendStarted.await(10, TimeUnit.SECONDS));
+        searchIndex.addElement(null, createVertex("v3"), null);
+        searchIndex.addElement(null, createVertex("v4"), null);
+
+        final CountDownLatch added = new CountDownLatch(1);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                searchIndex.addElement(null, createVertex("v5"), null);
+                added.countDown();
+            }
+        });
+        thread.start();
+        assertFalse(added.await(200, TimeUnit.MILLISECONDS));
+
+        recordingSearchIndex.release.countDown();
+        assertTrue(added.await(10, TimeUnit.SECONDS));
+        thread.join();
+
+        searchIndex.flush();
+        assertEquals(Arrays.asList("v1", "v2", "v3", "v4", "v5"), getIds(recordingSearchIndex.addedElements));
+    }
+
+    @Test
+    public void testFailedWriteSurfacesAtFlush() {
+        SecureGraphException failure = new SecureGraphException("could not write");
+        recordingSearchIndex.failure = failure;
+        searchIndex = new AsyncSearchIndex(recordingSearchIndex, 100, 100, NEVER);
+        searchIndex.addElement(null, createVertex("v1"), null);
+
+        try {
+            searchIndex.flush();
+            fail("expected the failed write to be rethrown");
+        } catch (SecureGraphException ex) {
+            assertSame(failure, ex);
+        }
+
+        // the error is only reported once
+        searchIndex.addElement(null, createVertex("v2"), null);
+        searchIndex.flush();
+        assertEquals(Arrays.asList("v2"), getIds(recordingSearchIndex.addedElements));
+    }
+
+    private static Vertex createVertex(final String id) {
+        return (Vertex) Proxy.newProxyInstance(Vertex.class.getClassLoader(), new Class[]{Vertex.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "getId":
+                        return id;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return id;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        });
+    }
+
+    private static List<String> getIds(List<Element> elements) {
+        List<String> ids = new ArrayList<>();
+        for (Element element : elements) {
+            ids.add(element.getId());
+        }
+        return ids;
+    }
+
+    private static class RecordingSearchIndex extends DefaultSearchIndex {
+        private final List<Element> addedElements = Collections.synchronizedList(new ArrayList<Element>());
+        private final List<Element> removedElements = Collections.synchronizedList(new ArrayList<Element>());
+        private final CountDownLatch sendStarted = new CountDownLatch(1);
+        private volatile CountDownLatch release = new CountDownLatch(0);
+        private volatile RuntimeException failure;
+        private volatile int flushCount;
+
+        public RecordingSearchIndex() {
+            super(null);
+        }
+
+        @Override
+        public void addElements(Graph graph, Iterable<? extends Element> elements, Authorizations authorizations) {
+            sendStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            RuntimeException failure = this.failure;
+            if (failure != null) {
+                this.failure = null;
+                throw failure;
+            }
+            super.addElements(graph, elements, authorizations);
+        }
+
+        @Override
+        public void addElement(Graph graph, Element element, Authorizations authorizations) {
+            addedElements.add(element);
+        }
+
+        @Override
+        public void removeElement(Graph graph, Element element, Authorizations authorizations) {
+            removedElements.add(element);
+        }
+
+        @Override
+        public void flush() {
+            flushCount++;
+        }
+    }
+}
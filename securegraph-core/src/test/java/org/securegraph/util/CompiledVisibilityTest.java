@@ -0,0 +1,74 @@
+package org.securegraph.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.SecureGraphException;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class CompiledVisibilityTest {
+    @Test
+    public void testEvaluate() {
+        Set<String> authorizations = new HashSet<>(Arrays.asList("a", "b", "c d"));
+        assertTrue(CompiledVisibility.compile("").evaluate(authorizations));
+        assertTrue(CompiledVisibility.compile("a").evaluate(authorizations));
+        assertFalse(CompiledVisibility.compile("x").evaluate(authorizations));
+        assertTrue(CompiledVisibility.compile("a&b").evaluate(authorizations));
+        assertFalse(CompiledVisibility.compile("a&x").evaluate(authorizations));
+        assertTrue(CompiledVisibility.compile("x|b").evaluate(authorizations));
+        assertTrue(CompiledVisibility.compile("(x|a)&(b|y)").evaluate(authorizations));
+        assertFalse(CompiledVisibility.compile("(x|y)&a").evaluate(authorizations));
+        assertTrue(CompiledVisibility.compile("\"c d\"&a").evaluate(authorizations));
+    }
+
+    @Test
+    public void testNestedMixedParentheses() {
+        Set<String> authorizations = new HashSet<>(Arrays.asList("a", "b", "c"));
+        assertTrue(CompiledVisibility.compile("((a|x)&(y|(b&c)))|z").evaluate(authorizations));
+        assertFalse(CompiledVisibility.compile("((a|x)&(y|(b&z)))|z").evaluate(authorizations));
+        assertTrue(CompiledVisibility.compile("(((a)))").evaluate(authorizations));
+        assertTrue(CompiledVisibility.compile("a&(b|(x&(y|c)))").evaluate(authorizations));
+        assertFalse(CompiledVisibility.compile("a&(x|(b&(y|z)))").evaluate(authorizations));
+    }
+
+    @Test
+    public void testQuotedTerms() {
+        Set<String> authorizations = new HashSet<>(Arrays.asList("a\"b", "c\\d", "e&f", "(g)"));
+        assertTrue(CompiledVisibility.compile("\"a\\\"b\"").evaluate(authorizations));
+        assertTrue(CompiledVisibility.compile("\"c\\\\d\"").evaluate(authorizations));
+        assertTrue(CompiledVisibility.compile("\"e&f\"&\"(g)\"").evaluate(authorizations));
+        assertFalse(CompiledVisibility.compile("\"a\\\"b\"&e").evaluate(authorizations));
+        assertFalse(CompiledVisibility.compile("\"ab\"").evaluate(authorizations));
+    }
+
+    @Test
+    public void testTermCharacters() {
+        Set<String> authorizations = new HashSet<>(Arrays.asList("a:b", "c.d/e", "f-g_h"));
+        assertTrue(CompiledVisibility.compile("a:b&c.d/e&f-g_h").evaluate(authorizations));
+        assertTrue(CompiledVisibility.compile("x|\"c.d/e\"").evaluate(authorizations));
+        assertFalse(CompiledVisibility.compile("a:b&c.d").evaluate(authorizations));
+    }
+
+    @Test
+    public void testCompileIsCached() {
+        assertSame(CompiledVisibility.compile("a&b"), CompiledVisibility.compile("a&b"));
+    }
+
+    @Test
+    public void testInvalidExpressions() {
+        for (String expression : new String[]{"a&b|c", "(a", "a)", "a&", "&a", "()", "a&()", "()|a", "a|(b&())", "a b", "\"a", "\"\"", "\"a\\b\"", "a,b", "a&&b"}) {
+            try {
+                CompiledVisibility.compile(expression);
+                fail("expected " + expression + " to be invalid");
+            } catch (SecureGraphException ex) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.securegraph.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.Element;
+import org.securegraph.Vertex;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ElementsInIdOrderIterableTest {
+    @Test
+    public void testAlreadyOrdered() {
+        TestIterable iterable = new TestIterable(Arrays.asList("v1", "v2", "v3", "v4", "v5"), 2, "v1", "v2", "v3", "v4", "v5");
+        assertEquals(Arrays.asList("v1", "v2", "v3", "v4", "v5"), getIds(iterable));
+        assertEquals(Arrays.asList(Arrays.asList("v1", "v2"), Arrays.asList("v3", "v4"), Arrays.asList("v5")), iterable.windows);
+        assertEquals(3, iterable.closedWindowCount);
+    }
+
+    @Test
+    public void testReordered() {
+        TestIterable iterable = new TestIterable(Arrays.asList("v3", "v1", "v2", "v5", "v4"), 3, "v1", "v2", "v3", "v4", "v5");
+        iterable.reverse = true;
+        assertEquals(Arrays.asList("v3", "v1", "v2", "v5", "v4"), getIds(iterable));
+    }
+
+    @Test
+    public void testMissingIds() {
+        TestIterable iterable = new TestIterable(Arrays.asList("missing1", "v1", "missing2", "v2", "missing3"), 2, "v1", "v2");
+        assertEquals(Arrays.asList("v1", "v2"), getIds(iterable));
+        assertEquals(3, iterable.closedWindowCount);
+
+        iterable = new TestIterable(Arrays.asList("missing1", "missing2"), 10, "v1");
+        assertFalse(iterable.iterator().hasNext());
+    }
+
+    @Test
+    public void testDuplicateIds() {
+        List<String> ids = Arrays.asList("v1", "v2", "v1", "v1", "v3", "v2");
+        List<String> expected = Arrays.asList("v1", "v2", "v1", "v1", "v3", "v2");
+
+        // the multi-get returns each element once
+        TestIterable iterable = new TestIterable(ids, 10, "v1", "v2", "v3");
+        assertEquals(expected, getIds(iterable));
+
+        // the multi-get returns an element for each id
+        iterable = new TestIterable(ids, 10, "v1", "v2", "v3");
+        iterable.returnDuplicates = true;
+        assertEquals(expected, getIds(iterable));
+
+        // duplicates in different windows
+        iterable = new TestIterable(ids, 2, "v1", "v2", "v3");
+        assertEquals(expected, getIds(iterable));
+    }
+
+    @Test
+    public void testEmpty() {
+        TestIterable iterable = new TestIterable(new ArrayList<String>(), 10, "v1");
+        assertFalse(iterable.iterator().hasNext());
+        assertEquals(0, iterable.windows.size());
+    }
+
+    @Test
+    public void testNextPastEnd() {
+        Iterator<Vertex> it = new TestIterable(Arrays.asList("v1"), 10, "v1").iterator();
+        assertEquals("v1", it.next().getId());
+        try {
+            it.next();
+            fail("should have thrown");
+        } catch (NoSuchElementException ex) {
+            // expected
+        }
+    }
+
+    private static List<String> getIds(Iterable<? extends Element> elements) {
+        List<String> ids = new ArrayList<>();
+        for (Element element : elements) {
+            ids.add(element.getId());
+        }
+        return ids;
+    }
+
+    private static Vertex createVertex(final String id) {
+        return (Vertex) Proxy.newProxyInstance(Vertex.class.getClassLoader(), new Class[]{Vertex.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "getId":
+                        return id;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return id;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        });
+    }
+
+    private static class TestIterable extends ElementsInIdOrderIterable<Vertex> {
+        private final Set<String> existingIds;
+        private final List<List<String>> windows = new ArrayList<>();
+        private int closedWindowCount;
+        private boolean reverse;
+        private boolean returnDuplicates;
+
+        public TestIterable(List<String> ids, int windowSize, String... existingIds) {
+            super(ids, windowSize);
+            this.existingIds = new HashSet<>(Arrays.asList(existingIds));
+        }
+
+        @Override
+        protected Iterable<Vertex> getElements(List<String> ids) {
+            windows.add(new ArrayList<>(ids));
+            Collection<String> fetchIds = returnDuplicates ? ids : new LinkedHashSet<>(ids);
+            final List<Vertex> elements = new ArrayList<>();
+            for (String id : fetchIds) {
+                if (existingIds.contains(id)) {
+                    elements.add(createVertex(id));
+                }
+            }
+            if (reverse) {
+                Collections.reverse(elements);
+            }
+            return new CloseableIterable<Vertex>() {
+                @Override
+                public Iterator<Vertex> iterator() {
+                    return elements.iterator();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    closedWindowCount++;
+                }
+            };
+        }
+    }
+}
@@ -2,35 +2,42 @@ package org.securegraph.elasticsearch;
 
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.client.transport.TransportClient;
 import org.elasticsearch.common.unit.DistanceUnit;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.*;
-import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.securegraph.*;
 import org.securegraph.elasticsearch.score.ScoringStrategy;
 import org.securegraph.query.Compare;
+import org.securegraph.query.DefaultGraphQueryIterable;
 import org.securegraph.query.GeoCompare;
 import org.securegraph.query.GraphQueryBase;
+import org.securegraph.query.GraphQueryWithAggregationsOnly;
+import org.securegraph.query.GraphQueryWithStreaming;
 import org.securegraph.query.TextPredicate;
 import org.securegraph.type.GeoCircle;
-import org.securegraph.util.ConvertingIterable;
+import org.securegraph.util.CloseableIterable;
+import org.securegraph.util.ElementsInIdOrderIterable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 
-import static org.securegraph.util.IterableUtils.toList;
-
-public abstract class ElasticSearchGraphQueryBase extends GraphQueryBase {
+public abstract class ElasticSearchGraphQueryBase extends GraphQueryBase implements GraphQueryWithStreaming, GraphQueryWithAggregationsOnly {
     private static final Logger LOGGER = LoggerFactory.getLogger(ElasticSearchGraphQueryBase.class);
+    public static final int STREAM_PAGE_SIZE = 1000;
+    public static final TimeValue STREAM_SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
     private final TransportClient client;
     private final boolean evaluateHasContainers;
     private String[] indicesToQuery;
     private ScoringStrategy scoringStrategy;
+    private boolean aggregationsOnly;
 
     protected ElasticSearchGraphQueryBase(
             TransportClient client,
@@ -49,54 +56,154 @@ public abstract class ElasticSearchGraphQueryBase extends GraphQueryBase {
     }
 
     @Override
-    public Iterable<Vertex> vertices(EnumSet<FetchHint> fetchHints) {
+    public GraphQueryWithAggregationsOnly aggregationsOnly() {
+        this.aggregationsOnly = true;
+        return this;
+    }
+
+    @Override
+    public long verticesCount() {
+        return getCountSearchResponse(ElasticSearchSearchIndexBase.ELEMENT_TYPE_VERTEX).getHits().getTotalHits();
+    }
+
+    @Override
+    public long edgesCount() {
+        return getCountSearchResponse(ElasticSearchSearchIndexBase.ELEMENT_TYPE_EDGE).getHits().getTotalHits();
+    }
+
+    @Override
+    public Iterable<Vertex> vertices(final EnumSet<FetchHint> fetchHints) {
+        if (aggregationsOnly) {
+            return getAggregationsOnlyIterable(ElasticSearchSearchIndexBase.ELEMENT_TYPE_VERTEX);
+        }
         long startTime = System.nanoTime();
         SearchResponse response = getSearchResponse(ElasticSearchSearchIndexBase.ELEMENT_TYPE_VERTEX);
         final SearchHits hits = response.getHits();
-        List<String> ids = toList(new ConvertingIterable<SearchHit, String>(hits) {
-            @Override
-            protected String convert(SearchHit searchHit) {
-                return searchHit.getId();
-            }
-        });
         long endTime = System.nanoTime();
         long searchTime = endTime - startTime;
         if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("elastic search results " + ids.size() + " of " + hits.getTotalHits() + " (time: " + (searchTime / 1000 / 1000) + "ms)");
+            LOGGER.debug("elastic search results " + hits.getHits().length + " of " + hits.getTotalHits() + " (time: " + (searchTime / 1000 / 1000) + "ms)");
         }
 
         // since ES doesn't support security we will rely on the graph to provide vertex filtering
-        // and rely on the DefaultGraphQueryIterable to provide property filtering
-        Parameters filterParameters = getParameters().clone();
-        filterParameters.setSkip(0); // ES already did a skip
-        Iterable<Vertex> vertices = getGraph().getVertices(ids, fetchHints, filterParameters.getAuthorizations());
-        return createIterable(response, filterParameters, vertices, evaluateHasContainers, searchTime, hits);
+        // and evaluate the has containers ES could not fully apply while more hits are requested for dropped vertices
+        final Parameters filterParameters = getFilterParameters();
+        ElasticSearchOverFetchIterable<Vertex> vertices = new ElasticSearchOverFetchIterable<Vertex>(response, getParameters().getSkip(), getParameters().getLimit(), filterParameters.getHasContainers()) {
+            @Override
+            protected SearchResponse search(long from, int size) {
+                return getSearchResponse(ElasticSearchSearchIndexBase.ELEMENT_TYPE_VERTEX, from, size);
+            }
+
+            @Override
+            protected Iterable<Vertex> getElements(List<String> ids) {
+                return getVerticesInOrder(ids, fetchHints, filterParameters.getAuthorizations());
+            }
+        };
+        return new ElasticSearchGraphQueryIterable<>(response, filterParameters, vertices, false, false, hits.getTotalHits(), searchTime, vertices.getScores());
     }
 
     @Override
-    public Iterable<Edge> edges(EnumSet<FetchHint> fetchHints) {
+    public Iterable<Edge> edges(final EnumSet<FetchHint> fetchHints) {
+        if (aggregationsOnly) {
+            return getAggregationsOnlyIterable(ElasticSearchSearchIndexBase.ELEMENT_TYPE_EDGE);
+        }
         long startTime = System.nanoTime();
         SearchResponse response = getSearchResponse(ElasticSearchSearchIndexBase.ELEMENT_TYPE_EDGE);
         final SearchHits hits = response.getHits();
-        List<String> ids = toList(new ConvertingIterable<SearchHit, String>(hits) {
-            @Override
-            protected String convert(SearchHit searchHit) {
-                return searchHit.getId();
-            }
-        });
         long endTime = System.nanoTime();
         long searchTime = endTime - startTime;
         if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("elastic search results " + ids.size() + " of " + hits.getTotalHits() + " (time: " + ((endTime - startTime) / 1000 / 1000) + "ms)");
+            LOGGER.debug("elastic search results " + hits.getHits().length + " of " + hits.getTotalHits() + " (time: " + ((endTime - startTime) / 1000 / 1000) + "ms)");
         }
 
         // since ES doesn't support security we will rely on the graph to provide edge filtering
-        // and rely on the DefaultGraphQueryIterable to provide property filtering
-        Parameters filterParameters = getParameters().clone();
-        filterParameters.setSkip(0); // ES already did a skip
-        Iterable<Edge> edges = getGraph().getEdges(ids, fetchHints, filterParameters.getAuthorizations());
+        // and evaluate the has containers ES could not fully apply while more hits are requested for dropped edges
+        final Parameters filterParameters = getFilterParameters();
+        ElasticSearchOverFetchIterable<Edge> edges = new ElasticSearchOverFetchIterable<Edge>(response, getParameters().getSkip(), getParameters().getLimit(), filterParameters.getHasContainers()) {
+            @Override
+            protected SearchResponse search(long from, int size) {
+                return getSearchResponse(ElasticSearchSearchIndexBase.ELEMENT_TYPE_EDGE, from, size);
+            }
+
+            @Override
+            protected Iterable<Edge> getElements(List<String> ids) {
+                return getEdgesInOrder(ids, fetchHints, filterParameters.getAuthorizations());
+            }
+        };
         // TODO instead of passing false here to not evaluate the query string it would be better to support the Lucene query
-        return createIterable(response, filterParameters, edges, evaluateHasContainers, searchTime, hits);
+        return new ElasticSearchGraphQueryIterable<>(response, filterParameters, edges, false, false, hits.getTotalHits(), searchTime, edges.getScores());
+    }
+
+    /**
+     * Parameters to filter the elements loaded from the graph with. ES already did the skip and the has containers are
+     * only kept if they need to be evaluated again.
+     */
+    Parameters getFilterParameters() {
+        Parameters filterParameters = new Parameters(getParameters().getQueryString(), getParameters().getAuthorizations());
+        filterParameters.setSkip(0); // ES already did a skip
+        filterParameters.setLimit(getParameters().getLimit());
+        if (evaluateHasContainers) {
+            for (HasContainer has : getParameters().getHasContainers()) {
+                filterParameters.addHasContainer(has);
+            }
+        }
+        return filterParameters;
+    }
+
+    @Override
+    public CloseableIterable<Vertex> streamVertices(final EnumSet<FetchHint> fetchHints) {
+        // ES only pages through the hits, skip and property filtering is left to the DefaultGraphQueryIterable
+        final Parameters filterParameters = getFilterParameters();
+        filterParameters.setSkip(getParameters().getSkip());
+        filterParameters.setLimit(Long.MAX_VALUE - filterParameters.getSkip());
+        SearchRequestBuilder q = createSearchRequestBuilder(ElasticSearchSearchIndexBase.ELEMENT_TYPE_VERTEX);
+        ElasticSearchScrollIterable<Vertex> vertices = new ElasticSearchScrollIterable<Vertex>(getClient(), q, STREAM_PAGE_SIZE, STREAM_SCROLL_KEEP_ALIVE) {
+            @Override
+            protected Iterable<Vertex> getElements(List<String> ids) {
+                return getVerticesInOrder(ids, fetchHints, filterParameters.getAuthorizations());
+            }
+        };
+        return new StreamingGraphQueryIterable<>(filterParameters, vertices);
+    }
+
+    @Override
+    public CloseableIterable<Edge> streamEdges(final EnumSet<FetchHint> fetchHints) {
+        // ES only pages through the hits, skip and property filtering is left to the DefaultGraphQueryIterable
+        final Parameters filterParameters = getFilterParameters();
+        filterParameters.setSkip(getParameters().getSkip());
+        filterParameters.setLimit(Long.MAX_VALUE - filterParameters.getSkip());
+        SearchRequestBuilder q = createSearchRequestBuilder(ElasticSearchSearchIndexBase.ELEMENT_TYPE_EDGE);
+        ElasticSearchScrollIterable<Edge> edges = new ElasticSearchScrollIterable<Edge>(getClient(), q, STREAM_PAGE_SIZE, STREAM_SCROLL_KEEP_ALIVE) {
+            @Override
+            protected Iterable<Edge> getElements(List<String> ids) {
+                return getEdgesInOrder(ids, fetchHints, filterParameters.getAuthorizations());
+            }
+        };
+        return new StreamingGraphQueryIterable<>(filterParameters, edges);
+    }
+
+    /**
+     * Gets the vertices in the order of the ids, which is the score order of the hits.
+     */
+    protected Iterable<Vertex> getVerticesInOrder(List<String> ids, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+        return new ElementsInIdOrderIterable<Vertex>(ids) {
+            @Override
+            protected Iterable<Vertex> getElements(List<String> ids) {
+                return getGraph().getVertices(ids, fetchHints, authorizations);
+            }
+        };
+    }
+
+    /**
+     * Gets the edges in the order of the ids, which is the score order of the hits.
+     */
+    protected Iterable<Edge> getEdgesInOrder(List<String> ids, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+        return new ElementsInIdOrderIterable<Edge>(ids) {
+            @Override
+            protected Iterable<Edge> getElements(List<String> ids) {
+                return getGraph().getEdges(ids, fetchHints, authorizations);
+            }
+        };
     }
 
     protected <T extends Element> ElasticSearchGraphQueryIterable<T> createIterable(SearchResponse response, Parameters filterParameters, Iterable<T> elements, boolean evaluateHasContainers, long searchTime, SearchHits hits) {
@@ -104,16 +211,77 @@ public abstract class ElasticSearchGraphQueryBase extends GraphQueryBase {
     }
 
     private SearchResponse getSearchResponse(String elementType) {
-        List<FilterBuilder> filters = getFilters(elementType);
-        QueryBuilder query = createQuery(getParameters().getQueryString(), elementType, filters);
-        query = scoringStrategy.updateQuery(query);
-        SearchRequestBuilder q = getSearchRequestBuilder(filters, query);
+        SearchRequestBuilder q = createSearchRequestBuilder(elementType);
+        LOGGER.debug("query: " + q);
+        return q.execute()
+                .actionGet();
+    }
 
+    SearchResponse getSearchResponse(String elementType, long from, int size) {
+        SearchRequestBuilder q = createSearchRequestBuilder(elementType)
+                .setFrom((int) from)
+                .setSize(size);
         LOGGER.debug("query: " + q);
         return q.execute()
                 .actionGet();
     }
 
+    private <T extends Element> Iterable<T> getAggregationsOnlyIterable(String elementType) {
+        long startTime = System.nanoTime();
+        SearchResponse response = getCountSearchResponse(elementType);
+        SearchHits hits = response.getHits();
+        long searchTime = System.nanoTime() - startTime;
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("elastic search count " + hits.getTotalHits() + " (time: " + (searchTime / 1000 / 1000) + "ms)");
+        }
+        return createIterable(response, getParameters().clone(), Collections.<T>emptyList(), false, searchTime, hits);
+    }
+
+    /**
+     * Runs the query asking only for the total hits and aggregations, no hits are returned.
+     */
+    private SearchResponse getCountSearchResponse(String elementType) {
+        SearchRequestBuilder q = createCountSearchRequestBuilder(elementType);
+        LOGGER.debug("query: " + q);
+        return q.execute()
+                .actionGet();
+    }
+
+    private SearchRequestBuilder createCountSearchRequestBuilder(String elementType) {
+        return createSearchRequestBuilder(elementType)
+                .setSearchType(SearchType.COUNT)
+                .setFrom(0)
+                .setSize(0);
+    }
+
+    /**
+     * Creates the search request vertices() or edges() would execute, so it can be sent as part of a multi search.
+     */
+    SearchRequestBuilder createMultiSearchRequestBuilder(String elementType) {
+        if (aggregationsOnly) {
+            return createCountSearchRequestBuilder(elementType);
+        }
+        return createSearchRequestBuilder(elementType);
+    }
+
+    /**
+     * Creates the result of vertices() or edges() from a response of a multi search and the elements of its hits. The
+     * elements are expected to be filtered by the has containers of {@link #getFilterParameters()} already.
+     */
+    <T extends Element> Iterable<T> createMultiSearchIterable(SearchResponse response, Iterable<T> elements, Map<String, Double> scores, long searchTime) {
+        if (aggregationsOnly) {
+            elements = Collections.emptyList();
+        }
+        return new ElasticSearchGraphQueryIterable<>(response, getFilterParameters(), elements, false, false, response.getHits().getTotalHits(), searchTime, scores);
+    }
+
+    private SearchRequestBuilder createSearchRequestBuilder(String elementType) {
+        List<FilterBuilder> filters = getFilters(elementType);
+        QueryBuilder query = createQuery(getParameters().getQueryString(), elementType, filters);
+        query = scoringStrategy.updateQuery(query);
+        return getSearchRequestBuilder(filters, query);
+    }
+
     protected List<FilterBuilder> getFilters(String elementType) {
         List<FilterBuilder> filters = new ArrayList<>();
         addElementTypeFilter(filters, elementType);
@@ -251,4 +419,18 @@ public abstract class ElasticSearchGraphQueryBase extends GraphQueryBase {
     public String[] getIndicesToQuery() {
         return indicesToQuery;
     }
+
+    private static class StreamingGraphQueryIterable<T extends Element> extends DefaultGraphQueryIterable<T> implements CloseableIterable<T> {
+        private final ElasticSearchScrollIterable<T> scrollIterable;
+
+        public StreamingGraphQueryIterable(Parameters parameters, ElasticSearchScrollIterable<T> scrollIterable) {
+            super(parameters, scrollIterable, false, true);
+            this.scrollIterable = scrollIterable;
+        }
+
+        @Override
+        public void close() {
+            scrollIterable.close();
+        }
+    }
 }
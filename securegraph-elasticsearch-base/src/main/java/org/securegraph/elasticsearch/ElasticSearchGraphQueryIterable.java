@@ -31,16 +31,30 @@ public class ElasticSearchGraphQueryIterable<T extends Element> extends DefaultG
     private final SearchResponse searchResponse;
     private final long totalHits;
     private final long searchTimeInNanoSeconds;
-    private final Map<String, Double> scores = new HashMap<String, Double>();
+    private final Map<String, Double> scores;
 
     public ElasticSearchGraphQueryIterable(SearchResponse searchResponse, QueryBase.Parameters parameters, Iterable<T> iterable, boolean evaluateQueryString, boolean evaluateHasContainers, long totalHits, long searchTimeInNanoSeconds, SearchHits hits) {
+        this(searchResponse, parameters, iterable, evaluateQueryString, evaluateHasContainers, totalHits, searchTimeInNanoSeconds, getScores(hits));
+    }
+
+    public ElasticSearchGraphQueryIterable(SearchResponse searchResponse, QueryBase.Parameters parameters, Iterable<T> iterable, boolean evaluateQueryString, boolean evaluateHasContainers, long totalHits, long searchTimeInNanoSeconds, Map<String, Double> scores) {
         super(parameters, iterable, evaluateQueryString, evaluateHasContainers);
         this.searchResponse = searchResponse;
         this.totalHits = totalHits;
         this.searchTimeInNanoSeconds = searchTimeInNanoSeconds;
+        this.scores = scores;
+    }
+
+    private static Map<String, Double> getScores(SearchHits hits) {
+        Map<String, Double> scores = new HashMap<String, Double>();
         for (SearchHit hit : hits.getHits()) {
             scores.put(hit.getId(), (double) hit.getScore());
         }
+        return scores;
+    }
+
+    public SearchResponse getSearchResponse() {
+        return searchResponse;
     }
 
     @Override
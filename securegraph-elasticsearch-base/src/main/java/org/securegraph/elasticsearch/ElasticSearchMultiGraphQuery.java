@@ -0,0 +1,252 @@
+package org.securegraph.elasticsearch;
+
+import org.elasticsearch.action.search.MultiSearchRequestBuilder;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.search.SearchHit;
+import org.securegraph.*;
+import org.securegraph.query.GraphQuery;
+import org.securegraph.util.CloseableUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.*;
+
+/**
+ * Runs several graph queries with a single elastic search multi search and a single graph fetch.
+ * <p/>
+ * The ids of all hits are deduplicated and fetched from the graph at once for every graph and set of authorizations
+ * used by the queries. Each query gets back its own iterable in the order of its hits with its own total hits and
+ * scores. If elements of a query are dropped by the graph, more hits are requested for that query alone. Queries
+ * that are not elastic search queries are executed on their own. A query that fails does not fail the other queries,
+ * its iterable throws when it is iterated.
+ */
+public class ElasticSearchMultiGraphQuery {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElasticSearchMultiGraphQuery.class);
+
+    public static List<Iterable<Vertex>> vertices(List<? extends GraphQuery> queries) {
+        return vertices(queries, FetchHint.ALL);
+    }
+
+    public static List<Iterable<Vertex>> vertices(List<? extends GraphQuery> queries, final EnumSet<FetchHint> fetchHints) {
+        return execute(queries, ElasticSearchSearchIndexBase.ELEMENT_TYPE_VERTEX, new ElementFetcher<Vertex>() {
+            @Override
+            public Iterable<Vertex> query(GraphQuery query) {
+                return query.vertices(fetchHints);
+            }
+
+            @Override
+            public Iterable<Vertex> fetch(Graph graph, List<String> ids, Authorizations authorizations) {
+                return graph.getVertices(ids, fetchHints, authorizations);
+            }
+
+            @Override
+            public Iterable<Vertex> fetchInOrder(ElasticSearchGraphQueryBase query, List<String> ids, Authorizations authorizations) {
+                return query.getVerticesInOrder(ids, fetchHints, authorizations);
+            }
+        });
+    }
+
+    public static List<Iterable<Edge>> edges(List<? extends GraphQuery> queries) {
+        return edges(queries, FetchHint.ALL);
+    }
+
+    public static List<Iterable<Edge>> edges(List<? extends GraphQuery> queries, final EnumSet<FetchHint> fetchHints) {
+        return execute(queries, ElasticSearchSearchIndexBase.ELEMENT_TYPE_EDGE, new ElementFetcher<Edge>() {
+            @Override
+            public Iterable<Edge> query(GraphQuery query) {
+                return query.edges(fetchHints);
+            }
+
+            @Override
+            public Iterable<Edge> fetch(Graph graph, List<String> ids, Authorizations authorizations) {
+                return graph.getEdges(ids, fetchHints, authorizations);
+            }
+
+            @Override
+            public Iterable<Edge> fetchInOrder(ElasticSearchGraphQueryBase query, List<String> ids, Authorizations authorizations) {
+                return query.getEdgesInOrder(ids, fetchHints, authorizations);
+            }
+        });
+    }
+
+    private static <T extends Element> List<Iterable<T>> execute(List<? extends GraphQuery> queries, String elementType, ElementFetcher<T> fetcher) {
+        List<Iterable<T>> results = new ArrayList<>(queries.size());
+        Map<Client, List<Integer>> queryIndexesByClient = new LinkedHashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            GraphQuery query = queries.get(i);
+            results.add(null);
+            if (!(query instanceof ElasticSearchGraphQueryBase)) {
+                results.set(i, fetcher.query(query));
+                continue;
+            }
+            Client client = ((ElasticSearchGraphQueryBase) query).getClient();
+            List<Integer> queryIndexes = queryIndexesByClient.get(client);
+            if (queryIndexes == null) {
+                queryIndexes = new ArrayList<>();
+                queryIndexesByClient.put(client, queryIndexes);
+            }
+            queryIndexes.add(i);
+        }
+
+        for (Map.Entry<Client, List<Integer>> entry : queryIndexesByClient.entrySet()) {
+            List<ElasticSearchGraphQueryBase> clientQueries = new ArrayList<>();
+            for (Integer i : entry.getValue()) {
+                clientQueries.add((ElasticSearchGraphQueryBase) queries.get(i));
+            }
+            List<Iterable<T>> clientResults = execute(entry.getKey(), clientQueries, elementType, fetcher);
+            for (int i = 0; i < clientResults.size(); i++) {
+                results.set(entry.getValue().get(i), clientResults.get(i));
+            }
+        }
+        return results;
+    }
+
+    private static <T extends Element> List<Iterable<T>> execute(Client client, List<ElasticSearchGraphQueryBase> queries, String elementType, ElementFetcher<T> fetcher) {
+        long startTime = System.nanoTime();
+        MultiSearchRequestBuilder multiSearch = client.prepareMultiSearch();
+        for (ElasticSearchGraphQueryBase query : queries) {
+            multiSearch.add(query.createMultiSearchRequestBuilder(elementType));
+        }
+        MultiSearchResponse.Item[] items = multiSearch.execute().actionGet().getResponses();
+        long searchTime = System.nanoTime() - startTime;
+
+        List<SearchResponse> responses = new ArrayList<>(items.length);
+        Map<FetchKey, Set<String>> idsToFetch = new LinkedHashMap<>();
+        for (int i = 0; i < items.length; i++) {
+            if (items[i].isFailure()) {
+                LOGGER.warn("Could not execute query: " + items[i].getFailureMessage());
+                responses.add(null);
+                continue;
+            }
+            SearchResponse response = items[i].getResponse();
+            responses.add(response);
+            FetchKey key = new FetchKey(queries.get(i));
+            Set<String> ids = idsToFetch.get(key);
+            if (ids == null) {
+                ids = new LinkedHashSet<>();
+                idsToFetch.put(key, ids);
+            }
+            for (SearchHit hit : response.getHits().getHits()) {
+                ids.add(hit.getId());
+            }
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("elastic search multi search of " + queries.size() + " queries (time: " + (searchTime / 1000 / 1000) + "ms)");
+        }
+
+        Map<FetchKey, Map<String, T>> elementsByKey = new HashMap<>();
+        for (Map.Entry<FetchKey, Set<String>> entry : idsToFetch.entrySet()) {
+            Map<String, T> elements = new HashMap<>();
+            if (entry.getValue().size() > 0) {
+                List<String> ids = new ArrayList<>(entry.getValue());
+                Iterable<T> fetchedElements = fetcher.fetch(entry.getKey().graph, ids, entry.getKey().authorizations);
+                try {
+                    for (T element : fetchedElements) {
+                        elements.put(element.getId(), element);
+                    }
+                } finally {
+                    if (fetchedElements instanceof Closeable) {
+                        CloseableUtils.closeQuietly((Closeable) fetchedElements);
+                    }
+                }
+            }
+            elementsByKey.put(entry.getKey(), elements);
+        }
+
+        List<Iterable<T>> results = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            ElasticSearchGraphQueryBase query = queries.get(i);
+            SearchResponse response = responses.get(i);
+            if (response == null) {
+                results.add(new FailedQueryIterable<T>(items[i].getFailureMessage()));
+                continue;
+            }
+            results.add(createIterable(query, elementType, response, elementsByKey.get(new FetchKey(query)), searchTime, fetcher));
+        }
+        return results;
+    }
+
+    /**
+     * The elements of the first page of hits come from the fetch shared by all queries. Like vertices() and edges(),
+     * more hits are requested from elastic search while elements are dropped by the graph or the has containers.
+     */
+    private static <T extends Element> Iterable<T> createIterable(final ElasticSearchGraphQueryBase query, final String elementType, SearchResponse response, final Map<String, T> elements, long searchTime, final ElementFetcher<T> fetcher) {
+        final List<String> firstPageIds = new ArrayList<>();
+        for (SearchHit hit : response.getHits().getHits()) {
+            firstPageIds.add(hit.getId());
+        }
+        final Authorizations authorizations = query.getParameters().getAuthorizations();
+        ElasticSearchOverFetchIterable<T> queryElements = new ElasticSearchOverFetchIterable<T>(response, query.getParameters().getSkip(), query.getParameters().getLimit(), query.getFilterParameters().getHasContainers()) {
+            @Override
+            protected SearchResponse search(long from, int size) {
+                return query.getSearchResponse(elementType, from, size);
+            }
+
+            @Override
+            protected Iterable<T> getElements(List<String> ids) {
+                if (!ids.equals(firstPageIds)) {
+                    return fetcher.fetchInOrder(query, ids, authorizations);
+                }
+                List<T> results = new ArrayList<>();
+                for (String id : ids) {
+                    T element = elements.get(id);
+                    if (element != null) {
+                        results.add(element);
+                    }
+                }
+                return results;
+            }
+        };
+        return query.createMultiSearchIterable(response, queryElements, queryElements.getScores(), searchTime);
+    }
+
+    private static class FailedQueryIterable<T> implements Iterable<T> {
+        private final String failureMessage;
+
+        public FailedQueryIterable(String failureMessage) {
+            this.failureMessage = failureMessage;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            throw new SecureGraphException("Could not execute query: " + failureMessage);
+        }
+    }
+
+    private interface ElementFetcher<T extends Element> {
+        Iterable<T> query(GraphQuery query);
+
+        Iterable<T> fetch(Graph graph, List<String> ids, Authorizations authorizations);
+
+        Iterable<T> fetchInOrder(ElasticSearchGraphQueryBase query, List<String> ids, Authorizations authorizations);
+    }
+
+    private static class FetchKey {
+        private final Graph graph;
+        private final Authorizations authorizations;
+        private final Set<String> authorizationStrings;
+
+        public FetchKey(ElasticSearchGraphQueryBase query) {
+            this.graph = query.getGraph();
+            this.authorizations = query.getParameters().getAuthorizations();
+            this.authorizationStrings = new HashSet<>(Arrays.asList(authorizations.getAuthorizations()));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FetchKey)) {
+                return false;
+            }
+            FetchKey that = (FetchKey) o;
+            return graph == that.graph && authorizationStrings.equals(that.authorizationStrings);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(graph) + authorizationStrings.hashCode();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.securegraph.elasticsearch;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.SearchHit;
+import org.securegraph.Element;
+import org.securegraph.query.QueryBase;
+import org.securegraph.util.CloseableUtils;
+
+import java.io.Closeable;
+import java.util.*;
+
+/**
+ * Returns the elements of a page of search hits and keeps requesting more hits from elastic search while fewer
+ * than limit elements survived the graph fetch and the client side has container evaluation.
+ * <p/>
+ * Each additional request asks for the number of missing elements scaled by the ratio of hits to surviving
+ * elements seen so far, so pages where many hits get dropped are topped up in few round trips.
+ */
+public abstract class ElasticSearchOverFetchIterable<T extends Element> implements Iterable<T> {
+    public static final int MAX_PAGE_SIZE = 1000;
+    private final SearchResponse firstResponse;
+    private final long from;
+    private final long limit;
+    private final List<QueryBase.HasContainer> hasContainers;
+    private final Map<String, Double> scores = new HashMap<>();
+
+    public ElasticSearchOverFetchIterable(SearchResponse firstResponse, long from, long limit, List<QueryBase.HasContainer> hasContainers) {
+        this.firstResponse = firstResponse;
+        this.from = from;
+        this.limit = limit;
+        this.hasContainers = hasContainers;
+        addScores(firstResponse);
+    }
+
+    /**
+     * Requests size more hits from elastic search starting at from.
+     */
+    protected abstract SearchResponse search(long from, int size);
+
+    /**
+     * Fetches the elements with the given ids from the graph in the order of the ids.
+     */
+    protected abstract Iterable<T> getElements(List<String> ids);
+
+    /**
+     * The scores of all hits requested so far, including those of additional pages.
+     */
+    public Map<String, Double> getScores() {
+        return scores;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private Iterable<T> page;
+            private Iterator<T> pageIterator = openPage(firstResponse);
+            private long hitCount = firstResponse.getHits().getHits().length;
+            private long matchCount;
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                loadNext();
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                loadNext();
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                T result = next;
+                next = null;
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            private void loadNext() {
+                while (next == null && pageIterator != null) {
+                    if (pageIterator.hasNext()) {
+                        T element = pageIterator.next();
+                        if (isMatch(element)) {
+                            matchCount++;
+                            next = element;
+                        }
+                        continue;
+                    }
+                    closePage();
+                    long missing = limit - matchCount;
+                    if (missing <= 0 || from + hitCount >= firstResponse.getHits().getTotalHits()) {
+                        return;
+                    }
+                    SearchResponse response = search(from + hitCount, getNextPageSize(missing, hitCount, matchCount));
+                    int hits = response.getHits().getHits().length;
+                    if (hits == 0) {
+                        return;
+                    }
+                    hitCount += hits;
+                    addScores(response);
+                    pageIterator = openPage(response);
+                }
+            }
+
+            private Iterator<T> openPage(SearchResponse response) {
+                List<String> ids = new ArrayList<>();
+                for (SearchHit hit : response.getHits().getHits()) {
+                    ids.add(hit.getId());
+                }
+                page = getElements(ids);
+                return page.iterator();
+            }
+
+            private void closePage() {
+                if (page instanceof Closeable) {
+                    CloseableUtils.closeQuietly((Closeable) page);
+                }
+                page = null;
+                pageIterator = null;
+            }
+        };
+    }
+
+    /**
+     * The number of missing elements scaled by the ratio of hits to matching elements, at least the number of missing
+     * elements and at most MAX_PAGE_SIZE.
+     */
+    static int getNextPageSize(long missing, long hitCount, long matchCount) {
+        if (missing >= MAX_PAGE_SIZE) {
+            return MAX_PAGE_SIZE;
+        }
+        // computed as a double since missing * hitCount can overflow
+        double size = (double) missing * hitCount / Math.max(matchCount, 1);
+        return (int) Math.max(missing, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    private boolean isMatch(T element) {
+        for (QueryBase.HasContainer has : hasContainers) {
+            if (!has.isMatch(element)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addScores(SearchResponse response) {
+        for (SearchHit hit : response.getHits().getHits()) {
+            scores.put(hit.getId(), (double) hit.getScore());
+        }
+    }
+}
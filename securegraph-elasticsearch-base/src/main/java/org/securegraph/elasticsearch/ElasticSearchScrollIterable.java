@@ -0,0 +1,205 @@
+package org.securegraph.elasticsearch;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ListenableActionFuture;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.securegraph.Element;
+import org.securegraph.util.CloseableIterable;
+import org.securegraph.util.CloseableUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.*;
+
+/**
+ * Walks all hits of a search using a scroll. While the elements of one page are fetched from the graph and returned,
+ * the next page is already being requested from elastic search.
+ * <p/>
+ * The scroll of an iterator is cleared once it is read to the end. Iterators that are not read to the end are cleared
+ * by {@link #close()}, otherwise elastic search keeps their scroll until the keep alive expires.
+ */
+public abstract class ElasticSearchScrollIterable<T extends Element> implements CloseableIterable<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElasticSearchScrollIterable.class);
+    private final Client client;
+    private final SearchRequestBuilder searchRequestBuilder;
+    private final int pageSize;
+    private final TimeValue keepAlive;
+    private final Set<ScrollIterator> openIterators = Collections.synchronizedSet(new HashSet<ScrollIterator>());
+
+    public ElasticSearchScrollIterable(Client client, SearchRequestBuilder searchRequestBuilder, int pageSize, TimeValue keepAlive) {
+        this.client = client;
+        this.searchRequestBuilder = searchRequestBuilder;
+        this.pageSize = pageSize;
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * Fetches the elements with the given ids from the graph.
+     */
+    protected abstract Iterable<T> getElements(List<String> ids);
+
+    @Override
+    public Iterator<T> iterator() {
+        SearchResponse firstResponse = searchRequestBuilder
+                .setFrom(0)
+                .setSize(pageSize)
+                .setScroll(keepAlive)
+                .execute()
+                .actionGet();
+        ScrollIterator it = new ScrollIterator(firstResponse);
+        if (!it.isClosed()) {
+            openIterators.add(it);
+        }
+        return it;
+    }
+
+    /**
+     * Clears the scroll of every iterator that has not been read to the end.
+     */
+    @Override
+    public void close() {
+        List<ScrollIterator> iterators;
+        synchronized (openIterators) {
+            iterators = new ArrayList<>(openIterators);
+        }
+        for (ScrollIterator it : iterators) {
+            it.close();
+        }
+    }
+
+    private ListenableActionFuture<SearchResponse> scroll(SearchResponse response) {
+        if (response.getHits().getHits().length < pageSize && response.getHits().getHits().length == response.getHits().getTotalHits()) {
+            return null;
+        }
+        return client.prepareSearchScroll(response.getScrollId())
+                .setScroll(keepAlive)
+                .execute();
+    }
+
+    private void clearScroll(String scrollId) {
+        try {
+            client.prepareClearScroll().addScrollId(scrollId).execute();
+        } catch (Exception ex) {
+            LOGGER.warn("Could not clear scroll", ex);
+        }
+    }
+
+    private class ScrollIterator implements Iterator<T>, Closeable {
+        private ListenableActionFuture<SearchResponse> nextResponse;
+        private Iterable<T> page;
+        private Iterator<T> pageIterator;
+        private String lastScrollId;
+        private boolean closed;
+        private T next;
+
+        public ScrollIterator(SearchResponse firstResponse) {
+            // set before the first page is opened so an empty first page still clears the scroll
+            this.lastScrollId = firstResponse.getScrollId();
+            this.nextResponse = scroll(firstResponse);
+            this.pageIterator = openPage(firstResponse);
+        }
+
+        @Override
+        public boolean hasNext() {
+            loadNext();
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            loadNext();
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            T result = next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private synchronized void loadNext() {
+            while (next == null && pageIterator != null) {
+                if (pageIterator.hasNext()) {
+                    next = pageIterator.next();
+                    return;
+                }
+                closePage();
+                if (nextResponse == null) {
+                    close();
+                    return;
+                }
+                SearchResponse response = nextResponse.actionGet();
+                nextResponse = null;
+                lastScrollId = response.getScrollId();
+                nextResponse = scroll(response);
+                pageIterator = openPage(response);
+            }
+        }
+
+        private Iterator<T> openPage(SearchResponse response) {
+            List<String> ids = new ArrayList<>();
+            for (SearchHit hit : response.getHits().getHits()) {
+                ids.add(hit.getId());
+            }
+            if (ids.size() == 0) {
+                close();
+                return null;
+            }
+            page = getElements(ids);
+            return page.iterator();
+        }
+
+        private void closePage() {
+            if (page instanceof Closeable) {
+                CloseableUtils.closeQuietly((Closeable) page);
+            }
+            page = null;
+            pageIterator = null;
+        }
+
+        public synchronized boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            openIterators.remove(this);
+            closePage();
+            next = null;
+            if (lastScrollId != null) {
+                clearScroll(lastScrollId);
+                lastScrollId = null;
+            }
+            if (nextResponse != null) {
+                // the prefetched page may have opened a scroll of its own, clear it once it arrives
+                nextResponse.addListener(new ActionListener<SearchResponse>() {
+                    @Override
+                    public void onResponse(SearchResponse response) {
+                        if (response.getScrollId() != null) {
+                            clearScroll(response.getScrollId());
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Throwable e) {
+                        LOGGER.debug("Prefetched scroll page failed after the iterator was closed", e);
+                    }
+                });
+                nextResponse = null;
+            }
+        }
+    }
+}
@@ -266,6 +266,10 @@ public abstract class ElasticSearchSearchIndexBase implements SearchIndex {
                         String propertyName = (String) property.getKey();
                         try {
                             Map propertyAttributes = (Map) property.getValue();
+                            // disabled objects are only kept in the source and do not hold property values
+                            if (Boolean.FALSE.equals(propertyAttributes.get("enabled"))) {
+                                continue;
+                            }
                             String propertyType = (String) propertyAttributes.get("type");
                             if (propertyType != null) {
                                 propertyTypes.put(propertyName, propertyType);
@@ -311,7 +315,6 @@ public abstract class ElasticSearchSearchIndexBase implements SearchIndex {
 
     @Override
     public void addElements(Graph graph, Iterable<? extends Element> elements, Authorizations authorizations) {
-        // TODO change this to use elastic search bulk import
         int count = 0;
         for (Element element : elements) {
             if (count % 1000 == 0) {
@@ -341,6 +344,7 @@ public abstract class ElasticSearchSearchIndexBase implements SearchIndex {
 
     @Override
     public void flush() {
+        getConfig().getScoringStrategy().flush();
         client.admin().indices().prepareFlush(getIndexNamesAsArray()).execute().actionGet();
     }
 
@@ -358,6 +362,7 @@ public abstract class ElasticSearchSearchIndexBase implements SearchIndex {
 
     @Override
     public void shutdown() {
+        getConfig().getScoringStrategy().shutdown();
         client.close();
     }
 
@@ -367,19 +372,21 @@ public abstract class ElasticSearchSearchIndexBase implements SearchIndex {
         for (String indexName : getIndexNames(propertyDefinition)) {
             IndexInfo indexInfo = ensureIndexCreatedAndInitialized(indexName, getConfig().isStoreSourceData());
 
+            List<FieldMapping> fieldMappings = new ArrayList<>();
             if (propertyDefinition.getDataType() == String.class) {
                 if (propertyDefinition.getTextIndexHints().contains(TextIndexHint.EXACT_MATCH)) {
-                    addPropertyToIndex(indexInfo, propertyDefinition.getPropertyName() + EXACT_MATCH_PROPERTY_NAME_SUFFIX, String.class, false, propertyDefinition.getBoost());
+                    fieldMappings.add(new FieldMapping(propertyDefinition.getPropertyName() + EXACT_MATCH_PROPERTY_NAME_SUFFIX, String.class, false, propertyDefinition.getBoost()));
                 }
                 if (propertyDefinition.getTextIndexHints().contains(TextIndexHint.FULL_TEXT)) {
-                    addPropertyToIndex(indexInfo, propertyDefinition.getPropertyName(), String.class, true, propertyDefinition.getBoost());
+                    fieldMappings.add(new FieldMapping(propertyDefinition.getPropertyName(), String.class, true, propertyDefinition.getBoost()));
                 }
             } else if (propertyDefinition.getDataType() == GeoPoint.class) {
-                addPropertyToIndex(indexInfo, propertyDefinition.getPropertyName() + GEO_PROPERTY_NAME_SUFFIX, GeoPoint.class, true, propertyDefinition.getBoost());
-                addPropertyToIndex(indexInfo, propertyDefinition.getPropertyName(), String.class, true, propertyDefinition.getBoost());
+                fieldMappings.add(new FieldMapping(propertyDefinition.getPropertyName() + GEO_PROPERTY_NAME_SUFFIX, GeoPoint.class, true, propertyDefinition.getBoost()));
+                fieldMappings.add(new FieldMapping(propertyDefinition.getPropertyName(), String.class, true, propertyDefinition.getBoost()));
             } else {
-                addPropertyToIndex(indexInfo, propertyDefinition);
+                fieldMappings.add(new FieldMapping(propertyDefinition.getPropertyName(), propertyDefinition.getDataType(), true, propertyDefinition.getBoost()));
             }
+            addFieldMappingsToIndex(indexInfo, fieldMappings);
 
             indexInfo.addPropertyDefinition(propertyDefinition.getPropertyName(), propertyDefinition);
         }
@@ -393,7 +400,7 @@ public abstract class ElasticSearchSearchIndexBase implements SearchIndex {
     }
 
     @SuppressWarnings("unused")
-    protected String getIndexName(Element element) {
+    public String getIndexName(Element element) {
         return getConfig().getDefaultIndexName();
     }
 
@@ -404,26 +411,36 @@ public abstract class ElasticSearchSearchIndexBase implements SearchIndex {
 
     public IndexInfo addPropertiesToIndex(Element element, Iterable<Property> properties) {
         try {
-            String indexName = getIndexName(element);
-            IndexInfo indexInfo = ensureIndexCreatedAndInitialized(indexName, getConfig().isStoreSourceData());
-            for (Property property : properties) {
-                addPropertyToIndex(indexInfo, property);
-            }
+            List<FieldMapping> fieldMappings = new ArrayList<>();
+            IndexInfo indexInfo = getFieldMappings(element, properties, fieldMappings);
+            addFieldMappingsToIndex(indexInfo, fieldMappings);
             return indexInfo;
         } catch (IOException e) {
             throw new SecureGraphException("Could not add properties to index", e);
         }
     }
 
-    private void addPropertyToIndex(IndexInfo indexInfo, String propertyName, Class dataType, boolean analyzed) throws IOException {
-        addPropertyToIndex(indexInfo, propertyName, dataType, analyzed, null);
+    /**
+     * Adds the field mappings of the properties that are not yet defined in the index of the element to the list
+     * without registering them, so that callers indexing many elements can register them together with
+     * {@link #addFieldMappingsToIndex(IndexInfo, java.util.List)}.
+     */
+    protected IndexInfo getFieldMappings(Element element, Iterable<Property> properties, List<FieldMapping> fieldMappings) {
+        String indexName = getIndexName(element);
+        IndexInfo indexInfo = ensureIndexCreatedAndInitialized(indexName, getConfig().isStoreSourceData());
+        for (Property property : properties) {
+            addFieldMappings(indexInfo, property, fieldMappings);
+        }
+        return indexInfo;
     }
 
-    private void addPropertyToIndex(IndexInfo indexInfo, PropertyDefinition propertyDefinition) throws IOException {
-        addPropertyToIndex(indexInfo, propertyDefinition.getPropertyName(), propertyDefinition.getDataType(), true, propertyDefinition.getBoost());
+    public void addPropertyToIndex(IndexInfo indexInfo, Property property) throws IOException {
+        List<FieldMapping> fieldMappings = new ArrayList<>();
+        addFieldMappings(indexInfo, property, fieldMappings);
+        addFieldMappingsToIndex(indexInfo, fieldMappings);
     }
 
-    public void addPropertyToIndex(IndexInfo indexInfo, Property property) throws IOException {
+    private void addFieldMappings(IndexInfo indexInfo, Property property, List<FieldMapping> fieldMappings) {
         String propertyName = property.getName();
 
         if (indexInfo.isPropertyDefined(propertyName)) {
@@ -438,22 +455,99 @@ public abstract class ElasticSearchSearchIndexBase implements SearchIndex {
                 return;
             }
             dataType = streamingPropertyValue.getValueType();
-            addPropertyToIndex(indexInfo, propertyName, dataType, true);
+            fieldMappings.add(new FieldMapping(propertyName, dataType, true, null));
         } else if (propertyValue instanceof String) {
             dataType = String.class;
-            addPropertyToIndex(indexInfo, propertyName + EXACT_MATCH_PROPERTY_NAME_SUFFIX, dataType, false);
-            addPropertyToIndex(indexInfo, propertyName, dataType, true);
+            fieldMappings.add(new FieldMapping(propertyName + EXACT_MATCH_PROPERTY_NAME_SUFFIX, dataType, false, null));
+            fieldMappings.add(new FieldMapping(propertyName, dataType, true, null));
         } else if (propertyValue instanceof GeoPoint) {
-            addPropertyToIndex(indexInfo, propertyName + GEO_PROPERTY_NAME_SUFFIX, GeoPoint.class, true);
-            addPropertyToIndex(indexInfo, propertyName, String.class, true);
+            fieldMappings.add(new FieldMapping(propertyName + GEO_PROPERTY_NAME_SUFFIX, GeoPoint.class, true, null));
+            fieldMappings.add(new FieldMapping(propertyName, String.class, true, null));
         } else {
             checkNotNull(propertyValue, "property value cannot be null for property: " + propertyName);
             dataType = propertyValue.getClass();
-            addPropertyToIndex(indexInfo, propertyName, dataType, true);
+            fieldMappings.add(new FieldMapping(propertyName, dataType, true, null));
         }
     }
 
-    protected abstract void addPropertyToIndex(IndexInfo indexInfo, String propertyName, Class dataType, boolean analyzed, Double boost) throws IOException;
+    /**
+     * Registers all field mappings that are not yet defined in the index with a single put mapping request. Writers
+     * adding the same fields at the same time wait for the first one instead of sending their own request.
+     * <p/>
+     * If the request fails each field is put on its own, so one conflicting field does not keep the other fields
+     * from being registered. The fields that still fail are reported in the thrown exception.
+     */
+    protected void addFieldMappingsToIndex(IndexInfo indexInfo, List<FieldMapping> fieldMappings) throws IOException {
+        if (!hasUndefinedFieldMappings(indexInfo, fieldMappings)) {
+            return;
+        }
+        synchronized (indexInfo) {
+            Map<String, FieldMapping> undefinedFieldMappings = new LinkedHashMap<>();
+            for (FieldMapping fieldMapping : fieldMappings) {
+                if (indexInfo.isPropertyDefined(fieldMapping.getPropertyName()) || shouldIgnoreType(fieldMapping.getDataType())) {
+                    continue;
+                }
+                if (!undefinedFieldMappings.containsKey(fieldMapping.getPropertyName())) {
+                    undefinedFieldMappings.put(fieldMapping.getPropertyName(), fieldMapping);
+                }
+            }
+            if (undefinedFieldMappings.size() == 0) {
+                return;
+            }
+
+            try {
+                putFieldMappings(indexInfo, new ArrayList<>(undefinedFieldMappings.values()));
+            } catch (Exception ex) {
+                if (undefinedFieldMappings.size() == 1) {
+                    throw ex;
+                }
+                LOGGER.warn("Could not add " + undefinedFieldMappings.size() + " field mappings in one request, adding them one at a time", ex);
+                putFieldMappingsOneAtATime(indexInfo, undefinedFieldMappings.values());
+                return;
+            }
+
+            for (FieldMapping fieldMapping : undefinedFieldMappings.values()) {
+                addPropertyDefinition(indexInfo, fieldMapping);
+            }
+        }
+    }
+
+    private void putFieldMappingsOneAtATime(IndexInfo indexInfo, Collection<FieldMapping> fieldMappings) {
+        List<String> failedPropertyNames = new ArrayList<>();
+        Exception firstFailure = null;
+        for (FieldMapping fieldMapping : fieldMappings) {
+            try {
+                putFieldMappings(indexInfo, Collections.singletonList(fieldMapping));
+                addPropertyDefinition(indexInfo, fieldMapping);
+            } catch (Exception ex) {
+                failedPropertyNames.add(fieldMapping.getPropertyName());
+                if (firstFailure == null) {
+                    firstFailure = ex;
+                }
+            }
+        }
+        if (firstFailure != null) {
+            throw new SecureGraphException("Could not add field mappings for: " + failedPropertyNames, firstFailure);
+        }
+    }
+
+    private void addPropertyDefinition(IndexInfo indexInfo, FieldMapping fieldMapping) {
+        indexInfo.addPropertyDefinition(fieldMapping.getPropertyName(), new PropertyDefinition(fieldMapping.getPropertyName(), fieldMapping.getDataType(), TextIndexHint.ALL));
+    }
+
+    private boolean hasUndefinedFieldMappings(IndexInfo indexInfo, List<FieldMapping> fieldMappings) {
+        for (FieldMapping fieldMapping : fieldMappings) {
+            if (!indexInfo.isPropertyDefined(fieldMapping.getPropertyName()) && !shouldIgnoreType(fieldMapping.getDataType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the mappings of all the given fields to the index in one put mapping request.
+     */
+    protected abstract void putFieldMappings(IndexInfo indexInfo, List<FieldMapping> fieldMappings) throws IOException;
 
     protected boolean shouldIgnoreType(Class dataType) {
         return dataType == byte[].class;
@@ -542,4 +636,34 @@ public abstract class ElasticSearchSearchIndexBase implements SearchIndex {
     }
 
     public abstract void addElementToBulkRequest(Graph graph, BulkRequest bulkRequest, IndexInfo indexInfo, Element element, Authorizations authorizations);
+
+    protected static class FieldMapping {
+        private final String propertyName;
+        private final Class dataType;
+        private final boolean analyzed;
+        private final Double boost;
+
+        public FieldMapping(String propertyName, Class dataType, boolean analyzed, Double boost) {
+            this.propertyName = propertyName;
+            this.dataType = dataType;
+            this.analyzed = analyzed;
+            this.boost = boost;
+        }
+
+        public String getPropertyName() {
+            return propertyName;
+        }
+
+        public Class getDataType() {
+            return dataType;
+        }
+
+        public boolean isAnalyzed() {
+            return analyzed;
+        }
+
+        public Double getBoost() {
+            return boost;
+        }
+    }
 }
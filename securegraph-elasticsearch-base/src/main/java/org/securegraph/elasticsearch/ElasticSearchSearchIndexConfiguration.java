@@ -25,6 +25,20 @@ public class ElasticSearchSearchIndexConfiguration {
     public static final int DEFAULT_PORT = 9300;
     public static final String CONFIG_SCORING_STRATEGY_CLASS_NAME = "scoringStrategy";
     public static final Class<? extends ScoringStrategy> DEFAULT_SCORING_STRATEGY = EdgeCountScoringStrategy.class;
+    public static final String CONFIG_BULK_BATCH_SIZE = "bulkBatchSize";
+    public static final int DEFAULT_BULK_BATCH_SIZE = 1000;
+    public static final String CONFIG_BULK_MAX_SIZE_BYTES = "bulkMaxSizeBytes";
+    public static final long DEFAULT_BULK_MAX_SIZE_BYTES = 5 * 1024 * 1024;
+    public static final String CONFIG_BULK_CONCURRENT_REQUESTS = "bulkConcurrentRequests";
+    public static final int DEFAULT_BULK_CONCURRENT_REQUESTS = 1;
+    /**
+     * Partial updates run an inline groovy script on the elastic search nodes. Dynamic scripting is disabled by
+     * default since elastic search 1.4.3 and must be enabled with script.groovy.sandbox.enabled (1.4.3+) or
+     * script.disable_dynamic (earlier versions), otherwise every partial update fails. The script runs within the
+     * groovy sandbox.
+     */
+    public static final String CONFIG_PARTIAL_DOCUMENT_UPDATES = "partialDocumentUpdates";
+    public static final boolean DEFAULT_PARTIAL_DOCUMENT_UPDATES = false;
 
     private final boolean autoFlush;
     private final boolean storeSourceData;
@@ -34,6 +48,10 @@ public class ElasticSearchSearchIndexConfiguration {
     private final boolean indexEdges;
     private final String clusterName;
     private final int port;
+    private final int bulkBatchSize;
+    private final long bulkMaxSizeBytes;
+    private final int bulkConcurrentRequests;
+    private final boolean partialDocumentUpdates;
     private ScoringStrategy scoringStrategy;
 
     public ElasticSearchSearchIndexConfiguration(GraphConfiguration config) {
@@ -45,6 +63,10 @@ public class ElasticSearchSearchIndexConfiguration {
         autoFlush = getAutoFlush(config);
         clusterName = getClusterName(config);
         port = getPort(config);
+        bulkBatchSize = getBulkBatchSize(config);
+        bulkMaxSizeBytes = getBulkMaxSizeBytes(config);
+        bulkConcurrentRequests = getBulkConcurrentRequests(config);
+        partialDocumentUpdates = getPartialDocumentUpdates(config, storeSourceData);
         scoringStrategy = getScoringStrategy(config);
     }
 
@@ -84,6 +106,27 @@ public class ElasticSearchSearchIndexConfiguration {
         return scoringStrategy;
     }
 
+    public int getBulkBatchSize() {
+        return bulkBatchSize;
+    }
+
+    public long getBulkMaxSizeBytes() {
+        return bulkMaxSizeBytes;
+    }
+
+    public int getBulkConcurrentRequests() {
+        return bulkConcurrentRequests;
+    }
+
+    /**
+     * If true, documents are updated from the element being indexed instead of re-reading the element from the graph.
+     * Requires the document source to be stored and dynamic groovy scripting on the elastic search nodes, see
+     * {@link #CONFIG_PARTIAL_DOCUMENT_UPDATES}.
+     */
+    public boolean isPartialDocumentUpdates() {
+        return partialDocumentUpdates;
+    }
+
     private static boolean getAutoFlush(GraphConfiguration config) {
         boolean autoFlush = config.getBoolean(GraphConfiguration.AUTO_FLUSH, DEFAULT_AUTO_FLUSH);
         LOGGER.info("Auto flush: " + autoFlush);
@@ -153,6 +196,34 @@ public class ElasticSearchSearchIndexConfiguration {
         return port;
     }
 
+    private static int getBulkBatchSize(GraphConfiguration config) {
+        int bulkBatchSize = config.getInt(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_BULK_BATCH_SIZE, DEFAULT_BULK_BATCH_SIZE);
+        LOGGER.info("Bulk batch size: " + bulkBatchSize);
+        return bulkBatchSize;
+    }
+
+    private static long getBulkMaxSizeBytes(GraphConfiguration config) {
+        long bulkMaxSizeBytes = config.getConfigLong(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_BULK_MAX_SIZE_BYTES, DEFAULT_BULK_MAX_SIZE_BYTES);
+        LOGGER.info("Bulk max size bytes: " + bulkMaxSizeBytes);
+        return bulkMaxSizeBytes;
+    }
+
+    private static int getBulkConcurrentRequests(GraphConfiguration config) {
+        int bulkConcurrentRequests = config.getInt(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_BULK_CONCURRENT_REQUESTS, DEFAULT_BULK_CONCURRENT_REQUESTS);
+        LOGGER.info("Bulk concurrent requests: " + bulkConcurrentRequests);
+        return bulkConcurrentRequests;
+    }
+
+    private static boolean getPartialDocumentUpdates(GraphConfiguration config, boolean storeSourceData) {
+        boolean partialDocumentUpdates = config.getBoolean(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_PARTIAL_DOCUMENT_UPDATES, DEFAULT_PARTIAL_DOCUMENT_UPDATES);
+        if (partialDocumentUpdates && !storeSourceData) {
+            LOGGER.warn(CONFIG_PARTIAL_DOCUMENT_UPDATES + " requires " + CONFIG_STORE_SOURCE_DATA + ", disabling partial document updates");
+            partialDocumentUpdates = false;
+        }
+        LOGGER.info("Partial document updates: " + partialDocumentUpdates);
+        return partialDocumentUpdates;
+    }
+
     private static ScoringStrategy getScoringStrategy(GraphConfiguration config) {
         String className = config.getString(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_SCORING_STRATEGY_CLASS_NAME, DEFAULT_SCORING_STRATEGY.getName());
         return ConfigurationUtils.createProvider(className, config);
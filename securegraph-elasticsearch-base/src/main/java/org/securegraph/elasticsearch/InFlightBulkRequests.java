@@ -0,0 +1,83 @@
+package org.securegraph.elasticsearch;
+
+import org.elasticsearch.action.ActionFuture;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+import org.securegraph.SecureGraphException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Sends bulk requests without waiting for each response, keeping at most maxInFlight requests outstanding.
+ * Failed items are collected across all requests and reported by {@link #waitForAll()}.
+ */
+public class InFlightBulkRequests {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InFlightBulkRequests.class);
+    private static final int MAX_FAILURES_IN_MESSAGE = 10;
+    private final Client client;
+    private final int maxInFlight;
+    private final Queue<ActionFuture<BulkResponse>> inFlight = new LinkedList<>();
+    private final List<String> failures = new ArrayList<>();
+    private int failureCount;
+
+    public InFlightBulkRequests(Client client, int maxInFlight) {
+        this.client = client;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    public void submit(BulkRequest bulkRequest) {
+        if (bulkRequest.numberOfActions() == 0) {
+            return;
+        }
+        while (inFlight.size() >= maxInFlight) {
+            waitForResponse(inFlight.remove());
+        }
+        inFlight.add(client.bulk(bulkRequest));
+    }
+
+    public void waitForAll() {
+        while (inFlight.size() > 0) {
+            waitForResponse(inFlight.remove());
+        }
+        if (failureCount > 0) {
+            StringBuilder message = new StringBuilder("Could not add " + failureCount + " element(s): ");
+            message.append(failures);
+            if (failureCount > failures.size()) {
+                message.append(" ...");
+            }
+            failures.clear();
+            failureCount = 0;
+            throw new SecureGraphException(message.toString());
+        }
+    }
+
+    /**
+     * Called for each failed item. Returns true if the failure was handled and should not be reported.
+     */
+    protected boolean handleFailure(BulkItemResponse bulkItemResponse) {
+        return false;
+    }
+
+    private void waitForResponse(ActionFuture<BulkResponse> future) {
+        BulkResponse response = future.actionGet();
+        if (!response.hasFailures()) {
+            return;
+        }
+        for (BulkItemResponse bulkResponse : response) {
+            if (bulkResponse.isFailed() && !handleFailure(bulkResponse)) {
+                LOGGER.error("Failed to index " + bulkResponse.getId() + " (message: " + bulkResponse.getFailureMessage() + ")");
+                failureCount++;
+                if (failures.size() < MAX_FAILURES_IN_MESSAGE) {
+                    failures.add(bulkResponse.getId() + " (" + bulkResponse.getFailureMessage() + ")");
+                }
+            }
+        }
+    }
+}
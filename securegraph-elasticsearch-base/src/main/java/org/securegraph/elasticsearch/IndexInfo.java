@@ -2,12 +2,12 @@ package org.securegraph.elasticsearch;
 
 import org.securegraph.PropertyDefinition;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class IndexInfo {
     private final String indexName;
-    private Map<String, PropertyDefinition> propertyDefinitions = new HashMap<String, PropertyDefinition>();
+    private Map<String, PropertyDefinition> propertyDefinitions = new ConcurrentHashMap<String, PropertyDefinition>();
     private boolean elementTypeDefined;
 
     public IndexInfo(String indexName) {
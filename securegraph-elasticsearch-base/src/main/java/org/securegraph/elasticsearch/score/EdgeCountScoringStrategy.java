@@ -18,6 +18,7 @@ import java.util.List;
 
 public class EdgeCountScoringStrategy extends ScoringStrategy {
     private final EdgeCountScoringStrategyConfiguration config;
+    private EdgeCountUpdater edgeCountUpdater;
 
     public EdgeCountScoringStrategy(GraphConfiguration config) {
         super(config);
@@ -37,43 +38,59 @@ public class EdgeCountScoringStrategy extends ScoringStrategy {
             return;
         }
 
-        Element vOut = ((Edge) element).getVertex(Direction.OUT, authorizations);
-        if (vOut != null) {
-            searchIndex.addElement(graph, vOut, authorizations);
-        }
+        if (!(searchIndex instanceof ElasticSearchSearchIndexBase)) {
+            Element vOut = ((Edge) element).getVertex(Direction.OUT, authorizations);
+            if (vOut != null) {
+                searchIndex.addElement(graph, vOut, authorizations);
+            }
 
-        Element vIn = ((Edge) element).getVertex(Direction.IN, authorizations);
-        if (vIn != null) {
-            searchIndex.addElement(graph, vIn, authorizations);
+            Element vIn = ((Edge) element).getVertex(Direction.IN, authorizations);
+            if (vIn != null) {
+                searchIndex.addElement(graph, vIn, authorizations);
+            }
+            return;
         }
+
+        EdgeCountUpdater edgeCountUpdater = getEdgeCountUpdater((ElasticSearchSearchIndexBase) searchIndex);
+        Edge edge = (Edge) element;
+        edgeCountUpdater.vertexChanged(graph, edge.getVertexId(Direction.OUT), authorizations);
+        edgeCountUpdater.vertexChanged(graph, edge.getVertexId(Direction.IN), authorizations);
     }
 
     @Override
     public int addElement(ElasticSearchSearchIndexBase searchIndex, Graph graph, BulkRequestWithCount bulkRequestWithCount, IndexInfo indexInfo, Element element, Authorizations authorizations) {
-        int totalCount = 0;
+        addElement((SearchIndex) searchIndex, graph, element, authorizations);
+        return 0;
+    }
 
-        if (!getConfig().isUpdateEdgeBoost()) {
-            return totalCount;
-        }
-        if (!(element instanceof Edge)) {
-            return totalCount;
+    private synchronized EdgeCountUpdater getEdgeCountUpdater(ElasticSearchSearchIndexBase searchIndex) {
+        if (edgeCountUpdater == null) {
+            edgeCountUpdater = new EdgeCountUpdater(searchIndex, getConfig().getUpdateEdgeBoostBatchSize(), getConfig().getUpdateEdgeBoostFlushIntervalMs());
         }
+        return edgeCountUpdater;
+    }
 
-        Element vOut = ((Edge) element).getVertex(Direction.OUT, authorizations);
-        if (vOut != null) {
-            searchIndex.addElementToBulkRequest(graph, bulkRequestWithCount.getBulkRequest(), indexInfo, vOut, authorizations);
-            bulkRequestWithCount.incrementCount();
-            totalCount++;
+    @Override
+    public void flush() {
+        EdgeCountUpdater edgeCountUpdater;
+        synchronized (this) {
+            edgeCountUpdater = this.edgeCountUpdater;
         }
-
-        Element vIn = ((Edge) element).getVertex(Direction.IN, authorizations);
-        if (vIn != null) {
-            searchIndex.addElementToBulkRequest(graph, bulkRequestWithCount.getBulkRequest(), indexInfo, vIn, authorizations);
-            bulkRequestWithCount.incrementCount();
-            totalCount++;
+        if (edgeCountUpdater != null) {
+            edgeCountUpdater.flush();
         }
+    }
 
-        return totalCount;
+    @Override
+    public void shutdown() {
+        EdgeCountUpdater edgeCountUpdater;
+        synchronized (this) {
+            edgeCountUpdater = this.edgeCountUpdater;
+            this.edgeCountUpdater = null;
+        }
+        if (edgeCountUpdater != null) {
+            edgeCountUpdater.shutdown();
+        }
     }
 
     @Override
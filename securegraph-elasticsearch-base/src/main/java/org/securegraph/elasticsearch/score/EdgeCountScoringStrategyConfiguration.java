@@ -16,6 +16,10 @@ public class EdgeCountScoringStrategyConfiguration {
     public static final double DEFAULT_IN_EDGE_BOOST = 1.2;
     public static final String CONFIG_OUT_EDGE_BOOST = "outEdgeBoost";
     public static final double DEFAULT_OUT_EDGE_BOOST = 1.1;
+    public static final String CONFIG_UPDATE_EDGE_BOOST_BATCH_SIZE = "updateEdgeBoostBatchSize";
+    public static final int DEFAULT_UPDATE_EDGE_BOOST_BATCH_SIZE = 1000;
+    public static final String CONFIG_UPDATE_EDGE_BOOST_FLUSH_INTERVAL_MS = "updateEdgeBoostFlushIntervalMs";
+    public static final long DEFAULT_UPDATE_EDGE_BOOST_FLUSH_INTERVAL_MS = 1000;
     public static final String CONFIG_SCORE_FORMULA = "formula";
     public static final String DEFAULT_SCORE_FORMULA = "_score " +
             " * sqrt( " +
@@ -29,6 +33,8 @@ public class EdgeCountScoringStrategyConfiguration {
     private final double inEdgeBoost;
     private final double outEdgeBoost;
     private final String scoreFormula;
+    private final int updateEdgeBoostBatchSize;
+    private final long updateEdgeBoostFlushIntervalMs;
 
     public EdgeCountScoringStrategyConfiguration(GraphConfiguration config) {
         useEdgeBoost = getUseEdgeBoost(config);
@@ -36,6 +42,8 @@ public class EdgeCountScoringStrategyConfiguration {
         inEdgeBoost = getInEdgeBoost(config);
         outEdgeBoost = getOutEdgeBoost(config);
         scoreFormula = getScoreFormula(config);
+        updateEdgeBoostBatchSize = getUpdateEdgeBoostBatchSize(config);
+        updateEdgeBoostFlushIntervalMs = getUpdateEdgeBoostFlushIntervalMs(config);
     }
 
     public boolean isUseEdgeBoost() {
@@ -58,6 +66,14 @@ public class EdgeCountScoringStrategyConfiguration {
         return scoreFormula;
     }
 
+    public int getUpdateEdgeBoostBatchSize() {
+        return updateEdgeBoostBatchSize;
+    }
+
+    public long getUpdateEdgeBoostFlushIntervalMs() {
+        return updateEdgeBoostFlushIntervalMs;
+    }
+
     private static boolean getUseEdgeBoost(GraphConfiguration config) {
         boolean useEdgeBoost = config.getBoolean(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_USE_EDGE_BOOST, DEFAULT_USE_EDGE_BOOST);
         LOGGER.info("Use edge boost: " + useEdgeBoost);
@@ -87,4 +103,16 @@ public class EdgeCountScoringStrategyConfiguration {
         LOGGER.info("Score formula: " + scoreFormula);
         return scoreFormula;
     }
+
+    private static int getUpdateEdgeBoostBatchSize(GraphConfiguration config) {
+        int updateEdgeBoostBatchSize = config.getInt(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_UPDATE_EDGE_BOOST_BATCH_SIZE, DEFAULT_UPDATE_EDGE_BOOST_BATCH_SIZE);
+        LOGGER.info("Update edge boost batch size: " + updateEdgeBoostBatchSize);
+        return updateEdgeBoostBatchSize;
+    }
+
+    private static long getUpdateEdgeBoostFlushIntervalMs(GraphConfiguration config) {
+        long updateEdgeBoostFlushIntervalMs = config.getConfigLong(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_UPDATE_EDGE_BOOST_FLUSH_INTERVAL_MS, DEFAULT_UPDATE_EDGE_BOOST_FLUSH_INTERVAL_MS);
+        LOGGER.info("Update edge boost flush interval (ms): " + updateEdgeBoostFlushIntervalMs);
+        return updateEdgeBoostFlushIntervalMs;
+    }
 }
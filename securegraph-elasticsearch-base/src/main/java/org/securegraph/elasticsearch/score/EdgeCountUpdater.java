@@ -0,0 +1,176 @@
+package org.securegraph.elasticsearch.score;
+
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.securegraph.*;
+import org.securegraph.elasticsearch.ElasticSearchSearchIndexBase;
+import org.securegraph.util.CloseableUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.*;
+
+/**
+ * Collects the vertices whose edge counts changed and updates the edge count fields of their documents in batches.
+ * <p/>
+ * A vertex that gets many edges within one window is only updated once. The batch is sent once batchSize vertices
+ * are waiting, when flushIntervalMs has passed or when the search index is flushed. The counts are taken from
+ * {@link Graph#getEdgeCounts(Iterable, Direction, Authorizations)}, which graphs like the accumulo graph answer without
+ * loading the edge refs, and written as a partial update of the two edge count fields. When the search index does
+ * not store the source of its documents, partial updates are not possible and the vertices are re-indexed instead.
+ */
+public class EdgeCountUpdater {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EdgeCountUpdater.class);
+    private final ElasticSearchSearchIndexBase searchIndex;
+    private final int batchSize;
+    private final Timer timer;
+    private Map<PendingKey, Set<String>> pendingVertexIds = new LinkedHashMap<>();
+    private int pendingCount;
+
+    public EdgeCountUpdater(ElasticSearchSearchIndexBase searchIndex, int batchSize, long flushIntervalMs) {
+        this.searchIndex = searchIndex;
+        this.batchSize = Math.max(1, batchSize);
+        if (flushIntervalMs > 0) {
+            this.timer = new Timer("securegraph-edge-count-updater", true);
+            this.timer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    try {
+                        flush();
+                    } catch (Exception ex) {
+                        LOGGER.error("Could not update edge counts", ex);
+                    }
+                }
+            }, flushIntervalMs, flushIntervalMs);
+        } else {
+            this.timer = null;
+        }
+    }
+
+    public void vertexChanged(Graph graph, String vertexId, Authorizations authorizations) {
+        boolean flush;
+        synchronized (this) {
+            PendingKey key = new PendingKey(graph, authorizations);
+            Set<String> vertexIds = pendingVertexIds.get(key);
+            if (vertexIds == null) {
+                vertexIds = new LinkedHashSet<>();
+                pendingVertexIds.put(key, vertexIds);
+            }
+            if (vertexIds.add(vertexId)) {
+                pendingCount++;
+            }
+            flush = pendingCount >= batchSize;
+        }
+        if (flush) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        Map<PendingKey, Set<String>> vertexIdsToUpdate;
+        synchronized (this) {
+            if (pendingCount == 0) {
+                return;
+            }
+            vertexIdsToUpdate = pendingVertexIds;
+            pendingVertexIds = new LinkedHashMap<>();
+            pendingCount = 0;
+        }
+        for (Map.Entry<PendingKey, Set<String>> entry : vertexIdsToUpdate.entrySet()) {
+            updateEdgeCounts(entry.getKey().graph, entry.getValue(), entry.getKey().authorizations);
+        }
+    }
+
+    public void shutdown() {
+        if (timer != null) {
+            timer.cancel();
+        }
+        flush();
+    }
+
+    private void updateEdgeCounts(Graph graph, Set<String> vertexIds, Authorizations authorizations) {
+        if (!searchIndex.getConfig().isStoreSourceData()) {
+            for (Vertex vertex : graph.getVertices(vertexIds, authorizations)) {
+                searchIndex.addElement(graph, vertex, authorizations);
+            }
+            return;
+        }
+
+        Map<String, Integer> inEdgeCounts = graph.getEdgeCounts(vertexIds, Direction.IN, authorizations);
+        Map<String, Integer> outEdgeCounts = graph.getEdgeCounts(vertexIds, Direction.OUT, authorizations);
+        if (inEdgeCounts.size() == 0) {
+            return;
+        }
+
+        BulkRequest bulkRequest = new BulkRequest();
+        // the vertices are only loaded for the name of their index
+        Iterable<Vertex> vertices = graph.getVertices(inEdgeCounts.keySet(), FetchHint.NONE, authorizations);
+        try {
+            for (Vertex vertex : vertices) {
+                Integer outEdgeCount = outEdgeCounts.get(vertex.getId());
+                Map<String, Object> fields = new HashMap<>();
+                fields.put(EdgeCountScoringStrategyConfiguration.IN_EDGE_COUNT_FIELD_NAME, inEdgeCounts.get(vertex.getId()));
+                fields.put(EdgeCountScoringStrategyConfiguration.OUT_EDGE_COUNT_FIELD_NAME, outEdgeCount == null ? 0 : outEdgeCount);
+                bulkRequest.add(new UpdateRequest(searchIndex.getIndexName(vertex), ElasticSearchSearchIndexBase.ELEMENT_TYPE, vertex.getId())
+                        .doc(fields)
+                        .retryOnConflict(3));
+            }
+        } finally {
+            if (vertices instanceof Closeable) {
+                CloseableUtils.closeQuietly((Closeable) vertices);
+            }
+        }
+        if (bulkRequest.numberOfActions() == 0) {
+            return;
+        }
+        LOGGER.debug("updating edge counts of " + bulkRequest.numberOfActions() + " vertices");
+        BulkResponse response = searchIndex.getClient().bulk(bulkRequest).actionGet();
+        if (!response.hasFailures()) {
+            return;
+        }
+        for (BulkItemResponse item : response) {
+            if (!item.isFailed()) {
+                continue;
+            }
+            // the vertex document will get its edge counts when the vertex itself is indexed
+            if (item.getFailureMessage() != null && item.getFailureMessage().contains("DocumentMissingException")) {
+                LOGGER.debug("No document to update edge counts of " + item.getId());
+            } else {
+                LOGGER.error("Failed to update edge counts of " + item.getId() + " (message: " + item.getFailureMessage() + ")");
+            }
+        }
+    }
+
+    /**
+     * Callers usually create new authorizations for every call so they are compared by their values. The first
+     * authorizations seen for a set of values are used to read the counts.
+     */
+    private static class PendingKey {
+        private final Graph graph;
+        private final Authorizations authorizations;
+        private final Set<String> authorizationValues;
+
+        public PendingKey(Graph graph, Authorizations authorizations) {
+            this.graph = graph;
+            this.authorizations = authorizations;
+            this.authorizationValues = new HashSet<>(Arrays.asList(authorizations.getAuthorizations()));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PendingKey)) {
+                return false;
+            }
+            PendingKey that = (PendingKey) o;
+            return graph == that.graph && authorizationValues.equals(that.authorizationValues);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(graph) + authorizationValues.hashCode();
+        }
+    }
+}
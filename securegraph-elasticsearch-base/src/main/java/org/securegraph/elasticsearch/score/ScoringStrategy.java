@@ -39,4 +39,15 @@ public abstract class ScoringStrategy {
     public List<String> getFieldNames() {
         return new ArrayList<>();
     }
+
+    /**
+     * Sends any score updates that are still waiting.
+     */
+    public void flush() {
+
+    }
+
+    public void shutdown() {
+
+    }
 }
@@ -404,27 +404,20 @@ public class ElasticSearchParentChildSearchIndex extends ElasticSearchSearchInde
     }
 
     @Override
-    protected void addPropertyToIndex(IndexInfo indexInfo, String propertyName, Class dataType, boolean analyzed, Double boost) throws IOException {
-        if (indexInfo.isPropertyDefined(propertyName)) {
-            return;
-        }
-
-        if (shouldIgnoreType(dataType)) {
-            return;
-        }
-
+    protected void putFieldMappings(IndexInfo indexInfo, List<FieldMapping> fieldMappings) throws IOException {
         XContentBuilder mapping = XContentFactory.jsonBuilder()
                 .startObject()
                 .startObject(PROPERTY_TYPE)
                 .startObject("_parent").field("type", ELEMENT_TYPE).endObject()
-                .startObject("properties")
-                .startObject(propertyName)
-                .field("store", getConfig().isStoreSourceData());
+                .startObject("properties");
 
-        addTypeToMapping(mapping, propertyName, dataType, analyzed, boost);
+        for (FieldMapping fieldMapping : fieldMappings) {
+            mapping.startObject(fieldMapping.getPropertyName()).field("store", getConfig().isStoreSourceData());
+            addTypeToMapping(mapping, fieldMapping.getPropertyName(), fieldMapping.getDataType(), fieldMapping.isAnalyzed(), fieldMapping.getBoost());
+            mapping.endObject();
+        }
 
         mapping
-                .endObject()
                 .endObject()
                 .endObject()
                 .endObject();
@@ -439,8 +432,6 @@ public class ElasticSearchParentChildSearchIndex extends ElasticSearchSearchInde
                 .execute()
                 .actionGet();
         LOGGER.debug(response.toString());
-
-        indexInfo.addPropertyDefinition(propertyName, new PropertyDefinition(propertyName, dataType, TextIndexHint.ALL));
     }
 
     @Override
@@ -13,33 +13,49 @@ import org.securegraph.inmemory.security.VisibilityEvaluator;
 import org.securegraph.inmemory.security.VisibilityParseException;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class AuthorizationsFilter extends Filter {
     public static String VISIBILITY_FIELD_NAME = "__visibility";
+    private static final int MAX_CACHED_COLUMN_VISIBILITIES = 10000;
+    private static final Map<BytesRef, ColumnVisibility> columnVisibilityCache = new LinkedHashMap<BytesRef, ColumnVisibility>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<BytesRef, ColumnVisibility> eldest) {
+            return size() > MAX_CACHED_COLUMN_VISIBILITIES;
+        }
+    };
+    private final Authorizations authorizations;
     private final VisibilityEvaluator visibilityEvaluator;
-    private static final Map<BytesRef, ColumnVisibility> columnVisibilityCache = new ConcurrentHashMap<>();
+    private final VisibilityBitSetCache bitSetCache;
 
-    public AuthorizationsFilter(Authorizations authorizations) {
+    public AuthorizationsFilter(Authorizations authorizations, VisibilityBitSetCache bitSetCache) {
+        this.authorizations = authorizations;
         this.visibilityEvaluator = new VisibilityEvaluator(authorizations);
+        this.bitSetCache = bitSetCache;
     }
 
     @Override
     public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
-        AtomicReader reader = context.reader();
+        final AtomicReader reader = context.reader();
         Fields fields = reader.fields();
-        Terms terms = fields.terms(VISIBILITY_FIELD_NAME);
+        final Terms terms = fields.terms(VISIBILITY_FIELD_NAME);
         if (terms == null) {
             return null;
         } else {
-            OpenBitSet bitSet = new OpenBitSet(reader.maxDoc());
-            TermsEnum iterator = terms.iterator(null);
-            BytesRef bytesRef;
-            while ((bytesRef = iterator.next()) != null) {
-                makeVisible(iterator, bitSet, acceptDocs, isVisible(visibilityEvaluator, bytesRef));
-            }
+            // the cached bit sets ignore deletions, those are applied by wrapping them with the accepted docs
+            OpenBitSet bitSet = bitSetCache.get(reader, authorizations, new VisibilityBitSetCache.Loader() {
+                @Override
+                public OpenBitSet load() throws IOException {
+                    OpenBitSet bitSet = new OpenBitSet(reader.maxDoc());
+                    TermsEnum iterator = terms.iterator(null);
+                    BytesRef bytesRef;
+                    while ((bytesRef = iterator.next()) != null) {
+                        makeVisible(iterator, bitSet, null, isVisible(visibilityEvaluator, bytesRef));
+                    }
+                    return bitSet;
+                }
+            });
             return BitsFilteredDocIdSet.wrap(bitSet, acceptDocs);
         }
     }
@@ -69,7 +85,10 @@ public class AuthorizationsFilter extends Filter {
     }
 
     private static ColumnVisibility lookupColumnVisibility(BytesRef bytesRef) {
-        ColumnVisibility visibility = columnVisibilityCache.get(bytesRef);
+        ColumnVisibility visibility;
+        synchronized (columnVisibilityCache) {
+            visibility = columnVisibilityCache.get(bytesRef);
+        }
         if (visibility != null) {
             return visibility;
         }
@@ -79,7 +98,10 @@ public class AuthorizationsFilter extends Filter {
             return null;
         }
         visibility = new ColumnVisibility(expression);
-        columnVisibilityCache.put(bytesRef, visibility);
+        // the terms enum reuses its BytesRef so the key has to be a copy
+        synchronized (columnVisibilityCache) {
+            columnVisibilityCache.put(BytesRef.deepCopyOf(bytesRef), visibility);
+        }
         return visibility;
     }
 
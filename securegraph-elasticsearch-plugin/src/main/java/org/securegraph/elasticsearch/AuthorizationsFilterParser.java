@@ -15,6 +15,11 @@ import java.util.List;
 
 public class AuthorizationsFilterParser implements FilterParser {
     private static final String NAME = "authorizations";
+    private final VisibilityBitSetCache bitSetCache;
+
+    public AuthorizationsFilterParser(VisibilityBitSetCache bitSetCache) {
+        this.bitSetCache = bitSetCache;
+    }
 
     @Override
     public String[] names() {
@@ -44,7 +49,7 @@ public class AuthorizationsFilterParser implements FilterParser {
 
         List<Filter> filters = new ArrayList<Filter>();
         filters.add(new FieldValueFilter(AuthorizationsFilter.VISIBILITY_FIELD_NAME, true));
-        filters.add(new AuthorizationsFilter(authorizations));
+        filters.add(new AuthorizationsFilter(authorizations, bitSetCache));
         return new OrFilter(filters);
     }
 }
@@ -1,10 +1,22 @@
 package org.securegraph.elasticsearch;
 
 import org.elasticsearch.common.inject.Module;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.indices.query.IndicesQueriesModule;
 import org.elasticsearch.plugins.AbstractPlugin;
 
 public class SecureGraphPlugin extends AbstractPlugin {
+    public static final String SETTING_VISIBILITY_CACHE_SIZE = "securegraph.visibility_cache_size";
+    public static final ByteSizeValue DEFAULT_VISIBILITY_CACHE_SIZE = new ByteSizeValue(64, ByteSizeUnit.MB);
+    private final VisibilityBitSetCache bitSetCache;
+
+    public SecureGraphPlugin(Settings settings) {
+        long visibilityCacheSize = settings.getAsBytesSize(SETTING_VISIBILITY_CACHE_SIZE, DEFAULT_VISIBILITY_CACHE_SIZE).bytes();
+        this.bitSetCache = new VisibilityBitSetCache(visibilityCacheSize);
+    }
+
     @Override
     public String name() {
         return "securegraph-plugin";
@@ -18,7 +30,7 @@ public class SecureGraphPlugin extends AbstractPlugin {
     @Override
     public void processModule(Module module) {
         if (module instanceof IndicesQueriesModule) {
-            ((IndicesQueriesModule) module).addFilter(new AuthorizationsFilterParser());
+            ((IndicesQueriesModule) module).addFilter(new AuthorizationsFilterParser(bitSetCache));
         }
     }
 }
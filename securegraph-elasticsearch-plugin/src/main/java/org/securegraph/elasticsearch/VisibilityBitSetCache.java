@@ -0,0 +1,132 @@
+package org.securegraph.elasticsearch;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.util.OpenBitSet;
+import org.securegraph.inmemory.security.Authorizations;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Caches the bitset of visible documents per segment and set of authorizations.
+ * <p/>
+ * The bitsets do not include deletions, so they stay valid for as long as the segment core is open. Entries are
+ * dropped when their segment is closed and the least recently used entries are evicted once the bitsets take more
+ * than maxBytes.
+ */
+public class VisibilityBitSetCache {
+    private final long maxBytes;
+    private final LinkedHashMap<CacheKey, OpenBitSet> bitSets = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Object, Set<CacheKey>> keysByCoreCacheKey = new HashMap<>();
+    private long totalBytes;
+
+    public VisibilityBitSetCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public interface Loader {
+        OpenBitSet load() throws IOException;
+    }
+
+    public OpenBitSet get(AtomicReader reader, Authorizations authorizations, Loader loader) throws IOException {
+        if (maxBytes <= 0) {
+            return loader.load();
+        }
+        CacheKey key = new CacheKey(reader.getCoreCacheKey(), authorizations);
+        synchronized (this) {
+            OpenBitSet bitSet = bitSets.get(key);
+            if (bitSet != null) {
+                return bitSet;
+            }
+        }
+
+        OpenBitSet bitSet = loader.load();
+        long bytes = getBytes(bitSet);
+        if (bytes > maxBytes) {
+            return bitSet;
+        }
+        boolean newCore;
+        synchronized (this) {
+            OpenBitSet existing = bitSets.put(key, bitSet);
+            if (existing != null) {
+                totalBytes -= getBytes(existing);
+            }
+            totalBytes += bytes;
+            Set<CacheKey> keys = keysByCoreCacheKey.get(key.coreCacheKey);
+            newCore = keys == null;
+            if (newCore) {
+                keys = new HashSet<>();
+                keysByCoreCacheKey.put(key.coreCacheKey, keys);
+            }
+            keys.add(key);
+            evict();
+        }
+        if (newCore) {
+            reader.addCoreClosedListener(new AtomicReader.CoreClosedListener() {
+                @Override
+                public void onClose(Object ownerCoreCacheKey) {
+                    invalidate(ownerCoreCacheKey);
+                }
+            });
+        }
+        return bitSet;
+    }
+
+    public synchronized void invalidate(Object coreCacheKey) {
+        Set<CacheKey> keys = keysByCoreCacheKey.remove(coreCacheKey);
+        if (keys == null) {
+            return;
+        }
+        for (CacheKey key : keys) {
+            OpenBitSet bitSet = bitSets.remove(key);
+            if (bitSet != null) {
+                totalBytes -= getBytes(bitSet);
+            }
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<CacheKey, OpenBitSet>> it = bitSets.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<CacheKey, OpenBitSet> entry = it.next();
+            it.remove();
+            totalBytes -= getBytes(entry.getValue());
+            Set<CacheKey> keys = keysByCoreCacheKey.get(entry.getKey().coreCacheKey);
+            if (keys != null) {
+                keys.remove(entry.getKey());
+            }
+        }
+    }
+
+    private static long getBytes(OpenBitSet bitSet) {
+        return (long) bitSet.getBits().length * 8;
+    }
+
+    private static class CacheKey {
+        private final Object coreCacheKey;
+        private final Authorizations authorizations;
+
+        public CacheKey(Object coreCacheKey, Authorizations authorizations) {
+            this.coreCacheKey = coreCacheKey;
+            this.authorizations = authorizations;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey that = (CacheKey) o;
+            return coreCacheKey == that.coreCacheKey && authorizations.equals(that.authorizations);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(coreCacheKey) + authorizations.hashCode();
+        }
+    }
+}
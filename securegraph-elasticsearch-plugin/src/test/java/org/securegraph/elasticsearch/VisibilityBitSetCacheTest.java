@@ -0,0 +1,175 @@
+package org.securegraph.elasticsearch;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.OpenBitSet;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.inmemory.security.Authorizations;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class VisibilityBitSetCacheTest {
+    // a 64 bit bitset takes a single long
+    private static final long BIT_SET_BYTES = 8;
+    private RAMDirectory directory;
+    private DirectoryReader directoryReader;
+    private AtomicReader reader;
+
+    @Before
+    public void before() throws IOException {
+        directory = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_4_10_2, new KeywordAnalyzer()));
+        for (String visibility : new String[]{"a", "b", "", "(a)|(b)"}) {
+            Document document = new Document();
+            document.add(new StringField(AuthorizationsFilter.VISIBILITY_FIELD_NAME, visibility, Field.Store.NO));
+            writer.addDocument(document);
+        }
+        writer.close();
+        directoryReader = DirectoryReader.open(directory);
+        reader = directoryReader.leaves().get(0).reader();
+    }
+
+    @After
+    public void after() throws IOException {
+        directoryReader.close();
+        directory.close();
+    }
+
+    @Test
+    public void testCacheHitAndMiss() throws IOException {
+        VisibilityBitSetCache cache = new VisibilityBitSetCache(1024);
+        CountingLoader loader = new CountingLoader();
+
+        OpenBitSet bitSet = cache.get(reader, new Authorizations("a"), loader);
+        assertSame(bitSet, cache.get(reader, new Authorizations("a"), loader));
+        assertEquals(1, loader.loadCount);
+        assertEquals(BIT_SET_BYTES, cache.getTotalBytes());
+
+        assertNotSame(bitSet, cache.get(reader, new Authorizations("a", "b"), loader));
+        assertEquals(2, loader.loadCount);
+        assertEquals(2 * BIT_SET_BYTES, cache.getTotalBytes());
+    }
+
+    @Test
+    public void testDisabledCacheAlwaysLoads() throws IOException {
+        VisibilityBitSetCache cache = new VisibilityBitSetCache(0);
+        CountingLoader loader = new CountingLoader();
+
+        cache.get(reader, new Authorizations("a"), loader);
+        cache.get(reader, new Authorizations("a"), loader);
+        assertEquals(2, loader.loadCount);
+        assertEquals(0, cache.getTotalBytes());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedByMemory() throws IOException {
+        VisibilityBitSetCache cache = new VisibilityBitSetCache(2 * BIT_SET_BYTES);
+        CountingLoader loader = new CountingLoader();
+
+        cache.get(reader, new Authorizations("a"), loader);
+        cache.get(reader, new Authorizations("b"), loader);
+        // touching "a" makes "b" the least recently used entry
+        cache.get(reader, new Authorizations("a"), loader);
+        cache.get(reader, new Authorizations("c"), loader);
+        assertEquals(3, loader.loadCount);
+        assertEquals(2 * BIT_SET_BYTES, cache.getTotalBytes());
+
+        cache.get(reader, new Authorizations("a"), loader);
+        cache.get(reader, new Authorizations("c"), loader);
+        assertEquals(3, loader.loadCount);
+
+        cache.get(reader, new Authorizations("b"), loader);
+        assertEquals(4, loader.loadCount);
+        assertEquals(2 * BIT_SET_BYTES, cache.getTotalBytes());
+    }
+
+    @Test
+    public void testBitSetLargerThanMaxBytesIsNotCached() throws IOException {
+        VisibilityBitSetCache cache = new VisibilityBitSetCache(BIT_SET_BYTES);
+        CountingLoader loader = new CountingLoader(128);
+
+        cache.get(reader, new Authorizations("a"), loader);
+        cache.get(reader, new Authorizations("a"), loader);
+        assertEquals(2, loader.loadCount);
+        assertEquals(0, cache.getTotalBytes());
+    }
+
+    @Test
+    public void testSegmentCloseEvictsEntries() throws IOException {
+        VisibilityBitSetCache cache = new VisibilityBitSetCache(1024);
+        CountingLoader loader = new CountingLoader();
+
+        cache.get(reader, new Authorizations("a"), loader);
+        cache.get(reader, new Authorizations("b"), loader);
+        assertEquals(2 * BIT_SET_BYTES, cache.getTotalBytes());
+
+        directoryReader.close();
+        assertEquals(0, cache.getTotalBytes());
+
+        directoryReader = DirectoryReader.open(directory);
+        reader = directoryReader.leaves().get(0).reader();
+        cache.get(reader, new Authorizations("a"), loader);
+        assertEquals(3, loader.loadCount);
+        assertEquals(BIT_SET_BYTES, cache.getTotalBytes());
+    }
+
+    @Test
+    public void testAuthorizationsFilterUsesCache() throws IOException {
+        VisibilityBitSetCache cache = new VisibilityBitSetCache(1024);
+        AtomicReaderContext context = reader.getContext();
+
+        assertEquals(Arrays.asList(0, 2, 3), getDocs(new AuthorizationsFilter(new Authorizations("a"), cache).getDocIdSet(context, null)));
+        assertEquals(Arrays.asList(1, 2, 3), getDocs(new AuthorizationsFilter(new Authorizations("b"), cache).getDocIdSet(context, null)));
+        assertEquals(2 * BIT_SET_BYTES, cache.getTotalBytes());
+
+        // a new filter for the same authorizations is answered from the cache
+        assertEquals(Arrays.asList(0, 2, 3), getDocs(new AuthorizationsFilter(new Authorizations("a"), cache).getDocIdSet(context, null)));
+        assertEquals(2 * BIT_SET_BYTES, cache.getTotalBytes());
+    }
+
+    private static List<Integer> getDocs(DocIdSet docIdSet) throws IOException {
+        List<Integer> docs = new ArrayList<>();
+        DocIdSetIterator it = docIdSet.iterator();
+        int doc;
+        while ((doc = it.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+            docs.add(doc);
+        }
+        return docs;
+    }
+
+    private static class CountingLoader implements VisibilityBitSetCache.Loader {
+        private final int numBits;
+        private int loadCount;
+
+        public CountingLoader() {
+            this(64);
+        }
+
+        public CountingLoader(int numBits) {
+            this.numBits = numBits;
+        }
+
+        @Override
+        public OpenBitSet load() throws IOException {
+            loadCount++;
+            return new OpenBitSet(numBits);
+        }
+    }
+}
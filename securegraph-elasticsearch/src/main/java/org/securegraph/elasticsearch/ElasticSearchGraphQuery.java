@@ -9,22 +9,19 @@ import org.elasticsearch.search.aggregations.bucket.geogrid.GeoHashGridBuilder;
 import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramBuilder;
 import org.elasticsearch.search.aggregations.bucket.histogram.HistogramBuilder;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsBuilder;
-import org.securegraph.Authorizations;
-import org.securegraph.Graph;
-import org.securegraph.PropertyDefinition;
-import org.securegraph.SecureGraphException;
+import org.securegraph.*;
 import org.securegraph.elasticsearch.score.ScoringStrategy;
 import org.securegraph.query.*;
+import org.securegraph.util.ConvertingIterable;
 
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 public class ElasticSearchGraphQuery extends ElasticSearchGraphQueryBase implements
         GraphQueryWithHistogramAggregation,
         GraphQueryWithTermsAggregation,
-        GraphQueryWithGeohashAggregation {
+        GraphQueryWithGeohashAggregation,
+        GraphQueryWithProjection {
+    private static final EnumSet<FetchHint> PROJECTION_FETCH_HINTS = EnumSet.of(FetchHint.PROPERTIES);
     private final List<HistogramQueryItem> histogramQueryItems = new ArrayList<HistogramQueryItem>();
     private final List<TermsQueryItem> termsQueryItems = new ArrayList<TermsQueryItem>();
     private final List<GeohashQueryItem> geohashQueryItems = new ArrayList<GeohashQueryItem>();
@@ -43,6 +40,45 @@ public class ElasticSearchGraphQuery extends ElasticSearchGraphQueryBase impleme
         return filters;
     }
 
+    @Override
+    public Iterable<Element> vertexProjections(String... propertyNames) {
+        return getProjections(vertices(PROJECTION_FETCH_HINTS), ElasticSearchSearchIndexBase.ELEMENT_TYPE_VERTEX, propertyNames);
+    }
+
+    @Override
+    public Iterable<Element> edgeProjections(String... propertyNames) {
+        return getProjections(edges(PROJECTION_FETCH_HINTS), ElasticSearchSearchIndexBase.ELEMENT_TYPE_EDGE, propertyNames);
+    }
+
+    /**
+     * Hidden elements and properties are only known to the graph, marking them hidden does not update the search
+     * index. So the matching elements are loaded from the graph with their properties only, no edge refs or metadata,
+     * and the projections are built from them.
+     */
+    @SuppressWarnings("unchecked")
+    private Iterable<Element> getProjections(Iterable<? extends Element> elements, final String elementType, final String[] propertyNames) {
+        ElasticSearchGraphQueryIterable<Element> results = (ElasticSearchGraphQueryIterable<Element>) elements;
+        Iterable<Element> projections = new ConvertingIterable<Element, Element>(results) {
+            @Override
+            protected Element convert(Element element) {
+                return createProjectedElement(element, elementType, propertyNames);
+            }
+        };
+        Parameters filterParameters = new Parameters(getParameters().getQueryString(), getParameters().getAuthorizations());
+        filterParameters.setLimit(getParameters().getLimit());
+        return new ElasticSearchGraphQueryIterable<>(results.getSearchResponse(), filterParameters, projections, false, false, results.getTotalHits(), results.getSearchTimeNanoSeconds(), results.getScores());
+    }
+
+    private Element createProjectedElement(Element element, String elementType, String[] propertyNames) {
+        List<Property> properties = new ArrayList<>();
+        for (String propertyName : propertyNames) {
+            for (Property property : element.getProperties(propertyName)) {
+                properties.add(property);
+            }
+        }
+        return new ElasticSearchProjectedElement(getGraph(), element.getId(), elementType, element.getVisibility(), properties, getParameters().getAuthorizations());
+    }
+
     @Override
     public GraphQueryWithHistogramAggregation addHistogramAggregation(String aggregationName, String fieldName, String interval) {
         histogramQueryItems.add(new HistogramQueryItem(aggregationName, fieldName, interval));
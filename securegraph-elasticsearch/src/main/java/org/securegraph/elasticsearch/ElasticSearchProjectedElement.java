@@ -0,0 +1,48 @@
+package org.securegraph.elasticsearch;
+
+import org.securegraph.*;
+import org.securegraph.mutation.ExistingElementMutation;
+
+/**
+ * A read-only copy of an element matched by a search. It only holds the projected properties.
+ */
+public class ElasticSearchProjectedElement extends ElementBase {
+    private final String elementType;
+
+    public ElasticSearchProjectedElement(Graph graph, String id, String elementType, Visibility visibility, Iterable<Property> properties, Authorizations authorizations) {
+        super(graph, id, visibility, properties, null, null, authorizations);
+        this.elementType = elementType;
+    }
+
+    /**
+     * Either {@link ElasticSearchSearchIndexBase#ELEMENT_TYPE_VERTEX} or {@link ElasticSearchSearchIndexBase#ELEMENT_TYPE_EDGE}.
+     */
+    public String getElementType() {
+        return elementType;
+    }
+
+    @Override
+    public void removeProperty(String key, String name, Authorizations authorizations) {
+        throw new SecureGraphException("Projected elements are read-only");
+    }
+
+    @Override
+    public void removeProperty(String name, Authorizations authorizations) {
+        throw new SecureGraphException("Projected elements are read-only");
+    }
+
+    @Override
+    public void markPropertyHidden(Property property, Visibility visibility, Authorizations authorizations) {
+        throw new SecureGraphException("Projected elements are read-only");
+    }
+
+    @Override
+    public void markPropertyVisible(Property property, Visibility visibility, Authorizations authorizations) {
+        throw new SecureGraphException("Projected elements are read-only");
+    }
+
+    @Override
+    public <T extends Element> ExistingElementMutation<T> prepareMutation() {
+        throw new SecureGraphException("Projected elements are read-only");
+    }
+}
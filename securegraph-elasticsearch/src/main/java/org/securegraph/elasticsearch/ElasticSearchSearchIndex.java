@@ -1,12 +1,19 @@
 package org.securegraph.elasticsearch;
 
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.script.ScriptService;
 import org.securegraph.*;
 import org.securegraph.property.StreamingPropertyValue;
 import org.securegraph.query.GraphQuery;
@@ -17,13 +24,63 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 public class ElasticSearchSearchIndex extends ElasticSearchSearchIndexBase {
     private static final Logger LOGGER = LoggerFactory.getLogger(ElasticSearchSearchIndexBase.class);
+    public static final String PROPERTY_VISIBILITIES_FIELD_NAME = "__propertyVisibilities";
+    /**
+     * Holds the fields written for each property, keyed by property name, key and visibility. Only written with
+     * partial document updates so the values of a multi-valued property can be merged per property key.
+     */
+    public static final String PROPERTY_VALUES_FIELD_NAME = "__propertyValues";
+    private static final String PROPERTY_KEY_SEPARATOR = "\u001f";
+    private static final int PARTIAL_UPDATE_RETRY_ON_CONFLICT = 3;
+    private static final String PARTIAL_UPDATE_REBUILD_MESSAGE = "securegraph: document needs to be rebuilt";
+    // fails with PARTIAL_UPDATE_REBUILD_MESSAGE when a property of the element is stored with another visibility,
+    // the stale visibility can only be dropped by rebuilding the document from the graph. The fields of the updated
+    // properties are replaced per property key and each affected field is rewritten from the values of all properties
+    // with that field. Written without constructor calls so it also runs in the groovy sandbox.
+    private static final String PARTIAL_UPDATE_SCRIPT = ""
+            + "def propertyValues = ctx._source['" + PROPERTY_VALUES_FIELD_NAME + "'];"
+            + "assert propertyValues != null : rebuildMessage;"
+            + "for (newPropertyKey in newPropertyValues.keySet()) {"
+            + "  if (!propertyValues.containsKey(newPropertyKey)) {"
+            + "    def prefix = newPropertyKey.substring(0, newPropertyKey.lastIndexOf(propertyKeySeparator) + 1);"
+            + "    for (propertyKey in propertyValues.keySet()) {"
+            + "      assert !propertyKey.startsWith(prefix) : rebuildMessage;"
+            + "    };"
+            + "  };"
+            + "};"
+            + "def fieldNames = [];"
+            + "for (newPropertyValue in newPropertyValues.entrySet()) {"
+            + "  def oldFields = propertyValues[newPropertyValue.key];"
+            + "  if (oldFields != null) {"
+            + "    fieldNames = fieldNames + oldFields.keySet();"
+            + "  };"
+            + "  fieldNames = fieldNames + newPropertyValue.value.keySet();"
+            + "  propertyValues[newPropertyValue.key] = newPropertyValue.value;"
+            + "};"
+            + "ctx._source.putAll(fields);"
+            + "for (fieldName in fieldNames.unique()) {"
+            + "  def values = [];"
+            + "  for (propertyFields in propertyValues.values()) {"
+            + "    if (propertyFields.containsKey(fieldName)) {"
+            + "      values = values + [propertyFields[fieldName]];"
+            + "    };"
+            + "  };"
+            + "  if (values.isEmpty()) {"
+            + "    ctx._source.remove(fieldName);"
+            + "  } else {"
+            + "    ctx._source[fieldName] = values.size() == 1 ? values[0] : values;"
+            + "  };"
+            + "};"
+            + "ctx._source['" + PROPERTY_VALUES_FIELD_NAME + "'] = propertyValues;"
+            + "def propertyVisibilities = ctx._source['" + PROPERTY_VISIBILITIES_FIELD_NAME + "'] ?: [];"
+            + "propertyVisibilities = (propertyVisibilities + newPropertyVisibilities).unique();"
+            + "ctx._source['" + PROPERTY_VISIBILITIES_FIELD_NAME + "'] = propertyVisibilities;"
+            + "def visibilities = ([elementVisibility] + propertyVisibilities).unique();"
+            + "ctx._source['" + VISIBILITY_FIELD_NAME + "'] = visibilities.findAll { it }.collect { '(' + it + ')' }.join('&');";
 
     public ElasticSearchSearchIndex(GraphConfiguration config) {
         super(config);
@@ -31,6 +88,10 @@ public class ElasticSearchSearchIndex extends ElasticSearchSearchIndexBase {
 
     @Override
     public void addElement(Graph graph, Element element, Authorizations authorizations) {
+        addElement(graph, element, getConfig().isPartialDocumentUpdates(), authorizations);
+    }
+
+    private void addElement(Graph graph, Element element, boolean partialDocumentUpdate, Authorizations authorizations) {
         if (LOGGER.isTraceEnabled()) {
             LOGGER.trace("addElement: " + element.getId());
         }
@@ -41,15 +102,8 @@ public class ElasticSearchSearchIndex extends ElasticSearchSearchIndexBase {
         IndexInfo indexInfo = addPropertiesToIndex(element, element.getProperties());
 
         try {
-            XContentBuilder jsonBuilder = buildJsonContentFromElement(graph, indexInfo, element, authorizations);
-
-            IndexResponse response = getClient()
-                    .prepareIndex(indexInfo.getIndexName(), ElasticSearchSearchIndexBase.ELEMENT_TYPE, element.getId())
-                    .setSource(jsonBuilder.endObject())
-                    .execute()
-                    .actionGet();
-            if (response.getId() == null) {
-                throw new SecureGraphException("Could not index document " + element.getId());
+            if (!partialDocumentUpdate || !updateDocument(indexInfo, element, authorizations)) {
+                indexDocument(graph, indexInfo, element, authorizations);
             }
 
             if (getConfig().isAutoFlush()) {
@@ -62,9 +116,155 @@ public class ElasticSearchSearchIndex extends ElasticSearchSearchIndexBase {
         getConfig().getScoringStrategy().addElement(this, graph, element, authorizations);
     }
 
+    /**
+     * @return false if the document has to be rebuilt from the graph instead.
+     */
+    private boolean updateDocument(IndexInfo indexInfo, Element element, Authorizations authorizations) throws IOException {
+        UpdateResponse response;
+        try {
+            response = getClient()
+                    .update(createPartialUpdateRequest(indexInfo, element, authorizations))
+                    .actionGet();
+        } catch (ElasticsearchException ex) {
+            if (isRebuildNeeded(ExceptionsHelper.detailedMessage(ex))) {
+                LOGGER.debug("Rebuilding document " + element.getId());
+                return false;
+            }
+            throw ex;
+        }
+        if (response.getId() == null) {
+            throw new SecureGraphException("Could not update document " + element.getId());
+        }
+        return true;
+    }
+
+    private void indexDocument(Graph graph, IndexInfo indexInfo, Element element, Authorizations authorizations) throws IOException {
+        XContentBuilder jsonBuilder = buildJsonContentFromElement(graph, indexInfo, element, authorizations);
+
+        IndexResponse response = getClient()
+                .prepareIndex(indexInfo.getIndexName(), ElasticSearchSearchIndexBase.ELEMENT_TYPE, element.getId())
+                .setSource(jsonBuilder.endObject())
+                .execute()
+                .actionGet();
+        if (response.getId() == null) {
+            throw new SecureGraphException("Could not index document " + element.getId());
+        }
+    }
+
+    private static boolean isRebuildNeeded(String failureMessage) {
+        return failureMessage != null && failureMessage.contains(PARTIAL_UPDATE_REBUILD_MESSAGE);
+    }
+
+    /**
+     * A partial update cannot drop the removed property from the document so the whole document is rebuilt from the
+     * graph.
+     */
+    @Override
+    public void removeProperty(Graph graph, Element element, String propertyKey, String propertyName, Visibility propertyVisibility, Authorizations authorizations) {
+        addElement(graph, element, false, authorizations);
+    }
+
+    /**
+     * Adds the elements with bulk requests. The field mappings of all elements in a bulk request are collected and
+     * registered with one put mapping request just before the bulk request is submitted.
+     */
+    @Override
+    public void addElements(Graph graph, Iterable<? extends Element> elements, Authorizations authorizations) {
+        int totalCount = 0;
+        Map<IndexInfo, BulkRequestWithCount> bulkRequests = new HashMap<>();
+        Map<IndexInfo, List<FieldMapping>> pendingFieldMappings = new HashMap<>();
+        final List<String> rebuildIds = new ArrayList<>();
+        InFlightBulkRequests inFlightBulkRequests = new InFlightBulkRequests(getClient(), getConfig().getBulkConcurrentRequests()) {
+            @Override
+            protected boolean handleFailure(BulkItemResponse bulkItemResponse) {
+                if (!isRebuildNeeded(bulkItemResponse.getFailureMessage())) {
+                    return false;
+                }
+                rebuildIds.add(bulkItemResponse.getId());
+                return true;
+            }
+        };
+        for (Element element : elements) {
+            if (!getConfig().isIndexEdges() && element instanceof Edge) {
+                continue;
+            }
+
+            List<FieldMapping> elementFieldMappings = new ArrayList<>();
+            IndexInfo indexInfo = getFieldMappings(element, element.getProperties(), elementFieldMappings);
+            BulkRequestWithCount bulkRequestWithCount = bulkRequests.get(indexInfo);
+            if (bulkRequestWithCount == null) {
+                bulkRequestWithCount = new BulkRequestWithCount();
+                bulkRequests.put(indexInfo, bulkRequestWithCount);
+                pendingFieldMappings.put(indexInfo, new ArrayList<FieldMapping>());
+            }
+
+            if (bulkRequestWithCount.getCount() >= getConfig().getBulkBatchSize()
+                    || bulkRequestWithCount.getBulkRequest().estimatedSizeInBytes() >= getConfig().getBulkMaxSizeBytes()) {
+                LOGGER.debug("adding elements... " + totalCount);
+                submitBulkRequest(inFlightBulkRequests, indexInfo, bulkRequestWithCount, pendingFieldMappings.get(indexInfo));
+            }
+            pendingFieldMappings.get(indexInfo).addAll(elementFieldMappings);
+            addElementToBulkRequest(graph, bulkRequestWithCount.getBulkRequest(), indexInfo, element, authorizations);
+            bulkRequestWithCount.incrementCount();
+            totalCount++;
+
+            totalCount += getConfig().getScoringStrategy().addElement(this, graph, bulkRequestWithCount, indexInfo, element, authorizations);
+        }
+        for (Map.Entry<IndexInfo, BulkRequestWithCount> bulkRequest : bulkRequests.entrySet()) {
+            submitBulkRequest(inFlightBulkRequests, bulkRequest.getKey(), bulkRequest.getValue(), pendingFieldMappings.get(bulkRequest.getKey()));
+        }
+        try {
+            inFlightBulkRequests.waitForAll();
+        } finally {
+            rebuildDocuments(graph, rebuildIds, authorizations);
+        }
+        LOGGER.debug("added " + totalCount + " elements");
+
+        if (getConfig().isAutoFlush()) {
+            flush();
+        }
+    }
+
+    /**
+     * Puts the field mappings collected for the bulk request, sends it and clears it for the next elements.
+     */
+    protected void submitBulkRequest(InFlightBulkRequests inFlightBulkRequests, IndexInfo indexInfo, BulkRequestWithCount bulkRequestWithCount, List<FieldMapping> fieldMappings) {
+        try {
+            addFieldMappingsToIndex(indexInfo, fieldMappings);
+        } catch (IOException ex) {
+            throw new SecureGraphException("Could not add properties to index", ex);
+        }
+        fieldMappings.clear();
+        inFlightBulkRequests.submit(bulkRequestWithCount.getBulkRequest());
+        bulkRequestWithCount.clear();
+    }
+
+    private void rebuildDocuments(Graph graph, List<String> ids, Authorizations authorizations) {
+        for (String id : ids) {
+            Element element = graph.getVertex(id, authorizations);
+            if (element == null) {
+                element = graph.getEdge(id, authorizations);
+            }
+            if (element == null) {
+                LOGGER.warn("Could not find element " + id + " to rebuild its document");
+                continue;
+            }
+            LOGGER.debug("Rebuilding document " + id);
+            try {
+                indexDocument(graph, addPropertiesToIndex(element, element.getProperties()), element, authorizations);
+            } catch (IOException ex) {
+                throw new SecureGraphException("Could not rebuild document " + id, ex);
+            }
+        }
+    }
+
     @Override
     public void addElementToBulkRequest(Graph graph, BulkRequest bulkRequest, IndexInfo indexInfo, Element element, Authorizations authorizations) {
         try {
+            if (getConfig().isPartialDocumentUpdates()) {
+                bulkRequest.add(createPartialUpdateRequest(indexInfo, element, authorizations));
+                return;
+            }
             XContentBuilder json = buildJsonContentFromElement(graph, indexInfo, element, authorizations);
             IndexRequest indexRequest = new IndexRequest(indexInfo.getIndexName(), ELEMENT_TYPE, element.getId()).source(json);
             bulkRequest.add(indexRequest);
@@ -98,13 +298,48 @@ public class ElasticSearchSearchIndex extends ElasticSearchSearchIndexBase {
         }
     }
 
+    /**
+     * Creates an update that merges the fields of the given element into the existing document without re-reading the
+     * element from the graph. The document visibility is recomputed from the element visibility and the property
+     * visibilities already stored in the document. The values of a multi-valued property are merged per property key,
+     * values stored for other keys of the same property name are kept. If the document does not exist it is created
+     * from the element. If a property of the element is stored with another visibility the update fails and the
+     * document has to be rebuilt.
+     */
+    private UpdateRequest createPartialUpdateRequest(IndexInfo indexInfo, Element element, Authorizations authorizations) throws IOException {
+        XContentBuilder json = buildJsonContent(indexInfo, element, authorizations).endObject();
+        Map<String, Object> fields = XContentHelper.convertToMap(json.bytes(), false).v2();
+        Object propertyVisibilities = fields.remove(PROPERTY_VISIBILITIES_FIELD_NAME);
+        Map<String, Map<String, Object>> propertyValues = (Map<String, Map<String, Object>>) fields.remove(PROPERTY_VALUES_FIELD_NAME);
+        fields.remove(VISIBILITY_FIELD_NAME);
+        // the property fields are rewritten by the script from the values of all property keys
+        for (Map<String, Object> propertyFields : propertyValues.values()) {
+            fields.keySet().removeAll(propertyFields.keySet());
+        }
+
+        return new UpdateRequest(indexInfo.getIndexName(), ELEMENT_TYPE, element.getId())
+                .script(PARTIAL_UPDATE_SCRIPT, ScriptService.ScriptType.INLINE)
+                .scriptLang("groovy")
+                .addScriptParam("fields", fields)
+                .addScriptParam("newPropertyVisibilities", propertyVisibilities)
+                .addScriptParam("newPropertyValues", propertyValues)
+                .addScriptParam("propertyKeySeparator", PROPERTY_KEY_SEPARATOR)
+                .addScriptParam("rebuildMessage", PARTIAL_UPDATE_REBUILD_MESSAGE)
+                .addScriptParam("elementVisibility", element.getVisibility().getVisibilityString())
+                .upsert(json)
+                .retryOnConflict(PARTIAL_UPDATE_RETRY_ON_CONFLICT);
+    }
+
     private XContentBuilder buildJsonContentFromElement(Graph graph, IndexInfo indexInfo, Element element, Authorizations authorizations) throws IOException {
+        element = requeryWithAuthsAndMergedElement(graph, element, authorizations);
+        return buildJsonContent(indexInfo, element, authorizations);
+    }
+
+    private XContentBuilder buildJsonContent(IndexInfo indexInfo, Element element, Authorizations authorizations) throws IOException {
         XContentBuilder jsonBuilder;
         jsonBuilder = XContentFactory.jsonBuilder()
                 .startObject();
 
-        element = requeryWithAuthsAndMergedElement(graph, element, authorizations);
-
         if (element instanceof Vertex) {
             jsonBuilder.field(ElasticSearchSearchIndexBase.ELEMENT_TYPE_FIELD_NAME, ElasticSearchSearchIndexBase.ELEMENT_TYPE_VERTEX);
             getConfig().getScoringStrategy().addFieldsToVertexDocument(this, jsonBuilder, (Vertex) element, null, authorizations);
@@ -115,65 +350,93 @@ public class ElasticSearchSearchIndex extends ElasticSearchSearchIndexBase {
             throw new SecureGraphException("Unexpected element type " + element.getClass().getName());
         }
 
-        Set<String> visibilityStrings = new HashSet<>();
-        visibilityStrings.add(element.getVisibility().getVisibilityString());
+        Set<String> propertyVisibilityStrings = new HashSet<>();
+        Map<String, Map<String, Object>> propertyValues = new HashMap<>();
+        // properties with the same name and different keys are written as one array
+        Map<String, List<Object>> fieldValues = new LinkedHashMap<>();
 
         for (Property property : element.getProperties()) {
-            visibilityStrings.add(property.getVisibility().getVisibilityString());
-
-            Object propertyValue = property.getValue();
-            if (propertyValue != null && shouldIgnoreType(propertyValue.getClass())) {
-                continue;
-            } else if (propertyValue instanceof GeoPoint) {
-                GeoPoint geoPoint = (GeoPoint) propertyValue;
-                Map<String, Object> propertyValueMap = new HashMap<>();
-                propertyValueMap.put("lat", geoPoint.getLatitude());
-                propertyValueMap.put("lon", geoPoint.getLongitude());
-                jsonBuilder.field(property.getName() + ElasticSearchSearchIndexBase.GEO_PROPERTY_NAME_SUFFIX, propertyValueMap);
-                if (geoPoint.getDescription() != null) {
-                    jsonBuilder.field(property.getName(), geoPoint.getDescription());
-                }
-                continue;
-            } else if (propertyValue instanceof StreamingPropertyValue) {
-                StreamingPropertyValue streamingPropertyValue = (StreamingPropertyValue) propertyValue;
-                if (!streamingPropertyValue.isSearchIndex()) {
-                    continue;
+            propertyVisibilityStrings.add(property.getVisibility().getVisibilityString());
+
+            Map<String, Object> propertyFields = getPropertyFields(indexInfo, property);
+            propertyValues.put(property.getName() + PROPERTY_KEY_SEPARATOR + property.getKey() + PROPERTY_KEY_SEPARATOR + property.getVisibility().getVisibilityString(), propertyFields);
+            for (Map.Entry<String, Object> propertyField : propertyFields.entrySet()) {
+                List<Object> values = fieldValues.get(propertyField.getKey());
+                if (values == null) {
+                    values = new ArrayList<>();
+                    fieldValues.put(propertyField.getKey(), values);
                 }
+                values.add(propertyField.getValue());
+            }
+        }
 
-                PropertyDefinition propertyDefinition = indexInfo.getPropertyDefinitions().get(property.getName());
-                if (propertyDefinition != null && !propertyDefinition.getTextIndexHints().contains(TextIndexHint.FULL_TEXT)) {
-                    continue;
-                }
+        for (Map.Entry<String, List<Object>> fieldValue : fieldValues.entrySet()) {
+            List<Object> values = fieldValue.getValue();
+            jsonBuilder.field(fieldValue.getKey(), values.size() == 1 ? values.get(0) : values);
+        }
 
-                Class valueType = streamingPropertyValue.getValueType();
-                if (valueType == String.class) {
-                    InputStream in = streamingPropertyValue.getInputStream();
-                    propertyValue = StreamUtils.toString(in);
-                } else {
-                    throw new SecureGraphException("Unhandled StreamingPropertyValue type: " + valueType.getName());
-                }
-            } else if (propertyValue instanceof String) {
-                PropertyDefinition propertyDefinition = indexInfo.getPropertyDefinitions().get(property.getName());
-                if (propertyDefinition == null || propertyDefinition.getTextIndexHints().contains(TextIndexHint.EXACT_MATCH)) {
-                    jsonBuilder.field(property.getName() + ElasticSearchSearchIndexBase.EXACT_MATCH_PROPERTY_NAME_SUFFIX, propertyValue);
-                }
-                if (propertyDefinition == null || propertyDefinition.getTextIndexHints().contains(TextIndexHint.FULL_TEXT)) {
-                    jsonBuilder.field(property.getName(), propertyValue);
-                }
-                continue;
+        Set<String> visibilityStrings = new HashSet<>(propertyVisibilityStrings);
+        visibilityStrings.add(element.getVisibility().getVisibilityString());
+        String visibilityString = Visibility.and(visibilityStrings).getVisibilityString();
+        jsonBuilder.field(VISIBILITY_FIELD_NAME, visibilityString);
+        if (getConfig().isPartialDocumentUpdates()) {
+            jsonBuilder.field(PROPERTY_VISIBILITIES_FIELD_NAME, propertyVisibilityStrings);
+            jsonBuilder.field(PROPERTY_VALUES_FIELD_NAME, propertyValues);
+        }
+
+        return jsonBuilder;
+    }
+
+    private Map<String, Object> getPropertyFields(IndexInfo indexInfo, Property property) throws IOException {
+        Map<String, Object> fields = new HashMap<>();
+        Object propertyValue = property.getValue();
+        if (propertyValue != null && shouldIgnoreType(propertyValue.getClass())) {
+            return fields;
+        } else if (propertyValue instanceof GeoPoint) {
+            GeoPoint geoPoint = (GeoPoint) propertyValue;
+            Map<String, Object> propertyValueMap = new HashMap<>();
+            propertyValueMap.put("lat", geoPoint.getLatitude());
+            propertyValueMap.put("lon", geoPoint.getLongitude());
+            fields.put(property.getName() + ElasticSearchSearchIndexBase.GEO_PROPERTY_NAME_SUFFIX, propertyValueMap);
+            if (geoPoint.getDescription() != null) {
+                fields.put(property.getName(), geoPoint.getDescription());
+            }
+            return fields;
+        } else if (propertyValue instanceof StreamingPropertyValue) {
+            StreamingPropertyValue streamingPropertyValue = (StreamingPropertyValue) propertyValue;
+            if (!streamingPropertyValue.isSearchIndex()) {
+                return fields;
             }
 
-            if (propertyValue instanceof DateOnly) {
-                propertyValue = ((DateOnly) propertyValue).getDate();
+            PropertyDefinition propertyDefinition = indexInfo.getPropertyDefinitions().get(property.getName());
+            if (propertyDefinition != null && !propertyDefinition.getTextIndexHints().contains(TextIndexHint.FULL_TEXT)) {
+                return fields;
             }
 
-            jsonBuilder.field(property.getName(), propertyValue);
+            Class valueType = streamingPropertyValue.getValueType();
+            if (valueType == String.class) {
+                InputStream in = streamingPropertyValue.getInputStream();
+                propertyValue = StreamUtils.toString(in);
+            } else {
+                throw new SecureGraphException("Unhandled StreamingPropertyValue type: " + valueType.getName());
+            }
+        } else if (propertyValue instanceof String) {
+            PropertyDefinition propertyDefinition = indexInfo.getPropertyDefinitions().get(property.getName());
+            if (propertyDefinition == null || propertyDefinition.getTextIndexHints().contains(TextIndexHint.EXACT_MATCH)) {
+                fields.put(property.getName() + ElasticSearchSearchIndexBase.EXACT_MATCH_PROPERTY_NAME_SUFFIX, propertyValue);
+            }
+            if (propertyDefinition == null || propertyDefinition.getTextIndexHints().contains(TextIndexHint.FULL_TEXT)) {
+                fields.put(property.getName(), propertyValue);
+            }
+            return fields;
         }
 
-        String visibilityString = Visibility.and(visibilityStrings).getVisibilityString();
-        jsonBuilder.field(VISIBILITY_FIELD_NAME, visibilityString);
+        if (propertyValue instanceof DateOnly) {
+            propertyValue = ((DateOnly) propertyValue).getDate();
+        }
 
-        return jsonBuilder;
+        fields.put(property.getName(), propertyValue);
+        return fields;
     }
 
     private Element requeryWithAuthsAndMergedElement(Graph graph, Element element, Authorizations authorizations) {
@@ -196,25 +459,26 @@ public class ElasticSearchSearchIndex extends ElasticSearchSearchIndexBase {
     }
 
     @Override
-    protected void addPropertyToIndex(IndexInfo indexInfo, String propertyName, Class dataType, boolean analyzed, Double boost) throws IOException {
-        if (indexInfo.isPropertyDefined(propertyName)) {
-            return;
-        }
-
-        if (shouldIgnoreType(dataType)) {
-            return;
-        }
+    protected void createIndexAddFieldsToElementType(XContentBuilder builder) throws IOException {
+        super.createIndexAddFieldsToElementType(builder);
+        builder.startObject(PROPERTY_VISIBILITIES_FIELD_NAME).field("type", "string").field("index", "no").endObject();
+        builder.startObject(PROPERTY_VALUES_FIELD_NAME).field("type", "object").field("enabled", false).endObject();
+    }
 
+    @Override
+    protected void putFieldMappings(IndexInfo indexInfo, List<FieldMapping> fieldMappings) throws IOException {
         XContentBuilder mapping = XContentFactory.jsonBuilder()
                 .startObject()
                 .startObject(ElasticSearchSearchIndexBase.ELEMENT_TYPE)
-                .startObject("properties")
-                .startObject(propertyName);
+                .startObject("properties");
 
-        addTypeToMapping(mapping, propertyName, dataType, analyzed, boost);
+        for (FieldMapping fieldMapping : fieldMappings) {
+            mapping.startObject(fieldMapping.getPropertyName());
+            addTypeToMapping(mapping, fieldMapping.getPropertyName(), fieldMapping.getDataType(), fieldMapping.isAnalyzed(), fieldMapping.getBoost());
+            mapping.endObject();
+        }
 
         mapping
-                .endObject()
                 .endObject()
                 .endObject()
                 .endObject();
@@ -229,8 +493,6 @@ public class ElasticSearchSearchIndex extends ElasticSearchSearchIndexBase {
                 .execute()
                 .actionGet();
         LOGGER.debug(response.toString());
-
-        indexInfo.addPropertyDefinition(propertyName, new PropertyDefinition(propertyName, dataType, TextIndexHint.ALL));
     }
 
     @Override
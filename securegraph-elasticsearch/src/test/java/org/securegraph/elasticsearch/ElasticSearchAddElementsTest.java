@@ -0,0 +1,175 @@
+package org.securegraph.elasticsearch;
+
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.*;
+import org.securegraph.elasticsearch.helpers.ElasticSearchSearchIndexTestHelpers;
+import org.securegraph.inmemory.InMemoryAuthorizations;
+import org.securegraph.inmemory.InMemoryGraph;
+import org.securegraph.search.IndexHint;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.securegraph.util.IterableUtils.count;
+
+@RunWith(JUnit4.class)
+public class ElasticSearchAddElementsTest {
+    private static final Visibility VISIBILITY_A = new Visibility("a");
+    private final Authorizations authorizations = new InMemoryAuthorizations("a");
+    private Graph graph;
+    private RecordingSearchIndex searchIndex;
+
+    @BeforeClass
+    public static void beforeClass() throws IOException {
+        ElasticSearchSearchIndexTestHelpers.beforeClass();
+    }
+
+    @Before
+    public void before() {
+        ElasticSearchSearchIndexTestHelpers.before();
+    }
+
+    @After
+    public void after() {
+        if (graph != null) {
+            graph.shutdown();
+        }
+    }
+
+    @AfterClass
+    public static void afterClass() throws IOException {
+        ElasticSearchSearchIndexTestHelpers.afterClass();
+    }
+
+    @Test
+    public void testBulkBatchSize() {
+        createGraph(ElasticSearchSearchIndexConfiguration.CONFIG_BULK_BATCH_SIZE, "4");
+        List<Vertex> vertices = createVertices(10);
+
+        searchIndex.addElements(graph, vertices, authorizations);
+
+        assertEquals(Arrays.asList(4, 4, 2), searchIndex.bulkRequestCounts);
+        assertEquals(10, count(graph.query(authorizations).vertices()));
+        assertEquals(1, count(graph.query(authorizations).has("age", 7).vertices()));
+    }
+
+    @Test
+    public void testBulkMaxSizeBytes() {
+        createGraph(ElasticSearchSearchIndexConfiguration.CONFIG_BULK_MAX_SIZE_BYTES, "1");
+        List<Vertex> vertices = createVertices(3);
+
+        searchIndex.addElements(graph, vertices, authorizations);
+
+        assertEquals(Arrays.asList(1, 1, 1), searchIndex.bulkRequestCounts);
+        assertEquals(3, count(graph.query(authorizations).vertices()));
+    }
+
+    @Test
+    public void testConcurrentBulkRequests() {
+        Map config = new HashMap();
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + ElasticSearchSearchIndexConfiguration.CONFIG_BULK_BATCH_SIZE, "3");
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + ElasticSearchSearchIndexConfiguration.CONFIG_BULK_CONCURRENT_REQUESTS, "3");
+        createGraph(config);
+        List<Vertex> vertices = createVertices(20);
+
+        searchIndex.addElements(graph, vertices, authorizations);
+
+        assertEquals(7, searchIndex.bulkRequestCounts.size());
+        assertEquals(20, count(graph.query(authorizations).vertices()));
+
+        // adding the same elements again replaces their documents
+        searchIndex.addElements(graph, vertices, authorizations);
+        assertEquals(20, count(graph.query(authorizations).vertices()));
+    }
+
+    @Test
+    public void testFailedElementsAreReported() {
+        createGraph(ElasticSearchSearchIndexConfiguration.CONFIG_BULK_BATCH_SIZE, "2");
+        searchIndex.addElements(graph, createVertices(1), authorizations);
+
+        List<Vertex> vertices = createVertices(4);
+        vertices.add(2, graph.prepareVertex("bad", VISIBILITY_A)
+                .setProperty("age", "not a number", VISIBILITY_A)
+                .setIndexHint(IndexHint.DO_NOT_INDEX)
+                .save(authorizations));
+        try {
+            searchIndex.addElements(graph, vertices, authorizations);
+            fail("should have thrown");
+        } catch (SecureGraphException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("Could not add 1 element(s): [bad ("));
+        }
+
+        // the failure does not stop the other bulk requests, auto flush is skipped when addElements throws
+        searchIndex.flush();
+        assertEquals(4, count(graph.query(authorizations).vertices()));
+        assertEquals(0, count(graph.query("not", authorizations).vertices()));
+    }
+
+    @Test
+    public void testEdgesAreSkippedWhenNotIndexed() {
+        createGraph(ElasticSearchSearchIndexConfiguration.CONFIG_INDEX_EDGES, "false");
+        List<Element> elements = new ArrayList<>();
+        elements.addAll(createVertices(2));
+        elements.add(graph.prepareEdge("e1", (Vertex) elements.get(0), (Vertex) elements.get(1), "label1", VISIBILITY_A)
+                .setIndexHint(IndexHint.DO_NOT_INDEX)
+                .save(authorizations));
+
+        searchIndex.addElements(graph, elements, authorizations);
+
+        assertEquals(Arrays.asList(2), searchIndex.bulkRequestCounts);
+        assertEquals(2, count(graph.query(authorizations).vertices()));
+        assertEquals(0, count(graph.query(authorizations).edges()));
+    }
+
+    @Test
+    public void testNoElements() {
+        createGraph(new HashMap());
+
+        searchIndex.addElements(graph, new ArrayList<Element>(), authorizations);
+
+        assertEquals(0, searchIndex.bulkRequestCounts.size());
+    }
+
+    private void createGraph(String configKey, String configValue) {
+        Map config = new HashMap();
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + configKey, configValue);
+        createGraph(config);
+    }
+
+    private void createGraph(Map config) {
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX, RecordingSearchIndex.class.getName());
+        graph = ElasticSearchSearchIndexTestHelpers.createGraph(config);
+        searchIndex = (RecordingSearchIndex) ((InMemoryGraph) graph).getSearchIndex();
+    }
+
+    private List<Vertex> createVertices(int count) {
+        List<Vertex> vertices = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            vertices.add(graph.prepareVertex("v" + i, VISIBILITY_A)
+                    .setProperty("name", "name" + i, VISIBILITY_A)
+                    .setProperty("age", i, VISIBILITY_A)
+                    .setIndexHint(IndexHint.DO_NOT_INDEX)
+                    .save(authorizations));
+        }
+        return vertices;
+    }
+
+    public static class RecordingSearchIndex extends ElasticSearchSearchIndex {
+        private final List<Integer> bulkRequestCounts = new ArrayList<>();
+
+        public RecordingSearchIndex(GraphConfiguration config) {
+            super(config);
+        }
+
+        @Override
+        protected void submitBulkRequest(InFlightBulkRequests inFlightBulkRequests, IndexInfo indexInfo, BulkRequestWithCount bulkRequestWithCount, List<FieldMapping> fieldMappings) {
+            if (bulkRequestWithCount.getCount() > 0) {
+                bulkRequestCounts.add(bulkRequestWithCount.getCount());
+            }
+            super.submitBulkRequest(inFlightBulkRequests, indexInfo, bulkRequestWithCount, fieldMappings);
+        }
+    }
+}
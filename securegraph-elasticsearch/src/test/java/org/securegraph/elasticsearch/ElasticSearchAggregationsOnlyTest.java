@@ -0,0 +1,166 @@
+package org.securegraph.elasticsearch;
+
+import org.elasticsearch.client.transport.TransportClient;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.*;
+import org.securegraph.elasticsearch.helpers.ElasticSearchSearchIndexTestHelpers;
+import org.securegraph.elasticsearch.score.ScoringStrategy;
+import org.securegraph.inmemory.InMemoryAuthorizations;
+import org.securegraph.inmemory.InMemoryGraph;
+import org.securegraph.query.*;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.securegraph.util.IterableUtils.count;
+
+@RunWith(JUnit4.class)
+public class ElasticSearchAggregationsOnlyTest {
+    private static final Visibility VISIBILITY_A = new Visibility("a");
+    private final Authorizations authorizations = new InMemoryAuthorizations("a");
+    private Graph graph;
+    private RecordingSearchIndex searchIndex;
+
+    @BeforeClass
+    public static void beforeClass() throws IOException {
+        ElasticSearchSearchIndexTestHelpers.beforeClass();
+    }
+
+    @Before
+    public void before() {
+        ElasticSearchSearchIndexTestHelpers.before();
+        Map config = new HashMap();
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX, RecordingSearchIndex.class.getName());
+        graph = ElasticSearchSearchIndexTestHelpers.createGraph(config);
+        searchIndex = (RecordingSearchIndex) ((InMemoryGraph) graph).getSearchIndex();
+
+        Vertex v1 = createVertex("v1", 30);
+        Vertex v2 = createVertex("v2", 30);
+        Vertex v3 = createVertex("v3", 45);
+        createVertex("v4", 52);
+        graph.addEdge("e1", v1, v2, "knows", VISIBILITY_A, authorizations);
+        graph.addEdge("e2", v1, v3, "knows", VISIBILITY_A, authorizations);
+        graph.flush();
+    }
+
+    @After
+    public void after() {
+        graph.shutdown();
+    }
+
+    @AfterClass
+    public static void afterClass() throws IOException {
+        ElasticSearchSearchIndexTestHelpers.afterClass();
+    }
+
+    @Test
+    public void testAggregationsOnlyDoesNotFetchHits() {
+        Iterable<Vertex> vertices = createAggregationQuery().aggregationsOnly().vertices();
+        assertEquals(0, count(vertices));
+        assertEquals(0, ((ElasticSearchGraphQueryIterable) vertices).getSearchResponse().getHits().getHits().length);
+        assertEquals(4, ((IterableWithTotalHits) vertices).getTotalHits());
+        assertEquals(0, searchIndex.fetchCount);
+
+        Map<String, Long> expectedTerms = new HashMap<>();
+        expectedTerms.put("30", 2L);
+        expectedTerms.put("45", 1L);
+        expectedTerms.put("52", 1L);
+        assertEquals(expectedTerms, getTerms(vertices));
+
+        Map<String, Long> expectedHistogram = new HashMap<>();
+        expectedHistogram.put("30", 2L);
+        expectedHistogram.put("40", 1L);
+        expectedHistogram.put("50", 1L);
+        assertEquals(expectedHistogram, getHistogram(vertices));
+
+        // the same aggregations as the query fetching the vertices
+        Iterable<Vertex> fetchedVertices = createAggregationQuery().vertices();
+        assertEquals(4, count(fetchedVertices));
+        assertTrue(searchIndex.fetchCount > 0);
+        assertEquals(getTerms(fetchedVertices), getTerms(vertices));
+        assertEquals(getHistogram(fetchedVertices), getHistogram(vertices));
+    }
+
+    @Test
+    public void testAggregationsOnlyEdges() {
+        Iterable<Edge> edges = ((GraphQueryWithAggregationsOnly) graph.query(authorizations)).aggregationsOnly().edges();
+        assertEquals(0, count(edges));
+        assertEquals(2, ((IterableWithTotalHits) edges).getTotalHits());
+        assertEquals(0, searchIndex.fetchCount);
+    }
+
+    @Test
+    public void testCounts() {
+        GraphQueryWithAggregationsOnly query = (GraphQueryWithAggregationsOnly) graph.query(authorizations);
+        assertEquals(4, query.verticesCount());
+        assertEquals(2, query.edgesCount());
+
+        query = (GraphQueryWithAggregationsOnly) graph.query(authorizations).has("age", 30);
+        assertEquals(2, query.verticesCount());
+        assertEquals(0, query.edgesCount());
+        assertEquals(0, searchIndex.fetchCount);
+    }
+
+    private GraphQueryWithAggregationsOnly createAggregationQuery() {
+        GraphQuery query = graph.query(authorizations);
+        ((GraphQueryWithTermsAggregation) query).addTermsAggregation("terms-age", "age");
+        ((GraphQueryWithHistogramAggregation) query).addHistogramAggregation("histogram-age", "age", "10");
+        return (GraphQueryWithAggregationsOnly) query;
+    }
+
+    private Vertex createVertex(String id, int age) {
+        return graph.prepareVertex(id, VISIBILITY_A)
+                .setProperty("age", age, VISIBILITY_A)
+                .save(authorizations);
+    }
+
+    private static Map<String, Long> getTerms(Iterable<Vertex> vertices) {
+        Map<String, Long> results = new HashMap<>();
+        for (TermsBucket bucket : ((IterableWithTermsResults<Vertex>) vertices).getTermsResults("terms-age").getBuckets()) {
+            results.put(bucket.getKey().toString(), bucket.getCount());
+        }
+        return results;
+    }
+
+    private static Map<String, Long> getHistogram(Iterable<Vertex> vertices) {
+        Map<String, Long> results = new HashMap<>();
+        for (HistogramBucket bucket : ((IterableWithHistogramResults<Vertex>) vertices).getHistogramResults("histogram-age").getBuckets()) {
+            results.put(bucket.getKey().toString(), bucket.getCount());
+        }
+        return results;
+    }
+
+    public static class RecordingSearchIndex extends ElasticSearchSearchIndex {
+        private int fetchCount;
+
+        public RecordingSearchIndex(GraphConfiguration config) {
+            super(config);
+        }
+
+        @Override
+        public GraphQuery queryGraph(Graph graph, String queryString, Authorizations authorizations) {
+            return new RecordingGraphQuery(getClient(), getConfig().getIndicesToQuery(), graph, queryString, getAllPropertyDefinitions(), getConfig().getScoringStrategy(), authorizations);
+        }
+
+        private class RecordingGraphQuery extends ElasticSearchGraphQuery {
+            public RecordingGraphQuery(TransportClient client, String[] indicesToQuery, Graph graph, String queryString, Map<String, PropertyDefinition> propertyDefinitions, ScoringStrategy scoringStrategy, Authorizations authorizations) {
+                super(client, indicesToQuery, graph, queryString, propertyDefinitions, scoringStrategy, authorizations);
+            }
+
+            @Override
+            protected Iterable<Vertex> getVerticesInOrder(List<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+                fetchCount++;
+                return super.getVerticesInOrder(ids, fetchHints, authorizations);
+            }
+
+            @Override
+            protected Iterable<Edge> getEdgesInOrder(List<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+                fetchCount++;
+                return super.getEdgesInOrder(ids, fetchHints, authorizations);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.securegraph.elasticsearch;
+
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.*;
+import org.securegraph.elasticsearch.helpers.ElasticSearchSearchIndexTestHelpers;
+import org.securegraph.inmemory.InMemoryAuthorizations;
+import org.securegraph.inmemory.InMemoryGraph;
+import org.securegraph.search.IndexHint;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CyclicBarrier;
+
+import static org.junit.Assert.*;
+import static org.securegraph.util.IterableUtils.count;
+
+@RunWith(JUnit4.class)
+public class ElasticSearchFieldMappingsTest {
+    private static final Visibility VISIBILITY_A = new Visibility("a");
+    private final Authorizations authorizations = new InMemoryAuthorizations("a");
+    private Graph graph;
+    private RecordingSearchIndex searchIndex;
+
+    @BeforeClass
+    public static void beforeClass() throws IOException {
+        ElasticSearchSearchIndexTestHelpers.beforeClass();
+    }
+
+    @Before
+    public void before() {
+        ElasticSearchSearchIndexTestHelpers.before();
+        Map config = new HashMap();
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX, RecordingSearchIndex.class.getName());
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + ElasticSearchSearchIndexConfiguration.CONFIG_BULK_BATCH_SIZE, "5");
+        graph = ElasticSearchSearchIndexTestHelpers.createGraph(config);
+        searchIndex = (RecordingSearchIndex) ((InMemoryGraph) graph).getSearchIndex();
+    }
+
+    @After
+    public void after() {
+        graph.shutdown();
+    }
+
+    @AfterClass
+    public static void afterClass() throws IOException {
+        ElasticSearchSearchIndexTestHelpers.afterClass();
+    }
+
+    @Test
+    public void testAddElementsPutsFieldMappingsOncePerBulkRequest() {
+        List<Vertex> vertices = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            vertices.add(createVertex("v" + i, "name", "name" + i, "p" + i, i));
+        }
+
+        searchIndex.addElements(graph, vertices, authorizations);
+
+        assertEquals(3, searchIndex.putFieldMappingsCalls.size());
+        assertEquals(asSet("name", "name" + ElasticSearchSearchIndexBase.EXACT_MATCH_PROPERTY_NAME_SUFFIX, "p0", "p1", "p2", "p3", "p4"), searchIndex.putFieldMappingsCalls.get(0));
+        assertEquals(asSet("p5", "p6", "p7", "p8", "p9"), searchIndex.putFieldMappingsCalls.get(1));
+        assertEquals(asSet("p10", "p11"), searchIndex.putFieldMappingsCalls.get(2));
+        assertEquals(1, count(graph.query(authorizations).has("p7", 7).vertices()));
+        assertEquals(12, count(graph.query("name*", authorizations).vertices()));
+
+        searchIndex.addElements(graph, vertices, authorizations);
+        assertEquals(3, searchIndex.putFieldMappingsCalls.size());
+    }
+
+    @Test
+    public void testFailedFieldMappingDoesNotBlockOtherFields() {
+        searchIndex.failingPropertyName = "bad";
+        List<Vertex> vertices = new ArrayList<>();
+        vertices.add(createVertex("v1", "good1", 1, "bad", 2));
+        vertices.add(createVertex("v2", "good2", 3, "bad", 4));
+
+        try {
+            searchIndex.addElements(graph, vertices, authorizations);
+            fail("should have thrown");
+        } catch (SecureGraphException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("[bad]"));
+        }
+
+        // the combined request, then one request per field
+        assertEquals(4, searchIndex.putFieldMappingsCalls.size());
+        assertEquals(asSet("good1", "good2", "bad"), searchIndex.putFieldMappingsCalls.get(0));
+        Map<String, PropertyDefinition> propertyDefinitions = searchIndex.getAllPropertyDefinitions();
+        assertTrue(propertyDefinitions.containsKey("good1"));
+        assertTrue(propertyDefinitions.containsKey("good2"));
+        assertFalse(propertyDefinitions.containsKey("bad"));
+
+        searchIndex.failingPropertyName = null;
+        searchIndex.putFieldMappingsCalls.clear();
+        searchIndex.addElements(graph, vertices, authorizations);
+        assertEquals(1, searchIndex.putFieldMappingsCalls.size());
+        assertEquals(asSet("bad"), searchIndex.putFieldMappingsCalls.get(0));
+    }
+
+    @Test
+    public void testConcurrentWritersPutEachFieldOnce() throws Exception {
+        searchIndex.putFieldMappingsDelayMillis = 200;
+        final Vertex v1 = createVertex("v1", "a", 1, "b", 2);
+        final Vertex v2 = createVertex("v2", "b", 3, "c", 4);
+        final CyclicBarrier barrier = new CyclicBarrier(4);
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> threads = new ArrayList<>();
+        for (final Vertex v : Arrays.asList(v1, v2, v1, v2)) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await();
+                        searchIndex.addPropertiesToIndex(v, v.getProperties());
+                    } catch (Throwable ex) {
+                        errors.add(ex);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(new ArrayList<Throwable>(), errors);
+
+        List<String> putPropertyNames = new ArrayList<>();
+        for (Set<String> propertyNames : searchIndex.putFieldMappingsCalls) {
+            putPropertyNames.addAll(propertyNames);
+        }
+        Collections.sort(putPropertyNames);
+        assertEquals(Arrays.asList("a", "b", "c"), putPropertyNames);
+    }
+
+    private Vertex createVertex(String id, String propertyName1, Object value1, String propertyName2, Object value2) {
+        return graph.prepareVertex(id, VISIBILITY_A)
+                .setProperty(propertyName1, value1, VISIBILITY_A)
+                .setProperty(propertyName2, value2, VISIBILITY_A)
+                .setIndexHint(IndexHint.DO_NOT_INDEX)
+                .save(authorizations);
+    }
+
+    private static Set<String> asSet(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    public static class RecordingSearchIndex extends ElasticSearchSearchIndex {
+        private final List<Set<String>> putFieldMappingsCalls = Collections.synchronizedList(new ArrayList<Set<String>>());
+        private volatile String failingPropertyName;
+        private volatile long putFieldMappingsDelayMillis;
+
+        public RecordingSearchIndex(GraphConfiguration config) {
+            super(config);
+        }
+
+        @Override
+        protected void putFieldMappings(IndexInfo indexInfo, List<FieldMapping> fieldMappings) throws IOException {
+            Set<String> propertyNames = new HashSet<>();
+            for (FieldMapping fieldMapping : fieldMappings) {
+                propertyNames.add(fieldMapping.getPropertyName());
+            }
+            putFieldMappingsCalls.add(propertyNames);
+            if (putFieldMappingsDelayMillis > 0) {
+                try {
+                    Thread.sleep(putFieldMappingsDelayMillis);
+                } catch (InterruptedException ex) {
+                    throw new SecureGraphException("interrupted", ex);
+                }
+            }
+            if (propertyNames.contains(failingPropertyName)) {
+                throw new SecureGraphException("conflicting mapping for " + failingPropertyName);
+            }
+            super.putFieldMappings(indexInfo, fieldMappings);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.securegraph.elasticsearch;
+
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.*;
+import org.securegraph.elasticsearch.helpers.ElasticSearchSearchIndexTestHelpers;
+import org.securegraph.inmemory.InMemoryAuthorizations;
+import org.securegraph.mutation.ElementMutation;
+import org.securegraph.query.GraphQueryWithProjection;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.securegraph.util.IterableUtils.count;
+import static org.securegraph.util.IterableUtils.toList;
+
+@RunWith(JUnit4.class)
+public class ElasticSearchGraphQueryProjectionTest {
+    private static final Visibility VISIBILITY_A = new Visibility("a");
+    private static final Visibility VISIBILITY_B = new Visibility("b");
+    private final Authorizations authorizationsA = new InMemoryAuthorizations("a");
+    private final Authorizations authorizationsAAndB = new InMemoryAuthorizations("a", "b");
+    private Graph graph;
+
+    @BeforeClass
+    public static void beforeClass() throws IOException {
+        ElasticSearchSearchIndexTestHelpers.beforeClass();
+    }
+
+    @Before
+    public void before() {
+        ElasticSearchSearchIndexTestHelpers.before();
+        graph = ElasticSearchSearchIndexTestHelpers.createGraph();
+
+        Vertex v1 = graph.prepareVertex("v1", VISIBILITY_A)
+                .addPropertyValue("k1", "name", "alice", VISIBILITY_A)
+                .addPropertyValue("k2", "name", "alicia", VISIBILITY_A)
+                .setProperty("age", 30, VISIBILITY_A)
+                .setProperty("secret", "s1", VISIBILITY_A)
+                .save(authorizationsAAndB);
+        Vertex v2 = graph.prepareVertex("v2", VISIBILITY_A)
+                .addPropertyValue("k1", "name", "bob", VISIBILITY_A)
+                .save(authorizationsAAndB);
+        graph.prepareEdge("e1", v1, v2, "knows", VISIBILITY_A)
+                .setProperty("name", "e1name", VISIBILITY_A)
+                .setProperty("since", 2010, VISIBILITY_A)
+                .save(authorizationsAAndB);
+        graph.flush();
+    }
+
+    @After
+    public void after() {
+        graph.shutdown();
+    }
+
+    @AfterClass
+    public static void afterClass() throws IOException {
+        ElasticSearchSearchIndexTestHelpers.afterClass();
+    }
+
+    @Test
+    public void testVertexProjections() {
+        Map<String, Element> projections = getVertexProjections(authorizationsAAndB, "name", "age");
+        assertEquals(new HashSet<>(Arrays.asList("v1", "v2")), projections.keySet());
+
+        Element v1 = projections.get("v1");
+        assertTrue(v1 instanceof ElasticSearchProjectedElement);
+        assertEquals(ElasticSearchSearchIndexBase.ELEMENT_TYPE_VERTEX, ((ElasticSearchProjectedElement) v1).getElementType());
+        assertEquals(VISIBILITY_A, v1.getVisibility());
+        assertEquals(3, count(v1.getProperties()));
+        assertEquals("alice", v1.getPropertyValue("k1", "name"));
+        assertEquals("alicia", v1.getPropertyValue("k2", "name"));
+        assertEquals(VISIBILITY_A, v1.getProperty("k1", "name").getVisibility());
+        assertEquals(30, v1.getPropertyValue("age"));
+        assertNull(v1.getProperty("secret"));
+
+        Element v2 = projections.get("v2");
+        assertEquals(1, count(v2.getProperties()));
+        assertEquals("bob", v2.getPropertyValue("k1", "name"));
+    }
+
+    @Test
+    public void testEdgeProjections() {
+        GraphQueryWithProjection query = (GraphQueryWithProjection) graph.query(authorizationsAAndB);
+        List<Element> projections = toList(query.edgeProjections("since"));
+        assertEquals(1, projections.size());
+
+        Element e1 = projections.get(0);
+        assertEquals("e1", e1.getId());
+        assertEquals(ElasticSearchSearchIndexBase.ELEMENT_TYPE_EDGE, ((ElasticSearchProjectedElement) e1).getElementType());
+        assertEquals(1, count(e1.getProperties()));
+        assertEquals(2010, e1.getPropertyValue("since"));
+        assertEquals(ElementMutation.DEFAULT_KEY, e1.getProperty("since").getKey());
+    }
+
+    @Test
+    public void testProjectionsExcludeHiddenElementsAndProperties() {
+        graph.markVertexHidden(graph.getVertex("v2", authorizationsAAndB), VISIBILITY_B, authorizationsAAndB);
+        Vertex v1 = graph.getVertex("v1", authorizationsAAndB);
+        v1.markPropertyHidden("k2", "name", VISIBILITY_A, VISIBILITY_A, authorizationsAAndB);
+        graph.flush();
+
+        Map<String, Element> projections = getVertexProjections(authorizationsAAndB, "name");
+        assertEquals(Collections.singleton("v1"), projections.keySet());
+        assertEquals(1, count(projections.get("v1").getProperties()));
+        assertEquals("alice", projections.get("v1").getPropertyValue("k1", "name"));
+
+        // v2 is only hidden for those who can read the hidden visibility
+        projections = getVertexProjections(authorizationsA, "name");
+        assertEquals(new HashSet<>(Arrays.asList("v1", "v2")), projections.keySet());
+        assertEquals(1, count(projections.get("v1").getProperties()));
+    }
+
+    @Test
+    public void testProjectedElementsAreReadOnly() {
+        Element v1 = getVertexProjections(authorizationsAAndB, "name").get("v1");
+        try {
+            v1.removeProperty("k1", "name", authorizationsAAndB);
+            fail("should have thrown");
+        } catch (SecureGraphException ex) {
+            // expected
+        }
+    }
+
+    private Map<String, Element> getVertexProjections(Authorizations authorizations, String... propertyNames) {
+        GraphQueryWithProjection query = (GraphQueryWithProjection) graph.query(authorizations);
+        Map<String, Element> projections = new HashMap<>();
+        for (Element element : query.vertexProjections(propertyNames)) {
+            assertNull("duplicate projection " + element.getId(), projections.put(element.getId(), element));
+        }
+        return projections;
+    }
+}
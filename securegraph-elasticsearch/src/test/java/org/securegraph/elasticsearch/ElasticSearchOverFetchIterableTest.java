@@ -0,0 +1,132 @@
+package org.securegraph.elasticsearch;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.text.StringText;
+import org.elasticsearch.search.SearchHitField;
+import org.elasticsearch.search.internal.InternalSearchHit;
+import org.elasticsearch.search.internal.InternalSearchHits;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.*;
+import org.securegraph.inmemory.InMemoryAuthorizations;
+import org.securegraph.inmemory.InMemoryGraph;
+import org.securegraph.query.Compare;
+import org.securegraph.query.QueryBase;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ElasticSearchOverFetchIterableTest {
+    private static final int TOTAL_HITS = 100;
+    private final Authorizations authorizations = new InMemoryAuthorizations("a");
+    private Graph graph;
+    private List<String> searches;
+
+    @Before
+    public void before() {
+        graph = InMemoryGraph.create(new HashMap());
+        // only every other hit is found in the graph
+        for (int i = 0; i < TOTAL_HITS; i += 2) {
+            graph.prepareVertex("v" + i, new Visibility("a"))
+                    .setProperty("prop1", i % 4 == 0 ? "match" : "other", new Visibility("a"))
+                    .save(authorizations);
+        }
+        searches = new ArrayList<>();
+    }
+
+    @Test
+    public void testTopsUpDroppedElements() {
+        ElasticSearchOverFetchIterable<Vertex> vertices = createIterable(0, 10, TOTAL_HITS, new ArrayList<QueryBase.HasContainer>());
+
+        assertEquals(ids(0, 2, 4, 6, 8, 10, 12, 14, 16, 18), getIds(vertices));
+        // half of the hits were dropped so twice the missing elements are requested
+        assertEquals(Arrays.asList("10:10"), searches);
+        assertEquals(20, vertices.getScores().size());
+    }
+
+    @Test
+    public void testTopsUpElementsDroppedByHasContainers() {
+        List<QueryBase.HasContainer> hasContainers = new ArrayList<>();
+        hasContainers.add(new QueryBase.HasContainer("prop1", Compare.EQUAL, "match", new HashMap<String, PropertyDefinition>()));
+        ElasticSearchOverFetchIterable<Vertex> vertices = createIterable(0, 5, TOTAL_HITS, hasContainers);
+
+        assertEquals(ids(0, 4, 8, 12, 16), getIds(vertices));
+        assertEquals(Arrays.asList("5:7", "12:8"), searches);
+    }
+
+    @Test
+    public void testStopsAtTotalHits() {
+        ElasticSearchOverFetchIterable<Vertex> vertices = createIterable(0, 10, 12, new ArrayList<QueryBase.HasContainer>());
+
+        assertEquals(ids(0, 2, 4, 6, 8, 10), getIds(vertices));
+        assertEquals(Arrays.asList("10:10"), searches);
+    }
+
+    @Test
+    public void testNoAdditionalSearchWhenPageIsFull() {
+        ElasticSearchOverFetchIterable<Vertex> vertices = createIterable(0, 1, TOTAL_HITS, new ArrayList<QueryBase.HasContainer>());
+
+        assertEquals(ids(0), getIds(vertices));
+        assertEquals(0, searches.size());
+    }
+
+    @Test
+    public void testGetNextPageSize() {
+        assertEquals(10, ElasticSearchOverFetchIterable.getNextPageSize(5, 10, 5));
+        assertEquals(50, ElasticSearchOverFetchIterable.getNextPageSize(5, 10, 0));
+        assertEquals(5, ElasticSearchOverFetchIterable.getNextPageSize(5, 10, 10));
+        assertEquals(ElasticSearchOverFetchIterable.MAX_PAGE_SIZE, ElasticSearchOverFetchIterable.getNextPageSize(Long.MAX_VALUE, 10, 10));
+        assertEquals(ElasticSearchOverFetchIterable.MAX_PAGE_SIZE, ElasticSearchOverFetchIterable.getNextPageSize(999, Long.MAX_VALUE / 10, 1));
+        assertEquals(999, ElasticSearchOverFetchIterable.getNextPageSize(999, Long.MAX_VALUE / 10, Long.MAX_VALUE / 10));
+    }
+
+    private ElasticSearchOverFetchIterable<Vertex> createIterable(long from, final long limit, final long totalHits, List<QueryBase.HasContainer> hasContainers) {
+        SearchResponse firstResponse = createSearchResponse(from, (int) limit, totalHits);
+        return new ElasticSearchOverFetchIterable<Vertex>(firstResponse, from, limit, hasContainers) {
+            @Override
+            protected SearchResponse search(long from, int size) {
+                searches.add(from + ":" + size);
+                return createSearchResponse(from, size, totalHits);
+            }
+
+            @Override
+            protected Iterable<Vertex> getElements(List<String> ids) {
+                return graph.getVertices(ids, authorizations);
+            }
+        };
+    }
+
+    private static SearchResponse createSearchResponse(long from, int size, long totalHits) {
+        List<InternalSearchHit> hits = new ArrayList<>();
+        for (long i = from; i < Math.min(from + size, totalHits); i++) {
+            InternalSearchHit hit = new InternalSearchHit((int) i, "v" + i, new StringText(ElasticSearchSearchIndexBase.ELEMENT_TYPE), new HashMap<String, SearchHitField>());
+            hit.score(1.0f);
+            hits.add(hit);
+        }
+        InternalSearchHits searchHits = new InternalSearchHits(hits.toArray(new InternalSearchHit[hits.size()]), totalHits, 1.0f);
+        InternalSearchResponse internalResponse = new InternalSearchResponse(searchHits, null, null, null, false, null);
+        return new SearchResponse(internalResponse, null, 1, 1, 0, new ShardSearchFailure[0]);
+    }
+
+    private static List<String> getIds(Iterable<Vertex> vertices) {
+        List<String> ids = new ArrayList<>();
+        for (Vertex vertex : vertices) {
+            ids.add(vertex.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> ids(int... ids) {
+        List<String> results = new ArrayList<>();
+        for (int id : ids) {
+            results.add("v" + id);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,224 @@
+package org.securegraph.elasticsearch;
+
+import org.elasticsearch.action.get.GetResponse;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.*;
+import org.securegraph.elasticsearch.helpers.ElasticSearchSearchIndexTestHelpers;
+import org.securegraph.inmemory.InMemoryAuthorizations;
+import org.securegraph.inmemory.InMemoryGraph;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ElasticSearchPartialDocumentUpdateTest {
+    private static final Visibility VISIBILITY_A = new Visibility("a");
+    private static final Visibility VISIBILITY_B = new Visibility("b");
+    private final Authorizations authorizations = new InMemoryAuthorizations("a", "b");
+    private Graph graph;
+    private ElasticSearchSearchIndex searchIndex;
+
+    @BeforeClass
+    public static void beforeClass() throws IOException {
+        ElasticSearchSearchIndexTestHelpers.beforeClass();
+    }
+
+    @Before
+    public void before() {
+        ElasticSearchSearchIndexTestHelpers.before();
+        Map config = new HashMap();
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + ElasticSearchSearchIndexConfiguration.CONFIG_STORE_SOURCE_DATA, "true");
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + ElasticSearchSearchIndexConfiguration.CONFIG_PARTIAL_DOCUMENT_UPDATES, "true");
+        graph = ElasticSearchSearchIndexTestHelpers.createGraph(config);
+        searchIndex = (ElasticSearchSearchIndex) ((InMemoryGraph) graph).getSearchIndex();
+        assertTrue(searchIndex.getConfig().isPartialDocumentUpdates());
+
+        graph.prepareVertex("v1", VISIBILITY_A)
+                .setProperty("prop1", "value1", VISIBILITY_A)
+                .save(authorizations);
+        graph.flush();
+    }
+
+    @After
+    public void after() {
+        graph.shutdown();
+    }
+
+    @AfterClass
+    public static void afterClass() throws IOException {
+        ElasticSearchSearchIndexTestHelpers.afterClass();
+    }
+
+    @Test
+    public void testPartialUpdateMergesProperties() {
+        graph.getVertex("v1", authorizations).prepareMutation()
+                .setProperty("prop2", "value2", VISIBILITY_B)
+                .save(authorizations);
+        graph.flush();
+
+        Map<String, Object> source = getSource("v1");
+        assertEquals("value1", source.get("prop1"));
+        assertEquals("value2", source.get("prop2"));
+        assertEquals(set("a", "b"), set((List) source.get(ElasticSearchSearchIndex.PROPERTY_VISIBILITIES_FIELD_NAME)));
+        assertEquals(1, count(graph.query("value2", new InMemoryAuthorizations("a", "b")).vertices()));
+        assertEquals(0, count(graph.query("value2", new InMemoryAuthorizations("a")).vertices()));
+    }
+
+    @Test
+    public void testPartialUpdateMergesMultiValuedPropertiesPerKey() {
+        graph.getVertex("v1", authorizations).prepareMutation()
+                .addPropertyValue("k2", "prop1", "value2", VISIBILITY_A)
+                .save(authorizations);
+        graph.flush();
+        assertEquals(set("value1", "value2"), set((List) getSource("v1").get("prop1")));
+
+        // only k2 is sent, the value stored for the default key has to be kept
+        searchIndex.addElement(graph, createSparseVertex("k2", "value3"), authorizations);
+        searchIndex.flush();
+
+        Map<String, Object> source = getSource("v1");
+        assertEquals(set("value1", "value3"), set((List) source.get("prop1")));
+        assertEquals(set("value1", "value3"), set((List) source.get("prop1" + ElasticSearchSearchIndexBase.EXACT_MATCH_PROPERTY_NAME_SUFFIX)));
+        assertEquals(1, count(graph.query("value1", authorizations).vertices()));
+        assertEquals(1, count(graph.query("value3", authorizations).vertices()));
+        assertEquals(0, count(graph.query("value2", authorizations).vertices()));
+    }
+
+    @Test
+    public void testBulkPartialUpdateMergesMultiValuedPropertiesPerKey() {
+        List<Element> elements = new ArrayList<>();
+        elements.add(createSparseVertex("k2", "value2"));
+        searchIndex.addElements(graph, elements, authorizations);
+        searchIndex.flush();
+        assertEquals(set("value1", "value2"), set((List) getSource("v1").get("prop1")));
+
+        elements.clear();
+        elements.add(createSparseVertex("", "value3"));
+        searchIndex.addElements(graph, elements, authorizations);
+        searchIndex.flush();
+        assertEquals(set("value3", "value2"), set((List) getSource("v1").get("prop1")));
+    }
+
+    @Test
+    public void testPropertyVisibilityChangeRebuildsDocument() {
+        alterPropertyVisibilityWithStaleDocument();
+
+        searchIndex.addElement(graph, graph.getVertex("v1", authorizations), authorizations);
+        searchIndex.flush();
+
+        Map<String, Object> source = getSource("v1");
+        assertEquals("value1", source.get("prop1"));
+        assertEquals(set("b"), set((List) source.get(ElasticSearchSearchIndex.PROPERTY_VISIBILITIES_FIELD_NAME)));
+        assertEquals(0, count(graph.query("value1", new InMemoryAuthorizations("a")).vertices()));
+    }
+
+    @Test
+    public void testPropertyVisibilityChangeRebuildsDocumentInBulk() {
+        alterPropertyVisibilityWithStaleDocument();
+
+        List<Element> elements = new ArrayList<>();
+        elements.add(graph.getVertex("v1", authorizations));
+        searchIndex.addElements(graph, elements, authorizations);
+        searchIndex.flush();
+
+        Map<String, Object> source = getSource("v1");
+        assertEquals("value1", source.get("prop1"));
+        assertEquals(set("b"), set((List) source.get(ElasticSearchSearchIndex.PROPERTY_VISIBILITIES_FIELD_NAME)));
+        assertEquals(0, count(graph.query("value1", new InMemoryAuthorizations("a")).vertices()));
+    }
+
+    @Test
+    public void testDocumentWithoutPropertyKeysIsRebuilt() {
+        searchIndex.getClient()
+                .prepareIndex(searchIndex.getConfig().getDefaultIndexName(), ElasticSearchSearchIndexBase.ELEMENT_TYPE, "v1")
+                .setSource(
+                        "prop1", "value1",
+                        "stale", "stale",
+                        ElasticSearchSearchIndexBase.VISIBILITY_FIELD_NAME, "(a)&(c)",
+                        ElasticSearchSearchIndex.PROPERTY_VISIBILITIES_FIELD_NAME, Arrays.asList("a", "c")
+                )
+                .execute()
+                .actionGet();
+
+        searchIndex.addElement(graph, graph.getVertex("v1", authorizations), authorizations);
+        searchIndex.flush();
+
+        Map<String, Object> source = getSource("v1");
+        assertFalse(source.containsKey("stale"));
+        assertEquals(set("a"), set((List) source.get(ElasticSearchSearchIndex.PROPERTY_VISIBILITIES_FIELD_NAME)));
+        assertNotNull(source.get(ElasticSearchSearchIndex.PROPERTY_VALUES_FIELD_NAME));
+    }
+
+    @Test
+    public void testPropertyRemoveRebuildsDocument() {
+        graph.getVertex("v1", authorizations).prepareMutation()
+                .setProperty("prop2", "value2", VISIBILITY_B)
+                .save(authorizations);
+        graph.flush();
+
+        graph.getVertex("v1", authorizations).removeProperty("prop2", authorizations);
+        graph.flush();
+
+        Map<String, Object> source = getSource("v1");
+        assertFalse(source.containsKey("prop2"));
+        assertEquals(set("a"), set((List) source.get(ElasticSearchSearchIndex.PROPERTY_VISIBILITIES_FIELD_NAME)));
+    }
+
+    /**
+     * Changes the visibility of prop1 in the graph but leaves the document as it was indexed with the old visibility.
+     */
+    private void alterPropertyVisibilityWithStaleDocument() {
+        Map<String, Object> staleSource = getSource("v1");
+        graph.getVertex("v1", authorizations).prepareMutation()
+                .alterPropertyVisibility("prop1", VISIBILITY_B)
+                .save(authorizations);
+        graph.flush();
+        searchIndex.getClient()
+                .prepareIndex(searchIndex.getConfig().getDefaultIndexName(), ElasticSearchSearchIndexBase.ELEMENT_TYPE, "v1")
+                .setSource(staleSource)
+                .setRefresh(true)
+                .execute()
+                .actionGet();
+        assertEquals(set("a"), set((List) getSource("v1").get(ElasticSearchSearchIndex.PROPERTY_VISIBILITIES_FIELD_NAME)));
+    }
+
+    /**
+     * Creates v1 outside of the graph holding only the given value of prop1, like an element that was built from a
+     * mutation instead of being read back.
+     */
+    private Vertex createSparseVertex(String key, String value) {
+        Graph sparseGraph = InMemoryGraph.create(new HashMap());
+        return sparseGraph.prepareVertex("v1", VISIBILITY_A)
+                .addPropertyValue(key, "prop1", value, VISIBILITY_A)
+                .save(authorizations);
+    }
+
+    private Map<String, Object> getSource(String id) {
+        GetResponse response = searchIndex.getClient()
+                .prepareGet(searchIndex.getConfig().getDefaultIndexName(), ElasticSearchSearchIndexBase.ELEMENT_TYPE, id)
+                .execute()
+                .actionGet();
+        assertTrue(response.isExists());
+        return response.getSourceAsMap();
+    }
+
+    private static Set<Object> set(Object... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    private static Set<Object> set(List values) {
+        return new HashSet<Object>(values);
+    }
+
+    private static int count(Iterable<?> iterable) {
+        int count = 0;
+        for (Object ignored : iterable) {
+            count++;
+        }
+        return count;
+    }
+}
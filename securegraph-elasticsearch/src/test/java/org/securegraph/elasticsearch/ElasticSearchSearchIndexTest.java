@@ -1,6 +1,7 @@
 package org.securegraph.elasticsearch;
 
 import org.apache.commons.io.IOUtils;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.*;
 import org.securegraph.*;
@@ -12,14 +13,28 @@ import org.securegraph.inmemory.InMemoryAuthorizations;
 import org.securegraph.inmemory.InMemoryGraph;
 import org.securegraph.property.PropertyValue;
 import org.securegraph.property.StreamingPropertyValue;
+import org.securegraph.query.GraphQuery;
+import org.securegraph.query.GraphQueryWithStreaming;
+import org.securegraph.query.IterableWithTotalHits;
 import org.securegraph.test.GraphTestBase;
 import org.securegraph.test.util.LargeStringInputStream;
+import org.securegraph.util.CloseableIterable;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.lang.reflect.Field;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+import static org.securegraph.util.IterableUtils.count;
 
 public class ElasticSearchSearchIndexTest extends GraphTestBase {
     @Override
@@ -81,6 +96,129 @@ public class ElasticSearchSearchIndexTest extends GraphTestBase {
         getSearchIndex().loadPropertyDefinitions();
     }
 
+    @Test
+    public void testCreateJsonForMultiValuedProperty() {
+        Vertex v1 = graph.prepareVertex("v1", VISIBILITY_A)
+                .addPropertyValue("k1", "prop1", "value1", VISIBILITY_A)
+                .addPropertyValue("k2", "prop1", "value2", VISIBILITY_B)
+                .save(AUTHORIZATIONS_A_AND_B);
+
+        JSONObject json = new JSONObject(getSearchIndex().createJsonForElement(graph, v1, AUTHORIZATIONS_A_AND_B));
+        JSONArray values = json.getJSONArray("prop1");
+        assertEquals(2, values.length());
+        assertEquals(2, json.getJSONArray("prop1" + ElasticSearchSearchIndexBase.EXACT_MATCH_PROPERTY_NAME_SUFFIX).length());
+        assertFalse(json.has(ElasticSearchSearchIndex.PROPERTY_VISIBILITIES_FIELD_NAME));
+        assertFalse(json.has(ElasticSearchSearchIndex.PROPERTY_VALUES_FIELD_NAME));
+    }
+
+    @Test
+    public void testStreamingClearsScrolls() throws Exception {
+        for (int i = 0; i < ElasticSearchGraphQueryBase.STREAM_PAGE_SIZE + 10; i++) {
+            graph.prepareVertex("v" + i, VISIBILITY_A)
+                    .setProperty("prop1", "value1", VISIBILITY_A)
+                    .save(AUTHORIZATIONS_A);
+        }
+        graph.flush();
+
+        GraphQueryWithStreaming emptyQuery = (GraphQueryWithStreaming) graph.query(AUTHORIZATIONS_A).has("prop1", "none");
+        CloseableIterable<Vertex> empty = emptyQuery.streamVertices(FetchHint.ALL);
+        assertFalse(empty.iterator().hasNext());
+        assertOpenSearchContexts(0);
+
+        GraphQueryWithStreaming query = (GraphQueryWithStreaming) graph.query(AUTHORIZATIONS_A).has("prop1", "value1");
+        CloseableIterable<Vertex> vertices = query.streamVertices(FetchHint.ALL);
+        Iterator<Vertex> it = vertices.iterator();
+        assertTrue(it.hasNext());
+        it.next();
+        assertTrue(getOpenSearchContexts() > 0);
+        vertices.close();
+        assertOpenSearchContexts(0);
+    }
+
+    @Test
+    public void testMultiQueryFailureOnlyFailsItsQuery() {
+        graph.prepareVertex("v1", VISIBILITY_A)
+                .setProperty("prop1", "value1", VISIBILITY_A)
+                .save(AUTHORIZATIONS_A);
+        graph.prepareVertex("v2", VISIBILITY_A)
+                .setProperty("prop1", "value2", VISIBILITY_A)
+                .save(AUTHORIZATIONS_A);
+        graph.flush();
+
+        List<GraphQuery> queries = new ArrayList<>();
+        queries.add(graph.query("value1", AUTHORIZATIONS_A));
+        queries.add(graph.query("prop1:(", AUTHORIZATIONS_A));
+        queries.add(graph.query("value2", AUTHORIZATIONS_A));
+        List<Iterable<Vertex>> results = ElasticSearchMultiGraphQuery.vertices(queries);
+
+        assertEquals(3, results.size());
+        assertEquals(1, count(results.get(0)));
+        assertEquals("v1", results.get(0).iterator().next().getId());
+        try {
+            results.get(1).iterator();
+            fail("expected the failed query to throw");
+        } catch (SecureGraphException ex) {
+            // expected
+        }
+        assertEquals(1, count(results.get(2)));
+        assertEquals("v2", results.get(2).iterator().next().getId());
+    }
+
+    @Test
+    public void testMultiQueryRequestsMoreHitsForDroppedElements() {
+        for (int i = 0; i < 10; i++) {
+            Vertex v = graph.prepareVertex("v" + i, VISIBILITY_A)
+                    .setProperty("prop1", "value1", VISIBILITY_A)
+                    .save(AUTHORIZATIONS_A);
+            if (i < 8) {
+                // hidden vertices are still found by elastic search but dropped by the graph
+                graph.markVertexHidden(v, VISIBILITY_A, AUTHORIZATIONS_A);
+            }
+        }
+        graph.prepareVertex("other", VISIBILITY_A)
+                .setProperty("prop1", "value2", VISIBILITY_A)
+                .save(AUTHORIZATIONS_A);
+        graph.flush();
+
+        GraphQuery query1 = graph.query("value1", AUTHORIZATIONS_A);
+        query1.limit(2);
+        GraphQuery query2 = graph.query("value2", AUTHORIZATIONS_A);
+        query2.limit(2);
+        List<GraphQuery> queries = new ArrayList<>();
+        queries.add(query1);
+        queries.add(query2);
+        List<Iterable<Vertex>> results = ElasticSearchMultiGraphQuery.vertices(queries);
+
+        assertEquals(2, results.size());
+        List<String> ids = new ArrayList<>();
+        for (Vertex v : results.get(0)) {
+            ids.add(v.getId());
+        }
+        Collections.sort(ids);
+        assertEquals(Arrays.asList("v8", "v9"), ids);
+        assertEquals(10, ((IterableWithTotalHits) results.get(0)).getTotalHits());
+        assertEquals(1, count(results.get(1)));
+        assertEquals("other", results.get(1).iterator().next().getId());
+    }
+
+    private void assertOpenSearchContexts(long expected) throws InterruptedException {
+        // scrolls are cleared asynchronously
+        for (int i = 0; i < 50 && getOpenSearchContexts() != expected; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(expected, getOpenSearchContexts());
+    }
+
+    private long getOpenSearchContexts() {
+        return getSearchIndex().getClient().admin().indices().prepareStats()
+                .setSearch(true)
+                .execute()
+                .actionGet()
+                .getTotal()
+                .getSearch()
+                .getOpenContexts();
+    }
+
     @Override
     protected boolean disableUpdateEdgeCountInSearchIndex(Graph graph) {
         ElasticSearchSearchIndex searchIndex = getSearchIndex();
@@ -0,0 +1,106 @@
+package org.securegraph.elasticsearch.score;
+
+import org.elasticsearch.action.get.GetResponse;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.*;
+import org.securegraph.elasticsearch.ElasticSearchSearchIndex;
+import org.securegraph.elasticsearch.ElasticSearchSearchIndexBase;
+import org.securegraph.elasticsearch.ElasticSearchSearchIndexConfiguration;
+import org.securegraph.elasticsearch.helpers.ElasticSearchSearchIndexTestHelpers;
+import org.securegraph.elasticsearch.utils.GetResponseUtil;
+import org.securegraph.inmemory.InMemoryAuthorizations;
+import org.securegraph.inmemory.InMemoryGraph;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class EdgeCountScoringStrategyTest {
+    private static final Visibility VISIBILITY_A = new Visibility("a");
+    private final Authorizations authorizations = new InMemoryAuthorizations("a");
+    private Graph graph;
+
+    @BeforeClass
+    public static void beforeClass() throws IOException {
+        ElasticSearchSearchIndexTestHelpers.beforeClass();
+    }
+
+    @Before
+    public void before() {
+        ElasticSearchSearchIndexTestHelpers.before();
+    }
+
+    @After
+    public void after() {
+        if (graph != null) {
+            graph.shutdown();
+        }
+    }
+
+    @AfterClass
+    public static void afterClass() throws IOException {
+        ElasticSearchSearchIndexTestHelpers.afterClass();
+    }
+
+    @Test
+    public void testEdgeCountsArePartiallyUpdated() {
+        graph = createGraph(true, true);
+        addEdges();
+        assertEquals(2, getEdgeCount("v1", EdgeCountScoringStrategyConfiguration.OUT_EDGE_COUNT_FIELD_NAME));
+        assertEquals(0, getEdgeCount("v1", EdgeCountScoringStrategyConfiguration.IN_EDGE_COUNT_FIELD_NAME));
+        assertEquals(2, getEdgeCount("v2", EdgeCountScoringStrategyConfiguration.IN_EDGE_COUNT_FIELD_NAME));
+
+        graph.removeEdge("e1", authorizations);
+        graph.addEdge("e3", "v2", "v1", "label1", VISIBILITY_A, authorizations);
+        graph.flush();
+        assertEquals(1, getEdgeCount("v1", EdgeCountScoringStrategyConfiguration.IN_EDGE_COUNT_FIELD_NAME));
+        assertEquals(1, getEdgeCount("v2", EdgeCountScoringStrategyConfiguration.OUT_EDGE_COUNT_FIELD_NAME));
+    }
+
+    @Test
+    public void testEdgeCountsAreReindexedWithoutSourceData() {
+        graph = createGraph(false, true);
+        addEdges();
+        assertEquals(2, getEdgeCount("v1", EdgeCountScoringStrategyConfiguration.OUT_EDGE_COUNT_FIELD_NAME));
+        assertEquals(2, getEdgeCount("v2", EdgeCountScoringStrategyConfiguration.IN_EDGE_COUNT_FIELD_NAME));
+    }
+
+    @Test
+    public void testEdgeCountsAreNotUpdatedWhenDisabled() {
+        graph = createGraph(true, false);
+        addEdges();
+        assertEquals(0, getEdgeCount("v1", EdgeCountScoringStrategyConfiguration.OUT_EDGE_COUNT_FIELD_NAME));
+        assertEquals(0, getEdgeCount("v2", EdgeCountScoringStrategyConfiguration.IN_EDGE_COUNT_FIELD_NAME));
+    }
+
+    private void addEdges() {
+        graph.addVertex("v1", VISIBILITY_A, authorizations);
+        graph.addVertex("v2", VISIBILITY_A, authorizations);
+        graph.addEdge("e1", "v1", "v2", "label1", VISIBILITY_A, authorizations);
+        graph.addEdge("e2", "v1", "v2", "label1", VISIBILITY_A, authorizations);
+        graph.flush();
+    }
+
+    private Graph createGraph(boolean storeSourceData, boolean updateEdgeBoost) {
+        Map config = new HashMap();
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + ElasticSearchSearchIndexConfiguration.CONFIG_STORE_SOURCE_DATA, Boolean.toString(storeSourceData));
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + EdgeCountScoringStrategyConfiguration.CONFIG_UPDATE_EDGE_BOOST, Boolean.toString(updateEdgeBoost));
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + EdgeCountScoringStrategyConfiguration.CONFIG_UPDATE_EDGE_BOOST_FLUSH_INTERVAL_MS, "0");
+        return ElasticSearchSearchIndexTestHelpers.createGraph(config);
+    }
+
+    private long getEdgeCount(String vertexId, String fieldName) {
+        ElasticSearchSearchIndex searchIndex = (ElasticSearchSearchIndex) ((InMemoryGraph) graph).getSearchIndex();
+        GetResponse response = searchIndex.getClient()
+                .prepareGet(searchIndex.getConfig().getDefaultIndexName(), ElasticSearchSearchIndexBase.ELEMENT_TYPE, vertexId)
+                .setFields(fieldName)
+                .execute()
+                .actionGet();
+        return GetResponseUtil.getFieldValueLong(response, fieldName);
+    }
+}
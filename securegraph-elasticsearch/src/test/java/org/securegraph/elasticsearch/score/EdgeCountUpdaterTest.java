@@ -0,0 +1,146 @@
+package org.securegraph.elasticsearch.score;
+
+import org.elasticsearch.action.get.GetResponse;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.*;
+import org.securegraph.elasticsearch.ElasticSearchSearchIndex;
+import org.securegraph.elasticsearch.ElasticSearchSearchIndexBase;
+import org.securegraph.elasticsearch.ElasticSearchSearchIndexConfiguration;
+import org.securegraph.elasticsearch.helpers.ElasticSearchSearchIndexTestHelpers;
+import org.securegraph.elasticsearch.utils.GetResponseUtil;
+import org.securegraph.inmemory.InMemoryAuthorizations;
+import org.securegraph.inmemory.InMemoryGraph;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class EdgeCountUpdaterTest {
+    private static final Visibility VISIBILITY_A = new Visibility("a");
+    private final Authorizations authorizations = new InMemoryAuthorizations("a");
+    private Graph graph;
+    private ElasticSearchSearchIndex searchIndex;
+    private int edgeCountCalls;
+
+    @BeforeClass
+    public static void beforeClass() throws IOException {
+        ElasticSearchSearchIndexTestHelpers.beforeClass();
+    }
+
+    @Before
+    public void before() {
+        ElasticSearchSearchIndexTestHelpers.before();
+        Map config = new HashMap();
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + ElasticSearchSearchIndexConfiguration.CONFIG_STORE_SOURCE_DATA, "true");
+        // only the updater under test writes edge counts
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + EdgeCountScoringStrategyConfiguration.CONFIG_UPDATE_EDGE_BOOST, "false");
+        graph = ElasticSearchSearchIndexTestHelpers.createGraph(config);
+        searchIndex = (ElasticSearchSearchIndex) ((InMemoryGraph) graph).getSearchIndex();
+
+        graph.addVertex("v1", VISIBILITY_A, authorizations);
+        graph.addVertex("v2", VISIBILITY_A, authorizations);
+        graph.addVertex("v3", VISIBILITY_A, authorizations);
+        graph.addEdge("e1", "v1", "v2", "label1", VISIBILITY_A, authorizations);
+        graph.addEdge("e2", "v1", "v2", "label1", VISIBILITY_A, authorizations);
+        graph.addEdge("e3", "v1", "v2", "label2", VISIBILITY_A, authorizations);
+        graph.addEdge("e4", "v3", "v1", "label1", VISIBILITY_A, authorizations);
+        graph.flush();
+    }
+
+    @After
+    public void after() {
+        graph.shutdown();
+    }
+
+    @AfterClass
+    public static void afterClass() throws IOException {
+        ElasticSearchSearchIndexTestHelpers.afterClass();
+    }
+
+    @Test
+    public void testFlushWritesEdgeCounts() {
+        EdgeCountUpdater edgeCountUpdater = new EdgeCountUpdater(searchIndex, 100, 0);
+        edgeCountUpdater.vertexChanged(graph, "v1", authorizations);
+        edgeCountUpdater.vertexChanged(graph, "v2", authorizations);
+        assertEquals(0, getEdgeCount("v1", EdgeCountScoringStrategyConfiguration.OUT_EDGE_COUNT_FIELD_NAME));
+
+        edgeCountUpdater.flush();
+        assertEquals(3, getEdgeCount("v1", EdgeCountScoringStrategyConfiguration.OUT_EDGE_COUNT_FIELD_NAME));
+        assertEquals(1, getEdgeCount("v1", EdgeCountScoringStrategyConfiguration.IN_EDGE_COUNT_FIELD_NAME));
+        assertEquals(0, getEdgeCount("v2", EdgeCountScoringStrategyConfiguration.OUT_EDGE_COUNT_FIELD_NAME));
+        assertEquals(3, getEdgeCount("v2", EdgeCountScoringStrategyConfiguration.IN_EDGE_COUNT_FIELD_NAME));
+        assertEquals(0, getEdgeCount("v3", EdgeCountScoringStrategyConfiguration.OUT_EDGE_COUNT_FIELD_NAME));
+    }
+
+    @Test
+    public void testChangesAreCoalesced() {
+        Graph countingGraph = countEdgeCountCalls(graph);
+        EdgeCountUpdater edgeCountUpdater = new EdgeCountUpdater(searchIndex, 100, 0);
+        for (int i = 0; i < 10; i++) {
+            // equal authorizations are coalesced even when they are different objects
+            edgeCountUpdater.vertexChanged(countingGraph, "v1", new InMemoryAuthorizations("a"));
+            edgeCountUpdater.vertexChanged(countingGraph, "v2", new InMemoryAuthorizations("a"));
+        }
+        edgeCountUpdater.flush();
+        assertEquals(2, edgeCountCalls);
+        assertEquals(3, getEdgeCount("v1", EdgeCountScoringStrategyConfiguration.OUT_EDGE_COUNT_FIELD_NAME));
+
+        edgeCountUpdater.flush();
+        assertEquals(2, edgeCountCalls);
+    }
+
+    @Test
+    public void testBatchSizeFlushes() {
+        Graph countingGraph = countEdgeCountCalls(graph);
+        EdgeCountUpdater edgeCountUpdater = new EdgeCountUpdater(searchIndex, 2, 0);
+        edgeCountUpdater.vertexChanged(countingGraph, "v1", authorizations);
+        edgeCountUpdater.vertexChanged(countingGraph, "v1", authorizations);
+        assertEquals(0, edgeCountCalls);
+
+        edgeCountUpdater.vertexChanged(countingGraph, "v2", authorizations);
+        assertEquals(2, edgeCountCalls);
+        assertEquals(3, getEdgeCount("v2", EdgeCountScoringStrategyConfiguration.IN_EDGE_COUNT_FIELD_NAME));
+    }
+
+    @Test
+    public void testShutdownFlushes() {
+        EdgeCountUpdater edgeCountUpdater = new EdgeCountUpdater(searchIndex, 100, 60 * 1000);
+        edgeCountUpdater.vertexChanged(graph, "v1", authorizations);
+        edgeCountUpdater.shutdown();
+        assertEquals(3, getEdgeCount("v1", EdgeCountScoringStrategyConfiguration.OUT_EDGE_COUNT_FIELD_NAME));
+    }
+
+    private long getEdgeCount(String vertexId, String fieldName) {
+        GetResponse response = searchIndex.getClient()
+                .prepareGet(searchIndex.getConfig().getDefaultIndexName(), ElasticSearchSearchIndexBase.ELEMENT_TYPE, vertexId)
+                .setFields(fieldName)
+                .execute()
+                .actionGet();
+        return GetResponseUtil.getFieldValueLong(response, fieldName);
+    }
+
+    private Graph countEdgeCountCalls(final Graph graph) {
+        return (Graph) Proxy.newProxyInstance(Graph.class.getClassLoader(), new Class[]{Graph.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("getEdgeCounts")) {
+                    edgeCountCalls++;
+                }
+                try {
+                    return method.invoke(graph, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                }
+            }
+        });
+    }
+}
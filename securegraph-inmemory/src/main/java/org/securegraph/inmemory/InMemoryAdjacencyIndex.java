@@ -0,0 +1,129 @@
+package org.securegraph.inmemory;
+
+import org.securegraph.Direction;
+
+import java.util.*;
+
+/**
+ * Per-vertex index of in and out edge ids grouped by edge label. Edges stay in the index while hidden since
+ * hidden-ness depends on the authorizations of the reader, so visibility and hidden checks happen on lookup.
+ */
+class InMemoryAdjacencyIndex {
+    private final Map<String, VertexEdges> vertexEdges = new HashMap<>();
+
+    public void addEdge(InMemoryEdge edge) {
+        getOrCreate(edge.getVertexId(Direction.OUT)).add(Direction.OUT, edge.getLabel(), edge.getId());
+        getOrCreate(edge.getVertexId(Direction.IN)).add(Direction.IN, edge.getLabel(), edge.getId());
+    }
+
+    public void removeEdge(InMemoryEdge edge) {
+        remove(edge.getVertexId(Direction.OUT), Direction.OUT, edge.getLabel(), edge.getId());
+        remove(edge.getVertexId(Direction.IN), Direction.IN, edge.getLabel(), edge.getId());
+    }
+
+    public void clear() {
+        this.vertexEdges.clear();
+    }
+
+    /**
+     * @param labels the labels to include or null to include all labels.
+     */
+    public Collection<String> getEdgeIds(String vertexId, Direction direction, String[] labels) {
+        VertexEdges edges = this.vertexEdges.get(vertexId);
+        if (edges == null) {
+            return Collections.emptyList();
+        }
+
+        // a set is needed to remove the duplicate of a self referencing edge when looking in both directions
+        Collection<String> results = direction == Direction.BOTH ? new LinkedHashSet<String>() : new ArrayList<String>();
+        if (direction == Direction.OUT || direction == Direction.BOTH) {
+            edges.collect(edges.out, labels, results);
+        }
+        if (direction == Direction.IN || direction == Direction.BOTH) {
+            edges.collect(edges.in, labels, results);
+        }
+        return results;
+    }
+
+    public Set<String> getEdgeLabels(String vertexId, Direction direction) {
+        VertexEdges edges = this.vertexEdges.get(vertexId);
+        if (edges == null) {
+            return Collections.emptySet();
+        }
+
+        Set<String> results = new HashSet<>();
+        if (direction == Direction.OUT || direction == Direction.BOTH) {
+            results.addAll(edges.out.keySet());
+        }
+        if (direction == Direction.IN || direction == Direction.BOTH) {
+            results.addAll(edges.in.keySet());
+        }
+        return results;
+    }
+
+    private VertexEdges getOrCreate(String vertexId) {
+        VertexEdges edges = this.vertexEdges.get(vertexId);
+        if (edges == null) {
+            edges = new VertexEdges();
+            this.vertexEdges.put(vertexId, edges);
+        }
+        return edges;
+    }
+
+    private void remove(String vertexId, Direction direction, String label, String edgeId) {
+        VertexEdges edges = this.vertexEdges.get(vertexId);
+        if (edges == null) {
+            return;
+        }
+        edges.remove(direction, label, edgeId);
+        if (edges.isEmpty()) {
+            this.vertexEdges.remove(vertexId);
+        }
+    }
+
+    private static class VertexEdges {
+        private final Map<String, Set<String>> out = new HashMap<>();
+        private final Map<String, Set<String>> in = new HashMap<>();
+
+        public void add(Direction direction, String label, String edgeId) {
+            Map<String, Set<String>> edgeIdsByLabel = direction == Direction.OUT ? out : in;
+            Set<String> edgeIds = edgeIdsByLabel.get(label);
+            if (edgeIds == null) {
+                edgeIds = new LinkedHashSet<>();
+                edgeIdsByLabel.put(label, edgeIds);
+            }
+            edgeIds.add(edgeId);
+        }
+
+        public void remove(Direction direction, String label, String edgeId) {
+            Map<String, Set<String>> edgeIdsByLabel = direction == Direction.OUT ? out : in;
+            Set<String> edgeIds = edgeIdsByLabel.get(label);
+            if (edgeIds == null) {
+                return;
+            }
+            edgeIds.remove(edgeId);
+            if (edgeIds.isEmpty()) {
+                edgeIdsByLabel.remove(label);
+            }
+        }
+
+        public boolean isEmpty() {
+            return out.isEmpty() && in.isEmpty();
+        }
+
+        public void collect(Map<String, Set<String>> edgeIdsByLabel, String[] labels, Collection<String> results) {
+            if (labels == null) {
+                for (Set<String> edgeIds : edgeIdsByLabel.values()) {
+                    results.addAll(edgeIds);
+                }
+                return;
+            }
+            for (String label : labels) {
+                Set<String> edgeIds = edgeIdsByLabel.get(label);
+                if (edgeIds != null) {
+                    results.addAll(edgeIds);
+                }
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
     private final Map<String, InMemoryVertex> vertices;
     private final Map<String, InMemoryEdge> edges;
     private final Map<String, Object> metadata = new HashMap<>();
+    private final InMemoryAdjacencyIndex adjacencyIndex = new InMemoryAdjacencyIndex();
 
     protected InMemoryGraph(InMemoryGraphConfiguration configuration, IdGenerator idGenerator, SearchIndex searchIndex) {
         this(configuration, idGenerator, searchIndex, new HashMap<String, InMemoryVertex>(), new HashMap<String, InMemoryEdge>());
@@ -30,6 +31,9 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
         super(configuration, idGenerator, searchIndex);
         this.vertices = vertices;
         this.edges = edges;
+        for (InMemoryEdge edge : edges.values()) {
+            this.adjacencyIndex.addEdge(edge);
+        }
     }
 
     public static InMemoryGraph create() {
@@ -274,7 +278,11 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
                 hiddenVisibilities,
                 authorizations
         );
-        edges.put(edgeBuilder.getEdgeId(), edge);
+        InMemoryEdge previousEdge = edges.put(edgeBuilder.getEdgeId(), edge);
+        if (previousEdge != null) {
+            adjacencyIndex.removeEdge(previousEdge);
+        }
+        adjacencyIndex.addEdge(edge);
 
         if (edgeBuilder.getIndexHint() != IndexHint.DO_NOT_INDEX) {
             getSearchIndex().addElement(InMemoryGraph.this, edge, authorizations);
@@ -331,7 +339,10 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
             return;
         }
 
-        this.edges.remove(edge.getId());
+        InMemoryEdge removedEdge = this.edges.remove(edge.getId());
+        if (removedEdge != null) {
+            this.adjacencyIndex.removeEdge(removedEdge);
+        }
         getSearchIndex().removeElement(this, edge, authorizations);
 
         if (hasEventListeners()) {
@@ -402,53 +413,98 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
         return new InMemoryAuthorizations(auths);
     }
 
-    public Iterable<Edge> getEdgesFromVertex(final String vertexId, EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+    public Iterable<Edge> getEdgesFromVertex(String vertexId, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getEdgesFromVertex(vertexId, Direction.BOTH, null, fetchHints, authorizations);
+    }
+
+    /**
+     * @param labels the labels to include or null to include all labels.
+     */
+    public Iterable<Edge> getEdgesFromVertex(final String vertexId, final Direction direction, final String[] labels, EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
         final boolean includeHidden = fetchHints.contains(FetchHint.INCLUDE_HIDDEN);
 
         return new LookAheadIterable<InMemoryEdge, Edge>() {
             @Override
             protected boolean isIncluded(InMemoryEdge src, Edge edge) {
-                String inVertexId = src.getVertexId(Direction.IN);
-                checkNotNull(inVertexId, "inVertexId was null");
-                String outVertexId = src.getVertexId(Direction.OUT);
-                checkNotNull(outVertexId, "outVertexId was null");
+                return edge != null;
+            }
 
-                if (!inVertexId.equals(vertexId) && !outVertexId.equals(vertexId)) {
-                    return false;
+            @Override
+            protected Edge convert(InMemoryEdge edge) {
+                if (!isEdgeIncluded(edge, includeHidden, authorizations)) {
+                    return null;
                 }
+                return filteredEdge(edge, includeHidden, authorizations);
+            }
 
-                if (!src.canRead(authorizations)) {
-                    return false;
-                }
+            @Override
+            protected Iterator<InMemoryEdge> createIterator() {
+                return getIndexedEdges(vertexId, direction, labels).iterator();
+            }
+        };
+    }
 
-                if (!includeHidden) {
-                    if (src.isHidden(authorizations)) {
-                        return false;
-                    }
-                }
+    /**
+     * Same as {@link #getEdgesFromVertex(String, Direction, String[], EnumSet, Authorizations)} but skips creating the
+     * filtered edge copies when only the ids are needed.
+     */
+    public Iterable<String> getEdgeIdsFromVertex(final String vertexId, final Direction direction, final String[] labels, EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+        final boolean includeHidden = fetchHints.contains(FetchHint.INCLUDE_HIDDEN);
 
-                return true;
+        return new LookAheadIterable<InMemoryEdge, String>() {
+            @Override
+            protected boolean isIncluded(InMemoryEdge src, String edgeId) {
+                return isEdgeIncluded(src, includeHidden, authorizations);
             }
 
             @Override
-            protected Edge convert(InMemoryEdge edge) {
-                return filteredEdge(edge, includeHidden, authorizations);
+            protected String convert(InMemoryEdge edge) {
+                return edge.getId();
             }
 
             @Override
             protected Iterator<InMemoryEdge> createIterator() {
-                return edges.values().iterator();
+                return getIndexedEdges(vertexId, direction, labels).iterator();
             }
         };
     }
 
-    private boolean canRead(Visibility visibility, Authorizations authorizations) {
-        // this is just a shortcut so that we don't need to construct evaluators and visibility objects to check for an empty string.
-        if (visibility.getVisibilityString().length() == 0) {
-            return true;
+    public Set<String> getEdgeLabelsFromVertex(String vertexId, Direction direction, Authorizations authorizations) {
+        Set<String> results = new HashSet<>();
+        for (String label : adjacencyIndex.getEdgeLabels(vertexId, direction)) {
+            for (InMemoryEdge edge : getIndexedEdges(vertexId, direction, new String[]{label})) {
+                if (isEdgeIncluded(edge, false, authorizations)) {
+                    results.add(label);
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    private List<InMemoryEdge> getIndexedEdges(String vertexId, Direction direction, String[] labels) {
+        Collection<String> edgeIds = adjacencyIndex.getEdgeIds(vertexId, direction, labels);
+        List<InMemoryEdge> results = new ArrayList<>(edgeIds.size());
+        for (String edgeId : edgeIds) {
+            InMemoryEdge edge = edges.get(edgeId);
+            checkNotNull(edge, "Could not find indexed edge: " + edgeId);
+            results.add(edge);
+        }
+        return results;
+    }
+
+    private boolean isEdgeIncluded(InMemoryEdge edge, boolean includeHidden, Authorizations authorizations) {
+        if (!edge.canRead(authorizations)) {
+            return false;
         }
 
-        return authorizations.canRead(visibility);
+        if (!includeHidden) {
+            if (edge.isHidden(authorizations)) {
+                return false;
+            }
+        }
+
+        return true;
     }
 
     public void saveProperties(
@@ -537,7 +593,7 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
     private List<Property> filterProperties(Iterable<Property> properties, boolean includeHidden, Authorizations authorizations) {
         List<Property> filteredProperties = new ArrayList<>();
         for (Property p : properties) {
-            if (canRead(p.getVisibility(), authorizations) && (includeHidden || !p.isHidden(authorizations))) {
+            if (isVisibilityValid(p.getVisibility(), authorizations) && (includeHidden || !p.isHidden(authorizations))) {
                 filteredProperties.add(p);
             }
         }
@@ -603,15 +659,11 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
         }
     }
 
-    @Override
-    public boolean isVisibilityValid(Visibility visibility, Authorizations authorizations) {
-        return authorizations.canRead(visibility);
-    }
-
     @Override
     public void clearData() {
         this.vertices.clear();
         this.edges.clear();
+        this.adjacencyIndex.clear();
         getSearchIndex().clearData();
     }
 
@@ -620,6 +672,8 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
         if (edge == null) {
             throw new SecureGraphException("Could not find edge " + edgeId);
         }
+        this.adjacencyIndex.removeEdge(edge);
         edge.setLabel(newEdgeLabel);
+        this.adjacencyIndex.addEdge(edge);
     }
 }
@@ -12,7 +12,6 @@ import org.securegraph.util.FilterIterable;
 import java.util.EnumSet;
 
 import static org.securegraph.util.IterableUtils.count;
-import static org.securegraph.util.IterableUtils.toSet;
 
 public class InMemoryVertex extends InMemoryElement implements Vertex {
     public InMemoryVertex(
@@ -33,25 +32,13 @@ public class InMemoryVertex extends InMemoryElement implements Vertex {
     }
 
     @Override
-    public Iterable<Edge> getEdges(final Direction direction, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
-        return new FilterIterable<Edge>(getGraph().getEdgesFromVertex(getId(), fetchHints, authorizations)) {
-            @Override
-            protected boolean isIncluded(Edge edge) {
-                switch (direction) {
-                    case IN:
-                        return edge.getVertexId(Direction.IN).equals(getId());
-                    case OUT:
-                        return edge.getVertexId(Direction.OUT).equals(getId());
-                    default:
-                        return true;
-                }
-            }
-        };
+    public Iterable<Edge> getEdges(Direction direction, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getGraph().getEdgesFromVertex(getId(), direction, null, fetchHints, authorizations);
     }
 
     @Override
     public Iterable<String> getEdgeIds(Direction direction, Authorizations authorizations) {
-        return new EdgeToEdgeIdIterable(getEdges(direction, authorizations));
+        return getGraph().getEdgeIdsFromVertex(getId(), direction, null, FetchHint.ALL, authorizations);
     }
 
     @Override
@@ -61,12 +48,12 @@ public class InMemoryVertex extends InMemoryElement implements Vertex {
 
     @Override
     public Iterable<Edge> getEdges(Direction direction, String label, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
-        return getEdges(direction, labelToArrayOrNull(label), authorizations);
+        return getEdges(direction, labelToArrayOrNull(label), fetchHints, authorizations);
     }
 
     @Override
     public Iterable<String> getEdgeIds(Direction direction, String label, Authorizations authorizations) {
-        return new EdgeToEdgeIdIterable(getEdges(direction, label, authorizations));
+        return getEdgeIds(direction, labelToArrayOrNull(label), authorizations);
     }
 
     @Override
@@ -75,23 +62,13 @@ public class InMemoryVertex extends InMemoryElement implements Vertex {
     }
 
     @Override
-    public Iterable<Edge> getEdges(Direction direction, final String[] labels, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
-        return new FilterIterable<Edge>(getEdges(direction, authorizations)) {
-            @Override
-            protected boolean isIncluded(Edge edge) {
-                for (String label : labels) {
-                    if (label.equals(edge.getLabel())) {
-                        return true;
-                    }
-                }
-                return false;
-            }
-        };
+    public Iterable<Edge> getEdges(Direction direction, String[] labels, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getGraph().getEdgesFromVertex(getId(), direction, labels, fetchHints, authorizations);
     }
 
     @Override
     public Iterable<String> getEdgeIds(Direction direction, String[] labels, Authorizations authorizations) {
-        return new EdgeToEdgeIdIterable(getEdges(direction, labels, authorizations));
+        return getGraph().getEdgeIdsFromVertex(getId(), direction, labels, FetchHint.ALL, authorizations);
     }
 
     @Override
@@ -161,12 +138,7 @@ public class InMemoryVertex extends InMemoryElement implements Vertex {
 
     @Override
     public Iterable<String> getEdgeLabels(Direction direction, Authorizations authorizations) {
-        return toSet(new ConvertingIterable<Edge, String>(getEdges(direction, authorizations)) {
-            @Override
-            protected String convert(Edge o) {
-                return o.getLabel();
-            }
-        });
+        return getGraph().getEdgeLabelsFromVertex(getId(), direction, authorizations);
     }
 
     @Override
@@ -12,26 +12,29 @@ import org.securegraph.accumulo.serializer.ValueSerializer;
 import org.securegraph.type.GeoPoint;
 
 import java.util.HashMap;
-import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * Kryo instances are not thread-safe so each call borrows a pre-registered Kryo together with its own Input and
+ * Output from a pool and returns it when done. The pool grows to the number of threads using the serializer at the
+ * same time and the buffers are reused across calls.
+ */
 public class KryoValueSerializer implements ValueSerializer {
-    private final Kryo kryo;
-
-    public KryoValueSerializer() {
-        kryo = new Kryo();
-        kryo.register(EdgeInfo.class, 1000);
-        kryo.register(GeoPoint.class, 1001);
-        kryo.register(HashMap.class, 1002);
-        kryo.register(StreamingPropertyValueRef.class, 1003);
-        kryo.register(StreamingPropertyValueTableRef.class, 1004);
-        kryo.register(StreamingPropertyValueHdfsRef.class, 1005);
-    }
+    private static final int OUTPUT_BUFFER_SIZE = 2000;
+    private static final int MAX_POOLED_OUTPUT_BUFFER_SIZE = 1024 * 1024;
+    private final Queue<KryoContext> pool = new ConcurrentLinkedQueue<>();
 
     @Override
     public Value objectToValue(Object value) {
-        Output output = new Output(2000);
-        kryo.writeClassAndObject(output, value);
-        return new Value(output.toBytes());
+        KryoContext context = borrow();
+        try {
+            context.output.clear();
+            context.kryo.writeClassAndObject(context.output, value);
+            return new Value(context.output.toBytes());
+        } finally {
+            release(context);
+        }
     }
 
     @Override
@@ -41,7 +44,46 @@ public class KryoValueSerializer implements ValueSerializer {
 
     @Override
     public <T> T valueToObject(byte[] data) {
-        Input input = new Input(data);
-        return (T) kryo.readClassAndObject(input);
+        KryoContext context = borrow();
+        try {
+            context.input.setBuffer(data);
+            return (T) context.kryo.readClassAndObject(context.input);
+        } finally {
+            context.input.setBuffer(new byte[0]);
+            release(context);
+        }
+    }
+
+    private KryoContext borrow() {
+        KryoContext context = pool.poll();
+        if (context == null) {
+            context = new KryoContext();
+        }
+        return context;
+    }
+
+    private void release(KryoContext context) {
+        // keep the context but replace an output whose buffer grew to fit an unusually large value
+        if (context.output.getBuffer().length > MAX_POOLED_OUTPUT_BUFFER_SIZE) {
+            context.output = new Output(OUTPUT_BUFFER_SIZE, -1);
+        }
+        pool.offer(context);
+    }
+
+    private static Kryo createKryo() {
+        Kryo kryo = new Kryo();
+        kryo.register(EdgeInfo.class, 1000);
+        kryo.register(GeoPoint.class, 1001);
+        kryo.register(HashMap.class, 1002);
+        kryo.register(StreamingPropertyValueRef.class, 1003);
+        kryo.register(StreamingPropertyValueTableRef.class, 1004);
+        kryo.register(StreamingPropertyValueHdfsRef.class, 1005);
+        return kryo;
+    }
+
+    private static class KryoContext {
+        private final Kryo kryo = createKryo();
+        private final Input input = new Input();
+        private Output output = new Output(OUTPUT_BUFFER_SIZE, -1);
     }
 }
@@ -0,0 +1,91 @@
+package org.securegraph.accumulo.serializer.kryo;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.type.GeoPoint;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class KryoValueSerializerTest {
+    private static final int THREAD_COUNT = 8;
+    private static final int ITERATIONS = 500;
+
+    @Test
+    public void testRoundTrip() {
+        KryoValueSerializer serializer = new KryoValueSerializer();
+        assertEquals("value1", serializer.valueToObject(serializer.objectToValue("value1")));
+        assertEquals(new GeoPoint(38.9, -77.0), serializer.valueToObject(serializer.objectToValue(new GeoPoint(38.9, -77.0))));
+        assertNull(serializer.valueToObject(serializer.objectToValue(null)));
+    }
+
+    @Test
+    public void testLargeValues() {
+        KryoValueSerializer serializer = new KryoValueSerializer();
+        // larger than the pooled output buffer limit so the output is replaced on release
+        String largeValue = createText(2 * 1024 * 1024);
+        assertEquals(largeValue, serializer.valueToObject(serializer.objectToValue(largeValue)));
+        assertEquals("small", serializer.valueToObject(serializer.objectToValue("small")));
+        assertEquals(largeValue, serializer.valueToObject(serializer.objectToValue(largeValue)));
+    }
+
+    @Test
+    public void testConcurrentRoundTrips() throws InterruptedException, ExecutionException {
+        final KryoValueSerializer serializer = new KryoValueSerializer();
+        final CyclicBarrier barrier = new CyclicBarrier(THREAD_COUNT);
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < THREAD_COUNT; t++) {
+                final int threadIndex = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        barrier.await();
+                        for (int i = 0; i < ITERATIONS; i++) {
+                            Object value = createValue(threadIndex, i);
+                            assertEquals(value, serializer.valueToObject(serializer.objectToValue(value)));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Object createValue(int threadIndex, int i) {
+        switch (i % 4) {
+            case 0:
+                return "thread" + threadIndex + "-value" + i;
+            case 1:
+                return new GeoPoint(threadIndex, i, "thread" + threadIndex);
+            case 2:
+                HashMap<String, Object> map = new HashMap<>();
+                map.put("thread", threadIndex);
+                map.put("value", createText(i * 10));
+                return map;
+            default:
+                // every so often a value that outgrows the pooled output buffer
+                return createText(i % 100 == 3 ? 1100 * 1024 : i);
+        }
+    }
+
+    private static String createText(int length) {
+        StringBuilder result = new StringBuilder();
+        while (result.length() < length) {
+            result.append("the quick brown fox jumps over the lazy dog ");
+        }
+        return result.toString();
+    }
+}
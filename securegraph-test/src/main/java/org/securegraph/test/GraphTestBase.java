@@ -1031,6 +1031,9 @@ public abstract class GraphTestBase {
         v1 = graph.getVertex("v1", AUTHORIZATIONS_A);
         assertEquals(1, count(v1.getEdges(Direction.OUT, AUTHORIZATIONS_A)));
         assertEquals("label2", single(v1.getEdgeLabels(Direction.OUT, AUTHORIZATIONS_A)));
+        assertEquals(0, count(v1.getEdges(Direction.OUT, "label1", AUTHORIZATIONS_A)));
+        assertEquals(1, count(v1.getEdges(Direction.OUT, "label2", AUTHORIZATIONS_A)));
+        assertEquals(1, count(v1.getVertexIds(Direction.OUT, "label2", AUTHORIZATIONS_A)));
         v2 = graph.getVertex("v2", AUTHORIZATIONS_A);
         assertEquals(1, count(v2.getEdges(Direction.IN, AUTHORIZATIONS_A)));
         assertEquals("label2", single(v2.getEdgeLabels(Direction.IN, AUTHORIZATIONS_A)));